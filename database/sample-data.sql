@@ -0,0 +1,28 @@
+-- Sample data. Load after the application has started once, so that the
+-- Flyway migrations have created the tables.
+USE pahana_edu;
+
+-- Insert default admin user
+INSERT INTO users (username, password, role) VALUES 
+('admin', 'admin123', 'ADMIN'),
+('manager1', 'manager123', 'MANAGER'),
+('cashier1', 'cashier123', 'CASHIER');
+
+-- Insert sample customers
+INSERT INTO customers (account_number, name, address, telephone, email) VALUES 
+('ACC001', 'John Doe', '123 Main St, Colombo', '0771234567', 'john@email.com'),
+('ACC002', 'Jane Smith', '456 Oak Ave, Colombo', '0779876543', 'jane@email.com');
+
+-- Insert sample items
+INSERT INTO items (item_code, name, description, price, stock_quantity, category) VALUES 
+('BOOK001', 'Mathematics Textbook', 'Grade 10 Mathematics', 1500.00, 50, 'Textbooks'),
+('BOOK002', 'Science Workbook', 'Grade 9 Science Activities', 800.00, 30, 'Workbooks'),
+('STAT001', 'Pen Set', 'Blue ink pens pack of 10', 250.00, 100, 'Stationery');
+
+-- Open the stock ledger for the sample items
+INSERT INTO stock_movements (item_id, delta, reason, created_at)
+SELECT id, stock_quantity, 'OPENING', NOW(3) FROM items WHERE stock_quantity <> 0;
+
+-- All sample stock starts in the main store
+INSERT INTO branch_stock (item_id, branch_id, quantity)
+SELECT i.id, b.id, i.stock_quantity FROM items i JOIN branches b ON b.code = 'MAIN';
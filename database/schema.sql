@@ -2,82 +2,6 @@
 CREATE DATABASE IF NOT EXISTS pahana_edu;
 USE pahana_edu;
 
--- Users table for authentication
-CREATE TABLE users (
-    id BIGINT AUTO_INCREMENT PRIMARY KEY,
-    username VARCHAR(50) UNIQUE NOT NULL,
-    password VARCHAR(255) NOT NULL,
-    role ENUM('ADMIN', 'MANAGER', 'CASHIER', 'CUSTOMER') NOT NULL,
-    enabled BOOLEAN DEFAULT TRUE,
-    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
-);
-
--- Customers table
-CREATE TABLE customers (
-    id BIGINT AUTO_INCREMENT PRIMARY KEY,
-    account_number VARCHAR(20) UNIQUE NOT NULL,
-    name VARCHAR(100) NOT NULL,
-    address TEXT,
-    telephone VARCHAR(15),
-    email VARCHAR(100),
-    user_id BIGINT,
-    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
-    FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE SET NULL
-);
-
--- Items table
-CREATE TABLE items (
-    id BIGINT AUTO_INCREMENT PRIMARY KEY,
-    item_code VARCHAR(20) UNIQUE NOT NULL,
-    name VARCHAR(100) NOT NULL,
-    description TEXT,
-    price DECIMAL(10, 2) NOT NULL,
-    stock_quantity INT DEFAULT 0,
-    category VARCHAR(50),
-    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
-);
-
--- Bills table
-CREATE TABLE bills (
-    id BIGINT AUTO_INCREMENT PRIMARY KEY,
-    bill_number VARCHAR(20) UNIQUE NOT NULL,
-    customer_id BIGINT NOT NULL,
-    total_amount DECIMAL(10, 2) NOT NULL,
-    bill_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-    created_by BIGINT,
-    status ENUM('PENDING', 'PAID', 'CANCELLED') DEFAULT 'PENDING',
-    FOREIGN KEY (customer_id) REFERENCES customers(id),
-    FOREIGN KEY (created_by) REFERENCES users(id)
-);
-
--- Bill items table
-CREATE TABLE bill_items (
-    id BIGINT AUTO_INCREMENT PRIMARY KEY,
-    bill_id BIGINT NOT NULL,
-    item_id BIGINT NOT NULL,
-    quantity INT NOT NULL,
-    unit_price DECIMAL(10, 2) NOT NULL,
-    total_price DECIMAL(10, 2) NOT NULL,
-    FOREIGN KEY (bill_id) REFERENCES bills(id) ON DELETE CASCADE,
-    FOREIGN KEY (item_id) REFERENCES items(id)
-);
-
--- Insert default admin user
-INSERT INTO users (username, password, role) VALUES 
-('admin', 'admin123', 'ADMIN'),
-('manager1', 'manager123', 'MANAGER'),
-('cashier1', 'cashier123', 'CASHIER');
-
--- Insert sample customers
-INSERT INTO customers (account_number, name, address, telephone, email) VALUES 
-('ACC001', 'John Doe', '123 Main St, Colombo', '0771234567', 'john@email.com'),
-('ACC002', 'Jane Smith', '456 Oak Ave, Colombo', '0779876543', 'jane@email.com');
-
--- Insert sample items
-INSERT INTO items (item_code, name, description, price, stock_quantity, category) VALUES 
-('BOOK001', 'Mathematics Textbook', 'Grade 10 Mathematics', 1500.00, 50, 'Textbooks'),
-('BOOK002', 'Science Workbook', 'Grade 9 Science Activities', 800.00, 30, 'Workbooks'),
-('STAT001', 'Pen Set', 'Blue ink pens pack of 10', 250.00, 100, 'Stationery');
+-- Tables are created and upgraded by the Flyway migrations in
+-- src/main/resources/db/migration when the application starts.
+-- Sample users, customers and items are in sample-data.sql.
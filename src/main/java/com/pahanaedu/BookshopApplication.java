@@ -2,8 +2,10 @@ package com.pahanaedu;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class BookshopApplication {
     public static void main(String[] args) {
         SpringApplication.run(BookshopApplication.class, args);
@@ -0,0 +1,17 @@
+package com.pahanaedu.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+@Configuration
+public class CborConfig implements WebMvcConfigurer {
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        // Last, so JSON stays the default and CBOR is only used when asked for
+        converters.add(new CborHttpMessageConverter());
+    }
+}
@@ -0,0 +1,283 @@
+package com.pahanaedu.config;
+
+import com.pahanaedu.controller.BillController;
+import com.pahanaedu.entity.Bill;
+import com.pahanaedu.entity.BillItem;
+import com.pahanaedu.entity.Item;
+import com.pahanaedu.service.BillService;
+import com.pahanaedu.service.CatalogCache;
+import com.pahanaedu.util.CborReader;
+import com.pahanaedu.util.CborWriter;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code application/cbor} bodies for the catalog, item, bill and order endpoints,
+ * chosen when the client sends {@code Accept: application/cbor} or posts with that
+ * content type. JSON stays the default.
+ * <p>
+ * Items, bills, bill lines and catalog entries are written by hand-written
+ * encoders with a fixed field list and order, so the schema does not move when an
+ * entity gains a property or a Jackson annotation changes. Maps use the same text
+ * keys as the JSON. Associations are written as their ids ({@code customerId},
+ * {@code createdById}, {@code branchId}, {@code itemId}) instead of nested
+ * objects. Prices and amounts are tag 4 decimal fractions, and timestamps are ISO
+ * local date-time text as in the JSON. Maps, lists and scalars returned by the
+ * other handlers (error bodies, {@code ?fields=} rows, the book list) are written
+ * generically. Anything else is refused, never reflected over.
+ * <p>
+ * Request bodies can be a {@code Map} (customer orders) or a
+ * {@link BillController.CreateBillRequest}.
+ */
+public class CborHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+    public static final MediaType APPLICATION_CBOR = MediaType.parseMediaType("application/cbor");
+
+    public CborHttpMessageConverter() {
+        super(APPLICATION_CBOR);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return isWritable(clazz);
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        Class<?> raw = ResolvableType.forType(type).resolve(Object.class);
+        return (Map.class.isAssignableFrom(raw) || raw == BillController.CreateBillRequest.class) && canRead(mediaType);
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return canRead((Type) clazz, null, mediaType);
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        if (!canWrite(mediaType)) {
+            return false;
+        }
+        ResolvableType resolved = type != null ? ResolvableType.forType(type) : ResolvableType.forClass(clazz);
+        Class<?> raw = resolved.resolve(Object.class);
+        if (raw == Object.class) {
+            raw = clazz;
+        }
+        if (Collection.class.isAssignableFrom(raw)) {
+            Class<?> element = resolved.asCollection().getGeneric(0).resolve(Object.class);
+            return element == Object.class || isWritable(element);
+        }
+        return isWritable(raw);
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) throws IOException {
+        byte[] body = inputMessage.getBody().readAllBytes();
+        try {
+            if (!(new CborReader(body).readDocument() instanceof Map<?, ?> map)) {
+                throw new HttpMessageNotReadableException("Expected a CBOR map", inputMessage);
+            }
+            if (ResolvableType.forType(type).resolve(Object.class) == BillController.CreateBillRequest.class) {
+                return createBillRequest(map, inputMessage);
+            }
+            return map;
+        } catch (IllegalArgumentException | ArithmeticException e) {
+            throw new HttpMessageNotReadableException(e.getMessage(), e, inputMessage);
+        }
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+        return read(clazz, null, inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(Object value, Type type, HttpOutputMessage outputMessage) throws IOException {
+        CborWriter writer = new CborWriter(1024);
+        write(writer, value);
+        outputMessage.getHeaders().setContentLength(writer.size());
+        writer.writeTo(outputMessage.getBody());
+    }
+
+    private static boolean isWritable(Class<?> clazz) {
+        return Item.class.isAssignableFrom(clazz) || Bill.class.isAssignableFrom(clazz)
+                || BillItem.class.isAssignableFrom(clazz) || clazz == CatalogCache.CatalogItem.class
+                || Map.class.isAssignableFrom(clazz) || Collection.class.isAssignableFrom(clazz)
+                || CharSequence.class.isAssignableFrom(clazz) || Number.class.isAssignableFrom(clazz)
+                || clazz == Boolean.class || clazz.isEnum() || TemporalAccessor.class.isAssignableFrom(clazz);
+    }
+
+    private static void write(CborWriter writer, Object value) {
+        if (value == null) {
+            writer.writeNull();
+        } else if (value instanceof Item item) {
+            writeItem(writer, item);
+        } else if (value instanceof Bill bill) {
+            writeBill(writer, bill);
+        } else if (value instanceof BillItem line) {
+            writeBillItem(writer, line);
+        } else if (value instanceof CatalogCache.CatalogItem item) {
+            writeCatalogItem(writer, item);
+        } else if (value instanceof CharSequence text) {
+            writer.writeString(text.toString());
+        } else if (value instanceof BigDecimal decimal) {
+            writer.writeDecimal(decimal);
+        } else if (value instanceof BigInteger integer) {
+            writer.writeInteger(integer);
+        } else if (value instanceof Double || value instanceof Float) {
+            writer.writeDouble(((Number) value).doubleValue());
+        } else if (value instanceof Number number) {
+            writer.writeLong(number.longValue());
+        } else if (value instanceof Boolean bool) {
+            writer.writeBoolean(bool);
+        } else if (value instanceof Enum<?> constant) {
+            writer.writeString(constant.name());
+        } else if (value instanceof TemporalAccessor time) {
+            writer.writeString(time.toString());
+        } else if (value instanceof Map<?, ?> map) {
+            writer.startMap(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                writer.writeString(String.valueOf(entry.getKey()));
+                write(writer, entry.getValue());
+            }
+        } else if (value instanceof Collection<?> collection) {
+            writer.startArray(collection.size());
+            for (Object element : collection) {
+                write(writer, element);
+            }
+        } else {
+            throw new HttpMessageNotWritableException("No CBOR encoding for " + value.getClass().getSimpleName());
+        }
+    }
+
+    private static void writeItem(CborWriter writer, Item item) {
+        writer.startMap(10);
+        writer.writeString("id");
+        writeLong(writer, item.getId());
+        writer.writeString("itemCode").writeString(item.getItemCode());
+        writer.writeString("name").writeString(item.getName());
+        writer.writeString("description").writeString(item.getDescription());
+        writer.writeString("price").writeDecimal(item.getPrice());
+        writer.writeString("stockQuantity");
+        writeLong(writer, item.getStockQuantity());
+        writer.writeString("category").writeString(item.getCategory());
+        writer.writeString("hotStock");
+        writeBoolean(writer, item.getHotStock());
+        writer.writeString("createdAt");
+        writeTime(writer, item.getCreatedAt());
+        writer.writeString("updatedAt");
+        writeTime(writer, item.getUpdatedAt());
+    }
+
+    private static void writeCatalogItem(CborWriter writer, CatalogCache.CatalogItem item) {
+        writer.startMap(6);
+        writer.writeString("id");
+        writeLong(writer, item.getId());
+        writer.writeString("itemCode").writeString(item.getItemCode());
+        writer.writeString("name").writeString(item.getName());
+        writer.writeString("category").writeString(item.getCategory());
+        writer.writeString("price").writeDecimal(item.getPrice());
+        writer.writeString("stockQuantity").writeLong(item.getStockQuantity());
+    }
+
+    private static void writeBill(CborWriter writer, Bill bill) {
+        writer.startMap(13);
+        writer.writeString("id");
+        writeLong(writer, bill.getId());
+        writer.writeString("billNumber").writeString(bill.getBillNumber());
+        writer.writeString("customerId");
+        writeLong(writer, bill.getCustomer() != null ? bill.getCustomer().getId() : null);
+        writer.writeString("subtotalAmount").writeDecimal(bill.getSubtotalAmount());
+        writer.writeString("discountAmount").writeDecimal(bill.getDiscountAmount());
+        writer.writeString("taxAmount").writeDecimal(bill.getTaxAmount());
+        writer.writeString("totalAmount").writeDecimal(bill.getTotalAmount());
+        writer.writeString("billDate");
+        writeTime(writer, bill.getBillDate());
+        writer.writeString("createdById");
+        writeLong(writer, bill.getCreatedBy() != null ? bill.getCreatedBy().getId() : null);
+        writer.writeString("branchId");
+        writeLong(writer, bill.getBranch() != null ? bill.getBranch().getId() : null);
+        writer.writeString("status").writeString(bill.getStatus() != null ? bill.getStatus().name() : null);
+        writer.writeString("reservedUntil");
+        writeTime(writer, bill.getReservedUntil());
+        List<BillItem> lines = bill.getBillItems() != null ? bill.getBillItems() : List.of();
+        writer.writeString("billItems").startArray(lines.size());
+        for (BillItem line : lines) {
+            writeBillItem(writer, line);
+        }
+    }
+
+    private static void writeBillItem(CborWriter writer, BillItem line) {
+        writer.startMap(6);
+        writer.writeString("id");
+        writeLong(writer, line.getId());
+        writer.writeString("itemId");
+        writeLong(writer, line.getItem() != null ? line.getItem().getId() : null);
+        writer.writeString("quantity");
+        writeLong(writer, line.getQuantity());
+        writer.writeString("unitPrice").writeDecimal(line.getUnitPrice());
+        writer.writeString("discountAmount").writeDecimal(line.getDiscountAmount());
+        writer.writeString("totalPrice").writeDecimal(line.getTotalPrice());
+    }
+
+    private static void writeLong(CborWriter writer, Number value) {
+        if (value == null) {
+            writer.writeNull();
+        } else {
+            writer.writeLong(value.longValue());
+        }
+    }
+
+    private static void writeBoolean(CborWriter writer, Boolean value) {
+        if (value == null) {
+            writer.writeNull();
+        } else {
+            writer.writeBoolean(value);
+        }
+    }
+
+    private static void writeTime(CborWriter writer, TemporalAccessor value) {
+        writer.writeString(value != null ? value.toString() : null);
+    }
+
+    private static BillController.CreateBillRequest createBillRequest(Map<?, ?> map, HttpInputMessage inputMessage) {
+        BillController.CreateBillRequest request = new BillController.CreateBillRequest();
+        request.setCustomerId(toLong(map.get("customerId"), "customerId", inputMessage));
+        request.setBranchId(toLong(map.get("branchId"), "branchId", inputMessage));
+        if (map.get("items") instanceof List<?> items) {
+            List<BillService.BillItemRequest> lines = new ArrayList<>(items.size());
+            for (Object element : items) {
+                if (!(element instanceof Map<?, ?> line)) {
+                    throw new HttpMessageNotReadableException("Each of items must be a map", inputMessage);
+                }
+                Long quantity = toLong(line.get("quantity"), "quantity", inputMessage);
+                lines.add(new BillService.BillItemRequest(toLong(line.get("itemId"), "itemId", inputMessage),
+                        quantity != null ? Math.toIntExact(quantity) : null));
+            }
+            request.setItems(lines);
+        }
+        return request;
+    }
+
+    private static Long toLong(Object value, String field, HttpInputMessage inputMessage) {
+        if (value == null || value instanceof Long) {
+            return (Long) value;
+        }
+        throw new HttpMessageNotReadableException(field + " must be an integer", inputMessage);
+    }
+}
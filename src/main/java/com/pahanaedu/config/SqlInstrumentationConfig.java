@@ -0,0 +1,58 @@
+package com.pahanaedu.config;
+
+import com.pahanaedu.monitoring.JdbcInstrumentation;
+import com.pahanaedu.monitoring.SqlStatsCollector;
+import com.pahanaedu.monitoring.Tracer;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+
+@Configuration
+@ConditionalOnProperty(name = "bookshop.sql-stats.enabled", havingValue = "true", matchIfMissing = true)
+public class SqlInstrumentationConfig implements WebMvcConfigurer {
+
+    @Autowired
+    private SqlStatsCollector sqlStatsCollector;
+
+    @Bean
+    public static BeanPostProcessor sqlInstrumentingDataSourcePostProcessor(ObjectProvider<SqlStatsCollector> collector,
+                                                                           ObjectProvider<Tracer> tracer) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource) {
+                    return JdbcInstrumentation.wrap(dataSource, collector::getObject, tracer::getObject);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+                sqlStatsCollector.beginRequest(request.getMethod() + " " + (pattern != null ? pattern : request.getRequestURI()));
+                return true;
+            }
+
+            @Override
+            public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+                sqlStatsCollector.endRequest();
+            }
+        });
+    }
+}
@@ -0,0 +1,82 @@
+package com.pahanaedu.config;
+
+import com.pahanaedu.monitoring.Tracer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.MDC;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@Configuration
+public class TracingConfig {
+
+    public static final String TRACE_HEADER = "X-Trace-Id";
+
+    // W3C trace context: version-traceid-parentid-flags
+    private static final Pattern TRACEPARENT = Pattern.compile("^[0-9a-f]{2}-([0-9a-f]{32})-([0-9a-f]{16})-[0-9a-f]{2}$");
+
+    /**
+     * Opens the root span of every request, continuing the caller's trace when a
+     * {@code traceparent} header is sent, and returns the trace id in
+     * {@code X-Trace-Id} so a slow response can be looked up later.
+     */
+    @Bean
+    public FilterRegistrationBean<OncePerRequestFilter> tracingFilter(Tracer tracer) {
+        OncePerRequestFilter filter = new OncePerRequestFilter() {
+            @Override
+            protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+                    throws ServletException, IOException {
+                String traceId = null;
+                String parentSpanId = null;
+                String traceparent = request.getHeader("traceparent");
+                if (traceparent != null) {
+                    Matcher matcher = TRACEPARENT.matcher(traceparent.trim());
+                    if (matcher.matches()) {
+                        traceId = matcher.group(1);
+                        parentSpanId = matcher.group(2);
+                    }
+                }
+
+                Tracer.Span root = tracer.startTrace(request.getMethod() + " " + request.getRequestURI(), traceId, parentSpanId);
+                if (root == null) {
+                    chain.doFilter(request, response);
+                    return;
+                }
+                String currentTraceId = tracer.currentTraceId();
+                response.setHeader(TRACE_HEADER, currentTraceId);
+                MDC.put("traceId", currentTraceId);
+                Throwable error = null;
+                try {
+                    chain.doFilter(request, response);
+                } catch (IOException | ServletException | RuntimeException e) {
+                    error = e;
+                    throw e;
+                } finally {
+                    Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+                    if (pattern != null) {
+                        root.setName(request.getMethod() + " " + pattern);
+                    }
+                    root.setAttribute("http.method", request.getMethod());
+                    root.setAttribute("http.target", request.getRequestURI());
+                    tracer.endTrace(root, error != null ? 500 : response.getStatus(), error);
+                    MDC.remove("traceId");
+                }
+            }
+        };
+
+        FilterRegistrationBean<OncePerRequestFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.setName("tracingFilter");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+}
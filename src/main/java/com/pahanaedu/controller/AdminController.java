@@ -1,15 +1,36 @@
 package com.pahanaedu.controller;
 
+import com.pahanaedu.entity.DiscountRule;
 import com.pahanaedu.entity.User;
+import com.pahanaedu.monitoring.JfrRecorder;
+import com.pahanaedu.monitoring.LogControl;
+import com.pahanaedu.monitoring.QueryPlanVerifier;
+import com.pahanaedu.monitoring.SqlStatsCollector;
+import com.pahanaedu.monitoring.TraceStore;
+import com.pahanaedu.monitoring.Tracer;
+import com.pahanaedu.service.OutboxService;
+import com.pahanaedu.service.PricingEngine;
+import com.pahanaedu.service.SalesForecastService;
+import com.pahanaedu.service.StatementService;
+import com.pahanaedu.service.StockLedgerService;
+import com.pahanaedu.service.UniquenessFilter;
 import com.pahanaedu.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.nio.file.Path;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/admin")
@@ -19,6 +40,42 @@ public class AdminController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private SqlStatsCollector sqlStatsCollector;
+
+    @Autowired
+    private QueryPlanVerifier queryPlanVerifier;
+
+    @Autowired
+    private Tracer tracer;
+
+    @Autowired
+    private TraceStore traceStore;
+
+    @Autowired
+    private JfrRecorder jfrRecorder;
+
+    @Autowired
+    private LogControl logControl;
+
+    @Autowired
+    private UniquenessFilter uniquenessFilter;
+
+    @Autowired
+    private PricingEngine pricingEngine;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private StockLedgerService stockLedgerService;
+
+    @Autowired
+    private SalesForecastService salesForecastService;
+
+    @Autowired
+    private StatementService statementService;
+
     @GetMapping("/users")
     @Operation(summary = "Get all users", description = "Retrieve all users (Admin only)")
     public ResponseEntity<List<User>> getAllUsers() {
@@ -63,4 +120,231 @@ public class AdminController {
     public ResponseEntity<List<User>> getUsersByRole(@PathVariable User.Role role) {
         return ResponseEntity.ok(userService.getUsersByRole(role));
     }
+
+    @GetMapping("/sql-stats")
+    @Operation(summary = "Get SQL statistics", description = "Slowest and most frequent statements, per-endpoint SQL cost and N+1 findings (Admin only)")
+    public ResponseEntity<Map<String, Object>> getSqlStats() {
+        return ResponseEntity.ok(sqlStatsCollector.snapshot());
+    }
+
+    @DeleteMapping("/sql-stats")
+    @Operation(summary = "Reset SQL statistics", description = "Clear the collected SQL statistics (Admin only)")
+    public ResponseEntity<Void> resetSqlStats() {
+        sqlStatsCollector.reset();
+        return ResponseEntity.ok().build();
+    }
+
+    @GetMapping("/traces")
+    @Operation(summary = "Search traces", description = "Kept (slow, failed or sampled) request traces, newest first, by root span name and minimum duration (Admin only)")
+    public ResponseEntity<Map<String, Object>> searchTraces(@RequestParam(required = false) String name,
+                                                            @RequestParam(defaultValue = "0") long minDurationMs,
+                                                            @RequestParam(defaultValue = "false") boolean errors,
+                                                            @RequestParam(defaultValue = "50") int limit) {
+        Map<String, Object> result = traceStore.search(name, minDurationMs, errors, Math.max(1, Math.min(limit, 500)));
+        result.put("sampling", tracer.stats());
+        return ResponseEntity.ok(result);
+    }
+
+    @GetMapping("/traces/{traceId}")
+    @Operation(summary = "Get trace", description = "All spans of a kept trace in OTLP/JSON (Admin only)")
+    public ResponseEntity<?> getTrace(@PathVariable String traceId) {
+        return traceStore.find(traceId)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/jfr")
+    @Operation(summary = "Start JFR recording", description = "Start a Flight Recorder recording with the default or profile preset, optionally for a fixed number of seconds (Admin only)")
+    public ResponseEntity<?> startRecording(@RequestParam(defaultValue = "default") String profile,
+                                            @RequestParam(required = false) Long durationSeconds) {
+        try {
+            return ResponseEntity.ok(jfrRecorder.start(profile, durationSeconds));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/jfr")
+    @Operation(summary = "List JFR recordings", description = "Recordings started through the API and their state (Admin only)")
+    public ResponseEntity<List<Map<String, Object>>> listRecordings() {
+        return ResponseEntity.ok(jfrRecorder.list());
+    }
+
+    @PostMapping("/jfr/{id}/stop")
+    @Operation(summary = "Stop JFR recording", description = "Stop a running recording; its file stays available for download (Admin only)")
+    public ResponseEntity<?> stopRecording(@PathVariable long id) {
+        try {
+            return ResponseEntity.ok(jfrRecorder.stop(id));
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @GetMapping("/jfr/{id}/file")
+    @Operation(summary = "Download JFR recording", description = "Stream the .jfr file of a recording, a snapshot if it is still running (Admin only)")
+    public ResponseEntity<Resource> downloadRecording(@PathVariable long id) {
+        try {
+            Path file = jfrRecorder.dump(id);
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + file.getFileName() + "\"")
+                    .body(new FileSystemResource(file));
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @DeleteMapping("/jfr/{id}")
+    @Operation(summary = "Delete JFR recording", description = "Close a recording and delete its file (Admin only)")
+    public ResponseEntity<Void> deleteRecording(@PathVariable long id) {
+        jfrRecorder.delete(id);
+        return ResponseEntity.ok().build();
+    }
+
+    @GetMapping("/logging")
+    @Operation(summary = "Get logging state", description = "Logger levels, sampling rates and drops, debug rules and async queue fill (Admin only)")
+    public ResponseEntity<Map<String, Object>> getLoggingStatus() {
+        return ResponseEntity.ok(logControl.status());
+    }
+
+    @PutMapping("/logging/levels/{logger}")
+    @Operation(summary = "Set logger level", description = "Change a logger's level at runtime; omit level to inherit again (Admin only)")
+    public ResponseEntity<?> setLogLevel(@PathVariable String logger, @RequestParam(required = false) String level) {
+        try {
+            logControl.setLevel(logger, level);
+            return ResponseEntity.ok(logControl.status());
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @PutMapping("/logging/sampling/{logger}")
+    @Operation(summary = "Set log sampling", description = "Keep only rate (0..1) of a logger's INFO and DEBUG events; 1 turns sampling off (Admin only)")
+    public ResponseEntity<?> setLogSampling(@PathVariable String logger, @RequestParam double rate) {
+        try {
+            logControl.setSampleRate(logger, rate);
+            return ResponseEntity.ok(logControl.status());
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @PostMapping("/logging/debug")
+    @Operation(summary = "Debug matching requests", description = "Log DEBUG for requests of one customer or under a path for a number of minutes (Admin only)")
+    public ResponseEntity<?> addDebugRule(@RequestParam(required = false) Long customerId,
+                                          @RequestParam(required = false) String path,
+                                          @RequestParam(defaultValue = "15") int minutes) {
+        try {
+            return ResponseEntity.ok(logControl.addDebugRule(customerId, path, Math.min(minutes, 240)));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @DeleteMapping("/logging/debug/{id}")
+    @Operation(summary = "Remove debug rule", description = "Stop request-scoped DEBUG for a rule (Admin only)")
+    public ResponseEntity<Void> removeDebugRule(@PathVariable long id) {
+        logControl.removeDebugRule(id);
+        return ResponseEntity.ok().build();
+    }
+
+    @GetMapping("/uniqueness")
+    @Operation(summary = "Get uniqueness filter stats", description = "Size, fill and expected and observed false-positive rates of the username, account number and item code filters, and how many existence queries they saved (Admin only)")
+    public ResponseEntity<Map<String, Object>> getUniquenessStats() {
+        return ResponseEntity.ok(uniquenessFilter.stats());
+    }
+
+    @GetMapping("/schema/explain")
+    @Operation(summary = "Explain repository finders", description = "EXPLAIN plans for each repository finder, flagging full table scans (Admin only)")
+    public ResponseEntity<List<Map<String, Object>>> explainFinders() {
+        return ResponseEntity.ok(queryPlanVerifier.verify());
+    }
+
+    @GetMapping("/discounts")
+    @Operation(summary = "Get discount rules", description = "All item, category and basket discount rules (Admin only)")
+    public ResponseEntity<List<DiscountRule>> getDiscountRules() {
+        return ResponseEntity.ok(pricingEngine.getRules());
+    }
+
+    @PostMapping("/discounts")
+    @Operation(summary = "Create discount rule", description = "Create a discount rule; it applies to new bills immediately (Admin only)")
+    public ResponseEntity<?> createDiscountRule(@Valid @RequestBody DiscountRule rule) {
+        try {
+            rule.setId(null);
+            return ResponseEntity.ok(pricingEngine.saveRule(rule));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @PutMapping("/discounts/{id}")
+    @Operation(summary = "Update discount rule", description = "Replace an existing discount rule (Admin only)")
+    public ResponseEntity<?> updateDiscountRule(@PathVariable Long id, @Valid @RequestBody DiscountRule rule) {
+        try {
+            rule.setId(id);
+            return ResponseEntity.ok(pricingEngine.saveRule(rule));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @DeleteMapping("/discounts/{id}")
+    @Operation(summary = "Delete discount rule", description = "Delete a discount rule (Admin only)")
+    public ResponseEntity<Void> deleteDiscountRule(@PathVariable Long id) {
+        try {
+            pricingEngine.deleteRule(id);
+            return ResponseEntity.ok().build();
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @GetMapping("/events")
+    @Operation(summary = "Read domain events", description = "Read the event journal from an offset; pass nextOffset back to continue (Admin only)")
+    public ResponseEntity<Map<String, Object>> readEvents(@RequestParam(defaultValue = "0") long offset,
+                                                          @RequestParam(defaultValue = "100") int limit) {
+        try {
+            return ResponseEntity.ok(outboxService.read(offset, Math.max(1, Math.min(limit, 1000))));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @PostMapping("/stock/reconcile")
+    @Operation(summary = "Reconcile stock", description = "Compare items.stock_quantity with the stock ledger for every item (Admin only)")
+    public ResponseEntity<Map<String, Object>> reconcileStock() {
+        return ResponseEntity.ok(stockLedgerService.reconcile());
+    }
+
+    @PostMapping("/stock/snapshots")
+    @Operation(summary = "Take stock snapshots", description = "Snapshot ledger balances of items that moved since the last snapshot (Admin only)")
+    public ResponseEntity<Map<String, Object>> takeStockSnapshots() {
+        return ResponseEntity.ok(Map.of("snapshots", stockLedgerService.takeSnapshots()));
+    }
+
+    @PostMapping("/forecast/refresh")
+    @Operation(summary = "Refresh sales forecast", description = "Fold sales since the last run into item sales velocities (Admin only)")
+    public ResponseEntity<Map<String, Object>> refreshForecast() {
+        return ResponseEntity.ok(salesForecastService.refresh());
+    }
+
+    @PostMapping("/statements/{month}")
+    @Operation(summary = "Generate customer statements", description = "Start or resume writing statements for a month (yyyy-MM) in the background (Admin only)")
+    public ResponseEntity<Map<String, Object>> generateStatements(@PathVariable String month) {
+        try {
+            return ResponseEntity.ok(statementService.start(YearMonth.parse(month)));
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Month must be yyyy-MM"));
+        }
+    }
+
+    @GetMapping("/statements/{month}")
+    @Operation(summary = "Get statement run status", description = "Progress of the statement run for a month (yyyy-MM) (Admin only)")
+    public ResponseEntity<Map<String, Object>> getStatementStatus(@PathVariable String month) {
+        try {
+            return ResponseEntity.ok(statementService.status(YearMonth.parse(month)));
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Month must be yyyy-MM"));
+        }
+    }
 }
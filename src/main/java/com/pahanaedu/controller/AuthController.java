@@ -1,6 +1,7 @@
 package com.pahanaedu.controller;
 
 import com.pahanaedu.entity.User;
+import com.pahanaedu.monitoring.JfrEvents;
 import com.pahanaedu.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -24,9 +25,16 @@ public class AuthController {
     @Operation(summary = "User login", description = "Authenticate user credentials")
     public ResponseEntity<?> login(@RequestBody LoginRequest loginRequest) {
         try {
+            JfrEvents.LoginVerification event = new JfrEvents.LoginVerification();
+            event.begin();
             Optional<User> user = userService.getUserByUsername(loginRequest.getUsername());
-            
-            if (user.isPresent() && user.get().getPassword().equals(loginRequest.getPassword())) {
+            boolean verified = user.isPresent() && user.get().getPassword().equals(loginRequest.getPassword());
+            event.kind = "staff";
+            event.knownUser = user.isPresent();
+            event.success = verified;
+            event.commit();
+
+            if (verified) {
                 Map<String, Object> response = new HashMap<>();
                 response.put("message", "Login successful");
                 response.put("id", user.get().getId());
@@ -2,17 +2,29 @@ package com.pahanaedu.controller;
 
 import com.pahanaedu.entity.Bill;
 import com.pahanaedu.entity.User;
+import com.pahanaedu.service.BatchLookup;
+import com.pahanaedu.service.BillQueryService;
 import com.pahanaedu.service.BillService;
+import com.pahanaedu.service.BillStatusFeedService;
+import com.pahanaedu.service.IdempotencyService;
 import com.pahanaedu.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.math.BigDecimal;
+import java.security.Principal;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/bills")
@@ -24,33 +36,102 @@ public class BillController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private BillStatusFeedService billStatusFeedService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private BillQueryService billQueryService;
+
     @GetMapping
-    @Operation(summary = "Get all bills", description = "Retrieve all bills")
-    public ResponseEntity<List<Bill>> getAllBills() {
-        return ResponseEntity.ok(billService.getAllBills());
+    @Operation(summary = "Get all bills", description = "Retrieve all bills; with fields (e.g. id,billNumber,customerId,totalAmount,status) only those columns are read and returned")
+    public ResponseEntity<?> getAllBills(@RequestParam(required = false) String fields) {
+        if (fields == null) {
+            return ResponseEntity.ok(billService.getAllBills());
+        }
+        try {
+            return ResponseEntity.ok(billService.getAllBillFields(fields));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/query")
+    @Operation(summary = "Query bills", description = "Filter live and archived bills by date range, statuses, customer, cashier and amount, with keyset paging and optional count/sum totals")
+    public ResponseEntity<?> queryBills(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Set<Bill.Status> status,
+            @RequestParam(required = false) Long customerId,
+            @RequestParam(required = false) Long createdBy,
+            @RequestParam(required = false) BigDecimal minAmount,
+            @RequestParam(required = false) BigDecimal maxAmount,
+            @RequestParam(required = false) BillQueryService.Sort sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "false") boolean totals) {
+        BillQueryService.BillQuery query = new BillQueryService.BillQuery();
+        query.setFrom(from);
+        query.setTo(to);
+        query.setStatuses(status);
+        query.setCustomerId(customerId);
+        query.setCreatedById(createdBy);
+        query.setMinAmount(minAmount);
+        query.setMaxAmount(maxAmount);
+        query.setSort(sort);
+        query.setCursor(cursor);
+        query.setLimit(limit);
+        query.setIncludeTotals(totals);
+        try {
+            return ResponseEntity.ok(billQueryService.search(query));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
 
     @GetMapping("/{id}")
-    @Operation(summary = "Get bill by ID", description = "Retrieve bill by ID")
-    public ResponseEntity<Bill> getBillById(@PathVariable Long id) {
-        Optional<Bill> bill = billService.getBillById(id);
-        return bill.map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
+    @Operation(summary = "Get bill by ID", description = "Retrieve bill by ID; with fields only those columns are read and returned (without bill items)")
+    public ResponseEntity<?> getBillById(@PathVariable Long id, @RequestParam(required = false) String fields) {
+        if (fields == null) {
+            Optional<Bill> bill = billService.getBillById(id);
+            return bill.map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
+        }
+        try {
+            Optional<Map<String, Object>> bill = billService.getBillFieldsById(id, fields);
+            return bill.map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping(value = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Subscribe to bill status", description = "Stream status changes of a bill as Server-Sent Events")
+    public SseEmitter subscribeToBillStatus(@PathVariable Long id,
+                                            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return billStatusFeedService.subscribeToBill(id, lastEventId);
     }
 
     @PostMapping
-    @Operation(summary = "Create bill", description = "Create new bill")
-    public ResponseEntity<Bill> createBill(@Valid @RequestBody CreateBillRequest request) {
-        try {
-            User defaultUser = userService.getUsersByRole(User.Role.ADMIN).stream().findFirst().orElse(null);
-            if (defaultUser == null) {
+    @Operation(summary = "Create bill", description = "Create new bill, taking stock from branchId or the cashier's branch. Send an Idempotency-Key header to make retries safe")
+    public ResponseEntity<?> createBill(@Valid @RequestBody CreateBillRequest request,
+                                        @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+                                        Principal principal) {
+        return idempotencyService.execute("bill", idempotencyKey, principal, request, () -> {
+            try {
+                User defaultUser = userService.getUsersByRole(User.Role.ADMIN).stream().findFirst().orElse(null);
+                if (defaultUser == null) {
+                    return ResponseEntity.badRequest().build();
+                }
+
+                Bill createdBill = billService.createBill(request.getCustomerId(), request.getItems(), defaultUser,
+                        request.getBranchId());
+                return ResponseEntity.ok(createdBill);
+            } catch (RuntimeException e) {
                 return ResponseEntity.badRequest().build();
             }
-
-            Bill createdBill = billService.createBill(request.getCustomerId(), request.getItems(), defaultUser);
-            return ResponseEntity.ok(createdBill);
-        } catch (RuntimeException e) {
-            return ResponseEntity.badRequest().build();
-        }
+        });
     }
 
     @PutMapping("/{id}/status")
@@ -82,6 +163,16 @@ public class BillController {
         return bill.map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
     }
 
+    @PostMapping("/lookup")
+    @Operation(summary = "Batch bill lookup", description = "Fetch up to 200 live or archived bills by id and bill number in one call")
+    public ResponseEntity<?> lookupBills(@RequestBody BatchLookup.Request request) {
+        try {
+            return ResponseEntity.ok(billService.lookupBills(request));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     @GetMapping("/status/{status}")
     @Operation(summary = "Get bills by status", description = "Retrieve bills by status")
     public ResponseEntity<List<Bill>> getBillsByStatus(@PathVariable Bill.Status status) {
@@ -91,6 +182,7 @@ public class BillController {
     public static class CreateBillRequest {
         private Long customerId;
         private List<BillService.BillItemRequest> items;
+        private Long branchId;
 
         // Constructors
         public CreateBillRequest() {}
@@ -106,5 +198,8 @@ public class BillController {
 
         public List<BillService.BillItemRequest> getItems() { return items; }
         public void setItems(List<BillService.BillItemRequest> items) { this.items = items; }
+
+        public Long getBranchId() { return branchId; }
+        public void setBranchId(Long branchId) { this.branchId = branchId; }
     }
 }
@@ -0,0 +1,79 @@
+package com.pahanaedu.controller;
+
+import com.pahanaedu.entity.Branch;
+import com.pahanaedu.entity.BranchStock;
+import com.pahanaedu.service.BranchService;
+import com.pahanaedu.service.ItemService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/branches")
+@Tag(name = "Branches", description = "Branch and per-branch stock APIs")
+public class BranchController {
+
+    @Autowired
+    private BranchService branchService;
+
+    @Autowired
+    private ItemService itemService;
+
+    @GetMapping
+    @Operation(summary = "Get all branches", description = "Retrieve all branches")
+    public ResponseEntity<List<Branch>> getAllBranches() {
+        return ResponseEntity.ok(branchService.getAllBranches());
+    }
+
+    @GetMapping("/{id}")
+    @Operation(summary = "Get branch by ID", description = "Retrieve branch by ID")
+    public ResponseEntity<Branch> getBranchById(@PathVariable Long id) {
+        return branchService.getBranchById(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping
+    @Operation(summary = "Create branch", description = "Create new branch")
+    public ResponseEntity<?> createBranch(@Valid @RequestBody Branch branch) {
+        try {
+            return ResponseEntity.ok(branchService.createBranch(branch));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @PutMapping("/{id}")
+    @Operation(summary = "Update branch", description = "Rename or (de)activate a branch")
+    public ResponseEntity<?> updateBranch(@PathVariable Long id, @Valid @RequestBody Branch branch) {
+        try {
+            return ResponseEntity.ok(branchService.updateBranch(id, branch));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/{id}/stock")
+    @Operation(summary = "Get branch stock", description = "Stock of every item held at a branch")
+    public ResponseEntity<List<BranchStock>> getBranchStock(@PathVariable Long id) {
+        return ResponseEntity.ok(branchService.getBranchStock(id));
+    }
+
+    @PostMapping("/transfer")
+    @Operation(summary = "Transfer stock", description = "Move units of an item from one branch to another")
+    public ResponseEntity<?> transferStock(@RequestParam Long itemId, @RequestParam Long fromBranchId,
+                                           @RequestParam Long toBranchId, @RequestParam int quantity) {
+        try {
+            itemService.transferStock(itemId, fromBranchId, toBranchId, quantity);
+            return ResponseEntity.ok().build();
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+}
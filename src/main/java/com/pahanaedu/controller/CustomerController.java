@@ -3,6 +3,7 @@ package com.pahanaedu.controller;
 import com.pahanaedu.entity.Bill;
 import com.pahanaedu.entity.Customer;
 import com.pahanaedu.entity.User;
+import com.pahanaedu.service.BatchLookup;
 import com.pahanaedu.service.BillService;
 import com.pahanaedu.service.CustomerService;
 import com.pahanaedu.service.UserService;
@@ -15,6 +16,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @RestController
@@ -32,16 +34,48 @@ public class CustomerController {
     private UserService userService;
 
     @GetMapping("/all")
-    @Operation(summary = "Get all customers", description = "Retrieve all customers")
-    public ResponseEntity<List<Customer>> getAllCustomers() {
-        return ResponseEntity.ok(customerService.getAllCustomers());
+    @Operation(summary = "Get all customers", description = "Retrieve all customers; with fields (e.g. id,accountNumber,name) only those columns are read and returned")
+    public ResponseEntity<?> getAllCustomers(@RequestParam(required = false) String fields) {
+        if (fields == null) {
+            return ResponseEntity.ok(customerService.getAllCustomers());
+        }
+        try {
+            return ResponseEntity.ok(customerService.getAllCustomerFields(fields));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/lookup")
+    @Operation(summary = "Type-ahead customer lookup", description = "Match customers by prefix of account number, name, telephone or email")
+    public ResponseEntity<List<Map<String, Object>>> lookupCustomers(@RequestParam String q,
+                                                                     @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(customerService.lookupCustomers(q, Math.max(1, Math.min(limit, 50))));
+    }
+
+    @PostMapping("/lookup")
+    @Operation(summary = "Batch customer lookup", description = "Fetch up to 200 customers by id and account number in one call")
+    public ResponseEntity<?> lookupCustomers(@RequestBody BatchLookup.Request request) {
+        try {
+            return ResponseEntity.ok(customerService.lookupCustomers(request));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
 
     @GetMapping("/{id}")
-    @Operation(summary = "Get customer by ID", description = "Retrieve customer by ID")
-    public ResponseEntity<Customer> getCustomerById(@PathVariable Long id) {
-        Optional<Customer> customer = customerService.getCustomerById(id);
-        return customer.map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
+    @Operation(summary = "Get customer by ID", description = "Retrieve customer by ID; with fields only those columns are read and returned")
+    public ResponseEntity<?> getCustomerById(@PathVariable Long id, @RequestParam(required = false) String fields) {
+        if (fields == null) {
+            Optional<Customer> customer = customerService.getCustomerById(id);
+            return customer.map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
+        }
+        try {
+            Optional<Map<String, Object>> customer = customerService.getCustomerFieldsById(id, fields);
+            return customer.map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
 
     @PostMapping
@@ -4,20 +4,27 @@ import com.pahanaedu.entity.User;
 import com.pahanaedu.entity.Customer;
 import com.pahanaedu.entity.Item;
 import com.pahanaedu.entity.Bill;
-import com.pahanaedu.entity.BillItem;
+import com.pahanaedu.monitoring.JfrEvents;
 import com.pahanaedu.repository.UserRepository;
 import com.pahanaedu.repository.CustomerRepository;
 import com.pahanaedu.repository.ItemRepository;
-import com.pahanaedu.repository.BillRepository;
-import com.pahanaedu.repository.BillItemRepository;
+import com.pahanaedu.service.BillService;
+import com.pahanaedu.service.BillStatusFeedService;
+import com.pahanaedu.service.CartService;
+import com.pahanaedu.service.CustomerService;
+import com.pahanaedu.service.IdempotencyService;
+import com.pahanaedu.service.UniquenessFilter;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.math.BigDecimal;
-import java.time.LocalDateTime;
+import java.security.Principal;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -37,10 +44,22 @@ public class CustomerPublicController {
     private ItemRepository itemRepository;
     
     @Autowired
-    private BillRepository billRepository;
+    private BillService billService;
     
     @Autowired
-    private BillItemRepository billItemRepository;
+    private CustomerService customerService;
+    
+    @Autowired
+    private BillStatusFeedService billStatusFeedService;
+    
+    @Autowired
+    private IdempotencyService idempotencyService;
+    
+    @Autowired
+    private CartService cartService;
+    
+    @Autowired
+    private UniquenessFilter uniquenessFilter;
     
     private String hashPassword(String password) {
         return Integer.toString(password.hashCode());
@@ -62,7 +81,8 @@ public class CustomerPublicController {
             String address = (String) request.get("address");
             
             // Check if username already exists
-            if (userRepository.findByUsername(username).isPresent()) {
+            if (uniquenessFilter.isTaken(UniquenessFilter.Key.USERNAME, username,
+                    () -> userRepository.existsByUsername(username))) {
                 return ResponseEntity.badRequest().body(Map.of("error", "Username already exists"));
             }
             
@@ -72,7 +92,13 @@ public class CustomerPublicController {
             user.setPassword(hashPassword(password)); // Use simple hash instead of BCrypt
             user.setRole(User.Role.CUSTOMER); // Use proper enum conversion
             user.setEnabled(true);
-            User savedUser = userRepository.save(user);
+            User savedUser;
+            try {
+                savedUser = userRepository.saveAndFlush(user);
+            } catch (DataIntegrityViolationException e) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Username already exists"));
+            }
+            uniquenessFilter.add(UniquenessFilter.Key.USERNAME, savedUser.getUsername());
             
             // Generate account number
             String accountNumber = "ACC" + System.currentTimeMillis() + String.format("%03d", (int)(Math.random() * 1000));
@@ -85,7 +111,7 @@ public class CustomerPublicController {
             customer.setTelephone(telephone);
             customer.setAddress(address);
             customer.setUser(savedUser); // Use User object instead of setUserId
-            Customer savedCustomer = customerRepository.save(customer);
+            Customer savedCustomer = customerService.createCustomer(customer);
             
             return ResponseEntity.ok(Map.of(
                 "message", "Customer registered successfully",
@@ -104,15 +130,19 @@ public class CustomerPublicController {
             String username = credentials.get("username");
             String password = credentials.get("password");
             
+            JfrEvents.LoginVerification event = new JfrEvents.LoginVerification();
+            event.begin();
             Optional<User> userOpt = userRepository.findByUsername(username);
-            if (userOpt.isEmpty()) {
+            boolean verified = userOpt.isPresent() && verifyPassword(password, userOpt.get().getPassword()); // Use simple password verification
+            event.kind = "customer";
+            event.knownUser = userOpt.isPresent();
+            event.success = verified;
+            event.commit();
+            if (!verified) {
                 return ResponseEntity.badRequest().body(Map.of("error", "Invalid credentials"));
             }
             
             User user = userOpt.get();
-            if (!verifyPassword(password, user.getPassword())) { // Use simple password verification
-                return ResponseEntity.badRequest().body(Map.of("error", "Invalid credentials"));
-            }
             
             // Find customer record by user relationship
             List<Customer> customers = customerRepository.findAll();
@@ -180,87 +210,108 @@ public class CustomerPublicController {
 
     @PostMapping("/order")
     @Operation(summary = "Create order for selected books")
-    public ResponseEntity<?> createOrder(@RequestBody Map<String, Object> orderRequest) {
-        try {
-            Long customerId = Long.valueOf(orderRequest.get("customerId").toString());
-            @SuppressWarnings("unchecked")
-            List<Map<String, Object>> items = (List<Map<String, Object>>) orderRequest.get("items");
-            
-            // Verify customer exists
-            Optional<Customer> customerOpt = customerRepository.findById(customerId);
-            if (customerOpt.isEmpty()) {
-                return ResponseEntity.badRequest().body(Map.of("error", "Customer not found"));
-            }
-            
-            Customer customer = customerOpt.get();
-            
-            // Generate bill number
-            String billNumber = "BILL" + System.currentTimeMillis();
-            
-            // Create bill
-            Bill bill = new Bill();
-            bill.setBillNumber(billNumber);
-            bill.setCustomer(customer); // Use Customer object instead of setCustomerId
-            bill.setBillDate(LocalDateTime.now()); // Use LocalDateTime instead of LocalDate
-            bill.setStatus(Bill.Status.PENDING); // Use proper enum
-            bill.setCreatedBy(customer.getUser()); // Use User object instead of getUserId
-            
-            BigDecimal totalAmount = BigDecimal.ZERO; // Use BigDecimal for monetary calculations
-            
-            // Calculate total and check stock
-            for (Map<String, Object> itemData : items) {
-                Long itemId = Long.valueOf(itemData.get("itemId").toString());
-                Integer quantity = Integer.valueOf(itemData.get("quantity").toString());
-                
-                Optional<Item> itemOpt = itemRepository.findById(itemId);
-                if (itemOpt.isEmpty()) {
-                    return ResponseEntity.badRequest().body(Map.of("error", "Item not found: " + itemId));
-                }
-                
-                Item item = itemOpt.get();
-                if (item.getStockQuantity() == null || item.getStockQuantity() < quantity) {
-                    return ResponseEntity.badRequest().body(Map.of("error", "Insufficient stock for: " + item.getName()));
-                }
-                
-                BigDecimal itemPrice = item.getPrice() != null ? item.getPrice() : BigDecimal.ZERO;
-                totalAmount = totalAmount.add(itemPrice.multiply(BigDecimal.valueOf(quantity))); // Proper BigDecimal arithmetic
-            }
-            
-            bill.setTotalAmount(totalAmount);
-            Bill savedBill = billRepository.save(bill);
-            
-            // Create bill items and update stock
-            for (Map<String, Object> itemData : items) {
-                Long itemId = Long.valueOf(itemData.get("itemId").toString());
-                Integer quantity = Integer.valueOf(itemData.get("quantity").toString());
-                
-                Item item = itemRepository.findById(itemId).get();
-                
-                BillItem billItem = new BillItem();
-                billItem.setBill(savedBill); // Use Bill object instead of setBillId
-                billItem.setItem(item); // Use Item object instead of setItemId
-                billItem.setQuantity(quantity);
-                BigDecimal unitPrice = item.getPrice() != null ? item.getPrice() : BigDecimal.ZERO;
-                billItem.setUnitPrice(unitPrice); // Use BigDecimal
-                billItem.setTotalPrice(unitPrice.multiply(BigDecimal.valueOf(quantity))); // Proper BigDecimal arithmetic
-                billItemRepository.save(billItem);
-                
-                // Update stock
-                item.setStockQuantity(item.getStockQuantity() - quantity);
-                itemRepository.save(item);
+    public ResponseEntity<?> createOrder(@RequestBody Map<String, Object> orderRequest,
+                                         @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+                                         Principal principal) {
+        return idempotencyService.execute("order", idempotencyKey, principal, orderRequest, () -> {
+            try {
+                Long customerId = Long.valueOf(orderRequest.get("customerId").toString());
+                @SuppressWarnings("unchecked")
+                List<Map<String, Object>> items = (List<Map<String, Object>>) orderRequest.get("items");
+
+                List<BillService.BillItemRequest> itemRequests = items.stream()
+                    .map(itemData -> new BillService.BillItemRequest(
+                        Long.valueOf(itemData.get("itemId").toString()),
+                        Integer.valueOf(itemData.get("quantity").toString())))
+                    .toList();
+
+                Bill bill = billService.createOrder(customerId, itemRequests);
+
+                return ResponseEntity.ok(Map.of(
+                    "message", "Order created successfully",
+                    "billNumber", bill.getBillNumber(),
+                    "totalAmount", bill.getTotalAmount(),
+                    "status", bill.getStatus().name(),
+                    "reservedUntil", bill.getReservedUntil().toString()
+                ));
+            } catch (Exception e) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Order creation failed: " + e.getMessage()));
             }
-            
-            return ResponseEntity.ok(Map.of(
-                "message", "Order created successfully",
-                "billNumber", billNumber,
-                "totalAmount", totalAmount,
-                "status", "PENDING"
-            ));
+        });
+    }
+
+    @PostMapping("/cart")
+    @Operation(summary = "Start a server-side cart")
+    public ResponseEntity<?> createCart(@RequestBody Map<String, Object> request) {
+        try {
+            Long customerId = Long.valueOf(request.get("customerId").toString());
+            return ResponseEntity.ok(cartService.createCart(customerId));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Failed to create cart: " + e.getMessage()));
+        }
+    }
+
+    @GetMapping("/cart/{cartId}")
+    @Operation(summary = "Get cart with current prices and stock warnings")
+    public ResponseEntity<?> getCart(@PathVariable String cartId) {
+        try {
+            return ResponseEntity.ok(cartService.getCart(cartId));
         } catch (Exception e) {
-            return ResponseEntity.badRequest().body(Map.of("error", "Order creation failed: " + e.getMessage()));
+            return ResponseEntity.badRequest().body(Map.of("error", "Failed to load cart: " + e.getMessage()));
         }
     }
 
+    @PutMapping("/cart/{cartId}/items/{itemId}")
+    @Operation(summary = "Set quantity of a cart line (0 removes it)")
+    public ResponseEntity<?> setCartItem(@PathVariable String cartId, @PathVariable Long itemId,
+                                         @RequestBody Map<String, Object> request) {
+        try {
+            int quantity = Integer.parseInt(request.get("quantity").toString());
+            return ResponseEntity.ok(cartService.setQuantity(cartId, itemId, quantity));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Failed to update cart: " + e.getMessage()));
+        }
+    }
+
+    @DeleteMapping("/cart/{cartId}/items/{itemId}")
+    @Operation(summary = "Remove a cart line")
+    public ResponseEntity<?> removeCartItem(@PathVariable String cartId, @PathVariable Long itemId) {
+        try {
+            return ResponseEntity.ok(cartService.removeItem(cartId, itemId));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Failed to update cart: " + e.getMessage()));
+        }
+    }
+
+    @DeleteMapping("/cart/{cartId}")
+    @Operation(summary = "Discard a cart")
+    public ResponseEntity<?> deleteCart(@PathVariable String cartId) {
+        cartService.deleteCart(cartId);
+        return ResponseEntity.ok().build();
+    }
+
+    @PostMapping("/cart/{cartId}/checkout")
+    @Operation(summary = "Turn the cart into an order")
+    public ResponseEntity<?> checkoutCart(@PathVariable String cartId,
+                                          @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+                                          Principal principal) {
+        return idempotencyService.execute("cart-checkout", idempotencyKey, principal, Map.of("cartId", cartId), () -> {
+            try {
+                Bill bill = cartService.checkout(cartId);
+
+                return ResponseEntity.ok(Map.of(
+                    "message", "Order created successfully",
+                    "billNumber", bill.getBillNumber(),
+                    "totalAmount", bill.getTotalAmount(),
+                    "status", bill.getStatus().name(),
+                    "reservedUntil", bill.getReservedUntil().toString()
+                ));
+            } catch (Exception e) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Checkout failed: " + e.getMessage()));
+            }
+        });
+    }
+
     @GetMapping("/orders/{customerId}")
     @Operation(summary = "Get customer orders")
     public ResponseEntity<?> getCustomerOrders(@PathVariable Long customerId) {
@@ -270,13 +321,18 @@ public class CustomerPublicController {
                 return ResponseEntity.badRequest().body(Map.of("error", "Customer not found"));
             }
             
-            List<Bill> bills = billRepository.findAll().stream()
-                .filter(bill -> bill.getCustomer() != null && bill.getCustomer().getId().equals(customerId))
-                .toList();
+            List<Bill> bills = billService.getBillsByCustomerId(customerId);
                 
             return ResponseEntity.ok(bills);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", "Failed to load orders: " + e.getMessage()));
         }
     }
+
+    @GetMapping(value = "/orders/{customerId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Subscribe to order status changes")
+    public SseEmitter subscribeToOrderStatus(@PathVariable Long customerId,
+                                             @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return billStatusFeedService.subscribeToCustomer(customerId, lastEventId);
+    }
 }
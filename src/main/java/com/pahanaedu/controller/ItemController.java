@@ -1,15 +1,25 @@
 package com.pahanaedu.controller;
 
 import com.pahanaedu.entity.Item;
+import com.pahanaedu.entity.StockMovement;
+import com.pahanaedu.service.BatchLookup;
+import com.pahanaedu.service.BranchService;
+import com.pahanaedu.service.HotStockService;
 import com.pahanaedu.service.ItemService;
+import com.pahanaedu.service.RecommendationService;
+import com.pahanaedu.service.StockLedgerService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @RestController
@@ -20,17 +30,44 @@ public class ItemController {
     @Autowired
     private ItemService itemService;
 
+    @Autowired
+    private HotStockService hotStockService;
+
+    @Autowired
+    private StockLedgerService stockLedgerService;
+
+    @Autowired
+    private RecommendationService recommendationService;
+
+    @Autowired
+    private BranchService branchService;
+
     @GetMapping
-    @Operation(summary = "Get all items", description = "Retrieve all items")
-    public ResponseEntity<List<Item>> getAllItems() {
-        return ResponseEntity.ok(itemService.getAllItems());
+    @Operation(summary = "Get all items", description = "Retrieve all items; with fields (e.g. id,name,price,stockQuantity) only those columns are read and returned")
+    public ResponseEntity<?> getAllItems(@RequestParam(required = false) String fields) {
+        if (fields == null) {
+            return ResponseEntity.ok(itemService.getAllItems());
+        }
+        try {
+            return ResponseEntity.ok(itemService.getAllItemFields(fields));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
 
     @GetMapping("/{id}")
-    @Operation(summary = "Get item by ID", description = "Retrieve item by ID")
-    public ResponseEntity<Item> getItemById(@PathVariable Long id) {
-        Optional<Item> item = itemService.getItemById(id);
-        return item.map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
+    @Operation(summary = "Get item by ID", description = "Retrieve item by ID; with fields only those columns are read and returned")
+    public ResponseEntity<?> getItemById(@PathVariable Long id, @RequestParam(required = false) String fields) {
+        if (fields == null) {
+            Optional<Item> item = itemService.getItemById(id);
+            return item.map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
+        }
+        try {
+            Optional<Map<String, Object>> item = itemService.getItemFieldsById(id, fields);
+            return item.map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
 
     @PostMapping
@@ -73,6 +110,16 @@ public class ItemController {
         return item.map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
     }
 
+    @PostMapping("/lookup")
+    @Operation(summary = "Batch item lookup", description = "Fetch up to 200 items by id and item code in one call")
+    public ResponseEntity<?> lookupItems(@RequestBody BatchLookup.Request request) {
+        try {
+            return ResponseEntity.ok(itemService.lookupItems(request));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     @GetMapping("/category/{category}")
     @Operation(summary = "Get items by category", description = "Retrieve items by category")
     public ResponseEntity<List<Item>> getItemsByCategory(@PathVariable String category) {
@@ -86,13 +133,78 @@ public class ItemController {
     }
 
     @PutMapping("/{id}/stock")
-    @Operation(summary = "Update stock", description = "Update item stock quantity")
-    public ResponseEntity<Item> updateStock(@PathVariable Long id, @RequestParam Integer quantity) {
+    @Operation(summary = "Update stock", description = "Add to or remove from an item's stock at a branch (default: main store)")
+    public ResponseEntity<Item> updateStock(@PathVariable Long id, @RequestParam Integer quantity,
+                                            @RequestParam(required = false) Long branchId) {
         try {
-            Item updatedItem = itemService.updateStock(id, quantity);
+            Item updatedItem = itemService.updateStock(id, branchId, quantity);
             return ResponseEntity.ok(updatedItem);
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
         }
     }
+
+    @GetMapping("/{id}/availability")
+    @Operation(summary = "Get stock per branch", description = "Stock of an item at every branch and in total")
+    public ResponseEntity<Map<String, Object>> getAvailability(@PathVariable Long id) {
+        return itemService.getItemById(id)
+                .map(item -> ResponseEntity.ok(branchService.getAvailability(item)))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PutMapping("/{id}/hot-stock")
+    @Operation(summary = "Toggle hot stock mode", description = "Serve an item's stock from in-memory counters during a flash sale")
+    public ResponseEntity<Item> setHotStock(@PathVariable Long id, @RequestParam boolean enabled) {
+        try {
+            Item item = enabled ? hotStockService.enable(id) : hotStockService.disable(id);
+            return ResponseEntity.ok(item);
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @GetMapping("/{id}/hot-stock")
+    @Operation(summary = "Get hot stock", description = "Get the live available quantity of a hot item")
+    public ResponseEntity<Map<String, Object>> getHotStock(@PathVariable Long id) {
+        Long available = hotStockService.getAvailable(id);
+        if (available == null) {
+            return ResponseEntity.notFound().build();
+        }
+        Map<String, Object> response = new HashMap<>();
+        response.put("itemId", id);
+        response.put("available", available);
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/{id}/stock/movements")
+    @Operation(summary = "Get stock movements", description = "Stock ledger entries for an item in a time range (default: last 30 days)")
+    public ResponseEntity<List<StockMovement>> getStockMovements(
+            @PathVariable Long id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : end.minusDays(30);
+        return ResponseEntity.ok(stockLedgerService.getMovements(id, start, end));
+    }
+
+    @GetMapping("/{id}/stock/balance")
+    @Operation(summary = "Get stock balance at a time", description = "Ledger stock balance of an item at a point in time (default: now)")
+    public ResponseEntity<Map<String, Object>> getStockBalance(
+            @PathVariable Long id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+        LocalDateTime when = at != null ? at : LocalDateTime.now();
+        Map<String, Object> response = new HashMap<>();
+        response.put("itemId", id);
+        response.put("at", when.toString());
+        response.put("balance", stockLedgerService.balanceAt(id, when));
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/{id}/recommendations")
+    @Operation(summary = "Get frequently bought together items", description = "Items most often on the same bill as this item")
+    public ResponseEntity<List<Map<String, Object>>> getRecommendations(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(recommendationService.recommend(id, Math.max(1, Math.min(limit, 50))));
+    }
 }
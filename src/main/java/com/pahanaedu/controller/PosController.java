@@ -0,0 +1,121 @@
+package com.pahanaedu.controller;
+
+import com.pahanaedu.entity.Bill;
+import com.pahanaedu.service.IdempotencyService;
+import com.pahanaedu.service.PosService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.security.Principal;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/pos/sessions")
+@Tag(name = "POS", description = "Barcode-scan open bill APIs")
+public class PosController {
+
+    @Autowired
+    private PosService posService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @PostMapping
+    @Operation(summary = "Open a bill", description = "Start an open bill for a customer at branchId or the cashier's branch")
+    public ResponseEntity<?> openSession(@RequestBody OpenSessionRequest request) {
+        try {
+            return ResponseEntity.ok(posService.openSession(request.getCustomerId(), request.getBranchId(), request.getUserId()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/{id}")
+    @Operation(summary = "Get open bill", description = "Lines and running total of an open bill")
+    public ResponseEntity<?> getSession(@PathVariable Long id) {
+        try {
+            return ResponseEntity.ok(posService.getSession(id));
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @PostMapping("/{id}/scan")
+    @Operation(summary = "Scan an item", description = "Add one scanned item (or quantity units) to the open bill by item code")
+    public ResponseEntity<?> scan(@PathVariable Long id, @RequestBody ScanRequest request) {
+        try {
+            return ResponseEntity.ok(posService.scan(id, request.getItemCode(), request.getQuantity()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @PutMapping("/{id}/items/{itemId}")
+    @Operation(summary = "Set line quantity", description = "Set the quantity of a line of the open bill (0 voids it)")
+    public ResponseEntity<?> setQuantity(@PathVariable Long id, @PathVariable Long itemId, @RequestParam Integer quantity) {
+        try {
+            return ResponseEntity.ok(posService.setQuantity(id, itemId, quantity));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @DeleteMapping("/{id}")
+    @Operation(summary = "Cancel open bill", description = "Discard an open bill without saving it")
+    public ResponseEntity<Void> cancelSession(@PathVariable Long id) {
+        posService.cancelSession(id);
+        return ResponseEntity.ok().build();
+    }
+
+    @PostMapping("/{id}/finalize")
+    @Operation(summary = "Finalize open bill", description = "Save the open bill as a bill in one write. Send an Idempotency-Key header to make retries safe")
+    public ResponseEntity<?> finalizeSession(@PathVariable Long id,
+                                             @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+                                             Principal principal) {
+        return idempotencyService.execute("pos-finalize", idempotencyKey, principal, Map.of("sessionId", id), () -> {
+            try {
+                Bill bill = posService.finalizeSession(id);
+                return ResponseEntity.ok(bill);
+            } catch (RuntimeException e) {
+                return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+            }
+        });
+    }
+
+    public static class OpenSessionRequest {
+        private Long customerId;
+        private Long branchId;
+        private Long userId;
+
+        // Constructors
+        public OpenSessionRequest() {}
+
+        // Getters and Setters
+        public Long getCustomerId() { return customerId; }
+        public void setCustomerId(Long customerId) { this.customerId = customerId; }
+
+        public Long getBranchId() { return branchId; }
+        public void setBranchId(Long branchId) { this.branchId = branchId; }
+
+        public Long getUserId() { return userId; }
+        public void setUserId(Long userId) { this.userId = userId; }
+    }
+
+    public static class ScanRequest {
+        private String itemCode;
+        private int quantity = 1;
+
+        // Constructors
+        public ScanRequest() {}
+
+        // Getters and Setters
+        public String getItemCode() { return itemCode; }
+        public void setItemCode(String itemCode) { this.itemCode = itemCode; }
+
+        public int getQuantity() { return quantity; }
+        public void setQuantity(int quantity) { this.quantity = quantity; }
+    }
+}
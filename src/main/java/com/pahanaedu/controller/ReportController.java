@@ -0,0 +1,25 @@
+package com.pahanaedu.controller;
+
+import com.pahanaedu.service.SalesForecastService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/reports")
+@Tag(name = "Reports", description = "Management report APIs")
+public class ReportController {
+
+    @Autowired
+    private SalesForecastService salesForecastService;
+
+    @GetMapping("/reorder")
+    @Operation(summary = "Get reorder suggestions", description = "Items at or below their reorder point from the latest sales velocity forecast (all=true for every selling item)")
+    public ResponseEntity<Map<String, Object>> getReorderReport(@RequestParam(defaultValue = "false") boolean all) {
+        return ResponseEntity.ok(salesForecastService.reorderReport(all));
+    }
+}
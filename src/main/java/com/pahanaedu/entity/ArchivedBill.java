@@ -0,0 +1,104 @@
+package com.pahanaedu.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Entity
+@Immutable
+@Table(name = "bills_archive")
+public class ArchivedBill {
+    @Id
+    private Long id;
+
+    @Column(name = "bill_number", unique = true, nullable = false)
+    private String billNumber;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "customer_id", nullable = false)
+    private Customer customer;
+
+    @Column(name = "subtotal_amount", precision = 10, scale = 2)
+    private BigDecimal subtotalAmount;
+
+    @Column(name = "discount_amount", precision = 10, scale = 2)
+    private BigDecimal discountAmount;
+
+    @Column(name = "tax_amount", precision = 10, scale = 2)
+    private BigDecimal taxAmount;
+
+    @Column(name = "total_amount", precision = 10, scale = 2)
+    private BigDecimal totalAmount;
+
+    @Column(name = "bill_date", nullable = false)
+    private LocalDateTime billDate;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "created_by")
+    private User createdBy;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "branch_id")
+    private Branch branch;
+
+    @Enumerated(EnumType.STRING)
+    private Bill.Status status;
+
+    @Column(name = "archived_at")
+    private LocalDateTime archivedAt;
+
+    @OneToMany(mappedBy = "bill", fetch = FetchType.LAZY)
+    private List<ArchivedBillItem> billItems = new ArrayList<>();
+
+    // Constructors
+    public ArchivedBill() {}
+
+    /**
+     * Rebuilds a detached {@link Bill} so archived bills can be returned by the same
+     * endpoints as live ones.
+     */
+    public Bill toBill() {
+        Bill bill = new Bill();
+        bill.setId(id);
+        bill.setBillNumber(billNumber);
+        bill.setCustomer(customer);
+        bill.setSubtotalAmount(subtotalAmount);
+        bill.setDiscountAmount(discountAmount);
+        bill.setTaxAmount(taxAmount);
+        bill.setTotalAmount(totalAmount);
+        bill.setBillDate(billDate);
+        bill.setCreatedBy(createdBy);
+        bill.setBranch(branch);
+        bill.setStatus(status);
+        for (ArchivedBillItem archivedItem : billItems) {
+            BillItem billItem = new BillItem();
+            billItem.setId(archivedItem.getId());
+            billItem.setBill(bill);
+            billItem.setItem(archivedItem.getItem());
+            billItem.setQuantity(archivedItem.getQuantity());
+            billItem.setUnitPrice(archivedItem.getUnitPrice());
+            billItem.setDiscountAmount(archivedItem.getDiscountAmount());
+            billItem.setTotalPrice(archivedItem.getTotalPrice());
+            bill.getBillItems().add(billItem);
+        }
+        return bill;
+    }
+
+    // Getters
+    public Long getId() { return id; }
+    public String getBillNumber() { return billNumber; }
+    public Customer getCustomer() { return customer; }
+    public BigDecimal getSubtotalAmount() { return subtotalAmount; }
+    public BigDecimal getDiscountAmount() { return discountAmount; }
+    public BigDecimal getTaxAmount() { return taxAmount; }
+    public BigDecimal getTotalAmount() { return totalAmount; }
+    public LocalDateTime getBillDate() { return billDate; }
+    public User getCreatedBy() { return createdBy; }
+    public Branch getBranch() { return branch; }
+    public Bill.Status getStatus() { return status; }
+    public LocalDateTime getArchivedAt() { return archivedAt; }
+    public List<ArchivedBillItem> getBillItems() { return billItems; }
+}
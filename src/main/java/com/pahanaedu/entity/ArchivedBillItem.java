@@ -0,0 +1,44 @@
+package com.pahanaedu.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+import java.math.BigDecimal;
+
+@Entity
+@Immutable
+@Table(name = "bill_items_archive")
+public class ArchivedBillItem {
+    @Id
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "bill_id", nullable = false)
+    private ArchivedBill bill;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "item_id", nullable = false)
+    private Item item;
+
+    private Integer quantity;
+
+    @Column(name = "unit_price", precision = 10, scale = 2)
+    private BigDecimal unitPrice;
+
+    @Column(name = "discount_amount", precision = 10, scale = 2)
+    private BigDecimal discountAmount;
+
+    @Column(name = "total_price", precision = 10, scale = 2)
+    private BigDecimal totalPrice;
+
+    // Constructors
+    public ArchivedBillItem() {}
+
+    // Getters
+    public Long getId() { return id; }
+    public ArchivedBill getBill() { return bill; }
+    public Item getItem() { return item; }
+    public Integer getQuantity() { return quantity; }
+    public BigDecimal getUnitPrice() { return unitPrice; }
+    public BigDecimal getDiscountAmount() { return discountAmount; }
+    public BigDecimal getTotalPrice() { return totalPrice; }
+}
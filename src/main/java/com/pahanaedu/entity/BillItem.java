@@ -1,6 +1,7 @@
 package com.pahanaedu.entity;
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Min;
 import java.math.BigDecimal;
@@ -27,9 +28,16 @@ public class BillItem {
     @Column(name = "unit_price", nullable = true, precision = 10, scale = 2)
     private BigDecimal unitPrice;
 
+    @Column(name = "discount_amount", precision = 10, scale = 2)
+    private BigDecimal discountAmount = BigDecimal.ZERO;
+
     @Column(name = "total_price", nullable = true, precision = 10, scale = 2)
     private BigDecimal totalPrice;
 
+    @Column(name = "stock_pending")
+    @JsonIgnore
+    private Boolean stockPending = false;
+
     // Constructors
     public BillItem() {}
 
@@ -69,6 +77,12 @@ public class BillItem {
         }
     }
 
+    public BigDecimal getDiscountAmount() { return discountAmount; }
+    public void setDiscountAmount(BigDecimal discountAmount) { this.discountAmount = discountAmount; }
+
     public BigDecimal getTotalPrice() { return totalPrice; }
     public void setTotalPrice(BigDecimal totalPrice) { this.totalPrice = totalPrice; }
+
+    public Boolean getStockPending() { return stockPending; }
+    public void setStockPending(Boolean stockPending) { this.stockPending = stockPending; }
 }
\ No newline at end of file
@@ -0,0 +1,60 @@
+package com.pahanaedu.entity;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Units of one item held at one branch. Rows are changed with single-statement
+ * updates in BranchStockRepository, never through the entity.
+ */
+@Entity
+@IdClass(BranchStock.Key.class)
+@Table(name = "branch_stock")
+public class BranchStock {
+    @Id
+    @Column(name = "item_id")
+    private Long itemId;
+
+    @Id
+    @Column(name = "branch_id")
+    private Long branchId;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    // Constructors
+    public BranchStock() {}
+
+    // Getters
+    public Long getItemId() { return itemId; }
+    public Long getBranchId() { return branchId; }
+    public Integer getQuantity() { return quantity; }
+
+    public static class Key implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private Long itemId;
+        private Long branchId;
+
+        public Key() {}
+
+        public Key(Long itemId, Long branchId) {
+            this.itemId = itemId;
+            this.branchId = branchId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return Objects.equals(itemId, key.itemId) && Objects.equals(branchId, key.branchId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(itemId, branchId);
+        }
+    }
+}
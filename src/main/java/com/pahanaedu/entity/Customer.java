@@ -22,6 +22,7 @@ public class Customer {
         @Column(nullable = false)
     private String name;
 
+    @Column(columnDefinition = "TEXT")
     private String address;
 
     @Pattern(regexp = "^[0-9]{10}$", message = "Telephone must be 10 digits")
@@ -0,0 +1,93 @@
+package com.pahanaedu.entity;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "discount_rules")
+public class DiscountRule {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @NotBlank
+    @Column(nullable = false, length = 100)
+    private String name;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Scope scope;
+
+    @Column(name = "item_id")
+    private Long itemId;
+
+    @Column(length = 50)
+    private String category;
+
+    @Column(name = "percent_off", precision = 5, scale = 2)
+    private BigDecimal percentOff;
+
+    @Column(name = "amount_off", precision = 10, scale = 2)
+    private BigDecimal amountOff;
+
+    @Column(name = "min_basket_amount", precision = 10, scale = 2)
+    private BigDecimal minBasketAmount;
+
+    @Column(nullable = false)
+    private Boolean active = true;
+
+    @Column(name = "starts_at")
+    private LocalDateTime startsAt;
+
+    @Column(name = "ends_at")
+    private LocalDateTime endsAt;
+
+    // Constructors
+    public DiscountRule() {}
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public Scope getScope() { return scope; }
+    public void setScope(Scope scope) { this.scope = scope; }
+
+    public Long getItemId() { return itemId; }
+    public void setItemId(Long itemId) { this.itemId = itemId; }
+
+    public String getCategory() { return category; }
+    public void setCategory(String category) { this.category = category; }
+
+    public BigDecimal getPercentOff() { return percentOff; }
+    public void setPercentOff(BigDecimal percentOff) { this.percentOff = percentOff; }
+
+    public BigDecimal getAmountOff() { return amountOff; }
+    public void setAmountOff(BigDecimal amountOff) { this.amountOff = amountOff; }
+
+    public BigDecimal getMinBasketAmount() { return minBasketAmount; }
+    public void setMinBasketAmount(BigDecimal minBasketAmount) { this.minBasketAmount = minBasketAmount; }
+
+    public Boolean getActive() { return active; }
+    public void setActive(Boolean active) { this.active = active; }
+
+    public LocalDateTime getStartsAt() { return startsAt; }
+    public void setStartsAt(LocalDateTime startsAt) { this.startsAt = startsAt; }
+
+    public LocalDateTime getEndsAt() { return endsAt; }
+    public void setEndsAt(LocalDateTime endsAt) { this.endsAt = endsAt; }
+
+    /**
+     * ITEM and CATEGORY rules discount matching lines (amountOff is per unit);
+     * BASKET rules discount the whole bill once it reaches minBasketAmount.
+     */
+    public enum Scope {
+        ITEM, CATEGORY, BASKET
+    }
+}
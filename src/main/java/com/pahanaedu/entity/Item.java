@@ -1,10 +1,17 @@
 package com.pahanaedu.entity;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.DynamicUpdate;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
+/**
+ * {@code stockQuantity} is the total over all branches. It is maintained with
+ * increments by BranchService, so updates only write the columns that changed and
+ * never overwrite it with a stale value.
+ */
 @Entity
+@DynamicUpdate
 @Table(name = "items")
 public class Item {
     @Id
@@ -17,6 +24,7 @@ public class Item {
     @Column(nullable = true)
     private String name;
 
+    @Column(columnDefinition = "TEXT")
     private String description;
 
     @Column(nullable = true, precision = 10, scale = 2)
@@ -27,6 +35,9 @@ public class Item {
 
     private String category;
 
+    @Column(name = "hot_stock")
+    private Boolean hotStock = false;
+
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
@@ -46,6 +57,9 @@ public class Item {
         if (stockQuantity == null) {
             stockQuantity = 0;
         }
+        if (hotStock == null) {
+            hotStock = false;
+        }
     }
 
     @PreUpdate
@@ -87,6 +101,9 @@ public class Item {
     public String getCategory() { return category; }
     public void setCategory(String category) { this.category = category; }
 
+    public Boolean getHotStock() { return hotStock; }
+    public void setHotStock(Boolean hotStock) { this.hotStock = hotStock; }
+
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
 
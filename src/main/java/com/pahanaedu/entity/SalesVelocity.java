@@ -0,0 +1,48 @@
+package com.pahanaedu.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Smoothed units sold per day for one item, including every day up to
+ * {@code throughDay}.
+ */
+@Entity
+@Table(name = "sales_velocity")
+public class SalesVelocity {
+    @Id
+    @Column(name = "item_id")
+    private Long itemId;
+
+    @Column(name = "daily_velocity", nullable = false)
+    private Double dailyVelocity;
+
+    @Column(name = "through_day", nullable = false)
+    private LocalDate throughDay;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    // Constructors
+    public SalesVelocity() {}
+
+    public SalesVelocity(Long itemId, LocalDate throughDay) {
+        this.itemId = itemId;
+        this.dailyVelocity = 0.0;
+        this.throughDay = throughDay;
+    }
+
+    // Getters and Setters
+    public Long getItemId() { return itemId; }
+    public void setItemId(Long itemId) { this.itemId = itemId; }
+
+    public Double getDailyVelocity() { return dailyVelocity; }
+    public void setDailyVelocity(Double dailyVelocity) { this.dailyVelocity = dailyVelocity; }
+
+    public LocalDate getThroughDay() { return throughDay; }
+    public void setThroughDay(LocalDate throughDay) { this.throughDay = throughDay; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
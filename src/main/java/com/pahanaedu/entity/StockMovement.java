@@ -0,0 +1,58 @@
+package com.pahanaedu.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+import java.time.LocalDateTime;
+
+@Entity
+@Immutable
+@Table(name = "stock_movements")
+public class StockMovement {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "item_id", nullable = false)
+    private Long itemId;
+
+    @Column(nullable = false)
+    private Integer delta;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Reason reason;
+
+    @Column(name = "branch_id")
+    private Long branchId;
+
+    @Column(name = "bill_id")
+    private Long billId;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    // Constructors
+    public StockMovement() {}
+
+    public StockMovement(Long itemId, Long branchId, int delta, Reason reason, Long billId) {
+        this.itemId = itemId;
+        this.branchId = branchId;
+        this.delta = delta;
+        this.reason = reason;
+        this.billId = billId;
+        this.createdAt = LocalDateTime.now();
+    }
+
+    // Getters
+    public Long getId() { return id; }
+    public Long getItemId() { return itemId; }
+    public Integer getDelta() { return delta; }
+    public Reason getReason() { return reason; }
+    public Long getBranchId() { return branchId; }
+    public Long getBillId() { return billId; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+
+    public enum Reason {
+        OPENING, SALE, RECEIPT, ADJUSTMENT, CANCELLATION, TRANSFER
+    }
+}
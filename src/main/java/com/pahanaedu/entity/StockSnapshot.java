@@ -0,0 +1,39 @@
+package com.pahanaedu.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+import java.time.LocalDateTime;
+
+/**
+ * Ledger balance of one item including every movement up to {@code lastMovementId}.
+ */
+@Entity
+@Immutable
+@Table(name = "stock_snapshots")
+public class StockSnapshot {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "item_id", nullable = false)
+    private Long itemId;
+
+    @Column(nullable = false)
+    private Long balance;
+
+    @Column(name = "last_movement_id", nullable = false)
+    private Long lastMovementId;
+
+    @Column(name = "taken_at", nullable = false)
+    private LocalDateTime takenAt;
+
+    // Constructors
+    public StockSnapshot() {}
+
+    // Getters
+    public Long getId() { return id; }
+    public Long getItemId() { return itemId; }
+    public Long getBalance() { return balance; }
+    public Long getLastMovementId() { return lastMovementId; }
+    public LocalDateTime getTakenAt() { return takenAt; }
+}
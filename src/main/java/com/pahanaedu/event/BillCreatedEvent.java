@@ -0,0 +1,14 @@
+package com.pahanaedu.event;
+
+public class BillCreatedEvent {
+    private final Long billId;
+    private final long[] itemIds;
+
+    public BillCreatedEvent(Long billId, long[] itemIds) {
+        this.billId = billId;
+        this.itemIds = itemIds;
+    }
+
+    public Long getBillId() { return billId; }
+    public long[] getItemIds() { return itemIds; }
+}
@@ -0,0 +1,30 @@
+package com.pahanaedu.event;
+
+import com.pahanaedu.entity.Bill;
+import java.time.LocalDateTime;
+
+public class BillStatusChangedEvent {
+    private final Long billId;
+    private final String billNumber;
+    private final Long customerId;
+    private final Bill.Status oldStatus;
+    private final Bill.Status newStatus;
+    private final LocalDateTime changedAt;
+
+    public BillStatusChangedEvent(Long billId, String billNumber, Long customerId,
+                                  Bill.Status oldStatus, Bill.Status newStatus) {
+        this.billId = billId;
+        this.billNumber = billNumber;
+        this.customerId = customerId;
+        this.oldStatus = oldStatus;
+        this.newStatus = newStatus;
+        this.changedAt = LocalDateTime.now();
+    }
+
+    public Long getBillId() { return billId; }
+    public String getBillNumber() { return billNumber; }
+    public Long getCustomerId() { return customerId; }
+    public Bill.Status getOldStatus() { return oldStatus; }
+    public Bill.Status getNewStatus() { return newStatus; }
+    public LocalDateTime getChangedAt() { return changedAt; }
+}
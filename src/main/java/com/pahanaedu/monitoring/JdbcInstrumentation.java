@@ -0,0 +1,318 @@
+package com.pahanaedu.monitoring;
+
+import org.springframework.util.ClassUtils;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+/**
+ * Dynamic-proxy wrappers around the JDBC objects handed out by the pool. Every
+ * execute call is timed and reported to the {@link SqlStatsCollector}; query result
+ * sets count the rows the caller actually reads and report them on close.
+ * Connection acquisition and statement execution also become spans of the
+ * current request's trace. {@link #capture} records the prepared statements one
+ * piece of code sends, with their parameters, so their plans can be checked.
+ */
+public final class JdbcInstrumentation {
+
+    private static final int MAX_SPAN_SQL = 1000;
+
+    private static final ThreadLocal<List<CapturedStatement>> capturing = new ThreadLocal<>();
+
+    private JdbcInstrumentation() {}
+
+    /**
+     * Runs {@code action} and returns the prepared statements it executed on this
+     * thread through an instrumented data source, in order.
+     */
+    public static List<CapturedStatement> capture(Runnable action) {
+        List<CapturedStatement> statements = new ArrayList<>();
+        List<CapturedStatement> outer = capturing.get();
+        capturing.set(statements);
+        try {
+            action.run();
+        } finally {
+            capturing.set(outer);
+        }
+        return statements;
+    }
+
+    /**
+     * The data source proxy keeps every interface of the pool (so the context can
+     * still close it); the objects below it only expose the standard JDBC interface.
+     */
+    public static DataSource wrap(DataSource dataSource, Supplier<SqlStatsCollector> collector, Supplier<Tracer> tracer) {
+        Class<?>[] interfaces = ClassUtils.getAllInterfacesForClass(dataSource.getClass(), dataSource.getClass().getClassLoader());
+        return (DataSource) Proxy.newProxyInstance(dataSource.getClass().getClassLoader(), interfaces,
+                new DataSourceHandler(dataSource, collector, tracer));
+    }
+
+    private static Object proxy(Class<?> type, InvocationHandler handler) {
+        return Proxy.newProxyInstance(JdbcInstrumentation.class.getClassLoader(), new Class<?>[] { type }, handler);
+    }
+
+    private static Class<?> statementType(Statement statement) {
+        if (statement instanceof CallableStatement) {
+            return CallableStatement.class;
+        }
+        return statement instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+    }
+
+    private abstract static class ForwardingHandler implements InvocationHandler {
+        protected final Object target;
+
+        ForwardingHandler(Object target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getName().equals("equals") && args != null && args.length == 1) {
+                return proxy == args[0];
+            }
+            if (method.getName().equals("hashCode") && (args == null || args.length == 0)) {
+                return System.identityHashCode(proxy);
+            }
+            return handle(method, args);
+        }
+
+        protected Object forward(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        protected abstract Object handle(Method method, Object[] args) throws Throwable;
+    }
+
+    /**
+     * Forwards a call inside a span of the current trace, if there is one.
+     */
+    private static Object traced(Tracer tracer, String name, String sql, ForwardingHandler handler,
+                                 Method method, Object[] args) throws Throwable {
+        Tracer.Span span = tracer.start(name, Tracer.Kind.CLIENT);
+        if (span != null && sql != null) {
+            span.setAttribute("db.statement", sql.length() > MAX_SPAN_SQL ? sql.substring(0, MAX_SPAN_SQL) : sql);
+        }
+        try {
+            Object result = handler.forward(method, args);
+            tracer.end(span, null);
+            return result;
+        } catch (Throwable e) {
+            tracer.end(span, e);
+            throw e;
+        }
+    }
+
+    private static class DataSourceHandler extends ForwardingHandler {
+        private final Supplier<SqlStatsCollector> collector;
+        private final Supplier<Tracer> tracer;
+
+        DataSourceHandler(DataSource target, Supplier<SqlStatsCollector> collector, Supplier<Tracer> tracer) {
+            super(target);
+            this.collector = collector;
+            this.tracer = tracer;
+        }
+
+        @Override
+        protected Object handle(Method method, Object[] args) throws Throwable {
+            if (!method.getName().equals("getConnection")) {
+                return forward(method, args);
+            }
+            Object result = traced(tracer.get(), "jdbc.getConnection", null, this, method, args);
+            if (result instanceof Connection connection) {
+                return JdbcInstrumentation.proxy(Connection.class, new ConnectionHandler(connection, collector, tracer));
+            }
+            return result;
+        }
+    }
+
+    private static class ConnectionHandler extends ForwardingHandler {
+        private final Supplier<SqlStatsCollector> collector;
+        private final Supplier<Tracer> tracer;
+
+        ConnectionHandler(Connection target, Supplier<SqlStatsCollector> collector, Supplier<Tracer> tracer) {
+            super(target);
+            this.collector = collector;
+            this.tracer = tracer;
+        }
+
+        @Override
+        protected Object handle(Method method, Object[] args) throws Throwable {
+            Object result = forward(method, args);
+            if (result instanceof Statement statement) {
+                String sql = (method.getName().startsWith("prepare") && args != null && args.length > 0)
+                        ? (String) args[0] : null;
+                List<CapturedStatement> captured = capturing.get();
+                StatementHandler handler = captured != null && sql != null
+                        ? new CapturingStatementHandler(statement, sql, collector, tracer, captured)
+                        : new StatementHandler(statement, sql, collector, tracer);
+                return JdbcInstrumentation.proxy(statementType(statement), handler);
+            }
+            return result;
+        }
+    }
+
+    private static class StatementHandler extends ForwardingHandler {
+        protected final String preparedSql;
+        private final Supplier<SqlStatsCollector> collector;
+        private final Supplier<Tracer> tracer;
+
+        /**
+         * The last {@code execute()} whose result the caller has not fetched yet; its
+         * rows are counted from {@code getResultSet()} or {@code getUpdateCount()}.
+         */
+        private SqlStatsCollector.Execution unread;
+        private ResultSet resultSet;
+        private Object resultSetProxy;
+
+        StatementHandler(Statement target, String preparedSql, Supplier<SqlStatsCollector> collector, Supplier<Tracer> tracer) {
+            super(target);
+            this.preparedSql = preparedSql;
+            this.collector = collector;
+            this.tracer = tracer;
+        }
+
+        @Override
+        protected Object handle(Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("getResultSet")) {
+                Object result = forward(method, args);
+                return result instanceof ResultSet rs ? counted(rs, unread) : result;
+            }
+            if (name.equals("getUpdateCount") || name.equals("getLargeUpdateCount")) {
+                Object result = forward(method, args);
+                if (unread != null && result instanceof Number count && count.longValue() >= 0) {
+                    unread.addRows(count.longValue());
+                    unread = null;
+                }
+                return result;
+            }
+            if (!name.startsWith("execute")) {
+                return forward(method, args);
+            }
+
+            String sql = preparedSql != null ? preparedSql
+                    : (args != null && args.length > 0 && args[0] instanceof String s ? s : name);
+            long start = System.nanoTime();
+            Object result = traced(tracer.get(), "jdbc." + name, sql, this, method, args);
+            SqlStatsCollector.Execution execution = collector.get().record(sql, System.nanoTime() - start);
+            unread = null;
+
+            if (result instanceof Integer count) {
+                execution.addRows(count);
+            } else if (result instanceof Long count) {
+                execution.addRows(count);
+            } else if (result instanceof int[] counts) {
+                long total = 0;
+                for (int count : counts) {
+                    total += Math.max(count, 0);
+                }
+                execution.addRows(total);
+            } else if (result instanceof ResultSet rs) {
+                return counted(rs, execution);
+            } else if (result instanceof Boolean) {
+                unread = execution;
+            }
+            return result;
+        }
+
+        /**
+         * Wraps a result set so it reports the rows read to {@code execution}. Asking
+         * again for the same result set returns the same wrapper.
+         */
+        private Object counted(ResultSet rs, SqlStatsCollector.Execution execution) {
+            if (rs == resultSet) {
+                return resultSetProxy;
+            }
+            if (execution == null) {
+                return rs;
+            }
+            unread = null;
+            resultSet = rs;
+            resultSetProxy = JdbcInstrumentation.proxy(ResultSet.class, new ResultSetHandler(rs, execution));
+            return resultSetProxy;
+        }
+    }
+
+    /**
+     * Remembers the bound parameters and adds the statement to the capture each
+     * time it is executed.
+     */
+    private static class CapturingStatementHandler extends StatementHandler {
+        private final List<CapturedStatement> captured;
+        private final TreeMap<Integer, Object> parameters = new TreeMap<>();
+
+        CapturingStatementHandler(Statement target, String preparedSql, Supplier<SqlStatsCollector> collector,
+                                  Supplier<Tracer> tracer, List<CapturedStatement> captured) {
+            super(target, preparedSql, collector, tracer);
+            this.captured = captured;
+        }
+
+        @Override
+        protected Object handle(Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                parameters.put(index, name.equals("setNull") ? null : args[1]);
+            } else if (name.equals("clearParameters")) {
+                parameters.clear();
+            } else if (name.startsWith("execute") && (args == null || args.length == 0)) {
+                captured.add(new CapturedStatement(preparedSql, new ArrayList<>(parameters.values())));
+            }
+            return super.handle(method, args);
+        }
+    }
+
+    private static class ResultSetHandler extends ForwardingHandler {
+        private final SqlStatsCollector.Execution execution;
+        private long rows;
+        private boolean reported;
+
+        ResultSetHandler(ResultSet target, SqlStatsCollector.Execution execution) {
+            super(target);
+            this.execution = execution;
+        }
+
+        @Override
+        protected Object handle(Method method, Object[] args) throws Throwable {
+            Object result = forward(method, args);
+            if (method.getName().equals("next") && Boolean.TRUE.equals(result)) {
+                rows++;
+            } else if (method.getName().equals("close") && !reported) {
+                reported = true;
+                execution.addRows(rows);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * A prepared statement's SQL and the parameters it was executed with.
+     */
+    public static class CapturedStatement {
+        private final String sql;
+        private final List<Object> parameters;
+
+        CapturedStatement(String sql, List<Object> parameters) {
+            this.sql = sql;
+            this.parameters = parameters;
+        }
+
+        public String getSql() { return sql; }
+        public List<Object> getParameters() { return parameters; }
+    }
+}
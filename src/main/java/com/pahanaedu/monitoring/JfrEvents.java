@@ -0,0 +1,65 @@
+package com.pahanaedu.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Business events written to Java Flight Recorder, so bill creation, catalog
+ * refreshes and logins line up with GC, lock and I/O events in the same
+ * recording. An event that is not being recorded costs a flag check.
+ */
+public final class JfrEvents {
+
+    private JfrEvents() {}
+
+    @Name("com.pahanaedu.CreateBill")
+    @Label("Create Bill")
+    @Category("Bookshop")
+    @Description("BillService.createBill from validation through the commit of its transaction")
+    @StackTrace(false)
+    public static class CreateBill extends Event {
+        @Label("Lines")
+        public int lines;
+
+        @Label("Branch")
+        public long branchId;
+
+        @Label("Stock Conflict")
+        @Description("Failed because a branch did not have the units")
+        public boolean stockConflict;
+
+        @Label("Failure")
+        public String failure;
+    }
+
+    @Name("com.pahanaedu.CatalogRefresh")
+    @Label("Catalog Refresh")
+    @Category("Bookshop")
+    @Description("Full reload of the in-memory item catalog")
+    @StackTrace(false)
+    public static class CatalogRefresh extends Event {
+        @Label("Items")
+        public int items;
+    }
+
+    @Name("com.pahanaedu.LoginVerification")
+    @Label("Login Verification")
+    @Category("Bookshop")
+    @Description("User lookup and password check of a staff or customer login")
+    @StackTrace(false)
+    public static class LoginVerification extends Event {
+        @Label("Kind")
+        public String kind;
+
+        @Label("Known User")
+        @Description("The username exists; the name itself is not recorded")
+        public boolean knownUser;
+
+        @Label("Success")
+        public boolean success;
+    }
+}
@@ -0,0 +1,153 @@
+package com.pahanaedu.monitoring;
+
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * On-demand Java Flight Recorder recordings. A recording uses one of the JDK's
+ * preset profiles ({@code default}, about 1% overhead, or {@code profile}, with
+ * more sampling) and runs until stopped or until its duration is up. Its file can
+ * be downloaded while it is still running; the snapshot holds everything up to
+ * that moment. At most {@code max-recordings} are held, running or stopped: to make
+ * room for a new one the oldest stopped recording is closed and its file deleted,
+ * and only when all of them are running is the new one refused.
+ */
+@Component
+public class JfrRecorder {
+
+    @Value("${bookshop.jfr.dir:data/jfr}")
+    private String jfrDir;
+
+    @Value("${bookshop.jfr.max-recordings:2}")
+    private int maxRecordings;
+
+    @Value("${bookshop.jfr.max-duration-minutes:60}")
+    private long maxDurationMinutes;
+
+    private final Map<Long, Entry> recordings = new ConcurrentHashMap<>();
+
+    public synchronized Map<String, Object> start(String profile, Long durationSeconds) {
+        while (recordings.size() >= maxRecordings) {
+            Entry oldest = recordings.values().stream()
+                    .filter(entry -> entry.recording.getState() != RecordingState.RUNNING)
+                    .min(Comparator.comparing(entry -> entry.recording.getStopTime() != null
+                            ? entry.recording.getStopTime() : Instant.MIN))
+                    .orElseThrow(() -> new RuntimeException("At most " + maxRecordings + " recordings can run at once"));
+            delete(oldest.recording.getId());
+        }
+        Configuration configuration;
+        try {
+            configuration = Configuration.getConfiguration(profile);
+        } catch (IOException | ParseException e) {
+            throw new RuntimeException("Unknown JFR profile: " + profile + " (use default or profile)");
+        }
+
+        long seconds = durationSeconds != null ? durationSeconds : maxDurationMinutes * 60;
+        Recording recording = new Recording(configuration);
+        recording.setName("bookshop-" + profile);
+        recording.setToDisk(true);
+        recording.setDuration(Duration.ofSeconds(Math.max(1, Math.min(seconds, maxDurationMinutes * 60))));
+        recording.start();
+        Entry entry = new Entry(recording, profile);
+        recordings.put(recording.getId(), entry);
+        return entry.describe();
+    }
+
+    public List<Map<String, Object>> list() {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Entry entry : recordings.values()) {
+            result.add(entry.describe());
+        }
+        return result;
+    }
+
+    public Map<String, Object> stop(long id) {
+        Entry entry = find(id);
+        if (entry.recording.getState() == RecordingState.RUNNING) {
+            entry.recording.stop();
+        }
+        return entry.describe();
+    }
+
+    /**
+     * Writes the recording so far to {@code <dir>/recording-<id>.jfr} and returns
+     * the file.
+     */
+    public Path dump(long id) {
+        Entry entry = find(id);
+        Path file = Paths.get(jfrDir, "recording-" + id + ".jfr");
+        try {
+            Files.createDirectories(file.getParent());
+            entry.recording.dump(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write recording " + id, e);
+        }
+        return file;
+    }
+
+    public void delete(long id) {
+        Entry entry = recordings.remove(id);
+        if (entry != null) {
+            entry.recording.close();
+            try {
+                Files.deleteIfExists(Paths.get(jfrDir, "recording-" + id + ".jfr"));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not delete recording " + id, e);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        recordings.values().forEach(entry -> entry.recording.close());
+    }
+
+    private Entry find(long id) {
+        Entry entry = recordings.get(id);
+        if (entry == null) {
+            throw new RuntimeException("Recording not found");
+        }
+        return entry;
+    }
+
+    private static class Entry {
+        private final Recording recording;
+        private final String profile;
+
+        Entry(Recording recording, String profile) {
+            this.recording = recording;
+            this.profile = profile;
+        }
+
+        Map<String, Object> describe() {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("id", recording.getId());
+            result.put("profile", profile);
+            result.put("state", recording.getState().name());
+            result.put("startTime", recording.getStartTime() != null ? recording.getStartTime().toString() : null);
+            result.put("stopTime", recording.getStopTime() != null ? recording.getStopTime().toString() : null);
+            result.put("durationSeconds", recording.getDuration() != null ? recording.getDuration().toSeconds() : null);
+            result.put("sizeBytes", recording.getSize());
+            return result;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.pahanaedu.monitoring;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.IThrowableProxy;
+import ch.qos.logback.classic.spi.ThrowableProxyUtil;
+import ch.qos.logback.core.encoder.EncoderBase;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Writes each log event as one line of JSON: timestamp, level, logger, thread,
+ * the formatted message, every MDC entry (the trace id among them) and the stack
+ * trace if there is one. Encoding happens on the async appender's worker thread.
+ */
+public class JsonLogEncoder extends EncoderBase<ILoggingEvent> {
+
+    private static final byte[] EMPTY = new byte[0];
+
+    @Override
+    public byte[] headerBytes() {
+        return EMPTY;
+    }
+
+    @Override
+    public byte[] encode(ILoggingEvent event) {
+        StringBuilder json = new StringBuilder(256);
+        json.append('{');
+        field(json, "@timestamp", Instant.ofEpochMilli(event.getTimeStamp()).toString()).append(',');
+        field(json, "level", event.getLevel().toString()).append(',');
+        field(json, "logger", event.getLoggerName()).append(',');
+        field(json, "thread", event.getThreadName()).append(',');
+        field(json, "message", event.getFormattedMessage());
+        Map<String, String> mdc = event.getMDCPropertyMap();
+        if (mdc != null) {
+            for (Map.Entry<String, String> entry : mdc.entrySet()) {
+                json.append(',');
+                field(json, entry.getKey(), entry.getValue());
+            }
+        }
+        IThrowableProxy throwable = event.getThrowableProxy();
+        if (throwable != null) {
+            json.append(',');
+            field(json, "exception", ThrowableProxyUtil.asString(throwable));
+        }
+        json.append("}\n");
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public byte[] footerBytes() {
+        return EMPTY;
+    }
+
+    private static StringBuilder field(StringBuilder json, String name, String value) {
+        string(json, name).append(':');
+        return value != null ? string(json, value) : json.append("null");
+    }
+
+    private static StringBuilder string(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        return json.append('"');
+    }
+}
@@ -0,0 +1,270 @@
+package com.pahanaedu.monitoring;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.spi.FilterReply;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.slf4j.Marker;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runtime control of logging: logger levels, per-logger sampling and
+ * request-scoped DEBUG. Sampling keeps a fraction of the INFO and DEBUG events of
+ * a logger (and the loggers below it); WARN and ERROR are never sampled. A debug
+ * rule turns on DEBUG of the application's loggers for the requests it matches
+ * (one customer's requests, or a path) until it expires, without changing any
+ * logger level for the rest of the node. Both are one turbo filter, which costs
+ * a thread-local read and a map lookup per log call.
+ */
+@Component
+public class LogControl {
+
+    private static final String ASYNC_APPENDER = "ASYNC";
+    private static final Sample UNSAMPLED = new Sample(1.0);
+
+    private static final ThreadLocal<Boolean> requestDebug = new ThreadLocal<>();
+
+    @Value("${bookshop.logging.sample-rates:}")
+    private String sampleRates;
+
+    @Value("${bookshop.logging.request-debug-prefix:com.pahanaedu}")
+    private String requestDebugPrefix;
+
+    private final Map<String, Sample> samples = new ConcurrentHashMap<>();
+    private final Map<String, Sample> resolved = new ConcurrentHashMap<>();
+    private final Map<Long, DebugRule> debugRules = new ConcurrentHashMap<>();
+    private final AtomicLong nextRuleId = new AtomicLong(1);
+    private final Filter filter = new Filter();
+
+    @PostConstruct
+    public void install() {
+        for (String entry : sampleRates.split(",")) {
+            String[] parts = entry.trim().split("=");
+            if (parts.length == 2) {
+                setSampleRate(parts[0].trim(), Double.parseDouble(parts[1].trim()));
+            }
+        }
+        filter.setName("bookshop-log-control");
+        filter.start();
+        context().addTurboFilter(filter);
+    }
+
+    @PreDestroy
+    public void uninstall() {
+        context().getTurboFilterList().remove(filter);
+    }
+
+    /**
+     * Sets a logger's level; a null level makes it inherit from its parent again.
+     */
+    public void setLevel(String loggerName, String level) {
+        Level parsed = level != null ? Level.toLevel(level, null) : null;
+        if (level != null && parsed == null) {
+            throw new RuntimeException("Unknown level: " + level);
+        }
+        if (parsed == null && Logger.ROOT_LOGGER_NAME.equalsIgnoreCase(loggerName)) {
+            throw new RuntimeException("The root logger needs a level");
+        }
+        context().getLogger(loggerName).setLevel(parsed);
+    }
+
+    /**
+     * Keeps {@code rate} of the INFO and DEBUG events of {@code loggerName} and
+     * its children; 1 turns sampling off.
+     */
+    public void setSampleRate(String loggerName, double rate) {
+        if (rate < 0 || rate > 1) {
+            throw new RuntimeException("Sample rate must be between 0 and 1");
+        }
+        if (rate >= 1) {
+            samples.remove(loggerName);
+        } else {
+            samples.put(loggerName, new Sample(rate));
+        }
+        resolved.clear();
+    }
+
+    public Map<String, Object> addDebugRule(Long customerId, String path, int minutes) {
+        if (customerId == null && (path == null || path.isBlank())) {
+            throw new RuntimeException("Give a customerId or a path");
+        }
+        DebugRule rule = new DebugRule(nextRuleId.getAndIncrement(), customerId, path,
+                LocalDateTime.now().plusMinutes(Math.max(1, minutes)));
+        debugRules.put(rule.id, rule);
+        return rule.describe();
+    }
+
+    public void removeDebugRule(long id) {
+        debugRules.remove(id);
+    }
+
+    /**
+     * Turns on DEBUG for the current request if a debug rule matches it. The
+     * customer is taken from a {@code customerId} path variable or parameter, or
+     * the {@code X-Customer-Id} header.
+     */
+    public void beginRequest(HttpServletRequest request) {
+        if (debugRules.isEmpty()) {
+            return;
+        }
+        String customerId = request.getParameter("customerId");
+        Object variables = request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        if (customerId == null && variables instanceof Map<?, ?> map && map.get("customerId") != null) {
+            customerId = map.get("customerId").toString();
+        }
+        if (customerId == null) {
+            customerId = request.getHeader("X-Customer-Id");
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+
+        LocalDateTime now = LocalDateTime.now();
+        for (DebugRule rule : debugRules.values()) {
+            if (rule.expiresAt.isBefore(now)) {
+                debugRules.remove(rule.id, rule);
+            } else if (rule.matches(customerId, path)) {
+                requestDebug.set(Boolean.TRUE);
+                MDC.put("debugRule", String.valueOf(rule.id));
+                return;
+            }
+        }
+    }
+
+    public void endRequest() {
+        if (requestDebug.get() != null) {
+            requestDebug.remove();
+            MDC.remove("debugRule");
+        }
+    }
+
+    public Map<String, Object> status() {
+        LoggerContext context = context();
+        Map<String, String> levels = new LinkedHashMap<>();
+        for (Logger logger : context.getLoggerList()) {
+            if (logger.getLevel() != null) {
+                levels.put(logger.getName(), logger.getLevel().toString());
+            }
+        }
+        Map<String, Object> sampling = new LinkedHashMap<>();
+        samples.forEach((name, sample) -> sampling.put(name, Map.of("rate", sample.rate, "dropped", sample.dropped.sum())));
+        List<Map<String, Object>> rules = new ArrayList<>();
+        debugRules.values().forEach(rule -> rules.add(rule.describe()));
+
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("levels", levels);
+        status.put("sampling", sampling);
+        status.put("debugRules", rules);
+        Appender<?> appender = context.getLogger(Logger.ROOT_LOGGER_NAME).getAppender(ASYNC_APPENDER);
+        if (appender instanceof AsyncAppender async) {
+            Map<String, Object> queue = new LinkedHashMap<>();
+            queue.put("capacity", async.getQueueSize());
+            queue.put("queued", async.getNumberOfElementsInQueue());
+            queue.put("discardingThreshold", async.getDiscardingThreshold());
+            status.put("asyncQueue", queue);
+        }
+        return status;
+    }
+
+    private Sample sampleFor(String loggerName) {
+        Sample sample = resolved.get(loggerName);
+        if (sample == null) {
+            sample = UNSAMPLED;
+            int longest = -1;
+            for (Map.Entry<String, Sample> entry : samples.entrySet()) {
+                String prefix = entry.getKey();
+                boolean covers = loggerName.equals(prefix)
+                        || (loggerName.startsWith(prefix) && loggerName.charAt(prefix.length()) == '.');
+                if (covers && prefix.length() > longest) {
+                    sample = entry.getValue();
+                    longest = prefix.length();
+                }
+            }
+            resolved.put(loggerName, sample);
+        }
+        return sample;
+    }
+
+    private static LoggerContext context() {
+        return (LoggerContext) LoggerFactory.getILoggerFactory();
+    }
+
+    private class Filter extends TurboFilter {
+        @Override
+        public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+            if (level == null || logger == null || level.isGreaterOrEqual(Level.WARN)) {
+                return FilterReply.NEUTRAL;
+            }
+            if (requestDebug.get() != null && level.isGreaterOrEqual(Level.DEBUG)
+                    && logger.getName().startsWith(requestDebugPrefix)) {
+                return FilterReply.ACCEPT;
+            }
+            Sample sample = sampleFor(logger.getName());
+            if (sample == UNSAMPLED || !level.isGreaterOrEqual(logger.getEffectiveLevel())) {
+                return FilterReply.NEUTRAL;
+            }
+            if (ThreadLocalRandom.current().nextDouble() < sample.rate) {
+                return FilterReply.NEUTRAL;
+            }
+            sample.dropped.increment();
+            return FilterReply.DENY;
+        }
+    }
+
+    private static class Sample {
+        private final double rate;
+        private final LongAdder dropped = new LongAdder();
+
+        Sample(double rate) {
+            this.rate = rate;
+        }
+    }
+
+    private static class DebugRule {
+        private final long id;
+        private final Long customerId;
+        private final String path;
+        private final LocalDateTime expiresAt;
+
+        DebugRule(long id, Long customerId, String path, LocalDateTime expiresAt) {
+            this.id = id;
+            this.customerId = customerId;
+            this.path = path != null && !path.isBlank() ? path : null;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean matches(String requestCustomerId, String requestPath) {
+            if (customerId != null && !customerId.toString().equals(requestCustomerId)) {
+                return false;
+            }
+            return path == null || requestPath.startsWith(path);
+        }
+
+        Map<String, Object> describe() {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("id", id);
+            result.put("customerId", customerId);
+            result.put("path", path);
+            result.put("expiresAt", expiresAt.toString());
+            return result;
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.pahanaedu.monitoring;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pahanaedu.entity.Bill;
+import com.pahanaedu.entity.User;
+import com.pahanaedu.repository.ArchivedBillRepository;
+import com.pahanaedu.repository.BillItemRepository;
+import com.pahanaedu.repository.BillRepository;
+import com.pahanaedu.repository.BranchStockRepository;
+import com.pahanaedu.repository.CustomerRepository;
+import com.pahanaedu.repository.IdempotencyRecordRepository;
+import com.pahanaedu.repository.ItemRepository;
+import com.pahanaedu.repository.StockMovementRepository;
+import com.pahanaedu.repository.StockSnapshotRepository;
+import com.pahanaedu.repository.UserRepository;
+import com.pahanaedu.service.BillQueryService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Runs each repository finder in a transaction that is rolled back, captures the
+ * SQL and parameters it sends and runs {@code EXPLAIN FORMAT=JSON} on exactly that
+ * statement. A table read by a full scan is flagged when no index could serve it,
+ * or when MySQL estimates the scan reads at least {@code bookshop.schema.explain-scan-rows}
+ * rows; on small tables the optimizer often scans despite a usable index, which
+ * is not a problem. Add new finders to {@link #finders()}.
+ */
+@Component
+public class QueryPlanVerifier {
+
+    private static final Logger log = LoggerFactory.getLogger(QueryPlanVerifier.class);
+
+    @Autowired
+    private BillRepository billRepository;
+
+    @Autowired
+    private ArchivedBillRepository archivedBillRepository;
+
+    @Autowired
+    private BillItemRepository billItemRepository;
+
+    @Autowired
+    private StockMovementRepository stockMovementRepository;
+
+    @Autowired
+    private StockSnapshotRepository stockSnapshotRepository;
+
+    @Autowired
+    private BranchStockRepository branchStockRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private BillQueryService billQueryService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${bookshop.schema.explain-on-startup:false}")
+    private boolean explainOnStartup;
+
+    @Value("${bookshop.schema.explain-scan-rows:10000}")
+    private long scanRows;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void verifyOnStartup() {
+        if (!explainOnStartup) {
+            return;
+        }
+        for (Map<String, Object> plan : verify()) {
+            if (plan.containsKey("error")) {
+                log.warn("Could not explain {}: {}", plan.get("finder"), plan.get("error"));
+            } else if (Boolean.TRUE.equals(plan.get("fullScan"))) {
+                log.warn("Full table scan of {} for {}: {}", plan.get("table"), plan.get("finder"), plan.get("sql"));
+            }
+        }
+    }
+
+    /**
+     * One entry per table access of each statement a finder sent, or one entry
+     * with an {@code error} for a finder whose SQL could not be captured.
+     */
+    public List<Map<String, Object>> verify() {
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (Map.Entry<String, Runnable> finder : finders().entrySet()) {
+            List<JdbcInstrumentation.CapturedStatement> statements;
+            try {
+                statements = transactionTemplate.execute(status -> {
+                    status.setRollbackOnly();
+                    return JdbcInstrumentation.capture(finder.getValue());
+                });
+            } catch (RuntimeException e) {
+                results.add(error(finder.getKey(), e.getMessage()));
+                continue;
+            }
+            if (statements == null || statements.isEmpty()) {
+                // nothing reaches the database when the JDBC proxy is off (bookshop.sql-stats.enabled=false)
+                results.add(error(finder.getKey(), "No SQL captured"));
+                continue;
+            }
+            for (JdbcInstrumentation.CapturedStatement statement : statements) {
+                explain(finder.getKey(), statement, results);
+            }
+        }
+        return results;
+    }
+
+    private void explain(String finder, JdbcInstrumentation.CapturedStatement statement, List<Map<String, Object>> results) {
+        JsonNode plan;
+        try {
+            String json = jdbcTemplate.queryForObject("EXPLAIN FORMAT=JSON " + statement.getSql(), String.class,
+                    statement.getParameters().toArray());
+            plan = objectMapper.readTree(json);
+        } catch (IOException | RuntimeException e) {
+            results.add(error(finder, e.getMessage()));
+            return;
+        }
+
+        List<JsonNode> tables = new ArrayList<>();
+        collectTables(plan, tables);
+        for (JsonNode table : tables) {
+            String accessType = table.path("access_type").asText();
+            long rows = table.path("rows_examined_per_scan").asLong();
+            boolean usableIndex = table.path("possible_keys").size() > 0;
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("finder", finder);
+            result.put("sql", statement.getSql());
+            result.put("table", table.path("table_name").asText());
+            result.put("type", accessType);
+            result.put("key", table.hasNonNull("key") ? table.get("key").asText() : null);
+            result.put("possibleKeys", usableIndex ? table.get("possible_keys").toString() : null);
+            result.put("rows", rows);
+            result.put("cost", plan.path("query_block").path("cost_info").path("query_cost").asText(null));
+            result.put("fullScan", "ALL".equals(accessType) && (!usableIndex || rows >= scanRows));
+            results.add(result);
+        }
+    }
+
+    /**
+     * Every base table read in the plan, at any depth (joins, subqueries, unions).
+     */
+    private static void collectTables(JsonNode node, List<JsonNode> tables) {
+        if (node.isObject() && node.has("table_name") && node.has("access_type")
+                && !node.get("table_name").asText().startsWith("<")) {
+            tables.add(node);
+        }
+        if (node.isContainerNode()) {
+            for (JsonNode child : node) {
+                collectTables(child, tables);
+            }
+        }
+    }
+
+    private static Map<String, Object> error(String finder, String message) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("finder", finder);
+        result.put("error", message);
+        return result;
+    }
+
+    /**
+     * The finders to check, each calling the repository the way the services do.
+     * The arguments only need to be of the right shape; no rows have to match.
+     */
+    private Map<String, Runnable> finders() {
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, Runnable> finders = new LinkedHashMap<>();
+        finders.put("BillRepository.findByBillNumber", () -> billRepository.findByBillNumber("BILL0"));
+        finders.put("BillRepository.findByBillNumberIn", () -> billRepository.findByBillNumberIn(List.of("BILL0", "BILL1", "BILL2")));
+        finders.put("BillRepository.findByCustomerId", () -> billRepository.findByCustomerId(1L));
+        finders.put("BillRepository.findByStatus", () -> billRepository.findByStatus(Bill.Status.PENDING));
+        finders.put("BillRepository.findByIdForUpdate", () -> billRepository.findByIdForUpdate(1L));
+        finders.put("BillRepository.findAllByIdForUpdate", () -> billRepository.findAllByIdForUpdate(List.of(1L, 2L, 3L)));
+        finders.put("BillRepository.findReservations", () -> billRepository.findReservations(Bill.Status.PENDING));
+        finders.put("BillRepository.findStatementLines", () -> billRepository.findStatementLines(1L, 500L, now.minusMonths(1), now));
+        finders.put("BillRepository.findOutstandingByCustomer", () -> billRepository.findOutstandingByCustomer(1L, 500L));
+        finders.put("BillQueryService.search (date range)", () -> billQueryService.search(billQuery(now.minusDays(1), null, null, null)));
+        finders.put("BillQueryService.search (status, older than)",
+                () -> billQueryService.search(billQuery(null, now.minusDays(3), Set.of(Bill.Status.PENDING), null)));
+        finders.put("BillQueryService.search (cashier)", () -> billQueryService.search(billQuery(now.minusDays(1), null, null, 1L)));
+        finders.put("ArchivedBillRepository.findArchivableIds", () -> archivedBillRepository.findArchivableIds(now, 500));
+        finders.put("ArchivedBillRepository.findByBillNumber", () -> archivedBillRepository.findByBillNumber("BILL0"));
+        finders.put("ArchivedBillRepository.findByBillNumberIn",
+                () -> archivedBillRepository.findByBillNumberIn(List.of("BILL0", "BILL1", "BILL2")));
+        finders.put("ArchivedBillRepository.findByCustomerIdOrderByBillDateDesc",
+                () -> archivedBillRepository.findByCustomerIdOrderByBillDateDesc(1L));
+        finders.put("BillItemRepository.findByBillId", () -> billItemRepository.findByBillId(1L));
+        finders.put("BillItemRepository.findByItemId", () -> billItemRepository.findByItemId(1L));
+        finders.put("BillItemRepository.findByBillIdIn", () -> billItemRepository.findByBillIdIn(List.of(1L, 2L, 3L)));
+        finders.put("BillItemRepository.lockPendingStock", () -> billItemRepository.lockPendingStock(100));
+        finders.put("BillItemRepository.findBasketLines", () -> billItemRepository.findBasketLines(1, 5000));
+        finders.put("BillItemRepository.findDailySales",
+                () -> billItemRepository.findDailySales(1, 500, LocalDate.now().minusDays(1), LocalDate.now()));
+        finders.put("BillItemRepository.sumPendingQuantity", () -> billItemRepository.sumPendingQuantity(1L));
+        finders.put("StockMovementRepository.findByItemIdAndCreatedAtBetweenOrderByIdAsc",
+                () -> stockMovementRepository.findByItemIdAndCreatedAtBetweenOrderByIdAsc(1L, now.minusDays(7), now));
+        finders.put("StockMovementRepository.sumDeltas", () -> stockMovementRepository.sumDeltas(1L, 0, now));
+        finders.put("StockMovementRepository.findLastIdBefore", () -> stockMovementRepository.findLastIdBefore(now));
+        finders.put("StockSnapshotRepository.findFirstByItemIdAndTakenAtLessThanEqualOrderByIdDesc",
+                () -> stockSnapshotRepository.findFirstByItemIdAndTakenAtLessThanEqualOrderByIdDesc(1L, now));
+        finders.put("BranchStockRepository.findByItemId", () -> branchStockRepository.findByItemId(1L));
+        finders.put("BranchStockRepository.findByBranchIdAndItemIdIn",
+                () -> branchStockRepository.findByBranchIdAndItemIdIn(1L, List.of(1L, 2L, 3L)));
+        finders.put("BranchStockRepository.findByBranchIdOrderByItemId", () -> branchStockRepository.findByBranchIdOrderByItemId(1L));
+        finders.put("ItemRepository.findByItemCode", () -> itemRepository.findByItemCode("ITEM0"));
+        finders.put("ItemRepository.findByItemCodeIn", () -> itemRepository.findByItemCodeIn(List.of("ITEM0", "ITEM1", "ITEM2")));
+        finders.put("ItemRepository.findByCategory", () -> itemRepository.findByCategory("Textbooks"));
+        finders.put("ItemRepository.existsByItemCode", () -> itemRepository.existsByItemCode("ITEM0"));
+        finders.put("CustomerRepository.findByAccountNumber", () -> customerRepository.findByAccountNumber("ACC0"));
+        finders.put("CustomerRepository.findByAccountNumberIn",
+                () -> customerRepository.findByAccountNumberIn(List.of("ACC0", "ACC1", "ACC2")));
+        finders.put("CustomerRepository.existsByAccountNumber", () -> customerRepository.existsByAccountNumber("ACC0"));
+        finders.put("CustomerRepository.findByUserId", () -> customerRepository.findByUserId(1L));
+        finders.put("UserRepository.findByUsername", () -> userRepository.findByUsername("admin"));
+        finders.put("UserRepository.existsByUsername", () -> userRepository.existsByUsername("admin"));
+        finders.put("UserRepository.findByRole", () -> userRepository.findByRole(User.Role.ADMIN));
+        finders.put("IdempotencyRecordRepository.findByIdempotencyKey",
+                () -> idempotencyRecordRepository.findByIdempotencyKey("bill:0"));
+        return finders;
+    }
+
+    private static BillQueryService.BillQuery billQuery(LocalDateTime from, LocalDateTime to, Set<Bill.Status> statuses,
+                                                        Long createdById) {
+        BillQueryService.BillQuery query = new BillQueryService.BillQuery();
+        query.setFrom(from);
+        query.setTo(to);
+        query.setStatuses(statuses);
+        query.setCreatedById(createdById);
+        return query;
+    }
+}
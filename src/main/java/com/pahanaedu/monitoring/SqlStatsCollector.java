@@ -0,0 +1,325 @@
+package com.pahanaedu.monitoring;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory SQL accounting fed by the JDBC proxy. Keeps per-statement totals and
+ * the slowest executions for a rolling window, per-endpoint totals, and flags
+ * statements repeated within one request (N+1 patterns).
+ */
+@Component
+public class SqlStatsCollector {
+
+    private static final Logger log = LoggerFactory.getLogger(SqlStatsCollector.class);
+    private static final String OTHER = "<other statements>";
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(\\.\\d+)?\\b");
+    private static final Pattern IN_LIST = Pattern.compile("\\(\\s*\\?(\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private static final ThreadLocal<RequestSql> currentRequest = new ThreadLocal<>();
+
+    @Value("${bookshop.sql-stats.top-n:20}")
+    private int topN;
+
+    @Value("${bookshop.sql-stats.max-statements:2000}")
+    private int maxStatements;
+
+    @Value("${bookshop.sql-stats.slow-query-ms:200}")
+    private long slowQueryMs;
+
+    @Value("${bookshop.sql-stats.n-plus-one-threshold:10}")
+    private int nPlusOneThreshold;
+
+    private volatile Window window = new Window();
+    private volatile Window previousWindow;
+    private final Map<String, EndpointStats> endpoints = new ConcurrentHashMap<>();
+    private final ArrayDeque<Map<String, Object>> nPlusOneFindings = new ArrayDeque<>();
+
+    /**
+     * Normalized form of each SQL string seen, up to {@code maxStatements} of them.
+     * Prepared statements repeat the same string, so they are normalized once;
+     * SQL with inline literals past the cap is normalized on every execution.
+     */
+    private final Map<String, String> normalizedSql = new ConcurrentHashMap<>();
+
+    public void beginRequest(String endpoint) {
+        currentRequest.set(new RequestSql(endpoint));
+    }
+
+    public void setEndpoint(String endpoint) {
+        RequestSql request = currentRequest.get();
+        if (request != null) {
+            request.endpoint = endpoint;
+        }
+    }
+
+    public void endRequest() {
+        RequestSql request = currentRequest.get();
+        currentRequest.remove();
+        if (request == null || request.queries == 0) {
+            return;
+        }
+
+        EndpointStats stats = endpoints.computeIfAbsent(request.endpoint, e -> new EndpointStats());
+        stats.requests.increment();
+        stats.queries.add(request.queries);
+        stats.sqlNanos.add(request.sqlNanos);
+        stats.maxQueriesPerRequest.accumulateAndGet(request.queries, Math::max);
+
+        for (Map.Entry<String, Integer> entry : request.statementCounts.entrySet()) {
+            if (entry.getValue() >= nPlusOneThreshold) {
+                stats.nPlusOneRequests.increment();
+                Map<String, Object> finding = new LinkedHashMap<>();
+                finding.put("endpoint", request.endpoint);
+                finding.put("sql", entry.getKey());
+                finding.put("executions", entry.getValue());
+                finding.put("at", LocalDateTime.now().toString());
+                synchronized (nPlusOneFindings) {
+                    nPlusOneFindings.addFirst(finding);
+                    while (nPlusOneFindings.size() > topN) {
+                        nPlusOneFindings.removeLast();
+                    }
+                }
+                log.warn("Possible N+1 on {}: statement executed {} times: {}", request.endpoint, entry.getValue(), entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * Records one statement execution. The returned handle lets the caller add the
+     * row count once the result set has been read.
+     */
+    public Execution record(String sql, long nanos) {
+        String normalized = normalizeCached(sql);
+        RequestSql request = currentRequest.get();
+        String endpoint = request != null ? request.endpoint : "<background>";
+        if (request != null) {
+            request.queries++;
+            request.sqlNanos += nanos;
+            request.statementCounts.merge(normalized, 1, Integer::sum);
+        }
+
+        Window current = window;
+        StatementStats stats = current.statements.get(normalized);
+        if (stats == null) {
+            String key = current.statements.size() < maxStatements ? normalized : OTHER;
+            stats = current.statements.computeIfAbsent(key, k -> new StatementStats());
+        }
+        stats.count.increment();
+        stats.totalNanos.add(nanos);
+        stats.maxNanos.accumulateAndGet(nanos, Math::max);
+        stats.lastEndpoint = endpoint;
+
+        Execution execution = new Execution(normalized, nanos, endpoint, stats);
+        current.offerSlow(execution, topN);
+        if (nanos >= slowQueryMs * 1_000_000) {
+            log.warn("Slow query on {} took {} ms: {}", endpoint, nanos / 1_000_000, normalized);
+        }
+        return execution;
+    }
+
+    @Scheduled(fixedDelayString = "${bookshop.sql-stats.window-ms:900000}")
+    public void rotateWindow() {
+        previousWindow = window;
+        window = new Window();
+    }
+
+    public void reset() {
+        previousWindow = null;
+        window = new Window();
+        endpoints.clear();
+        synchronized (nPlusOneFindings) {
+            nPlusOneFindings.clear();
+        }
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("currentWindow", window.describe(topN));
+        Window previous = previousWindow;
+        if (previous != null) {
+            result.put("previousWindow", previous.describe(topN));
+        }
+
+        Map<String, Object> endpointStats = new LinkedHashMap<>();
+        endpoints.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<String, EndpointStats> e) -> e.getValue().sqlNanos.sum()).reversed())
+                .forEach(e -> endpointStats.put(e.getKey(), e.getValue().describe()));
+        result.put("endpoints", endpointStats);
+
+        synchronized (nPlusOneFindings) {
+            result.put("nPlusOne", new ArrayList<>(nPlusOneFindings));
+        }
+        return result;
+    }
+
+    private String normalizeCached(String sql) {
+        if (sql == null) {
+            return "";
+        }
+        String normalized = normalizedSql.get(sql);
+        if (normalized == null) {
+            normalized = normalize(sql);
+            if (normalizedSql.size() < maxStatements) {
+                normalizedSql.put(sql, normalized);
+            }
+        }
+        return normalized;
+    }
+
+    static String normalize(String sql) {
+        if (sql == null) {
+            return "";
+        }
+        String normalized = STRING_LITERAL.matcher(sql).replaceAll("?");
+        normalized = NUMBER_LITERAL.matcher(normalized).replaceAll("?");
+        normalized = WHITESPACE.matcher(normalized).replaceAll(" ").trim();
+        return IN_LIST.matcher(normalized).replaceAll("(?)");
+    }
+
+    public static class Execution {
+        private final String sql;
+        private final long nanos;
+        private final String endpoint;
+        private final StatementStats stats;
+        private final LocalDateTime at = LocalDateTime.now();
+        private volatile long rows = -1;
+
+        Execution(String sql, long nanos, String endpoint, StatementStats stats) {
+            this.sql = sql;
+            this.nanos = nanos;
+            this.endpoint = endpoint;
+            this.stats = stats;
+        }
+
+        public void addRows(long rows) {
+            this.rows = rows;
+            stats.rows.add(rows);
+        }
+
+        Map<String, Object> describe() {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("sql", sql);
+            result.put("ms", nanos / 1_000_000.0);
+            result.put("rows", rows);
+            result.put("endpoint", endpoint);
+            result.put("at", at.toString());
+            return result;
+        }
+    }
+
+    private static class StatementStats {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private volatile String lastEndpoint;
+
+        Map<String, Object> describe(String sql) {
+            long executions = count.sum();
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("sql", sql);
+            result.put("count", executions);
+            result.put("totalMs", totalNanos.sum() / 1_000_000.0);
+            result.put("avgMs", executions > 0 ? totalNanos.sum() / 1_000_000.0 / executions : 0);
+            result.put("maxMs", maxNanos.get() / 1_000_000.0);
+            result.put("rows", rows.sum());
+            result.put("lastEndpoint", lastEndpoint);
+            return result;
+        }
+    }
+
+    private static class EndpointStats {
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder queries = new LongAdder();
+        private final LongAdder sqlNanos = new LongAdder();
+        private final LongAdder nPlusOneRequests = new LongAdder();
+        private final AtomicLong maxQueriesPerRequest = new AtomicLong();
+
+        Map<String, Object> describe() {
+            long requestCount = requests.sum();
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("requests", requestCount);
+            result.put("queries", queries.sum());
+            result.put("avgQueriesPerRequest", requestCount > 0 ? (double) queries.sum() / requestCount : 0);
+            result.put("maxQueriesPerRequest", maxQueriesPerRequest.get());
+            result.put("sqlMs", sqlNanos.sum() / 1_000_000.0);
+            result.put("nPlusOneRequests", nPlusOneRequests.sum());
+            return result;
+        }
+    }
+
+    private static class RequestSql {
+        private String endpoint;
+        private int queries;
+        private long sqlNanos;
+        private final Map<String, Integer> statementCounts = new HashMap<>();
+
+        RequestSql(String endpoint) {
+            this.endpoint = endpoint;
+        }
+    }
+
+    private static class Window {
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private final Map<String, StatementStats> statements = new ConcurrentHashMap<>();
+        private final PriorityQueue<Execution> slowest = new PriorityQueue<>(Comparator.comparingLong(e -> e.nanos));
+        private volatile long slowThreshold;
+
+        void offerSlow(Execution execution, int limit) {
+            if (execution.nanos <= slowThreshold) {
+                return;
+            }
+            synchronized (slowest) {
+                slowest.offer(execution);
+                if (slowest.size() > limit) {
+                    slowest.poll();
+                    slowThreshold = slowest.peek().nanos;
+                }
+            }
+        }
+
+        Map<String, Object> describe(int limit) {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("startedAt", startedAt.toString());
+
+            List<Execution> slow;
+            synchronized (slowest) {
+                slow = new ArrayList<>(slowest);
+            }
+            slow.sort(Comparator.comparingLong((Execution e) -> e.nanos).reversed());
+            result.put("slowest", slow.stream().map(Execution::describe).toList());
+
+            result.put("mostFrequent", statements.entrySet().stream()
+                    .sorted(Comparator.comparingLong((Map.Entry<String, StatementStats> e) -> e.getValue().count.sum()).reversed())
+                    .limit(limit)
+                    .map(e -> e.getValue().describe(e.getKey()))
+                    .toList());
+            result.put("mostTime", statements.entrySet().stream()
+                    .sorted(Comparator.comparingLong((Map.Entry<String, StatementStats> e) -> e.getValue().totalNanos.sum()).reversed())
+                    .limit(limit)
+                    .map(e -> e.getValue().describe(e.getKey()))
+                    .toList());
+            return result;
+        }
+    }
+}
@@ -0,0 +1,364 @@
+package com.pahanaedu.monitoring;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local file store for kept traces. Each trace is one line of OTLP/JSON (an
+ * OpenTelemetry {@code ExportTraceServiceRequest}), so the files can be shipped
+ * to any OTLP collector as they are. Requests only queue the finished spans; a
+ * single writer thread encodes and appends them, rotating {@code spans.jsonl}
+ * through {@code spans.1.jsonl .. spans.<n>.jsonl}. When the queue is full the
+ * trace is dropped and counted rather than slowing the request down. A trace that
+ * cannot be written is dropped and counted too; the writer reopens the file for
+ * the next one.
+ */
+@Component
+public class TraceStore {
+
+    private static final Logger log = LoggerFactory.getLogger(TraceStore.class);
+    private static final String FILE = "spans";
+    private static final String SUFFIX = ".jsonl";
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${bookshop.tracing.dir:data/traces}")
+    private String tracesDir;
+
+    @Value("${bookshop.tracing.max-file-bytes:10485760}")
+    private long maxFileBytes;
+
+    @Value("${bookshop.tracing.max-files:5}")
+    private int maxFiles;
+
+    @Value("${bookshop.tracing.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${spring.application.name:bookshop-backend}")
+    private String serviceName;
+
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private BlockingQueue<PendingTrace> queue;
+    private Thread writerThread;
+    private Path directory;
+    private OutputStream out;
+    private long fileBytes;
+    private boolean failing;
+
+    @PostConstruct
+    public void start() {
+        directory = Paths.get(tracesDir);
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        writerThread = new Thread(this::writeLoop, "trace-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        writerThread.interrupt();
+        writerThread.join(5000);
+    }
+
+    void write(String traceId, long startEpochNanos, long startNanos, List<Tracer.Span> spans) {
+        if (!queue.offer(new PendingTrace(traceId, startEpochNanos, startNanos, spans))) {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * Summaries of kept traces, newest first, whose root span name contains
+     * {@code name} and that took at least {@code minDurationMs}.
+     */
+    public Map<String, Object> search(String name, long minDurationMs, boolean errorsOnly, int limit) {
+        List<Map<String, Object>> found = new ArrayList<>();
+        for (Path file : files()) {
+            List<String> lines = readLines(file);
+            Collections.reverse(lines);
+            for (String line : lines) {
+                if (found.size() >= limit) {
+                    break;
+                }
+                JsonNode spans = spans(parse(line));
+                if (spans.isEmpty()) {
+                    continue;
+                }
+                Map<String, Object> summary = summarize(spans);
+                if ((name == null || ((String) summary.get("name")).contains(name))
+                        && (long) summary.get("durationMs") >= minDurationMs
+                        && (!errorsOnly || (boolean) summary.get("error"))) {
+                    found.add(summary);
+                }
+            }
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("traces", found);
+        result.put("written", written.sum());
+        result.put("dropped", dropped.sum());
+        return result;
+    }
+
+    public Optional<JsonNode> find(String traceId) {
+        String needle = "\"traceId\":\"" + traceId + "\"";
+        for (Path file : files()) {
+            for (String line : readLines(file)) {
+                if (line.contains(needle)) {
+                    return Optional.of(parse(line));
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    private void writeLoop() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                PendingTrace trace = queue.poll(1, TimeUnit.SECONDS);
+                if (trace == null) {
+                    continue;
+                }
+                do {
+                    try {
+                        append(objectMapper.writeValueAsBytes(encode(trace)));
+                    } catch (IOException | RuntimeException e) {
+                        dropped.increment();
+                        failed(e);
+                    }
+                } while ((trace = queue.poll()) != null);
+                try {
+                    if (out != null) {
+                        out.flush();
+                        recovered();
+                    }
+                } catch (IOException e) {
+                    failed(e);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            closeWriter();
+        }
+    }
+
+    private void append(byte[] line) throws IOException {
+        long bytes = line.length + 1L;
+        if (out == null) {
+            Files.createDirectories(directory);
+            Path file = directory.resolve(FILE + SUFFIX);
+            fileBytes = Files.exists(file) ? Files.size(file) : 0;
+            out = open(file);
+        }
+        if (fileBytes > 0 && fileBytes + bytes > maxFileBytes) {
+            rotate();
+        }
+        out.write(line);
+        out.write('\n');
+        fileBytes += bytes;
+        written.increment();
+    }
+
+    /**
+     * Closes the file after a failed write so the next trace reopens it. Warns
+     * once per run of failures.
+     */
+    private void failed(Exception e) {
+        closeWriter();
+        if (!failing) {
+            failing = true;
+            log.warn("Could not write traces, dropping them until the file can be written: {}", e.getMessage());
+        }
+    }
+
+    private void recovered() {
+        if (failing) {
+            failing = false;
+            log.info("Writing traces again");
+        }
+    }
+
+    private static OutputStream open(Path file) throws IOException {
+        return new BufferedOutputStream(Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND));
+    }
+
+    private void rotate() throws IOException {
+        closeWriter();
+        Files.deleteIfExists(directory.resolve(FILE + "." + maxFiles + SUFFIX));
+        for (int i = maxFiles - 1; i >= 1; i--) {
+            Path from = directory.resolve(FILE + "." + i + SUFFIX);
+            if (Files.exists(from)) {
+                Files.move(from, directory.resolve(FILE + "." + (i + 1) + SUFFIX), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Path current = directory.resolve(FILE + SUFFIX);
+        Files.move(current, directory.resolve(FILE + ".1" + SUFFIX), StandardCopyOption.REPLACE_EXISTING);
+        out = open(current);
+        fileBytes = 0;
+    }
+
+    private void closeWriter() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException ignored) {
+                // nothing left to do with a broken trace file
+            }
+            out = null;
+        }
+    }
+
+    private ObjectNode encode(PendingTrace trace) {
+        ArrayNode spans = objectMapper.createArrayNode();
+        for (Tracer.Span span : trace.spans) {
+            ObjectNode node = spans.addObject();
+            node.put("traceId", trace.traceId);
+            node.put("spanId", span.getSpanId());
+            if (span.getParentSpanId() != null) {
+                node.put("parentSpanId", span.getParentSpanId());
+            }
+            node.put("name", span.getName());
+            node.put("kind", span.getKind().getCode());
+            node.put("startTimeUnixNano", String.valueOf(trace.startEpochNanos + span.getStartNanos() - trace.startNanos));
+            node.put("endTimeUnixNano", String.valueOf(trace.startEpochNanos + span.getEndNanos() - trace.startNanos));
+            ArrayNode attributes = node.putArray("attributes");
+            span.getAttributes().forEach((key, value) -> attributes.add(attribute(key, value)));
+            ObjectNode status = node.putObject("status");
+            if (span.isError()) {
+                status.put("code", 2);
+                if (span.getErrorMessage() != null) {
+                    status.put("message", span.getErrorMessage());
+                }
+            }
+        }
+
+        ObjectNode request = objectMapper.createObjectNode();
+        ObjectNode resourceSpans = request.putArray("resourceSpans").addObject();
+        resourceSpans.putObject("resource").putArray("attributes").add(attribute("service.name", serviceName));
+        ObjectNode scopeSpans = resourceSpans.putArray("scopeSpans").addObject();
+        scopeSpans.putObject("scope").put("name", Tracer.class.getName());
+        scopeSpans.set("spans", spans);
+        return request;
+    }
+
+    private ObjectNode attribute(String key, Object value) {
+        ObjectNode attribute = objectMapper.createObjectNode();
+        attribute.put("key", key);
+        ObjectNode wrapped = attribute.putObject("value");
+        if (value instanceof Integer || value instanceof Long) {
+            wrapped.put("intValue", String.valueOf(value));
+        } else if (value instanceof Boolean bool) {
+            wrapped.put("boolValue", bool);
+        } else {
+            wrapped.put("stringValue", String.valueOf(value));
+        }
+        return attribute;
+    }
+
+    private static Map<String, Object> summarize(JsonNode spans) {
+        JsonNode root = spans.get(0);
+        long start = Long.parseLong(root.path("startTimeUnixNano").asText("0"));
+        long end = Long.parseLong(root.path("endTimeUnixNano").asText("0"));
+        boolean error = root.path("status").path("code").asInt() == 2;
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("traceId", root.path("traceId").asText());
+        summary.put("name", root.path("name").asText());
+        summary.put("startTimeUnixNano", start);
+        summary.put("durationMs", (end - start) / 1_000_000);
+        summary.put("spans", spans.size());
+        summary.put("error", error);
+        return summary;
+    }
+
+    private static JsonNode spans(JsonNode request) {
+        return request.path("resourceSpans").path(0).path("scopeSpans").path(0).path("spans");
+    }
+
+    private JsonNode parse(String line) {
+        try {
+            return objectMapper.readTree(line);
+        } catch (IOException e) {
+            return objectMapper.createObjectNode();
+        }
+    }
+
+    /**
+     * Trace files, newest first.
+     */
+    private List<Path> files() {
+        List<Path> files = new ArrayList<>();
+        Path current = directory.resolve(FILE + SUFFIX);
+        if (Files.exists(current)) {
+            files.add(current);
+        }
+        for (int i = 1; i <= maxFiles; i++) {
+            Path rotated = directory.resolve(FILE + "." + i + SUFFIX);
+            if (Files.exists(rotated)) {
+                files.add(rotated);
+            }
+        }
+        return files;
+    }
+
+    private static List<String> readLines(Path file) {
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    lines.add(line);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read " + file, e);
+        }
+        return lines;
+    }
+
+    private static class PendingTrace {
+        private final String traceId;
+        private final long startEpochNanos;
+        private final long startNanos;
+        private final List<Tracer.Span> spans;
+
+        PendingTrace(String traceId, long startEpochNanos, long startNanos, List<Tracer.Span> spans) {
+            this.traceId = traceId;
+            this.startEpochNanos = startEpochNanos;
+            this.startNanos = startNanos;
+            this.spans = spans;
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.pahanaedu.monitoring;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-request traces of nested, timed spans. A trace lives in a thread local from
+ * the first to the last span of a request, so recording a span is a couple of
+ * object allocations and no locking. Threads without a trace (scheduled jobs,
+ * async work) record nothing.
+ *
+ * Sampling happens at the tail, once the request is over: traces of failed or
+ * slow requests are always kept, others with a small probability, and only kept
+ * traces are handed to the {@link TraceStore}. A request failed if it answered
+ * 5xx or an exception escaped it; child spans that recorded an exception the
+ * request then handled (a 4xx, a retry) do not count.
+ */
+@Component
+public class Tracer {
+
+    private static final ThreadLocal<Trace> currentTrace = new ThreadLocal<>();
+
+    /**
+     * OTLP span kinds.
+     */
+    public enum Kind {
+        INTERNAL(1), SERVER(2), CLIENT(3);
+
+        private final int code;
+
+        Kind(int code) {
+            this.code = code;
+        }
+
+        public int getCode() { return code; }
+    }
+
+    @Autowired
+    private TraceStore traceStore;
+
+    @Value("${bookshop.tracing.enabled:true}")
+    private boolean enabled;
+
+    @Value("${bookshop.tracing.slow-ms:500}")
+    private long slowMs;
+
+    @Value("${bookshop.tracing.sample-rate:0.01}")
+    private double sampleRate;
+
+    @Value("${bookshop.tracing.max-spans:500}")
+    private int maxSpans;
+
+    private final LongAdder traces = new LongAdder();
+    private final LongAdder keptSlow = new LongAdder();
+    private final LongAdder keptError = new LongAdder();
+    private final LongAdder keptSampled = new LongAdder();
+
+    /**
+     * Starts a trace on this thread and returns its root span, or null when
+     * tracing is off. {@code traceId} and {@code parentSpanId} continue a trace
+     * started by the caller; pass null to start a new one.
+     */
+    public Span startTrace(String name, String traceId, String parentSpanId) {
+        if (!enabled) {
+            return null;
+        }
+        Trace trace = new Trace(traceId != null ? traceId : randomHex(2));
+        currentTrace.set(trace);
+        Span root = new Span(name, Kind.SERVER, randomHex(1), parentSpanId);
+        trace.spans.add(root);
+        trace.stack.push(root);
+        return root;
+    }
+
+    public boolean isActive() {
+        return currentTrace.get() != null;
+    }
+
+    public String currentTraceId() {
+        Trace trace = currentTrace.get();
+        return trace != null ? trace.traceId : null;
+    }
+
+    /**
+     * Opens a child of the innermost open span. Returns null without a trace or
+     * once the trace has reached {@code max-spans}.
+     */
+    public Span start(String name, Kind kind) {
+        Trace trace = currentTrace.get();
+        if (trace == null) {
+            return null;
+        }
+        if (trace.spans.size() >= maxSpans) {
+            trace.droppedSpans++;
+            return null;
+        }
+        Span parent = trace.stack.peek();
+        Span span = new Span(name, kind, randomHex(1), parent != null ? parent.spanId : null);
+        trace.spans.add(span);
+        trace.stack.push(span);
+        return span;
+    }
+
+    public void end(Span span, Throwable error) {
+        if (span == null) {
+            return;
+        }
+        span.endNanos = System.nanoTime();
+        if (error != null) {
+            span.fail(error);
+        }
+        Trace trace = currentTrace.get();
+        if (trace != null) {
+            // pop up to the span, closing children a failure skipped
+            while (!trace.stack.isEmpty()) {
+                Span open = trace.stack.pop();
+                if (open == span) {
+                    break;
+                }
+                if (open.endNanos == 0) {
+                    open.endNanos = span.endNanos;
+                }
+            }
+        }
+    }
+
+    /**
+     * Ends the request's trace and keeps it if it failed, was slow, or was sampled.
+     */
+    public void endTrace(Span root, int httpStatus, Throwable error) {
+        Trace trace = currentTrace.get();
+        currentTrace.remove();
+        if (trace == null || root == null) {
+            return;
+        }
+        root.setAttribute("http.status_code", httpStatus);
+        if (error == null && httpStatus >= 500) {
+            root.error = true;
+        }
+        end(root, error);
+        traces.increment();
+
+        boolean failed = root.error;
+        long durationMs = (root.endNanos - root.startNanos) / 1_000_000;
+        if (failed) {
+            keptError.increment();
+        } else if (durationMs >= slowMs) {
+            keptSlow.increment();
+        } else if (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            keptSampled.increment();
+        } else {
+            return;
+        }
+        if (trace.droppedSpans > 0) {
+            root.setAttribute("bookshop.dropped_spans", trace.droppedSpans);
+        }
+        traceStore.write(trace.traceId, trace.startEpochNanos, trace.startNanos, trace.spans);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("traces", traces.sum());
+        stats.put("keptError", keptError.sum());
+        stats.put("keptSlow", keptSlow.sum());
+        stats.put("keptSampled", keptSampled.sum());
+        stats.put("slowMs", slowMs);
+        stats.put("sampleRate", sampleRate);
+        return stats;
+    }
+
+    private static String randomHex(int longs) {
+        StringBuilder hex = new StringBuilder(longs * 16);
+        for (int i = 0; i < longs; i++) {
+            String part = Long.toHexString(ThreadLocalRandom.current().nextLong());
+            hex.append("0".repeat(16 - part.length())).append(part);
+        }
+        return hex.toString();
+    }
+
+    private static class Trace {
+        private final String traceId;
+        private final long startEpochNanos = System.currentTimeMillis() * 1_000_000;
+        private final long startNanos = System.nanoTime();
+        private final List<Span> spans = new ArrayList<>();
+        private final ArrayDeque<Span> stack = new ArrayDeque<>();
+        private int droppedSpans;
+
+        Trace(String traceId) {
+            this.traceId = traceId;
+        }
+    }
+
+    public static class Span {
+        private String name;
+        private final Kind kind;
+        private final String spanId;
+        private final String parentSpanId;
+        private final long startNanos = System.nanoTime();
+        private long endNanos;
+        private Map<String, Object> attributes;
+        private boolean error;
+        private String errorMessage;
+
+        Span(String name, Kind kind, String spanId, String parentSpanId) {
+            this.name = name;
+            this.kind = kind;
+            this.spanId = spanId;
+            this.parentSpanId = parentSpanId;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public void setAttribute(String key, Object value) {
+            if (attributes == null) {
+                attributes = new LinkedHashMap<>();
+            }
+            attributes.put(key, value);
+        }
+
+        void fail(Throwable error) {
+            this.error = true;
+            this.errorMessage = error.getClass().getSimpleName() + ": " + error.getMessage();
+        }
+
+        public String getName() { return name; }
+        public Kind getKind() { return kind; }
+        public String getSpanId() { return spanId; }
+        public String getParentSpanId() { return parentSpanId; }
+        public long getStartNanos() { return startNanos; }
+        public long getEndNanos() { return endNanos; }
+        public Map<String, Object> getAttributes() { return attributes != null ? attributes : Map.of(); }
+        public boolean isError() { return error; }
+        public String getErrorMessage() { return errorMessage; }
+    }
+}
@@ -0,0 +1,68 @@
+package com.pahanaedu.monitoring;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Spans around controller, service and repository calls. The aspect is the
+ * outermost advice, so a service span includes its transaction's flush and
+ * commit. Calls on threads without a trace only pay for a thread-local lookup.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class TracingAspect {
+
+    @Autowired
+    private Tracer tracer;
+
+    private final Map<Class<?>, String> repositoryNames = new ConcurrentHashMap<>();
+
+    @Around("within(com.pahanaedu.controller..*) || within(com.pahanaedu.service..*)")
+    public Object traceComponent(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (!tracer.isActive()) {
+            return joinPoint.proceed();
+        }
+        String name = joinPoint.getSignature().getDeclaringType().getSimpleName() + "." + joinPoint.getSignature().getName();
+        return proceed(joinPoint, name);
+    }
+
+    @Around("execution(* org.springframework.data.repository.Repository+.*(..))")
+    public Object traceRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (!tracer.isActive()) {
+            return joinPoint.proceed();
+        }
+        // inherited finders are declared on Spring Data interfaces; name them after ours
+        String repository = repositoryNames.computeIfAbsent(joinPoint.getThis().getClass(), TracingAspect::repositoryName);
+        return proceed(joinPoint, repository + "." + joinPoint.getSignature().getName());
+    }
+
+    private Object proceed(ProceedingJoinPoint joinPoint, String name) throws Throwable {
+        Tracer.Span span = tracer.start(name, Tracer.Kind.INTERNAL);
+        try {
+            Object result = joinPoint.proceed();
+            tracer.end(span, null);
+            return result;
+        } catch (Throwable e) {
+            tracer.end(span, e);
+            throw e;
+        }
+    }
+
+    private static String repositoryName(Class<?> proxyClass) {
+        for (Class<?> type : proxyClass.getInterfaces()) {
+            if (type.getName().startsWith("com.pahanaedu.repository.")) {
+                return type.getSimpleName();
+            }
+        }
+        return proxyClass.getSimpleName();
+    }
+}
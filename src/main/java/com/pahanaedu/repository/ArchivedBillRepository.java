@@ -0,0 +1,45 @@
+package com.pahanaedu.repository;
+
+import com.pahanaedu.entity.ArchivedBill;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ArchivedBillRepository extends JpaRepository<ArchivedBill, Long> {
+    Optional<ArchivedBill> findByBillNumber(String billNumber);
+    List<ArchivedBill> findByBillNumberIn(Collection<String> billNumbers);
+    List<ArchivedBill> findByCustomerIdOrderByBillDateDesc(Long customerId);
+
+    @Query(value = "SELECT id FROM bills WHERE status IN ('PAID', 'CANCELLED') AND bill_date < :cutoff " +
+            "ORDER BY id LIMIT :limit FOR UPDATE", nativeQuery = true)
+    List<Long> findArchivableIds(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+
+    @Modifying
+    @Query(value = "INSERT INTO bills_archive (id, bill_number, customer_id, subtotal_amount, discount_amount, tax_amount, total_amount, " +
+            "bill_date, created_by, branch_id, status, archived_at) " +
+            "SELECT id, bill_number, customer_id, subtotal_amount, discount_amount, tax_amount, total_amount, " +
+            "bill_date, created_by, branch_id, status, NOW() FROM bills WHERE id IN (:ids)",
+            nativeQuery = true)
+    int copyBills(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query(value = "INSERT INTO bill_items_archive (id, bill_id, item_id, quantity, unit_price, discount_amount, total_price) " +
+            "SELECT id, bill_id, item_id, quantity, unit_price, discount_amount, total_price FROM bill_items WHERE bill_id IN (:ids)",
+            nativeQuery = true)
+    int copyBillItems(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query(value = "DELETE FROM bill_items WHERE bill_id IN (:ids)", nativeQuery = true)
+    int deleteLiveBillItems(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query(value = "DELETE FROM bills WHERE id IN (:ids)", nativeQuery = true)
+    int deleteLiveBills(@Param("ids") Collection<Long> ids);
+}
@@ -2,11 +2,61 @@ package com.pahanaedu.repository;
 
 import com.pahanaedu.entity.BillItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface BillItemRepository extends JpaRepository<BillItem, Long> {
     List<BillItem> findByBillId(Long billId);
     List<BillItem> findByItemId(Long itemId);
+    List<BillItem> findByBillIdIn(Collection<Long> billIds);
+
+    @Query(value = "SELECT id, item_id, quantity, bill_id FROM bill_items WHERE stock_pending = TRUE " +
+            "ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<Object[]> lockPendingStock(@Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE BillItem bi SET bi.stockPending = false WHERE bi.id IN :ids")
+    int clearStockPending(@Param("ids") Collection<Long> ids);
+
+    @Query(value = "SELECT (SELECT MIN(id) FROM bills), (SELECT MAX(id) FROM bills), " +
+            "(SELECT MIN(id) FROM bills_archive), (SELECT MAX(id) FROM bills_archive)", nativeQuery = true)
+    List<Object[]> findBillIdBounds();
+
+    /**
+     * (bill_id, item_id) of every line of non-cancelled live and archived bills in
+     * the id range, ordered by bill.
+     */
+    @Query(value = "SELECT bi.bill_id, bi.item_id FROM bill_items bi JOIN bills b ON b.id = bi.bill_id " +
+            "WHERE bi.bill_id BETWEEN :fromId AND :toId AND b.status <> 'CANCELLED' " +
+            "UNION ALL " +
+            "SELECT bi.bill_id, bi.item_id FROM bill_items_archive bi JOIN bills_archive b ON b.id = bi.bill_id " +
+            "WHERE bi.bill_id BETWEEN :fromId AND :toId AND b.status <> 'CANCELLED' " +
+            "ORDER BY 1", nativeQuery = true)
+    List<Object[]> findBasketLines(@Param("fromId") long fromId, @Param("toId") long toId);
+
+    /**
+     * (item_id, day, units) for items in the id range, where day counts days since
+     * {@code fromDay}, over non-cancelled live and archived bills in [fromDay, toDay).
+     */
+    @Query(value = "SELECT bi.item_id, DATEDIFF(b.bill_date, :fromDay), SUM(bi.quantity) " +
+            "FROM bill_items bi JOIN bills b ON b.id = bi.bill_id " +
+            "WHERE bi.item_id BETWEEN :fromId AND :toId AND b.bill_date >= :fromDay AND b.bill_date < :toDay " +
+            "AND b.status <> 'CANCELLED' GROUP BY 1, 2 " +
+            "UNION ALL " +
+            "SELECT bi.item_id, DATEDIFF(b.bill_date, :fromDay), SUM(bi.quantity) " +
+            "FROM bill_items_archive bi JOIN bills_archive b ON b.id = bi.bill_id " +
+            "WHERE bi.item_id BETWEEN :fromId AND :toId AND b.bill_date >= :fromDay AND b.bill_date < :toDay " +
+            "AND b.status <> 'CANCELLED' GROUP BY 1, 2 " +
+            "ORDER BY 1, 2", nativeQuery = true)
+    List<Object[]> findDailySales(@Param("fromId") long fromId, @Param("toId") long toId,
+                                  @Param("fromDay") LocalDate fromDay, @Param("toDay") LocalDate toDay);
+
+    @Query("SELECT COALESCE(SUM(bi.quantity), 0) FROM BillItem bi WHERE bi.item.id = :itemId AND bi.stockPending = true")
+    long sumPendingQuantity(@Param("itemId") Long itemId);
 }
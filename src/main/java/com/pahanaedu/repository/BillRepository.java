@@ -2,15 +2,65 @@ package com.pahanaedu.repository;
 
 import com.pahanaedu.entity.Bill;
 import com.pahanaedu.entity.Customer;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface BillRepository extends JpaRepository<Bill, Long> {
+public interface BillRepository extends JpaRepository<Bill, Long>, BillRepositoryCustom {
     Optional<Bill> findByBillNumber(String billNumber);
+    List<Bill> findByBillNumberIn(Collection<String> billNumbers);
     List<Bill> findByCustomer(Customer customer);
     List<Bill> findByCustomerId(Long customerId);
     List<Bill> findByStatus(Bill.Status status);
+
+    /**
+     * The bill, row-locked ({@code SELECT ... FOR UPDATE}) until the transaction ends.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM Bill b WHERE b.id = :id")
+    Optional<Bill> findByIdForUpdate(@Param("id") Long id);
+
+    /**
+     * The bills, row-locked in id order so concurrent callers cannot deadlock.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM Bill b WHERE b.id IN :ids ORDER BY b.id")
+    List<Bill> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT b.id, b.reservedUntil FROM Bill b WHERE b.status = :status AND b.reservedUntil IS NOT NULL")
+    List<Object[]> findReservations(@Param("status") Bill.Status status);
+
+    /**
+     * One row per bill line of the live and archived bills of customers in the id
+     * range dated in [start, end), ordered by customer, bill and line:
+     * (customer_id, bill_id, bill_number, bill_date, status, total_amount,
+     * item_name, quantity, unit_price, total_price).
+     */
+    @Query(value = "SELECT b.customer_id, b.id, b.bill_number, DATE_FORMAT(b.bill_date, '%Y-%m-%d'), b.status, b.total_amount, " +
+            "i.name, bi.quantity, bi.unit_price, bi.total_price, bi.id AS line_id " +
+            "FROM bills b JOIN bill_items bi ON bi.bill_id = b.id LEFT JOIN items i ON i.id = bi.item_id " +
+            "WHERE b.customer_id BETWEEN :fromId AND :toId AND b.bill_date >= :start AND b.bill_date < :end " +
+            "UNION ALL " +
+            "SELECT b.customer_id, b.id, b.bill_number, DATE_FORMAT(b.bill_date, '%Y-%m-%d'), b.status, b.total_amount, " +
+            "i.name, bi.quantity, bi.unit_price, bi.total_price, bi.id AS line_id " +
+            "FROM bills_archive b JOIN bill_items_archive bi ON bi.bill_id = b.id LEFT JOIN items i ON i.id = bi.item_id " +
+            "WHERE b.customer_id BETWEEN :fromId AND :toId AND b.bill_date >= :start AND b.bill_date < :end " +
+            "ORDER BY 1, 2, 11", nativeQuery = true)
+    List<Object[]> findStatementLines(@Param("fromId") Long fromId, @Param("toId") Long toId,
+                                      @Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    /**
+     * (customer_id, bill count, total) of every PENDING bill of customers in the id range.
+     */
+    @Query(value = "SELECT customer_id, COUNT(*), COALESCE(SUM(total_amount), 0) FROM bills " +
+            "WHERE customer_id BETWEEN :fromId AND :toId AND status = 'PENDING' GROUP BY customer_id", nativeQuery = true)
+    List<Object[]> findOutstandingByCustomer(@Param("fromId") Long fromId, @Param("toId") Long toId);
 }
@@ -0,0 +1,14 @@
+package com.pahanaedu.repository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Sparse bill reads, falling back to the archive by id: only the columns named in
+ * {@code fields} (comma-separated JSON property names) are selected.
+ */
+public interface BillRepositoryCustom {
+    List<Map<String, Object>> findAllFields(String fields);
+    Optional<Map<String, Object>> findFieldsById(Long id, String fields);
+}
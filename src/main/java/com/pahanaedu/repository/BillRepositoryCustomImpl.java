@@ -0,0 +1,56 @@
+package com.pahanaedu.repository;
+
+import com.pahanaedu.entity.ArchivedBill;
+import com.pahanaedu.entity.Bill;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+public class BillRepositoryCustomImpl implements BillRepositoryCustom {
+
+    private static final Map<String, String> FIELDS = new LinkedHashMap<>();
+    private static final Map<String, String> ARCHIVED_FIELDS;
+
+    static {
+        FIELDS.put("id", "id");
+        FIELDS.put("billNumber", "billNumber");
+        FIELDS.put("customerId", "customer.id");
+        FIELDS.put("subtotalAmount", "subtotalAmount");
+        FIELDS.put("discountAmount", "discountAmount");
+        FIELDS.put("taxAmount", "taxAmount");
+        FIELDS.put("totalAmount", "totalAmount");
+        FIELDS.put("billDate", "billDate");
+        FIELDS.put("createdById", "createdBy.id");
+        FIELDS.put("branchId", "branch.id");
+        FIELDS.put("status", "status");
+        FIELDS.put("reservedUntil", "reservedUntil");
+        // Archived bills are settled, so they have no reservation
+        ARCHIVED_FIELDS = new LinkedHashMap<>(FIELDS);
+        ARCHIVED_FIELDS.put("reservedUntil", null);
+    }
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Map<String, Object>> findAllFields(String fields) {
+        return SparseFields.select(entityManager, Bill.class, FIELDS, SparseFields.parse(fields, FIELDS), null);
+    }
+
+    @Override
+    public Optional<Map<String, Object>> findFieldsById(Long id, String fields) {
+        Set<String> selected = SparseFields.parse(fields, FIELDS);
+        Optional<Map<String, Object>> live = SparseFields.select(entityManager, Bill.class, FIELDS, selected, id)
+                .stream().findFirst();
+        if (live.isPresent()) {
+            return live;
+        }
+        return SparseFields.select(entityManager, ArchivedBill.class, ARCHIVED_FIELDS, selected, id)
+                .stream().findFirst();
+    }
+}
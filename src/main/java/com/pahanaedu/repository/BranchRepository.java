@@ -0,0 +1,17 @@
+package com.pahanaedu.repository;
+
+import com.pahanaedu.entity.Branch;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.util.Optional;
+
+@Repository
+public interface BranchRepository extends JpaRepository<Branch, Long> {
+    Optional<Branch> findByCode(String code);
+    boolean existsByCode(String code);
+
+    @Query("SELECT u.branch.id FROM User u WHERE u.id = :userId")
+    Optional<Long> findBranchIdOfUser(@Param("userId") Long userId);
+}
@@ -0,0 +1,34 @@
+package com.pahanaedu.repository;
+
+import com.pahanaedu.entity.BranchStock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface BranchStockRepository extends JpaRepository<BranchStock, BranchStock.Key> {
+    List<BranchStock> findByItemId(Long itemId);
+    List<BranchStock> findByBranchIdOrderByItemId(Long branchId);
+    List<BranchStock> findByBranchIdAndItemIdIn(Long branchId, Collection<Long> itemIds);
+
+    /**
+     * Takes {@code quantity} units if the branch has them; returns 0 otherwise.
+     */
+    @Modifying
+    @Query(value = "UPDATE branch_stock SET quantity = quantity - :quantity " +
+            "WHERE item_id = :itemId AND branch_id = :branchId AND quantity >= :quantity", nativeQuery = true)
+    int take(@Param("itemId") Long itemId, @Param("branchId") Long branchId, @Param("quantity") int quantity);
+
+    /**
+     * Adds {@code quantity} units (negative to remove without a check), creating
+     * the row on first use.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO branch_stock (item_id, branch_id, quantity) VALUES (:itemId, :branchId, :quantity) " +
+            "ON DUPLICATE KEY UPDATE quantity = quantity + :quantity", nativeQuery = true)
+    int add(@Param("itemId") Long itemId, @Param("branchId") Long branchId, @Param("quantity") int quantity);
+}
@@ -2,12 +2,30 @@ package com.pahanaedu.repository;
 
 import com.pahanaedu.entity.Customer;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface CustomerRepository extends JpaRepository<Customer, Long> {
+public interface CustomerRepository extends JpaRepository<Customer, Long>, CustomerRepositoryCustom {
     Optional<Customer> findByAccountNumber(String accountNumber);
+    List<Customer> findByAccountNumberIn(Collection<String> accountNumbers);
     boolean existsByAccountNumber(String accountNumber);
     Optional<Customer> findByUserId(Long userId);
+
+    @Query("SELECT c.id, c.accountNumber, c.name, c.telephone, c.email FROM Customer c")
+    List<Object[]> findLookupRows();
+
+    @Query("SELECT c.accountNumber FROM Customer c")
+    List<String> findAllAccountNumbers();
+
+    @Query("SELECT MIN(c.id), MAX(c.id) FROM Customer c")
+    List<Object[]> findIdRange();
+
+    @Query("SELECT c.id, c.accountNumber, c.name, c.address FROM Customer c " +
+            "WHERE c.id BETWEEN :fromId AND :toId ORDER BY c.id")
+    List<Object[]> findStatementRows(@Param("fromId") Long fromId, @Param("toId") Long toId);
 }
@@ -0,0 +1,41 @@
+package com.pahanaedu.repository;
+
+import com.pahanaedu.entity.Customer;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public class CustomerRepositoryCustomImpl implements CustomerRepositoryCustom {
+
+    private static final Map<String, String> FIELDS = new LinkedHashMap<>();
+
+    static {
+        FIELDS.put("id", "id");
+        FIELDS.put("accountNumber", "accountNumber");
+        FIELDS.put("name", "name");
+        FIELDS.put("address", "address");
+        FIELDS.put("telephone", "telephone");
+        FIELDS.put("email", "email");
+        FIELDS.put("userId", "user.id");
+        FIELDS.put("createdAt", "createdAt");
+        FIELDS.put("updatedAt", "updatedAt");
+    }
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Map<String, Object>> findAllFields(String fields) {
+        return SparseFields.select(entityManager, Customer.class, FIELDS, SparseFields.parse(fields, FIELDS), null);
+    }
+
+    @Override
+    public Optional<Map<String, Object>> findFieldsById(Long id, String fields) {
+        return SparseFields.select(entityManager, Customer.class, FIELDS, SparseFields.parse(fields, FIELDS), id)
+                .stream().findFirst();
+    }
+}
@@ -0,0 +1,11 @@
+package com.pahanaedu.repository;
+
+import com.pahanaedu.entity.DiscountRule;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import java.util.List;
+
+@Repository
+public interface DiscountRuleRepository extends JpaRepository<DiscountRule, Long> {
+    List<DiscountRule> findByActiveTrue();
+}
@@ -0,0 +1,50 @@
+package com.pahanaedu.repository;
+
+import com.pahanaedu.entity.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, Long> {
+    Optional<IdempotencyRecord> findByIdempotencyKey(String idempotencyKey);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+
+    /**
+     * Claims a row whose lease or retention ran out, only if it still is in the
+     * state the caller read; returns 0 when another request got there first.
+     */
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.status = :claimed, r.createdAt = :now, r.expiresAt = :expiresAt, " +
+            "r.requestHash = :requestHash, r.responseStatus = NULL, r.responseBody = NULL, r.responseType = NULL " +
+            "WHERE r.id = :id AND r.status = :status AND r.createdAt = :createdAt")
+    int takeOver(@Param("id") Long id, @Param("status") IdempotencyRecord.Status status,
+                 @Param("createdAt") LocalDateTime createdAt, @Param("claimed") IdempotencyRecord.Status claimed,
+                 @Param("now") LocalDateTime now, @Param("expiresAt") LocalDateTime expiresAt,
+                 @Param("requestHash") String requestHash);
+
+    /**
+     * Stores the response on the caller's claim; returns 0 when the claim was
+     * taken over in the meantime.
+     */
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.status = :completed, r.responseStatus = :responseStatus, " +
+            "r.responseBody = :responseBody, r.responseType = :responseType, r.expiresAt = :expiresAt " +
+            "WHERE r.id = :id AND r.status = :claimed AND r.createdAt = :claimedAt")
+    int complete(@Param("id") Long id, @Param("claimed") IdempotencyRecord.Status claimed,
+                 @Param("claimedAt") LocalDateTime claimedAt, @Param("completed") IdempotencyRecord.Status completed,
+                 @Param("responseStatus") Integer responseStatus, @Param("responseBody") String responseBody,
+                 @Param("responseType") String responseType, @Param("expiresAt") LocalDateTime expiresAt);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.id = :id AND r.status = :claimed AND r.createdAt = :claimedAt")
+    int release(@Param("id") Long id, @Param("claimed") IdempotencyRecord.Status claimed,
+                @Param("claimedAt") LocalDateTime claimedAt);
+}
@@ -2,14 +2,34 @@ package com.pahanaedu.repository;
 
 import com.pahanaedu.entity.Item;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface ItemRepository extends JpaRepository<Item, Long> {
+public interface ItemRepository extends JpaRepository<Item, Long>, ItemRepositoryCustom {
     Optional<Item> findByItemCode(String itemCode);
+    List<Item> findByItemCodeIn(Collection<String> itemCodes);
     List<Item> findByCategory(String category);
     List<Item> findByNameContainingIgnoreCase(String name);
     boolean existsByItemCode(String itemCode);
+    List<Item> findByHotStockTrue();
+
+    @Query("SELECT i.itemCode FROM Item i")
+    List<String> findAllItemCodes();
+
+    @Query("SELECT MIN(i.id), MAX(i.id) FROM Item i")
+    List<Object[]> findIdRange();
+
+    @Modifying
+    @Query("UPDATE Item i SET i.stockQuantity = i.stockQuantity - :quantity WHERE i.id = :id")
+    int decrementStock(@Param("id") Long id, @Param("quantity") int quantity);
+
+    @Modifying
+    @Query("UPDATE Item i SET i.stockQuantity = COALESCE(i.stockQuantity, 0) + :delta WHERE i.id = :id")
+    int adjustStock(@Param("id") Long id, @Param("delta") int delta);
 }
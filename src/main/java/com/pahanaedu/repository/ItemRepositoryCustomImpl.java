@@ -0,0 +1,42 @@
+package com.pahanaedu.repository;
+
+import com.pahanaedu.entity.Item;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public class ItemRepositoryCustomImpl implements ItemRepositoryCustom {
+
+    private static final Map<String, String> FIELDS = new LinkedHashMap<>();
+
+    static {
+        FIELDS.put("id", "id");
+        FIELDS.put("itemCode", "itemCode");
+        FIELDS.put("name", "name");
+        FIELDS.put("description", "description");
+        FIELDS.put("price", "price");
+        FIELDS.put("stockQuantity", "stockQuantity");
+        FIELDS.put("category", "category");
+        FIELDS.put("hotStock", "hotStock");
+        FIELDS.put("createdAt", "createdAt");
+        FIELDS.put("updatedAt", "updatedAt");
+    }
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Map<String, Object>> findAllFields(String fields) {
+        return SparseFields.select(entityManager, Item.class, FIELDS, SparseFields.parse(fields, FIELDS), null);
+    }
+
+    @Override
+    public Optional<Map<String, Object>> findFieldsById(Long id, String fields) {
+        return SparseFields.select(entityManager, Item.class, FIELDS, SparseFields.parse(fields, FIELDS), id)
+                .stream().findFirst();
+    }
+}
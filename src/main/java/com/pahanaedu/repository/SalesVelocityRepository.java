@@ -0,0 +1,21 @@
+package com.pahanaedu.repository;
+
+import com.pahanaedu.entity.SalesVelocity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface SalesVelocityRepository extends JpaRepository<SalesVelocity, Long> {
+    List<SalesVelocity> findByItemIdBetween(Long fromId, Long toId);
+
+    /**
+     * Oldest day every current item has been folded through; days after it may
+     * still be missing for some items.
+     */
+    @Query("SELECT MIN(v.throughDay) FROM SalesVelocity v WHERE v.itemId IN (SELECT i.id FROM Item i)")
+    Optional<LocalDate> findWatermark();
+}
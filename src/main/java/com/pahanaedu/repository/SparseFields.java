@@ -0,0 +1,102 @@
+package com.pahanaedu.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Projection queries for {@code ?fields=}: selects only the requested columns of
+ * an entity as a tuple query and returns each row as a map from field name to
+ * value. Field names are the JSON property names; each maps to an attribute path
+ * of the entity ({@code customer.id} reads the foreign key without a join), or to
+ * null for a field the entity does not have. The id is always selected.
+ */
+public final class SparseFields {
+
+    private static final String ID = "id";
+
+    private SparseFields() {}
+
+    /**
+     * Parses a comma-separated field list, keeping the order of {@code available}.
+     * A missing or blank list selects every field.
+     */
+    public static Set<String> parse(String fields, Map<String, String> available) {
+        if (fields == null || fields.isBlank()) {
+            return new LinkedHashSet<>(available.keySet());
+        }
+        Set<String> requested = new LinkedHashSet<>();
+        requested.add(ID);
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (!available.containsKey(name)) {
+                throw new RuntimeException("Unknown field: " + name + " (available: " + String.join(", ", available.keySet()) + ")");
+            }
+            requested.add(name);
+        }
+        Set<String> ordered = new LinkedHashSet<>();
+        for (String name : available.keySet()) {
+            if (requested.contains(name)) {
+                ordered.add(name);
+            }
+        }
+        return ordered;
+    }
+
+    /**
+     * Rows of {@code entity} ordered by id, or the single row with {@code id} if it
+     * is not null.
+     */
+    public static List<Map<String, Object>> select(EntityManager entityManager, Class<?> entity,
+                                                   Map<String, String> available, Set<String> fields, Long id) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> cq = cb.createTupleQuery();
+        Root<?> root = cq.from(entity);
+
+        List<Selection<?>> selections = new ArrayList<>();
+        for (String field : fields) {
+            String attribute = available.get(field);
+            if (attribute != null) {
+                selections.add(path(root, attribute).alias(field));
+            }
+        }
+        cq.multiselect(selections);
+        if (id != null) {
+            cq.where(cb.equal(root.get(ID), id));
+        } else {
+            cq.orderBy(cb.asc(root.get(ID)));
+        }
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (Tuple tuple : entityManager.createQuery(cq).getResultList()) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (String field : fields) {
+                row.put(field, available.get(field) != null ? tuple.get(field) : null);
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private static Path<?> path(Root<?> root, String attribute) {
+        Path<?> path = root;
+        for (String part : attribute.split("\\.")) {
+            path = path.get(part);
+        }
+        return path;
+    }
+}
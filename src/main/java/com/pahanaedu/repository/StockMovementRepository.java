@@ -0,0 +1,36 @@
+package com.pahanaedu.repository;
+
+import com.pahanaedu.entity.StockMovement;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StockMovementRepository extends JpaRepository<StockMovement, Long> {
+    List<StockMovement> findByItemIdAndCreatedAtBetweenOrderByIdAsc(Long itemId, LocalDateTime from, LocalDateTime to);
+
+    @Query("SELECT COALESCE(SUM(m.delta), 0) FROM StockMovement m " +
+            "WHERE m.itemId = :itemId AND m.id > :afterId AND m.createdAt <= :at")
+    long sumDeltas(@Param("itemId") Long itemId, @Param("afterId") long afterId, @Param("at") LocalDateTime at);
+
+    @Query(value = "SELECT id FROM stock_movements WHERE created_at <= :cutoff " +
+            "ORDER BY created_at DESC, id DESC LIMIT 1", nativeQuery = true)
+    Optional<Long> findLastIdBefore(@Param("cutoff") LocalDateTime cutoff);
+
+    /**
+     * Per item in the id range: items.stock_quantity, the ledger balance (latest
+     * snapshot plus the movements after it) and the sum of its branch stock.
+     */
+    @Query(value = "SELECT i.id, i.stock_quantity, " +
+            "COALESCE(s.balance, 0) + COALESCE((SELECT SUM(m.delta) FROM stock_movements m " +
+            "WHERE m.item_id = i.id AND m.id > COALESCE(s.last_movement_id, 0)), 0), " +
+            "COALESCE((SELECT SUM(bs.quantity) FROM branch_stock bs WHERE bs.item_id = i.id), 0) " +
+            "FROM items i LEFT JOIN stock_snapshots s ON s.id = " +
+            "(SELECT MAX(s2.id) FROM stock_snapshots s2 WHERE s2.item_id = i.id) " +
+            "WHERE i.id BETWEEN :fromId AND :toId", nativeQuery = true)
+    List<Object[]> compareBalances(@Param("fromId") long fromId, @Param("toId") long toId);
+}
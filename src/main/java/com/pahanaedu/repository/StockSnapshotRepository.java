@@ -0,0 +1,30 @@
+package com.pahanaedu.repository;
+
+import com.pahanaedu.entity.StockSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface StockSnapshotRepository extends JpaRepository<StockSnapshot, Long> {
+    Optional<StockSnapshot> findFirstByItemIdAndTakenAtLessThanEqualOrderByIdDesc(Long itemId, LocalDateTime at);
+
+    @Query(value = "SELECT COALESCE(MAX(last_movement_id), 0) FROM stock_snapshots", nativeQuery = true)
+    long findWatermark();
+
+    /**
+     * Snapshots every item that moved in (afterId, upToId]. Each run covers all
+     * movements since the previous one, so an item's latest snapshot always includes
+     * every movement up to the watermark.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO stock_snapshots (item_id, balance, last_movement_id, taken_at) " +
+            "SELECT m.item_id, COALESCE((SELECT s.balance FROM stock_snapshots s WHERE s.item_id = m.item_id " +
+            "ORDER BY s.id DESC LIMIT 1), 0) + SUM(m.delta), MAX(m.id), :takenAt " +
+            "FROM stock_movements m WHERE m.id > :afterId AND m.id <= :upToId GROUP BY m.item_id", nativeQuery = true)
+    int snapshotRange(@Param("afterId") long afterId, @Param("upToId") long upToId, @Param("takenAt") LocalDateTime takenAt);
+}
@@ -2,6 +2,7 @@ package com.pahanaedu.repository;
 
 import com.pahanaedu.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 import java.util.List;
 import java.util.Optional;
@@ -12,4 +13,7 @@ public interface UserRepository extends JpaRepository<User, Long> {
     List<User> findByRole(User.Role role);
     boolean existsByUsername(String username);
     List<User> findByEnabledTrue();
+
+    @Query("SELECT u.username FROM User u")
+    List<String> findAllUsernames();
 }
@@ -0,0 +1,109 @@
+package com.pahanaedu.service;
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.pahanaedu.util.Collation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Request and result of the batch multi-get endpoints: ids and natural keys
+ * (item code, account number, bill number) in, the records found keyed by what
+ * was asked for out. Services resolve the ids with one IN query and the keys with
+ * another. The key columns compare case- and accent-insensitively, so a key asked
+ * for as {@code abc-1} finds the record stored as {@code ABC-1}, and the result
+ * matches keys the same way.
+ */
+public final class BatchLookup {
+
+    public static final int MAX_KEYS = 200;
+
+    private BatchLookup() {}
+
+    public static class Request {
+        private List<Long> ids = new ArrayList<>();
+
+        @JsonAlias({ "itemCodes", "accountNumbers", "billNumbers" })
+        private List<String> keys = new ArrayList<>();
+
+        // Constructors
+        public Request() {}
+
+        public Request(List<Long> ids, List<String> keys) {
+            setIds(ids);
+            setKeys(keys);
+        }
+
+        /**
+         * Distinct ids in request order.
+         */
+        public List<Long> getIds() { return ids; }
+        public void setIds(List<Long> ids) {
+            this.ids = ids != null ? new ArrayList<>(new LinkedHashSet<>(ids)) : new ArrayList<>();
+            this.ids.remove(null);
+        }
+
+        /**
+         * Distinct keys in request order.
+         */
+        public List<String> getKeys() { return keys; }
+        public void setKeys(List<String> keys) {
+            this.keys = keys != null ? new ArrayList<>(new LinkedHashSet<>(keys)) : new ArrayList<>();
+            this.keys.remove(null);
+        }
+
+        public void validate() {
+            if (ids.isEmpty() && keys.isEmpty()) {
+                throw new RuntimeException("Give at least one id or key");
+            }
+            if (ids.size() + keys.size() > MAX_KEYS) {
+                throw new RuntimeException("At most " + MAX_KEYS + " ids and keys per lookup");
+            }
+        }
+    }
+
+    public static class Result<T> {
+        private final Map<Long, T> byId = new LinkedHashMap<>();
+        private final Map<String, T> byKey = new LinkedHashMap<>();
+        private final List<Long> missingIds = new ArrayList<>();
+        private final List<String> missingKeys = new ArrayList<>();
+
+        /**
+         * Arranges what was found in request order and lists what was not. Keys
+         * are matched after {@link Collation#fold folding}, as the database matched
+         * them, and reported as they were asked for.
+         */
+        public static <T> Result<T> of(Request request, Map<Long, T> foundById, Map<String, T> foundByKey) {
+            Map<String, T> foundByFoldedKey = new HashMap<>();
+            foundByKey.forEach((key, found) -> foundByFoldedKey.putIfAbsent(Collation.fold(key), found));
+
+            Result<T> result = new Result<>();
+            for (Long id : request.getIds()) {
+                T found = foundById.get(id);
+                if (found != null) {
+                    result.byId.put(id, found);
+                } else {
+                    result.missingIds.add(id);
+                }
+            }
+            for (String key : request.getKeys()) {
+                T found = foundByFoldedKey.get(Collation.fold(key));
+                if (found != null) {
+                    result.byKey.put(key, found);
+                } else {
+                    result.missingKeys.add(key);
+                }
+            }
+            return result;
+        }
+
+        public Map<Long, T> getById() { return byId; }
+        public Map<String, T> getByKey() { return byKey; }
+        public List<Long> getMissingIds() { return missingIds; }
+        public List<String> getMissingKeys() { return missingKeys; }
+    }
+}
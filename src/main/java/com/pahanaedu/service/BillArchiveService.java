@@ -0,0 +1,115 @@
+package com.pahanaedu.service;
+
+import com.pahanaedu.repository.ArchivedBillRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Moves PAID and CANCELLED bills older than the configured age from the live
+ * {@code bills}/{@code bill_items} tables into the archive tables. Each batch is
+ * one short transaction, with a pause between batches so archiving never competes
+ * with checkout for locks for long. The run loops on its own thread, so the pauses
+ * never hold the scheduler thread the other jobs share.
+ */
+@Service
+public class BillArchiveService {
+
+    private static final Logger log = LoggerFactory.getLogger(BillArchiveService.class);
+
+    @Autowired
+    private ArchivedBillRepository archivedBillRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${bookshop.archive.enabled:true}")
+    private boolean enabled;
+
+    @Value("${bookshop.archive.age-days:365}")
+    private int ageDays;
+
+    @Value("${bookshop.archive.batch-size:500}")
+    private int batchSize;
+
+    @Value("${bookshop.archive.pause-ms:200}")
+    private long pauseMs;
+
+    @Value("${bookshop.archive.max-batches-per-run:200}")
+    private int maxBatchesPerRun;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "bill-archiver");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Scheduled(cron = "${bookshop.archive.cron:0 30 2 * * *}")
+    public void archiveClosedBills() {
+        if (!enabled || !running.compareAndSet(false, true)) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                archiveRun();
+            } catch (RuntimeException e) {
+                log.warn("Bill archiving failed: {}", e.getMessage());
+            } finally {
+                running.set(false);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void archiveRun() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(ageDays);
+        int total = 0;
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            int moved = archiveBatch(cutoff);
+            total += moved;
+            if (moved < batchSize) {
+                break;
+            }
+            try {
+                Thread.sleep(pauseMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (total > 0) {
+            log.info("Archived {} bills closed before {}", total, cutoff);
+        }
+    }
+
+    public int archiveBatch(LocalDateTime cutoff) {
+        Integer moved = transactionTemplate.execute(status -> {
+            List<Long> ids = archivedBillRepository.findArchivableIds(cutoff, batchSize);
+            if (ids.isEmpty()) {
+                return 0;
+            }
+            archivedBillRepository.copyBills(ids);
+            archivedBillRepository.copyBillItems(ids);
+            archivedBillRepository.deleteLiveBillItems(ids);
+            archivedBillRepository.deleteLiveBills(ids);
+            return ids.size();
+        });
+        return moved != null ? moved : 0;
+    }
+}
@@ -0,0 +1,282 @@
+package com.pahanaedu.service;
+
+import com.pahanaedu.entity.ArchivedBill;
+import com.pahanaedu.entity.Bill;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Composable filter over live and archived bills. A query compiles to one statement
+ * per table using the bill indexes; pages are keyset-based (sort value plus id as
+ * the tie breaker, bill_date and total_amount are NOT NULL), so deep pages cost
+ * the same as the first one. Each table returns its next page after the cursor and
+ * the two are merged; ids are unique across both tables, so (value, id) orders
+ * them consistently. The archive only holds closed bills and is skipped when the
+ * statuses asked for are all PENDING. Count and sum are computed by the database
+ * with the same filter.
+ */
+@Service
+public class BillQueryService {
+
+    private static final int DEFAULT_LIMIT = 50;
+    private static final int MAX_LIMIT = 500;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Transactional(readOnly = true)
+    public BillPage search(BillQuery query) {
+        int limit = query.getLimit() == null ? DEFAULT_LIMIT : Math.max(1, Math.min(query.getLimit(), MAX_LIMIT));
+        Sort sort = query.getSort() != null ? query.getSort() : Sort.DATE_DESC;
+        Cursor cursor = query.getCursor() != null && !query.getCursor().isBlank()
+                ? Cursor.parse(query.getCursor(), sort) : null;
+
+        List<Object> rows = new ArrayList<>(page(Bill.class, query, sort, cursor, limit + 1));
+        if (includesArchive(query)) {
+            rows.addAll(page(ArchivedBill.class, query, sort, cursor, limit + 1));
+            rows.sort(order(sort));
+        }
+        boolean hasMore = rows.size() > limit;
+
+        List<Bill> bills = new ArrayList<>(Math.min(rows.size(), limit));
+        for (Object row : rows.subList(0, Math.min(rows.size(), limit))) {
+            bills.add(row instanceof ArchivedBill archived ? archived.toBill() : (Bill) row);
+        }
+
+        BillPage page = new BillPage();
+        page.setBills(bills);
+        if (hasMore) {
+            Bill last = bills.get(bills.size() - 1);
+            Object value = sort.field.equals("billDate") ? last.getBillDate() : last.getTotalAmount();
+            page.setNextCursor(value + "|" + last.getId());
+        }
+        if (Boolean.TRUE.equals(query.getIncludeTotals())) {
+            aggregate(query, page);
+        }
+        return page;
+    }
+
+    private <T> List<T> page(Class<T> entity, BillQuery query, Sort sort, Cursor cursor, int rows) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<T> cq = cb.createQuery(entity);
+        Root<T> bill = cq.from(entity);
+        bill.fetch("customer", JoinType.LEFT);
+        bill.fetch("createdBy", JoinType.LEFT);
+
+        List<Predicate> predicates = filter(cb, bill, query);
+        if (cursor != null) {
+            predicates.add(after(cb, bill, sort, cursor));
+        }
+
+        Path<Comparable<Object>> sortPath = bill.get(sort.field);
+        cq.select(bill)
+                .where(predicates.toArray(new Predicate[0]))
+                .orderBy(sort.descending ? cb.desc(sortPath) : cb.asc(sortPath),
+                        sort.descending ? cb.desc(bill.get("id")) : cb.asc(bill.get("id")));
+        return entityManager.createQuery(cq).setMaxResults(rows).getResultList();
+    }
+
+    private void aggregate(BillQuery query, BillPage page) {
+        Tuple live = totals(Bill.class, query);
+        long count = live.get(0, Long.class);
+        BigDecimal sum = amount(live);
+        if (includesArchive(query)) {
+            Tuple archived = totals(ArchivedBill.class, query);
+            count += archived.get(0, Long.class);
+            sum = sum.add(amount(archived));
+        }
+        page.setTotalCount(count);
+        page.setTotalAmount(sum);
+    }
+
+    private static BigDecimal amount(Tuple totals) {
+        BigDecimal sum = totals.get(1, BigDecimal.class);
+        return sum != null ? sum : BigDecimal.ZERO;
+    }
+
+    private Tuple totals(Class<?> entity, BillQuery query) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> cq = cb.createTupleQuery();
+        Root<?> bill = cq.from(entity);
+        cq.multiselect(cb.count(bill), cb.sum(bill.<BigDecimal>get("totalAmount")))
+                .where(filter(cb, bill, query).toArray(new Predicate[0]));
+        return entityManager.createQuery(cq).getSingleResult();
+    }
+
+    private static boolean includesArchive(BillQuery query) {
+        return query.getStatuses() == null || query.getStatuses().isEmpty()
+                || query.getStatuses().stream().anyMatch(status -> status != Bill.Status.PENDING);
+    }
+
+    /**
+     * The order of {@link #page}, for merging live and archived rows.
+     */
+    private static Comparator<Object> order(Sort sort) {
+        Comparator<Object> order = sort.field.equals("billDate")
+                ? Comparator.comparing(row -> row instanceof ArchivedBill archived ? archived.getBillDate() : ((Bill) row).getBillDate())
+                : Comparator.comparing(row -> row instanceof ArchivedBill archived ? archived.getTotalAmount() : ((Bill) row).getTotalAmount());
+        order = order.thenComparing(row -> row instanceof ArchivedBill archived ? archived.getId() : ((Bill) row).getId());
+        return sort.descending ? order.reversed() : order;
+    }
+
+    private List<Predicate> filter(CriteriaBuilder cb, Root<?> bill, BillQuery query) {
+        List<Predicate> predicates = new ArrayList<>();
+        if (query.getFrom() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(bill.get("billDate"), query.getFrom()));
+        }
+        if (query.getTo() != null) {
+            predicates.add(cb.lessThan(bill.get("billDate"), query.getTo()));
+        }
+        if (query.getStatuses() != null && !query.getStatuses().isEmpty()) {
+            predicates.add(bill.get("status").in(query.getStatuses()));
+        }
+        if (query.getCustomerId() != null) {
+            predicates.add(cb.equal(bill.get("customer").get("id"), query.getCustomerId()));
+        }
+        if (query.getCreatedById() != null) {
+            predicates.add(cb.equal(bill.get("createdBy").get("id"), query.getCreatedById()));
+        }
+        if (query.getMinAmount() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(bill.get("totalAmount"), query.getMinAmount()));
+        }
+        if (query.getMaxAmount() != null) {
+            predicates.add(cb.lessThanOrEqualTo(bill.get("totalAmount"), query.getMaxAmount()));
+        }
+        return predicates;
+    }
+
+    private Predicate after(CriteriaBuilder cb, Root<?> bill, Sort sort, Cursor cursor) {
+        Path<Comparable<Object>> path = bill.get(sort.field);
+        Comparable<Object> lastValue = cursor.value;
+        return sort.descending
+                ? cb.or(cb.lessThan(path, lastValue), cb.and(cb.equal(path, lastValue), cb.lessThan(bill.get("id"), cursor.id)))
+                : cb.or(cb.greaterThan(path, lastValue), cb.and(cb.equal(path, lastValue), cb.greaterThan(bill.get("id"), cursor.id)));
+    }
+
+    /**
+     * The sort value and id of the last bill of the previous page.
+     */
+    private static class Cursor {
+        private final Comparable<Object> value;
+        private final Long id;
+
+        private Cursor(Comparable<Object> value, Long id) {
+            this.value = value;
+            this.id = id;
+        }
+
+        @SuppressWarnings("unchecked")
+        static Cursor parse(String cursor, Sort sort) {
+            int separator = cursor.lastIndexOf('|');
+            try {
+                if (separator < 0) {
+                    throw new IllegalArgumentException();
+                }
+                String value = cursor.substring(0, separator);
+                Comparable<?> parsed = sort.field.equals("billDate") ? LocalDateTime.parse(value) : new BigDecimal(value);
+                return new Cursor((Comparable<Object>) parsed, Long.valueOf(cursor.substring(separator + 1)));
+            } catch (RuntimeException e) {
+                throw new RuntimeException("Invalid cursor for sort " + sort + ": " + cursor);
+            }
+        }
+    }
+
+    public enum Sort {
+        DATE_DESC("billDate", true),
+        DATE_ASC("billDate", false),
+        AMOUNT_DESC("totalAmount", true),
+        AMOUNT_ASC("totalAmount", false);
+
+        private final String field;
+        private final boolean descending;
+
+        Sort(String field, boolean descending) {
+            this.field = field;
+            this.descending = descending;
+        }
+    }
+
+    public static class BillQuery {
+        private LocalDateTime from;
+        private LocalDateTime to;
+        private Set<Bill.Status> statuses;
+        private Long customerId;
+        private Long createdById;
+        private BigDecimal minAmount;
+        private BigDecimal maxAmount;
+        private Sort sort;
+        private String cursor;
+        private Integer limit;
+        private Boolean includeTotals;
+
+        // Getters and Setters
+        public LocalDateTime getFrom() { return from; }
+        public void setFrom(LocalDateTime from) { this.from = from; }
+
+        public LocalDateTime getTo() { return to; }
+        public void setTo(LocalDateTime to) { this.to = to; }
+
+        public Set<Bill.Status> getStatuses() { return statuses; }
+        public void setStatuses(Set<Bill.Status> statuses) { this.statuses = statuses; }
+
+        public Long getCustomerId() { return customerId; }
+        public void setCustomerId(Long customerId) { this.customerId = customerId; }
+
+        public Long getCreatedById() { return createdById; }
+        public void setCreatedById(Long createdById) { this.createdById = createdById; }
+
+        public BigDecimal getMinAmount() { return minAmount; }
+        public void setMinAmount(BigDecimal minAmount) { this.minAmount = minAmount; }
+
+        public BigDecimal getMaxAmount() { return maxAmount; }
+        public void setMaxAmount(BigDecimal maxAmount) { this.maxAmount = maxAmount; }
+
+        public Sort getSort() { return sort; }
+        public void setSort(Sort sort) { this.sort = sort; }
+
+        public String getCursor() { return cursor; }
+        public void setCursor(String cursor) { this.cursor = cursor; }
+
+        public Integer getLimit() { return limit; }
+        public void setLimit(Integer limit) { this.limit = limit; }
+
+        public Boolean getIncludeTotals() { return includeTotals; }
+        public void setIncludeTotals(Boolean includeTotals) { this.includeTotals = includeTotals; }
+    }
+
+    public static class BillPage {
+        private List<Bill> bills;
+        private String nextCursor;
+        private Long totalCount;
+        private BigDecimal totalAmount;
+
+        // Getters and Setters
+        public List<Bill> getBills() { return bills; }
+        public void setBills(List<Bill> bills) { this.bills = bills; }
+
+        public String getNextCursor() { return nextCursor; }
+        public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+
+        public Long getTotalCount() { return totalCount; }
+        public void setTotalCount(Long totalCount) { this.totalCount = totalCount; }
+
+        public BigDecimal getTotalAmount() { return totalAmount; }
+        public void setTotalAmount(BigDecimal totalAmount) { this.totalAmount = totalAmount; }
+    }
+}
@@ -1,19 +1,34 @@
 package com.pahanaedu.service;
 
+import com.pahanaedu.entity.ArchivedBill;
 import com.pahanaedu.entity.Bill;
 import com.pahanaedu.entity.BillItem;
 import com.pahanaedu.entity.Customer;
 import com.pahanaedu.entity.Item;
+import com.pahanaedu.entity.StockMovement;
 import com.pahanaedu.entity.User;
+import com.pahanaedu.event.BillCreatedEvent;
+import com.pahanaedu.event.BillStatusChangedEvent;
+import com.pahanaedu.monitoring.JfrEvents;
+import com.pahanaedu.repository.ArchivedBillRepository;
 import com.pahanaedu.repository.BillRepository;
 import com.pahanaedu.repository.BillItemRepository;
+import com.pahanaedu.util.Collation;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 public class BillService {
@@ -24,79 +39,368 @@ public class BillService {
     @Autowired
     private BillItemRepository billItemRepository;
 
+    @Autowired
+    private ArchivedBillRepository archivedBillRepository;
+
     @Autowired
     private CustomerService customerService;
 
     @Autowired
     private ItemService itemService;
 
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private HotStockService hotStockService;
+
+    @Autowired
+    private PricingEngine pricingEngine;
+
+    @Autowired
+    private BranchService branchService;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     public List<Bill> getAllBills() {
         return billRepository.findAll();
     }
 
     public Optional<Bill> getBillById(Long id) {
-        return billRepository.findById(id);
+        return billRepository.findById(id)
+                .or(() -> archivedBillRepository.findById(id).map(ArchivedBill::toBill));
+    }
+
+    /**
+     * Live bills with only the given fields, read by a projection query.
+     */
+    public List<Map<String, Object>> getAllBillFields(String fields) {
+        return billRepository.findAllFields(fields);
+    }
+
+    /**
+     * One bill with only the given fields, from the archive if it is no longer live.
+     */
+    public Optional<Map<String, Object>> getBillFieldsById(Long id, String fields) {
+        return billRepository.findFieldsById(id, fields);
     }
 
     public Optional<Bill> getBillByNumber(String billNumber) {
-        return billRepository.findByBillNumber(billNumber);
+        return billRepository.findByBillNumber(billNumber)
+                .or(() -> archivedBillRepository.findByBillNumber(billNumber).map(ArchivedBill::toBill));
+    }
+
+    /**
+     * Bills by id and by bill number. Live bills are read with one query per kind
+     * of key; only the ones not found there are looked up in the archive.
+     */
+    public BatchLookup.Result<Bill> lookupBills(BatchLookup.Request request) {
+        request.validate();
+        Map<Long, Bill> byId = new HashMap<>();
+        if (!request.getIds().isEmpty()) {
+            for (Bill bill : billRepository.findAllById(request.getIds())) {
+                byId.put(bill.getId(), bill);
+            }
+            List<Long> archivedIds = request.getIds().stream().filter(id -> !byId.containsKey(id)).toList();
+            if (!archivedIds.isEmpty()) {
+                for (ArchivedBill archived : archivedBillRepository.findAllById(archivedIds)) {
+                    byId.put(archived.getId(), archived.toBill());
+                }
+            }
+        }
+        Map<String, Bill> byNumber = new HashMap<>();
+        if (!request.getKeys().isEmpty()) {
+            for (Bill bill : billRepository.findByBillNumberIn(request.getKeys())) {
+                byNumber.put(bill.getBillNumber(), bill);
+            }
+            Set<String> liveNumbers = byNumber.keySet().stream().map(Collation::fold).collect(Collectors.toSet());
+            List<String> archivedNumbers = request.getKeys().stream()
+                    .filter(number -> !liveNumbers.contains(Collation.fold(number))).toList();
+            if (!archivedNumbers.isEmpty()) {
+                for (ArchivedBill archived : archivedBillRepository.findByBillNumberIn(archivedNumbers)) {
+                    byNumber.put(archived.getBillNumber(), archived.toBill());
+                }
+            }
+        }
+        return BatchLookup.Result.of(request, byId, byNumber);
     }
 
     public List<Bill> getBillsByCustomerId(Long customerId) {
-        return billRepository.findByCustomerId(customerId);
+        List<Bill> bills = new ArrayList<>(billRepository.findByCustomerId(customerId));
+        archivedBillRepository.findByCustomerIdOrderByBillDateDesc(customerId).stream()
+                .map(ArchivedBill::toBill)
+                .forEach(bills::add);
+        return bills;
     }
 
     @Transactional
     public Bill createBill(Long customerId, List<BillItemRequest> items, User createdBy) {
+        return createBill(customerId, items, createdBy, null);
+    }
+
+    /**
+     * Creates a bill that takes stock from {@code branchId}, or from the cashier's
+     * home branch if it is null.
+     */
+    @Transactional
+    public Bill createBill(Long customerId, List<BillItemRequest> items, User createdBy, Long branchId) {
+        JfrEvents.CreateBill event = new JfrEvents.CreateBill();
+        event.begin();
+        event.lines = items != null ? items.size() : 0;
+        commitOnCompletion(event);
+        try {
+            Customer customer = customerService.getCustomerById(customerId)
+                    .orElseThrow(() -> new RuntimeException("Customer not found"));
+
+            Long sellingBranchId = branchService.resolveBranchId(branchId, createdBy);
+            event.branchId = sellingBranchId;
+            List<Item> orderedItems = loadItems(items, sellingBranchId);
+            PricingEngine.Quote quote = pricingEngine.quote(orderedItems, quantities(items));
+
+            Bill bill = new Bill();
+            bill.setCustomer(customer);
+            bill.setCreatedBy(createdBy);
+            bill.setBranch(branchService.getReference(sellingBranchId));
+            quote.applyTo(bill);
+            Bill savedBill = billRepository.save(bill);
+
+            addBillItems(savedBill, orderedItems, quote);
+            recordCreated(savedBill);
+            return savedBill;
+        } catch (RuntimeException e) {
+            event.stockConflict = e instanceof InsufficientStockException;
+            event.failure = e.getMessage();
+            throw e;
+        }
+    }
+
+    /**
+     * Ends the event when the transaction the bill is created in completes, so it
+     * covers the flush and commit too, whichever bean opened the transaction (the
+     * idempotent endpoints and POS finalize run createBill inside their own).
+     */
+    private static void commitOnCompletion(JfrEvents.CreateBill event) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED && event.failure == null) {
+                    event.failure = "Transaction rolled back";
+                }
+                event.commit();
+            }
+        });
+    }
+
+    @Transactional
+    public Bill createOrder(Long customerId, List<BillItemRequest> items) {
         Customer customer = customerService.getCustomerById(customerId)
                 .orElseThrow(() -> new RuntimeException("Customer not found"));
 
+        Long sellingBranchId = branchService.getDefaultBranchId();
+        List<Item> orderedItems = loadItems(items, sellingBranchId);
+        PricingEngine.Quote quote = pricingEngine.quote(orderedItems, quantities(items));
+
         Bill bill = new Bill();
+        bill.setBillNumber("BILL" + System.currentTimeMillis());
         bill.setCustomer(customer);
-        bill.setCreatedBy(createdBy);
-        bill.setTotalAmount(BigDecimal.ZERO);
-
+        bill.setStatus(Bill.Status.PENDING);
+        bill.setCreatedBy(customer.getUser());
+        bill.setBranch(branchService.getReference(sellingBranchId));
+        quote.applyTo(bill);
+        bill.setReservedUntil(stockReservationService.newExpiry());
         Bill savedBill = billRepository.save(bill);
 
-        BigDecimal totalAmount = BigDecimal.ZERO;
-        for (BillItemRequest itemRequest : items) {
-            Item item = itemService.getItemById(itemRequest.getItemId())
-                    .orElseThrow(() -> new RuntimeException("Item not found"));
+        addBillItems(savedBill, orderedItems, quote);
+        recordCreated(savedBill);
+        stockReservationService.reserve(savedBill.getId(), savedBill.getReservedUntil());
+        return savedBill;
+    }
+
+    /**
+     * Loads every requested item and its stock at the branch with one query each,
+     * in request order, and checks stock for items that are not served from hot
+     * stock counters.
+     */
+    private List<Item> loadItems(List<BillItemRequest> items, Long branchId) {
+        List<Long> itemIds = items.stream().map(BillItemRequest::getItemId).toList();
+        Map<Long, Item> itemsById = new HashMap<>();
+        for (Item item : itemService.getItemsByIds(itemIds)) {
+            itemsById.put(item.getId(), item);
+        }
+        Map<Long, Integer> available = branchService.getQuantities(branchId, itemIds);
+        boolean defaultBranch = branchService.isDefault(branchId);
 
-            if (item.getStockQuantity() < itemRequest.getQuantity()) {
-                throw new RuntimeException("Insufficient stock for item: " + item.getName());
+        List<Item> orderedItems = new ArrayList<>(items.size());
+        for (BillItemRequest itemRequest : items) {
+            Item item = itemsById.get(itemRequest.getItemId());
+            if (item == null) {
+                throw new RuntimeException("Item not found: " + itemRequest.getItemId());
+            }
+            if (itemRequest.getQuantity() == null || itemRequest.getQuantity() <= 0) {
+                throw new RuntimeException("Invalid quantity for: " + item.getName());
+            }
+            if (!(defaultBranch && hotStockService.isHot(item.getId()))
+                    && available.getOrDefault(item.getId(), 0) < itemRequest.getQuantity()) {
+                throw new InsufficientStockException(item.getName());
             }
+            orderedItems.add(item);
+        }
+        return orderedItems;
+    }
+
+    private static int[] quantities(List<BillItemRequest> items) {
+        int[] quantities = new int[items.size()];
+        for (int i = 0; i < quantities.length; i++) {
+            quantities[i] = items.get(i).getQuantity();
+        }
+        return quantities;
+    }
+
+    private void addBillItems(Bill bill, List<Item> orderedItems, PricingEngine.Quote quote) {
+        for (int i = 0; i < orderedItems.size(); i++) {
+            Item item = orderedItems.get(i);
 
             BillItem billItem = new BillItem();
-            billItem.setBill(savedBill);
+            billItem.setBill(bill);
             billItem.setItem(item);
-            billItem.setQuantity(itemRequest.getQuantity());
-            billItem.setUnitPrice(item.getPrice());
-            billItem.setTotalPrice(item.getPrice().multiply(BigDecimal.valueOf(itemRequest.getQuantity())));
-
+            quote.applyTo(billItem, i);
+            deductStock(item, billItem.getQuantity(), billItem, bill.getBranch().getId());
             billItemRepository.save(billItem);
-
-            // Update stock
-            item.setStockQuantity(item.getStockQuantity() - itemRequest.getQuantity());
-            itemService.updateItem(item.getId(), item);
-
-            totalAmount = totalAmount.add(billItem.getTotalPrice());
+            bill.getBillItems().add(billItem);
         }
-
-        savedBill.setTotalAmount(totalAmount);
-        return billRepository.save(savedBill);
     }
 
+    /**
+     * Changes a bill's status. The bill row is locked first, so a payment and the
+     * reservation expiry cannot both act on the same PENDING bill: whichever runs
+     * second sees the other's status.
+     */
+    @Transactional
     public Bill updateBillStatus(Long id, Bill.Status status) {
-        Bill bill = billRepository.findById(id)
+        Bill bill = billRepository.findByIdForUpdate(id)
                 .orElseThrow(() -> new RuntimeException("Bill not found"));
-        
+
+        Bill.Status oldStatus = bill.getStatus();
+        if (oldStatus == Bill.Status.CANCELLED && status != Bill.Status.CANCELLED) {
+            throw new RuntimeException("Cancelled bill cannot be reopened");
+        }
+
+        if (status == Bill.Status.CANCELLED && oldStatus != Bill.Status.CANCELLED) {
+            restock(List.of(bill));
+        }
+        if (status != Bill.Status.PENDING && bill.getReservedUntil() != null) {
+            bill.setReservedUntil(null);
+            stockReservationService.release(id);
+        }
+
         bill.setStatus(status);
-        return billRepository.save(bill);
+        Bill savedBill = billRepository.save(bill);
+
+        if (oldStatus != status) {
+            publishStatusChange(savedBill, oldStatus);
+        }
+        return savedBill;
     }
 
+    /**
+     * Cancels the bills whose reservation expired. They are row-locked before the
+     * status is checked, so a bill paid meanwhile is left alone.
+     */
+    @Transactional
+    public int cancelExpiredBills(List<Long> billIds) {
+        List<Bill> expired = billRepository.findAllByIdForUpdate(billIds).stream()
+                .filter(bill -> bill.getStatus() == Bill.Status.PENDING && bill.getReservedUntil() != null)
+                .toList();
+        if (expired.isEmpty()) {
+            return 0;
+        }
+
+        restock(expired);
+        for (Bill bill : expired) {
+            bill.setStatus(Bill.Status.CANCELLED);
+            bill.setReservedUntil(null);
+            publishStatusChange(bill, Bill.Status.PENDING);
+        }
+        billRepository.saveAll(expired);
+        return expired.size();
+    }
+
+    private void deductStock(Item item, int quantity, BillItem billItem, Long branchId) {
+        if (branchService.isDefault(branchId) && hotStockService.deduct(item.getId(), quantity, item.getName())) {
+            billItem.setStockPending(true);
+        } else {
+            itemService.changeStock(item.getId(), item.getName(), branchId, -quantity,
+                    StockMovement.Reason.SALE, billItem.getBill().getId());
+        }
+    }
+
+    /**
+     * Returns the stock of cancelled bills to the branch that sold it; bills from
+     * before branches existed belong to the default branch.
+     */
+    private void restock(List<Bill> bills) {
+        Map<Long, Long> branchByBill = new HashMap<>();
+        for (Bill bill : bills) {
+            branchByBill.put(bill.getId(), bill.getBranch() != null
+                    ? bill.getBranch().getId() : branchService.getDefaultBranchId());
+        }
+        for (BillItem billItem : billItemRepository.findByBillIdIn(branchByBill.keySet())) {
+            Long billId = billItem.getBill().getId();
+            itemService.changeStock(billItem.getItem().getId(), billItem.getItem().getName(), branchByBill.get(billId),
+                    billItem.getQuantity(), StockMovement.Reason.CANCELLATION, billId);
+        }
+    }
+
+    private void publishStatusChange(Bill bill, Bill.Status oldStatus) {
+        Long customerId = bill.getCustomer() != null ? bill.getCustomer().getId() : null;
+        eventPublisher.publishEvent(new BillStatusChangedEvent(
+                bill.getId(), bill.getBillNumber(), customerId, oldStatus, bill.getStatus()));
+
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("billNumber", bill.getBillNumber());
+        payload.put("customerId", customerId);
+        payload.put("oldStatus", oldStatus);
+        payload.put("newStatus", bill.getStatus());
+        outboxService.record(OutboxService.BILL, bill.getId(), "BILL_STATUS_CHANGED", payload);
+    }
+
+    private void recordCreated(Bill bill) {
+        List<Map<String, Object>> lines = new ArrayList<>();
+        for (BillItem billItem : bill.getBillItems()) {
+            Map<String, Object> line = new LinkedHashMap<>();
+            line.put("itemId", billItem.getItem().getId());
+            line.put("quantity", billItem.getQuantity());
+            line.put("unitPrice", billItem.getUnitPrice());
+            line.put("discountAmount", billItem.getDiscountAmount());
+            line.put("totalPrice", billItem.getTotalPrice());
+            lines.add(line);
+        }
+
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("billNumber", bill.getBillNumber());
+        payload.put("customerId", bill.getCustomer().getId());
+        payload.put("createdBy", bill.getCreatedBy() != null ? bill.getCreatedBy().getId() : null);
+        payload.put("branchId", bill.getBranch() != null ? bill.getBranch().getId() : null);
+        payload.put("status", bill.getStatus());
+        payload.put("subtotalAmount", bill.getSubtotalAmount());
+        payload.put("discountAmount", bill.getDiscountAmount());
+        payload.put("taxAmount", bill.getTaxAmount());
+        payload.put("totalAmount", bill.getTotalAmount());
+        payload.put("items", lines);
+        outboxService.record(OutboxService.BILL, bill.getId(), "BILL_CREATED", payload);
+
+        long[] itemIds = bill.getBillItems().stream().mapToLong(billItem -> billItem.getItem().getId()).toArray();
+        eventPublisher.publishEvent(new BillCreatedEvent(bill.getId(), itemIds));
+    }
+
+    @Transactional
     public void deleteBill(Long id) {
         billRepository.deleteById(id);
+        outboxService.record(OutboxService.BILL, id, "BILL_DELETED", Map.of());
     }
 
     public List<Bill> getBillsByStatus(Bill.Status status) {
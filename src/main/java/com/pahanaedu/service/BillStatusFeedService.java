@@ -0,0 +1,253 @@
+package com.pahanaedu.service;
+
+import com.pahanaedu.event.BillStatusChangedEvent;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Pushes bill status changes to SSE subscribers instead of having clients poll
+ * the bill endpoints. Subscribers are indexed by customer and by bill, so an event
+ * only touches the emitters interested in it. Idle emitters hold no request thread
+ * (they sit in servlet async mode), which is what lets a node keep tens of
+ * thousands of them open.
+ * <p>
+ * Event ids are {@code <epoch>-<sequence>}, where the epoch is this node's boot
+ * time. A client that reconnects with a Last-Event-ID from another boot (or
+ * another node), or from further back than the replay buffer reaches, gets a
+ * {@code refresh} event instead of a replay and should reload its bills.
+ * Sends run on the feed's own thread, in event order, so a slow subscriber
+ * never holds up the request whose transaction published the change.
+ */
+@Service
+public class BillStatusFeedService {
+
+    private static final String EVENT_NAME = "bill-status";
+    private static final String REFRESH_EVENT_NAME = "refresh";
+
+    private final Map<Long, Set<SseEmitter>> customerSubscribers = new ConcurrentHashMap<>();
+    private final Map<Long, Set<SseEmitter>> billSubscribers = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final ArrayDeque<FeedEvent> recentEvents = new ArrayDeque<>();
+    private final long epoch = System.currentTimeMillis();
+
+    private final ExecutorService dispatcher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "bill-status-feed");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${bookshop.sse.timeout-ms:1800000}")
+    private long emitterTimeoutMs;
+
+    @Value("${bookshop.sse.replay-buffer-size:10000}")
+    private int replayBufferSize;
+
+    public SseEmitter subscribeToCustomer(Long customerId, String lastEventId) {
+        SseEmitter emitter = register(customerSubscribers, customerId);
+        replay(emitter, lastEventId, event -> customerId.equals(event.customerId));
+        return emitter;
+    }
+
+    public SseEmitter subscribeToBill(Long billId, String lastEventId) {
+        SseEmitter emitter = register(billSubscribers, billId);
+        replay(emitter, lastEventId, event -> billId.equals(event.billId));
+        return emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBillStatusChanged(BillStatusChangedEvent event) {
+        synchronized (recentEvents) {
+            // numbered and queued under the lock so sends go out in id order
+            FeedEvent feedEvent = new FeedEvent(sequence.incrementAndGet(), event);
+            recentEvents.addLast(feedEvent);
+            while (recentEvents.size() > replayBufferSize) {
+                recentEvents.removeFirst();
+            }
+            dispatcher.execute(() -> {
+                if (feedEvent.customerId != null) {
+                    send(customerSubscribers, feedEvent.customerId, feedEvent);
+                }
+                send(billSubscribers, feedEvent.billId, feedEvent);
+            });
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdownNow();
+    }
+
+    @Scheduled(fixedDelayString = "${bookshop.sse.heartbeat-ms:25000}")
+    public void sendHeartbeats() {
+        heartbeat(customerSubscribers);
+        heartbeat(billSubscribers);
+    }
+
+    public int getSubscriberCount() {
+        int count = 0;
+        for (Set<SseEmitter> emitters : customerSubscribers.values()) {
+            count += emitters.size();
+        }
+        for (Set<SseEmitter> emitters : billSubscribers.values()) {
+            count += emitters.size();
+        }
+        return count;
+    }
+
+    private SseEmitter register(Map<Long, Set<SseEmitter>> index, Long key) {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        index.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(emitter);
+
+        Runnable remove = () -> unregister(index, key, emitter);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(e -> remove.run());
+        return emitter;
+    }
+
+    private void unregister(Map<Long, Set<SseEmitter>> index, Long key, SseEmitter emitter) {
+        index.computeIfPresent(key, (k, emitters) -> {
+            emitters.remove(emitter);
+            return emitters.isEmpty() ? null : emitters;
+        });
+    }
+
+    private void replay(SseEmitter emitter, String lastEventId, Predicate<FeedEvent> filter) {
+        if (lastEventId == null || lastEventId.isBlank()) {
+            return;
+        }
+
+        String[] parts = lastEventId.trim().split("-", 2);
+        long lastEpoch;
+        long lastSeen;
+        try {
+            lastEpoch = parts.length == 2 ? Long.parseLong(parts[0]) : -1;
+            lastSeen = Long.parseLong(parts[parts.length - 1]);
+        } catch (NumberFormatException e) {
+            return;
+        }
+
+        List<FeedEvent> missed = new ArrayList<>();
+        synchronized (recentEvents) {
+            FeedEvent oldest = recentEvents.peekFirst();
+            if (lastEpoch != epoch || lastSeen > sequence.get()
+                    || (oldest != null ? oldest.id > lastSeen + 1 : lastSeen < sequence.get())) {
+                sendRefresh(emitter, lastEpoch != epoch ? "restarted" : "replay-buffer-exceeded");
+                return;
+            }
+            Iterator<FeedEvent> it = recentEvents.descendingIterator();
+            while (it.hasNext()) {
+                FeedEvent event = it.next();
+                if (event.id <= lastSeen) {
+                    break;
+                }
+                if (filter.test(event)) {
+                    missed.add(event);
+                }
+            }
+        }
+        Collections.reverse(missed);
+
+        for (FeedEvent event : missed) {
+            try {
+                emitter.send(event.toSseEvent());
+            } catch (IOException e) {
+                emitter.completeWithError(e);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Tells a reconnecting client that events were lost and it should reload.
+     */
+    private void sendRefresh(SseEmitter emitter, String reason) {
+        try {
+            emitter.send(SseEmitter.event()
+                    .id(eventId(sequence.get()))
+                    .name(REFRESH_EVENT_NAME)
+                    .data(Map.of("reason", reason)));
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+        }
+    }
+
+    private String eventId(long id) {
+        return epoch + "-" + id;
+    }
+
+    private void send(Map<Long, Set<SseEmitter>> index, Long key, FeedEvent event) {
+        Set<SseEmitter> emitters = index.get(key);
+        if (emitters == null) {
+            return;
+        }
+        for (SseEmitter emitter : emitters) {
+            try {
+                emitter.send(event.toSseEvent());
+            } catch (IOException | IllegalStateException e) {
+                unregister(index, key, emitter);
+                emitter.completeWithError(e);
+            }
+        }
+    }
+
+    private void heartbeat(Map<Long, Set<SseEmitter>> index) {
+        for (Map.Entry<Long, Set<SseEmitter>> entry : index.entrySet()) {
+            for (SseEmitter emitter : entry.getValue()) {
+                try {
+                    emitter.send(SseEmitter.event().comment("keep-alive"));
+                } catch (IOException | IllegalStateException e) {
+                    unregister(index, entry.getKey(), emitter);
+                    emitter.completeWithError(e);
+                }
+            }
+        }
+    }
+
+    private class FeedEvent {
+        private final long id;
+        private final Long billId;
+        private final Long customerId;
+        private final Map<String, Object> payload;
+
+        FeedEvent(long id, BillStatusChangedEvent event) {
+            this.id = id;
+            this.billId = event.getBillId();
+            this.customerId = event.getCustomerId();
+            Map<String, Object> data = new HashMap<>();
+            data.put("billId", event.getBillId());
+            data.put("billNumber", event.getBillNumber());
+            data.put("customerId", event.getCustomerId());
+            data.put("oldStatus", event.getOldStatus() != null ? event.getOldStatus().name() : null);
+            data.put("status", event.getNewStatus().name());
+            data.put("changedAt", event.getChangedAt().toString());
+            this.payload = data;
+        }
+
+        SseEmitter.SseEventBuilder toSseEvent() {
+            return SseEmitter.event()
+                    .id(eventId(id))
+                    .name(EVENT_NAME)
+                    .data(payload);
+        }
+    }
+}
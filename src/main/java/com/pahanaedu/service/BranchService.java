@@ -0,0 +1,232 @@
+package com.pahanaedu.service;
+
+import com.pahanaedu.entity.Branch;
+import com.pahanaedu.entity.BranchStock;
+import com.pahanaedu.entity.Item;
+import com.pahanaedu.entity.User;
+import com.pahanaedu.repository.BranchRepository;
+import com.pahanaedu.repository.BranchStockRepository;
+import com.pahanaedu.repository.ItemRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Branches and per-branch stock. Sales check and take stock from the selling
+ * branch's {@code branch_stock} row only, so branches no longer contend on one
+ * row per item. {@code items.stock_quantity} is kept as the total over all
+ * branches: the changes of a transaction are summed per item and applied with one
+ * increment per item just before commit, in item id order, so the total's row
+ * lock is only held for the commit itself.
+ */
+@Service
+public class BranchService {
+
+    private static final Object PENDING_TOTALS = new Object();
+
+    @Autowired
+    private BranchRepository branchRepository;
+
+    @Autowired
+    private BranchStockRepository branchStockRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Value("${bookshop.branches.default-code:MAIN}")
+    private String defaultCode;
+
+    private volatile Long defaultBranchId;
+
+    public List<Branch> getAllBranches() {
+        return branchRepository.findAll();
+    }
+
+    public Optional<Branch> getBranchById(Long id) {
+        return branchRepository.findById(id);
+    }
+
+    public Branch createBranch(Branch branch) {
+        if (branchRepository.existsByCode(branch.getCode())) {
+            throw new RuntimeException("Branch code already exists");
+        }
+        return branchRepository.save(branch);
+    }
+
+    public Branch updateBranch(Long id, Branch branchDetails) {
+        Branch branch = branchRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Branch not found"));
+        if (id.equals(getDefaultBranchId()) && Boolean.FALSE.equals(branchDetails.getActive())) {
+            throw new RuntimeException("The default branch cannot be deactivated");
+        }
+        branch.setName(branchDetails.getName());
+        branch.setActive(branchDetails.getActive());
+        return branchRepository.save(branch);
+    }
+
+    /**
+     * Branch that online orders sell from and that bills without a branch belong to.
+     */
+    public Long getDefaultBranchId() {
+        Long id = defaultBranchId;
+        if (id == null) {
+            id = branchRepository.findByCode(defaultCode)
+                    .orElseThrow(() -> new RuntimeException("Default branch " + defaultCode + " not found"))
+                    .getId();
+            defaultBranchId = id;
+        }
+        return id;
+    }
+
+    public boolean isDefault(Long branchId) {
+        return getDefaultBranchId().equals(branchId);
+    }
+
+    /**
+     * The requested branch if given, otherwise the user's home branch, otherwise
+     * the default branch.
+     */
+    public Long resolveBranchId(Long requestedId, User user) {
+        if (requestedId != null) {
+            Branch branch = branchRepository.findById(requestedId)
+                    .orElseThrow(() -> new RuntimeException("Branch not found"));
+            if (!Boolean.TRUE.equals(branch.getActive())) {
+                throw new RuntimeException("Branch is not active: " + branch.getCode());
+            }
+            return branch.getId();
+        }
+        if (user != null && user.getId() != null) {
+            Optional<Long> home = branchRepository.findBranchIdOfUser(user.getId());
+            if (home.isPresent()) {
+                return home.get();
+            }
+        }
+        return getDefaultBranchId();
+    }
+
+    public Branch getReference(Long branchId) {
+        return branchRepository.getReferenceById(branchId);
+    }
+
+    public int getQuantity(Long itemId, Long branchId) {
+        return branchStockRepository.findById(new BranchStock.Key(itemId, branchId))
+                .map(BranchStock::getQuantity).orElse(0);
+    }
+
+    /**
+     * Sum of the item's stock over every branch, read from the branch rows.
+     */
+    public int getTotalQuantity(Long itemId) {
+        int total = 0;
+        for (BranchStock stock : branchStockRepository.findByItemId(itemId)) {
+            total += stock.getQuantity();
+        }
+        return total;
+    }
+
+    public Map<Long, Integer> getQuantities(Long branchId, Collection<Long> itemIds) {
+        Map<Long, Integer> quantities = new HashMap<>();
+        for (BranchStock stock : branchStockRepository.findByBranchIdAndItemIdIn(branchId, itemIds)) {
+            quantities.put(stock.getItemId(), stock.getQuantity());
+        }
+        return quantities;
+    }
+
+    public List<BranchStock> getBranchStock(Long branchId) {
+        return branchStockRepository.findByBranchIdOrderByItemId(branchId);
+    }
+
+    /**
+     * Stock of an item at every branch plus the maintained total.
+     */
+    public Map<String, Object> getAvailability(Item item) {
+        Map<Long, Branch> branches = new HashMap<>();
+        for (Branch branch : branchRepository.findAll()) {
+            branches.put(branch.getId(), branch);
+        }
+
+        List<Map<String, Object>> perBranch = new ArrayList<>();
+        for (BranchStock stock : branchStockRepository.findByItemId(item.getId())) {
+            Branch branch = branches.get(stock.getBranchId());
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("branchId", stock.getBranchId());
+            row.put("code", branch != null ? branch.getCode() : null);
+            row.put("name", branch != null ? branch.getName() : null);
+            row.put("quantity", stock.getQuantity());
+            perBranch.add(row);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("itemId", item.getId());
+        result.put("itemCode", item.getItemCode());
+        result.put("total", item.getStockQuantity());
+        result.put("branches", perBranch);
+        return result;
+    }
+
+    /**
+     * Changes an item's stock at a branch by {@code delta}. A negative change fails
+     * if the branch does not have the units. The item total follows at commit.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void changeStock(Long itemId, Long branchId, int delta, String itemName) {
+        if (delta == 0) {
+            return;
+        }
+        if (delta < 0) {
+            if (branchStockRepository.take(itemId, branchId, -delta) == 0) {
+                throw new InsufficientStockException(itemName);
+            }
+        } else {
+            branchStockRepository.add(itemId, branchId, delta);
+        }
+        addToTotal(itemId, delta);
+    }
+
+    /**
+     * Sets the opening stock of a new item, whose total was saved with the item.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void openStock(Long itemId, Long branchId, int quantity) {
+        branchStockRepository.add(itemId, branchId, quantity);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void addToTotal(Long itemId, int delta) {
+        Map<Long, Integer> totals = (Map<Long, Integer>) TransactionSynchronizationManager.getResource(PENDING_TOTALS);
+        if (totals == null) {
+            Map<Long, Integer> created = new TreeMap<>();
+            TransactionSynchronizationManager.bindResource(PENDING_TOTALS, created);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    created.forEach((id, change) -> {
+                        if (change != 0) {
+                            itemRepository.adjustStock(id, change);
+                        }
+                    });
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(PENDING_TOTALS);
+                }
+            });
+            totals = created;
+        }
+        totals.merge(itemId, delta, Integer::sum);
+    }
+}
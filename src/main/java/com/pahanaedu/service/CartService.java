@@ -0,0 +1,277 @@
+package com.pahanaedu.service;
+
+import com.pahanaedu.entity.Bill;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Server-side shopping carts held in memory. Lines carry the price seen when they
+ * were added and the cart keeps its total up to date as lines change. Validation
+ * runs against the {@link CatalogCache}, including stock at the default branch,
+ * which online orders sell from, so building a cart issues no queries. Checkout
+ * re-checks every line in one pass and hands the batch to
+ * {@link BillService#createOrder}, which checks stock against the database. The
+ * store is bounded and idle carts expire.
+ */
+@Service
+public class CartService {
+
+    @Autowired
+    private CatalogCache catalogCache;
+
+    @Autowired
+    private HotStockService hotStockService;
+
+    @Autowired
+    private BranchService branchService;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private BillService billService;
+
+    @Value("${bookshop.cart.max-carts:50000}")
+    private int maxCarts;
+
+    @Value("${bookshop.cart.max-lines:100}")
+    private int maxLines;
+
+    @Value("${bookshop.cart.ttl-minutes:120}")
+    private long ttlMinutes;
+
+    private final Map<String, Cart> carts = new ConcurrentHashMap<>();
+
+    public Map<String, Object> createCart(Long customerId) {
+        customerService.getCustomerById(customerId)
+                .orElseThrow(() -> new RuntimeException("Customer not found"));
+
+        if (carts.size() >= maxCarts) {
+            evictExpired();
+            if (carts.size() >= maxCarts) {
+                throw new RuntimeException("Too many active carts, try again later");
+            }
+        }
+
+        Cart cart = new Cart(UUID.randomUUID().toString(), customerId);
+        carts.put(cart.id, cart);
+        synchronized (cart) {
+            return cart.describe(List.of());
+        }
+    }
+
+    public Map<String, Object> getCart(String cartId) {
+        Cart cart = findCart(cartId);
+        synchronized (cart) {
+            return cart.describe(revalidate(cart));
+        }
+    }
+
+    /**
+     * Sets the quantity of one line; zero removes it.
+     */
+    public Map<String, Object> setQuantity(String cartId, Long itemId, int quantity) {
+        if (quantity < 0) {
+            throw new RuntimeException("Quantity cannot be negative");
+        }
+        Cart cart = findCart(cartId);
+        synchronized (cart) {
+            if (quantity == 0) {
+                cart.removeLine(itemId);
+                return cart.describe(List.of());
+            }
+
+            CatalogCache.CatalogItem item = catalogCache.get(itemId)
+                    .orElseThrow(() -> new RuntimeException("Item not found: " + itemId));
+            if (!cart.lines.containsKey(itemId) && cart.lines.size() >= maxLines) {
+                throw new RuntimeException("Cart cannot hold more than " + maxLines + " items");
+            }
+            if (available(item) < quantity) {
+                throw new InsufficientStockException(item.getName());
+            }
+            cart.putLine(item, quantity);
+            return cart.describe(List.of());
+        }
+    }
+
+    public Map<String, Object> removeItem(String cartId, Long itemId) {
+        return setQuantity(cartId, itemId, 0);
+    }
+
+    public void deleteCart(String cartId) {
+        carts.remove(cartId);
+    }
+
+    /**
+     * Turns the cart into a pending order. Lines whose price or stock changed since
+     * they were added are refreshed and the checkout is rejected so the customer can
+     * review them; otherwise the whole cart is submitted as one batch.
+     */
+    public Bill checkout(String cartId) {
+        Cart cart = findCart(cartId);
+        List<BillService.BillItemRequest> requests;
+        synchronized (cart) {
+            if (cart.lines.isEmpty()) {
+                throw new RuntimeException("Cart is empty");
+            }
+            if (cart.checkingOut) {
+                throw new RuntimeException("Checkout already in progress");
+            }
+            List<String> problems = revalidate(cart);
+            if (!problems.isEmpty()) {
+                throw new RuntimeException(String.join("; ", problems));
+            }
+            requests = cart.lines.values().stream()
+                    .map(line -> new BillService.BillItemRequest(line.itemId, line.quantity))
+                    .toList();
+            cart.checkingOut = true;
+        }
+
+        try {
+            Bill bill = billService.createOrder(cart.customerId, requests);
+            carts.remove(cartId, cart);
+            return bill;
+        } finally {
+            synchronized (cart) {
+                cart.checkingOut = false;
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${bookshop.cart.sweep-ms:60000}")
+    public void evictExpired() {
+        long cutoff = System.currentTimeMillis() - ttlMinutes * 60_000;
+        carts.values().removeIf(cart -> cart.lastAccess < cutoff);
+    }
+
+    private Cart findCart(String cartId) {
+        Cart cart = carts.get(cartId);
+        if (cart == null || cart.lastAccess < System.currentTimeMillis() - ttlMinutes * 60_000) {
+            if (cart != null) {
+                carts.remove(cartId, cart);
+            }
+            throw new RuntimeException("Cart not found or expired");
+        }
+        cart.lastAccess = System.currentTimeMillis();
+        return cart;
+    }
+
+    /**
+     * Brings every line in line with the current catalog and returns what changed.
+     * Lines for items that no longer exist are dropped.
+     */
+    private List<String> revalidate(Cart cart) {
+        List<String> problems = new ArrayList<>();
+        Map<Long, CatalogCache.CatalogItem> current = catalogCache.getAll(cart.lines.keySet());
+        for (CartLine line : new ArrayList<>(cart.lines.values())) {
+            CatalogCache.CatalogItem item = current.get(line.itemId);
+            if (item == null) {
+                cart.removeLine(line.itemId);
+                problems.add("Item no longer available: " + line.name);
+                continue;
+            }
+            if (item.getPrice().compareTo(line.unitPrice) != 0) {
+                problems.add("Price changed for " + item.getName() + ": " + line.unitPrice + " -> " + item.getPrice());
+                cart.putLine(item, line.quantity);
+            }
+            long available = available(item);
+            if (available < line.quantity) {
+                problems.add("Only " + Math.max(available, 0) + " left of " + item.getName());
+            }
+        }
+        return problems;
+    }
+
+    /**
+     * Units of the item at the default branch: the hot-stock counter for hot items,
+     * otherwise the catalog snapshot's branch stock.
+     */
+    private long available(CatalogCache.CatalogItem item) {
+        Long hot = hotStockService.getAvailable(item.getId());
+        return hot != null ? hot : catalogCache.getBranchStock(item.getId(), branchService.getDefaultBranchId());
+    }
+
+    private static class Cart {
+        private final String id;
+        private final Long customerId;
+        private final Map<Long, CartLine> lines = new LinkedHashMap<>();
+        private BigDecimal totalAmount = BigDecimal.ZERO;
+        private int itemCount;
+        private boolean checkingOut;
+        private volatile long lastAccess = System.currentTimeMillis();
+
+        Cart(String id, Long customerId) {
+            this.id = id;
+            this.customerId = customerId;
+        }
+
+        void putLine(CatalogCache.CatalogItem item, int quantity) {
+            CartLine line = new CartLine(item, quantity);
+            CartLine previous = lines.put(line.itemId, line);
+            if (previous != null) {
+                totalAmount = totalAmount.subtract(previous.lineTotal);
+                itemCount -= previous.quantity;
+            }
+            totalAmount = totalAmount.add(line.lineTotal);
+            itemCount += quantity;
+        }
+
+        void removeLine(Long itemId) {
+            CartLine line = lines.remove(itemId);
+            if (line != null) {
+                totalAmount = totalAmount.subtract(line.lineTotal);
+                itemCount -= line.quantity;
+            }
+        }
+
+        Map<String, Object> describe(List<String> warnings) {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("cartId", id);
+            result.put("customerId", customerId);
+            result.put("lines", lines.values().stream().map(CartLine::describe).toList());
+            result.put("itemCount", itemCount);
+            result.put("totalAmount", totalAmount);
+            result.put("warnings", warnings);
+            return result;
+        }
+    }
+
+    private static class CartLine {
+        private final Long itemId;
+        private final String itemCode;
+        private final String name;
+        private final BigDecimal unitPrice;
+        private final int quantity;
+        private final BigDecimal lineTotal;
+
+        CartLine(CatalogCache.CatalogItem item, int quantity) {
+            this.itemId = item.getId();
+            this.itemCode = item.getItemCode();
+            this.name = item.getName();
+            this.unitPrice = item.getPrice();
+            this.quantity = quantity;
+            this.lineTotal = unitPrice.multiply(BigDecimal.valueOf(quantity));
+        }
+
+        Map<String, Object> describe() {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("itemId", itemId);
+            result.put("itemCode", itemCode);
+            result.put("name", name);
+            result.put("unitPrice", unitPrice);
+            result.put("quantity", quantity);
+            result.put("lineTotal", lineTotal);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.pahanaedu.service;
+
+import com.pahanaedu.entity.BranchStock;
+import com.pahanaedu.entity.Item;
+import com.pahanaedu.monitoring.JfrEvents;
+import com.pahanaedu.repository.BranchStockRepository;
+import com.pahanaedu.repository.ItemRepository;
+import com.pahanaedu.util.AfterCommit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Read-only snapshot of the item catalog for validation on hot paths (carts, POS).
+ * ItemService pushes every committed change into it, and a periodic full refresh
+ * picks up anything written around it. The database stays the authority: the
+ * snapshot is only used to reject obviously bad requests early. Items can be
+ * found by id or, for barcode scans, by item code. Stock is kept per branch as
+ * well as in total, so carts and tills can check the branch they sell from
+ * without a query.
+ */
+@Service
+public class CatalogCache {
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private BranchStockRepository branchStockRepository;
+
+    private volatile Map<Long, CatalogItem> items = new ConcurrentHashMap<>();
+    private volatile Map<String, Long> idsByCode = new ConcurrentHashMap<>();
+    private volatile Map<Long, Map<Long, Integer>> stockByBranch = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${bookshop.catalog.refresh-ms:60000}", initialDelayString = "${bookshop.catalog.refresh-ms:60000}")
+    public void refresh() {
+        JfrEvents.CatalogRefresh event = new JfrEvents.CatalogRefresh();
+        event.begin();
+        Map<Long, CatalogItem> loaded = new ConcurrentHashMap<>();
+        Map<String, Long> codes = new ConcurrentHashMap<>();
+        for (Item item : itemRepository.findAll()) {
+            CatalogItem snapshot = new CatalogItem(item);
+            loaded.put(snapshot.getId(), snapshot);
+            if (snapshot.getItemCode() != null) {
+                codes.put(snapshot.getItemCode(), snapshot.getId());
+            }
+        }
+        Map<Long, Map<Long, Integer>> stock = new ConcurrentHashMap<>();
+        for (BranchStock row : branchStockRepository.findAll()) {
+            stock.computeIfAbsent(row.getBranchId(), id -> new ConcurrentHashMap<>()).put(row.getItemId(), row.getQuantity());
+        }
+        items = loaded;
+        idsByCode = codes;
+        stockByBranch = stock;
+        event.items = loaded.size();
+        event.commit();
+    }
+
+    public Optional<CatalogItem> get(Long itemId) {
+        return Optional.ofNullable(items.get(itemId));
+    }
+
+    public Optional<CatalogItem> getByCode(String itemCode) {
+        Long itemId = itemCode != null ? idsByCode.get(itemCode) : null;
+        return itemId != null ? Optional.ofNullable(items.get(itemId)) : Optional.empty();
+    }
+
+    public Map<Long, CatalogItem> getAll(Collection<Long> itemIds) {
+        Map<Long, CatalogItem> found = new HashMap<>();
+        Map<Long, CatalogItem> current = items;
+        for (Long itemId : itemIds) {
+            CatalogItem item = current.get(itemId);
+            if (item != null) {
+                found.put(itemId, item);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Units of the item at the branch, 0 if the branch never held it.
+     */
+    public int getBranchStock(Long itemId, Long branchId) {
+        Map<Long, Integer> branch = stockByBranch.get(branchId);
+        Integer quantity = branch != null ? branch.get(itemId) : null;
+        return quantity != null ? quantity : 0;
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    /**
+     * Records a changed item once the surrounding transaction commits.
+     */
+    public void put(Item item) {
+        CatalogItem snapshot = new CatalogItem(item);
+        AfterCommit.run(() -> {
+            CatalogItem previous = items.put(snapshot.getId(), snapshot);
+            if (previous != null && previous.getItemCode() != null) {
+                idsByCode.remove(previous.getItemCode(), previous.getId());
+            }
+            if (snapshot.getItemCode() != null) {
+                idsByCode.put(snapshot.getItemCode(), snapshot.getId());
+            }
+        });
+    }
+
+    public void remove(Long itemId) {
+        AfterCommit.run(() -> {
+            CatalogItem previous = items.remove(itemId);
+            if (previous != null && previous.getItemCode() != null) {
+                idsByCode.remove(previous.getItemCode(), itemId);
+            }
+            for (Map<Long, Integer> branch : stockByBranch.values()) {
+                branch.remove(itemId);
+            }
+        });
+    }
+
+    /**
+     * Applies a change to an item's stock at a branch, and to its total, once the
+     * surrounding transaction commits.
+     */
+    public void adjustStock(Long itemId, Long branchId, int delta) {
+        AfterCommit.run(() -> {
+            items.computeIfPresent(itemId, (id, item) -> item.withStock(item.stockQuantity + delta));
+            addBranchStock(itemId, branchId, delta);
+        });
+    }
+
+    /**
+     * Records the opening stock of a new item at a branch once the surrounding
+     * transaction commits; the total comes with the item itself.
+     */
+    public void openStock(Long itemId, Long branchId, int quantity) {
+        AfterCommit.run(() -> addBranchStock(itemId, branchId, quantity));
+    }
+
+    private void addBranchStock(Long itemId, Long branchId, int delta) {
+        stockByBranch.computeIfAbsent(branchId, id -> new ConcurrentHashMap<>()).merge(itemId, delta, Integer::sum);
+    }
+
+    public static class CatalogItem {
+        private final Long id;
+        private final String itemCode;
+        private final String name;
+        private final String category;
+        private final BigDecimal price;
+        private final int stockQuantity;
+
+        CatalogItem(Item item) {
+            this.id = item.getId();
+            this.itemCode = item.getItemCode();
+            this.name = item.getName();
+            this.category = item.getCategory();
+            this.price = item.getPrice() != null ? item.getPrice() : BigDecimal.ZERO;
+            this.stockQuantity = item.getStockQuantity() != null ? item.getStockQuantity() : 0;
+        }
+
+        private CatalogItem(CatalogItem item, int stockQuantity) {
+            this.id = item.id;
+            this.itemCode = item.itemCode;
+            this.name = item.name;
+            this.category = item.category;
+            this.price = item.price;
+            this.stockQuantity = stockQuantity;
+        }
+
+        CatalogItem withStock(int stockQuantity) {
+            return new CatalogItem(this, stockQuantity);
+        }
+
+        public Long getId() { return id; }
+        public String getItemCode() { return itemCode; }
+        public String getName() { return name; }
+        public String getCategory() { return category; }
+        public BigDecimal getPrice() { return price; }
+        public int getStockQuantity() { return stockQuantity; }
+    }
+}
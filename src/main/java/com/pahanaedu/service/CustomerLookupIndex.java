@@ -0,0 +1,179 @@
+package com.pahanaedu.service;
+
+import com.pahanaedu.entity.Customer;
+import com.pahanaedu.repository.CustomerRepository;
+import com.pahanaedu.util.AfterCommit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * In-memory prefix index over customer account number, name words, telephone and
+ * email for cashier type-ahead. Terms live in one sorted map keyed by
+ * {@code term + '\0' + customerId}, so a prefix lookup is a range scan over the
+ * keys starting with the prefix. CustomerService keeps it current after each
+ * committed change; the full load runs once at startup.
+ */
+@Service
+public class CustomerLookupIndex {
+
+    private static final char SEPARATOR = '\0';
+    private static final int SCAN_FACTOR = 20;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    private final ConcurrentSkipListMap<String, Long> terms = new ConcurrentSkipListMap<>();
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        for (Object[] row : customerRepository.findLookupRows()) {
+            index(new Entry(((Number) row[0]).longValue(), (String) row[1], (String) row[2], (String) row[3], (String) row[4]));
+        }
+    }
+
+    public void put(Customer customer) {
+        Entry entry = new Entry(customer.getId(), customer.getAccountNumber(), customer.getName(),
+                customer.getTelephone(), customer.getEmail());
+        AfterCommit.run(() -> index(entry));
+    }
+
+    public void remove(Long customerId) {
+        AfterCommit.run(() -> unindex(customerId));
+    }
+
+    /**
+     * Customers with a term starting with every word of the query, in term order.
+     * The range scan runs on the longest word and stops after a bounded number of
+     * keys, so short, broad queries stay as cheap as precise ones.
+     */
+    public List<Map<String, Object>> lookup(String query, int limit) {
+        List<String> words = words(query);
+        if (words.isEmpty()) {
+            return List.of();
+        }
+        String primary = words.get(0);
+        for (String word : words) {
+            if (word.length() > primary.length()) {
+                primary = word;
+            }
+        }
+
+        Set<Long> seen = new HashSet<>();
+        List<Map<String, Object>> results = new ArrayList<>();
+        int scanned = 0;
+        for (Map.Entry<String, Long> match : terms.subMap(primary, true, primary + Character.MAX_VALUE, false).entrySet()) {
+            if (results.size() >= limit || ++scanned > limit * SCAN_FACTOR) {
+                break;
+            }
+            Long customerId = match.getValue();
+            Entry entry = entries.get(customerId);
+            if (entry == null || !seen.add(customerId) || !entry.matchesAll(words)) {
+                continue;
+            }
+            results.add(entry.describe());
+        }
+        return results;
+    }
+
+    private void index(Entry entry) {
+        unindex(entry.id);
+        entries.put(entry.id, entry);
+        for (String term : entry.terms) {
+            terms.put(term + SEPARATOR + entry.id, entry.id);
+        }
+    }
+
+    private void unindex(Long customerId) {
+        Entry previous = entries.remove(customerId);
+        if (previous != null) {
+            for (String term : previous.terms) {
+                terms.remove(term + SEPARATOR + customerId);
+            }
+        }
+    }
+
+    private static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        if (text != null) {
+            for (String word : text.toLowerCase(Locale.ROOT).split("[\\s,]+")) {
+                if (!word.isEmpty()) {
+                    words.add(word);
+                }
+            }
+        }
+        return words;
+    }
+
+    private static class Entry {
+        private final Long id;
+        private final String accountNumber;
+        private final String name;
+        private final String telephone;
+        private final String email;
+        private final String[] terms;
+
+        Entry(Long id, String accountNumber, String name, String telephone, String email) {
+            this.id = id;
+            this.accountNumber = accountNumber;
+            this.name = name;
+            this.telephone = telephone;
+            this.email = email;
+
+            Set<String> collected = new LinkedHashSet<>();
+            if (accountNumber != null) {
+                collected.add(accountNumber.toLowerCase(Locale.ROOT));
+            }
+            collected.addAll(words(name));
+            if (telephone != null) {
+                String digits = telephone.replaceAll("\\D", "");
+                if (!digits.isEmpty()) {
+                    collected.add(digits);
+                }
+            }
+            if (email != null && !email.isBlank()) {
+                collected.add(email.toLowerCase(Locale.ROOT).trim());
+            }
+            this.terms = collected.toArray(new String[0]);
+        }
+
+        boolean matchesAll(List<String> words) {
+            for (String word : words) {
+                boolean found = false;
+                for (String term : terms) {
+                    if (term.startsWith(word)) {
+                        found = true;
+                        break;
+                    }
+                }
+                if (!found) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        Map<String, Object> describe() {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("id", id);
+            result.put("accountNumber", accountNumber);
+            result.put("name", name);
+            result.put("telephone", telephone);
+            result.put("email", email);
+            return result;
+        }
+    }
+}
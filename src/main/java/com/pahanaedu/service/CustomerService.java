@@ -3,8 +3,13 @@ package com.pahanaedu.service;
 import com.pahanaedu.entity.Customer;
 import com.pahanaedu.repository.CustomerRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -13,6 +18,15 @@ public class CustomerService {
     @Autowired
     private CustomerRepository customerRepository;
 
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private CustomerLookupIndex customerLookupIndex;
+
+    @Autowired
+    private UniquenessFilter uniquenessFilter;
+
     public List<Customer> getAllCustomers() {
         return customerRepository.findAll();
     }
@@ -21,17 +35,60 @@ public class CustomerService {
         return customerRepository.findById(id);
     }
 
+    /**
+     * Customers with only the given fields, read by a projection query.
+     */
+    public List<Map<String, Object>> getAllCustomerFields(String fields) {
+        return customerRepository.findAllFields(fields);
+    }
+
+    public Optional<Map<String, Object>> getCustomerFieldsById(Long id, String fields) {
+        return customerRepository.findFieldsById(id, fields);
+    }
+
     public Optional<Customer> getCustomerByAccountNumber(String accountNumber) {
         return customerRepository.findByAccountNumber(accountNumber);
     }
 
+    /**
+     * Customers by id and by account number, with one query for each.
+     */
+    public BatchLookup.Result<Customer> lookupCustomers(BatchLookup.Request request) {
+        request.validate();
+        Map<Long, Customer> byId = new HashMap<>();
+        if (!request.getIds().isEmpty()) {
+            for (Customer customer : customerRepository.findAllById(request.getIds())) {
+                byId.put(customer.getId(), customer);
+            }
+        }
+        Map<String, Customer> byAccount = new HashMap<>();
+        if (!request.getKeys().isEmpty()) {
+            for (Customer customer : customerRepository.findByAccountNumberIn(request.getKeys())) {
+                byAccount.put(customer.getAccountNumber(), customer);
+            }
+        }
+        return BatchLookup.Result.of(request, byId, byAccount);
+    }
+
+    @Transactional
     public Customer createCustomer(Customer customer) {
-        if (customerRepository.existsByAccountNumber(customer.getAccountNumber())) {
+        if (uniquenessFilter.isTaken(UniquenessFilter.Key.ACCOUNT_NUMBER, customer.getAccountNumber(),
+                () -> customerRepository.existsByAccountNumber(customer.getAccountNumber()))) {
+            throw new RuntimeException("Account number already exists");
+        }
+        Customer saved;
+        try {
+            saved = customerRepository.saveAndFlush(customer);
+        } catch (DataIntegrityViolationException e) {
             throw new RuntimeException("Account number already exists");
         }
-        return customerRepository.save(customer);
+        uniquenessFilter.add(UniquenessFilter.Key.ACCOUNT_NUMBER, saved.getAccountNumber());
+        customerLookupIndex.put(saved);
+        outboxService.record(OutboxService.CUSTOMER, saved.getId(), "CUSTOMER_CREATED", describe(saved));
+        return saved;
     }
 
+    @Transactional
     public Customer updateCustomer(Long id, Customer customerDetails) {
         Customer customer = customerRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Customer not found"));
@@ -42,14 +99,35 @@ public class CustomerService {
         customer.setTelephone(customerDetails.getTelephone());
         customer.setEmail(customerDetails.getEmail());
 
-        return customerRepository.save(customer);
+        Customer saved = customerRepository.save(customer);
+        uniquenessFilter.add(UniquenessFilter.Key.ACCOUNT_NUMBER, saved.getAccountNumber());
+        customerLookupIndex.put(saved);
+        outboxService.record(OutboxService.CUSTOMER, id, "CUSTOMER_UPDATED", describe(saved));
+        return saved;
     }
 
+    @Transactional
     public void deleteCustomer(Long id) {
         customerRepository.deleteById(id);
+        customerLookupIndex.remove(id);
+        outboxService.record(OutboxService.CUSTOMER, id, "CUSTOMER_DELETED", Map.of());
+    }
+
+    public List<Map<String, Object>> lookupCustomers(String query, int limit) {
+        return customerLookupIndex.lookup(query, limit);
     }
 
     public Optional<Customer> getCustomerByUserId(Long userId) {
         return customerRepository.findByUserId(userId);
     }
+
+    private static Map<String, Object> describe(Customer customer) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("accountNumber", customer.getAccountNumber());
+        payload.put("name", customer.getName());
+        payload.put("email", customer.getEmail());
+        payload.put("telephone", customer.getTelephone());
+        payload.put("userId", customer.getUser() != null ? customer.getUser().getId() : null);
+        return payload;
+    }
 }
@@ -0,0 +1,270 @@
+package com.pahanaedu.service;
+
+import com.pahanaedu.entity.Item;
+import com.pahanaedu.entity.StockMovement;
+import com.pahanaedu.repository.BillItemRepository;
+import com.pahanaedu.repository.BranchStockRepository;
+import com.pahanaedu.repository.ItemRepository;
+import com.pahanaedu.util.StripedStockCounter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Flash-sale mode for single items. While an item is hot, sales from the default
+ * branch take stock from a striped in-memory counter instead of row-locking its
+ * stock rows, and the bill lines are written with {@code stock_pending = true}. A
+ * periodic flush folds the pending lines into the default branch's stock and
+ * {@code items.stock_quantity}, writes their stock ledger movements and clears the
+ * flag in one transaction. Other branches sell hot items the normal way.
+ *
+ * <p>Crash recovery: the pending lines are committed with their bill, so nothing is
+ * lost when the node dies between flushes. On startup the flush runs first, after
+ * which {@code stock_quantity} is exact again and the counters are rebuilt from it.
+ * Counters are per node, so hot mode assumes a single node serves the hot item.
+ *
+ * <p>Turning hot mode off waits for the orders that took units from a counter to
+ * finish, flushes their pending lines and only then drops the counter, so the
+ * normal path never sees branch stock that still owes pending units.
+ */
+@Service
+public class HotStockService {
+
+    private static final Logger log = LoggerFactory.getLogger(HotStockService.class);
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private BillItemRepository billItemRepository;
+
+    @Autowired
+    private StockLedgerService stockLedgerService;
+
+    @Autowired
+    private BranchService branchService;
+
+    @Autowired
+    private BranchStockRepository branchStockRepository;
+
+    @Autowired
+    private CatalogCache catalogCache;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${bookshop.hot-stock.stripes:16}")
+    private int stripes;
+
+    @Value("${bookshop.hot-stock.flush-batch-size:5000}")
+    private int flushBatchSize;
+
+    @Value("${bookshop.hot-stock.disable-wait-ms:10000}")
+    private long disableWaitMs;
+
+    private final Map<Long, StripedStockCounter> counters = new ConcurrentHashMap<>();
+
+    /**
+     * Held shared by every transaction that takes units from a counter, until it
+     * completes, and exclusively while a counter is flushed and removed.
+     */
+    private final ReentrantReadWriteLock switchLock = new ReentrantReadWriteLock();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        flushPendingStock();
+        for (Item item : itemRepository.findByHotStockTrue()) {
+            counters.put(item.getId(), new StripedStockCounter(stripes, stockOf(item)));
+        }
+    }
+
+    public boolean isHot(Long itemId) {
+        return counters.containsKey(itemId);
+    }
+
+    /**
+     * Takes stock for a hot item. If the surrounding transaction rolls back the
+     * units go back into the counter. Returns false if the item is no longer hot
+     * (hot mode was turned off meanwhile); the caller then takes the stock the
+     * normal way.
+     */
+    public boolean deduct(Long itemId, int quantity, String itemName) {
+        if (!counters.containsKey(itemId)) {
+            return false;
+        }
+        Lock shared = switchLock.readLock();
+        shared.lock();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    shared.unlock();
+                }
+            });
+        } else {
+            shared.unlock();
+        }
+
+        StripedStockCounter counter = counters.get(itemId);
+        if (counter == null) {
+            return false;
+        }
+        if (!counter.tryAcquire(quantity)) {
+            throw new InsufficientStockException(itemName);
+        }
+        undoOnRollback(() -> counter.release(quantity));
+        return true;
+    }
+
+    /**
+     * Applies a stock change made outside an order (receipts, restocks, admin
+     * adjustments) to the counter. Returns false if a negative change cannot be covered.
+     */
+    public boolean adjust(Long itemId, int delta) {
+        StripedStockCounter counter = counters.get(itemId);
+        if (counter == null || delta == 0) {
+            return true;
+        }
+        if (delta > 0) {
+            counter.release(delta);
+            undoOnRollback(() -> counter.tryAcquire(delta));
+            return true;
+        }
+        if (!counter.tryAcquire(-delta)) {
+            return false;
+        }
+        undoOnRollback(() -> counter.release(-delta));
+        return true;
+    }
+
+    public Item enable(Long itemId) {
+        return transactionTemplate.execute(status -> {
+            Item item = itemRepository.findById(itemId)
+                    .orElseThrow(() -> new RuntimeException("Item not found"));
+            item.setHotStock(true);
+            Item saved = itemRepository.save(item);
+            long available = stockOf(saved) - billItemRepository.sumPendingQuantity(itemId);
+            counters.putIfAbsent(itemId, new StripedStockCounter(stripes, available));
+            return saved;
+        });
+    }
+
+    /**
+     * Turns hot mode off: waits for open orders holding counter units, flushes
+     * every pending line and only then removes the counter.
+     */
+    public Item disable(Long itemId) {
+        Item item = transactionTemplate.execute(status -> {
+            Item found = itemRepository.findById(itemId)
+                    .orElseThrow(() -> new RuntimeException("Item not found"));
+            found.setHotStock(false);
+            return itemRepository.save(found);
+        });
+
+        Lock exclusive = switchLock.writeLock();
+        try {
+            if (!exclusive.tryLock(disableWaitMs, TimeUnit.MILLISECONDS)) {
+                throw new RuntimeException("Orders for hot items are still running; try again");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while turning off hot stock");
+        }
+        try {
+            flushPendingStock();
+            counters.remove(itemId);
+        } finally {
+            exclusive.unlock();
+        }
+        return item;
+    }
+
+    /**
+     * Units sold from the item's counter whose bill lines are committed but not
+     * yet flushed into the default branch's stock.
+     */
+    public long getPendingQuantity(Long itemId) {
+        return billItemRepository.sumPendingQuantity(itemId);
+    }
+
+    public Long getAvailable(Long itemId) {
+        StripedStockCounter counter = counters.get(itemId);
+        return counter != null ? counter.available() : null;
+    }
+
+    @Scheduled(fixedDelayString = "${bookshop.hot-stock.flush-ms:1000}")
+    public void flushPendingStock() {
+        int flushed;
+        do {
+            flushed = flushBatch();
+        } while (flushed == flushBatchSize);
+    }
+
+    private int flushBatch() {
+        Integer flushed = transactionTemplate.execute(status -> {
+            List<Object[]> rows = billItemRepository.lockPendingStock(flushBatchSize);
+            if (rows.isEmpty()) {
+                return 0;
+            }
+
+            Long branchId = branchService.getDefaultBranchId();
+            List<Long> billItemIds = new ArrayList<>(rows.size());
+            List<StockMovement> movements = new ArrayList<>(rows.size());
+            Map<Long, Integer> deltas = new HashMap<>();
+            for (Object[] row : rows) {
+                long itemId = ((Number) row[1]).longValue();
+                int quantity = ((Number) row[2]).intValue();
+                billItemIds.add(((Number) row[0]).longValue());
+                deltas.merge(itemId, quantity, Integer::sum);
+                movements.add(new StockMovement(itemId, branchId, -quantity, StockMovement.Reason.SALE, ((Number) row[3]).longValue()));
+            }
+            deltas.forEach((itemId, quantity) -> {
+                // the counter already checked these units, so no availability check here
+                branchStockRepository.add(itemId, branchId, -quantity);
+                itemRepository.decrementStock(itemId, quantity);
+                catalogCache.adjustStock(itemId, branchId, -quantity);
+            });
+            stockLedgerService.recordAll(movements);
+            billItemRepository.clearStockPending(billItemIds);
+            return rows.size();
+        });
+        if (flushed != null && flushed > 0) {
+            log.debug("Flushed {} pending hot stock lines", flushed);
+        }
+        return flushed != null ? flushed : 0;
+    }
+
+    private void undoOnRollback(Runnable undo) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        undo.run();
+                    }
+                }
+            });
+        }
+    }
+
+    private long stockOf(Item item) {
+        return branchService.getQuantity(item.getId(), branchService.getDefaultBranchId());
+    }
+}
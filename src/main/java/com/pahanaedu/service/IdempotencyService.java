@@ -0,0 +1,422 @@
+package com.pahanaedu.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.pahanaedu.entity.Bill;
+import com.pahanaedu.entity.IdempotencyRecord;
+import com.pahanaedu.entity.Item;
+import com.pahanaedu.repository.IdempotencyRecordRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.Principal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Makes retried POSTs safe. The first successful response for an
+ * {@code Idempotency-Key} is kept in a bounded in-memory LRU and in the
+ * {@code idempotency_keys} table; replays get the stored response back without
+ * running the action again. A duplicate that arrives while the first request is
+ * still running waits for it: on the same node through a shared future, across
+ * nodes by polling the IN_PROGRESS row.
+ * <p>
+ * A key is bound to the request it was first used with: the row keeps a SHA-256
+ * of the caller's principal and the request (body and path variables, maps in key
+ * order). The same key with a different request or from a different caller gets
+ * 422 rather than someone else's response.
+ * <p>
+ * The body is stored as JSON together with its type (a bill, an item, or plain
+ * maps and lists). A replay reads it back into that type and returns the object,
+ * so content negotiation encodes it for the retry's {@code Accept} header, and a
+ * CBOR client gets CBOR back just as for the first response.
+ * <p>
+ * A claim is the row's id plus its {@code created_at}. Expired rows are taken
+ * over, and the response stored, with conditional updates on both, so only one
+ * request can hold a key. The action runs in one transaction with the COMPLETED
+ * update: either the order and its stored response commit together, or neither
+ * does. An action whose claim was taken over while it ran (its lease expired) is
+ * rolled back and answered with 409.
+ */
+@Service
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${bookshop.idempotency.ttl-hours:24}")
+    private long ttlHours;
+
+    @Value("${bookshop.idempotency.cache-size:10000}")
+    private int cacheSize;
+
+    @Value("${bookshop.idempotency.wait-ms:10000}")
+    private long waitMs;
+
+    @Value("${bookshop.idempotency.lease-ms:60000}")
+    private long leaseMs;
+
+    private final Map<String, CompletableFuture<StoredResponse>> inFlight = new ConcurrentHashMap<>();
+    private Map<String, StoredResponse> cache;
+    private TransactionTemplate newTransaction;
+    private TransactionTemplate transaction;
+    private ObjectWriter canonicalWriter;
+
+    @PostConstruct
+    public void init() {
+        cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, StoredResponse> eldest) {
+                return size() > cacheSize;
+            }
+        };
+        newTransaction = new TransactionTemplate(transactionManager);
+        newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        transaction = new TransactionTemplate(transactionManager);
+        canonicalWriter = objectMapper.writer().with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+    }
+
+    /**
+     * Runs {@code action} once per key. {@code request} is what identifies the
+     * request (its body and path variables) and {@code caller} who sent it, null
+     * for anonymous requests; a replay must match both.
+     */
+    public ResponseEntity<?> execute(String scope, String key, Principal caller, Object request,
+                                     Supplier<ResponseEntity<?>> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        String fullKey = scope + ":" + key.trim();
+        String requestHash = requestHash(caller, request);
+
+        StoredResponse cached = getCached(fullKey);
+        if (cached != null) {
+            return replayIfMatching(cached, requestHash);
+        }
+
+        CompletableFuture<StoredResponse> future = new CompletableFuture<>();
+        CompletableFuture<StoredResponse> existing = inFlight.putIfAbsent(fullKey, future);
+        if (existing != null) {
+            return awaitLocal(existing, requestHash);
+        }
+
+        try {
+            Claim claim = claimOrAwait(fullKey, requestHash);
+            if (claim.stored != null) {
+                future.complete(claim.stored);
+                return replayIfMatching(claim.stored, requestHash);
+            }
+
+            return runAndStore(fullKey, requestHash, claim, action, future);
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(fullKey, future);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${bookshop.idempotency.cleanup-ms:600000}")
+    public void purgeExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        newTransaction.executeWithoutResult(status -> idempotencyRecordRepository.deleteExpired(now));
+        synchronized (cache) {
+            cache.values().removeIf(response -> response.expiresAt.isBefore(now));
+        }
+    }
+
+    /**
+     * Inserts the IN_PROGRESS row for this key, or returns the stored response if
+     * another node already completed it. Waits while another node holds a live
+     * claim for the same request; a claim for a different one is answered at once.
+     */
+    private Claim claimOrAwait(String fullKey, String requestHash) {
+        long deadline = System.currentTimeMillis() + waitMs;
+        while (true) {
+            Optional<IdempotencyRecord> record = idempotencyRecordRepository.findByIdempotencyKey(fullKey);
+            if (record.isEmpty()) {
+                // created_at is a DATETIME, so claim with a value it stores exactly
+                LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+                IdempotencyRecord claimed = new IdempotencyRecord(fullKey, now.plusHours(ttlHours));
+                claimed.setCreatedAt(now);
+                claimed.setRequestHash(requestHash);
+                try {
+                    newTransaction.executeWithoutResult(status -> idempotencyRecordRepository.saveAndFlush(claimed));
+                    return new Claim(claimed.getId(), now, null);
+                } catch (DataIntegrityViolationException e) {
+                    continue;
+                }
+            }
+
+            IdempotencyRecord found = record.get();
+            if (found.getStatus() == IdempotencyRecord.Status.COMPLETED
+                    && found.getExpiresAt().isAfter(LocalDateTime.now())) {
+                StoredResponse stored = new StoredResponse(found.getResponseStatus(), found.getResponseBody(),
+                        found.getResponseType(), found.getRequestHash(), found.getExpiresAt());
+                putCached(fullKey, stored);
+                return new Claim(null, null, stored);
+            }
+            if (found.getStatus() == IdempotencyRecord.Status.COMPLETED
+                    || found.getCreatedAt().isBefore(LocalDateTime.now().minusNanos(leaseMs * 1_000_000))) {
+                LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+                Integer taken = newTransaction.execute(status -> idempotencyRecordRepository.takeOver(found.getId(),
+                        found.getStatus(), found.getCreatedAt(), IdempotencyRecord.Status.IN_PROGRESS,
+                        now, now.plusHours(ttlHours), requestHash));
+                if (taken != null && taken == 1) {
+                    return new Claim(found.getId(), now, null);
+                }
+                // another request took it over first; read the row again
+                continue;
+            }
+
+            if (!StoredResponse.matches(found.getRequestHash(), requestHash) || System.currentTimeMillis() > deadline) {
+                return new Claim(null, null, StoredResponse.conflict(found.getRequestHash()));
+            }
+            sleep();
+        }
+    }
+
+    /**
+     * Runs the action and marks the claim COMPLETED in the same transaction. A
+     * failed response rolls the action back and releases the claim.
+     */
+    private ResponseEntity<?> runAndStore(String fullKey, String requestHash, Claim claim,
+                                          Supplier<ResponseEntity<?>> action, CompletableFuture<StoredResponse> future) {
+        LocalDateTime expiresAt = LocalDateTime.now().plusHours(ttlHours);
+        Outcome outcome;
+        try {
+            outcome = transaction.execute(status -> {
+                ResponseEntity<?> response = action.get();
+                StoredResponse stored = StoredResponse.of(response, requestHash, objectMapper);
+                if (!response.getStatusCode().is2xxSuccessful()) {
+                    status.setRollbackOnly();
+                    return new Outcome(response, stored, false);
+                }
+                int completed = idempotencyRecordRepository.complete(claim.id, IdempotencyRecord.Status.IN_PROGRESS,
+                        claim.claimedAt, IdempotencyRecord.Status.COMPLETED, stored.status, stored.body, stored.type,
+                        expiresAt);
+                if (completed != 1) {
+                    status.setRollbackOnly();
+                    StoredResponse conflict = StoredResponse.conflict(requestHash);
+                    return new Outcome(replay(conflict), conflict, false);
+                }
+                return new Outcome(response, stored, true);
+            });
+        } catch (RuntimeException e) {
+            releaseClaim(claim);
+            throw e;
+        }
+
+        future.complete(outcome.stored);
+        if (outcome.completed) {
+            putCached(fullKey, new StoredResponse(outcome.stored.status, outcome.stored.body, outcome.stored.type,
+                    requestHash, expiresAt));
+        } else {
+            releaseClaim(claim);
+        }
+        return outcome.response;
+    }
+
+    /**
+     * Deletes the claim's row, unless it was taken over in the meantime.
+     */
+    private void releaseClaim(Claim claim) {
+        newTransaction.executeWithoutResult(status -> idempotencyRecordRepository.release(claim.id,
+                IdempotencyRecord.Status.IN_PROGRESS, claim.claimedAt));
+    }
+
+    private ResponseEntity<?> awaitLocal(CompletableFuture<StoredResponse> existing, String requestHash) {
+        try {
+            return replayIfMatching(existing.get(waitMs, TimeUnit.MILLISECONDS), requestHash);
+        } catch (TimeoutException e) {
+            return replay(StoredResponse.conflict(null));
+        } catch (ExecutionException e) {
+            String reason = e.getCause() != null && e.getCause().getMessage() != null
+                    ? e.getCause().getMessage() : "unknown error";
+            return ResponseEntity.badRequest().body(Map.of("error",
+                    "The request with this Idempotency-Key failed: " + reason));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return replay(StoredResponse.conflict(null));
+        }
+    }
+
+    /**
+     * The stored response, or 422 if the key was first used for another request.
+     */
+    private ResponseEntity<?> replayIfMatching(StoredResponse stored, String requestHash) {
+        if (!StoredResponse.matches(stored.requestHash, requestHash)) {
+            return ResponseEntity.unprocessableEntity().body(Map.of("error",
+                    "This Idempotency-Key was already used for a different request"));
+        }
+        return replay(stored);
+    }
+
+    /**
+     * The stored response with its body read back into the stored type. No content
+     * type is set, so the message converters encode it for the request's
+     * {@code Accept} header.
+     */
+    private ResponseEntity<?> replay(StoredResponse stored) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(stored.status);
+        if (stored.status != HttpStatus.CONFLICT.value()) {
+            builder.header("Idempotent-Replayed", "true");
+        }
+        if (stored.body == null) {
+            return builder.build();
+        }
+        try {
+            Class<?> type = StoredResponse.TYPE_BILL.equals(stored.type) ? Bill.class
+                    : StoredResponse.TYPE_ITEM.equals(stored.type) ? Item.class : Object.class;
+            return builder.body(objectMapper.readerFor(type)
+                    .with(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS)
+                    .readValue(stored.body));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Could not replay idempotent response", e);
+        }
+    }
+
+    private String requestHash(Principal caller, Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((caller != null ? caller.getName() : "").getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(canonicalWriter.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new RuntimeException("Could not hash idempotent request", e);
+        }
+    }
+
+    private StoredResponse getCached(String fullKey) {
+        synchronized (cache) {
+            StoredResponse response = cache.get(fullKey);
+            if (response != null && response.expiresAt.isBefore(LocalDateTime.now())) {
+                cache.remove(fullKey);
+                return null;
+            }
+            return response;
+        }
+    }
+
+    private void putCached(String fullKey, StoredResponse response) {
+        synchronized (cache) {
+            cache.put(fullKey, response);
+        }
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(100);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for idempotent request");
+        }
+    }
+
+    private static class Claim {
+        private final Long id;
+        private final LocalDateTime claimedAt;
+        private final StoredResponse stored;
+
+        Claim(Long id, LocalDateTime claimedAt, StoredResponse stored) {
+            this.id = id;
+            this.claimedAt = claimedAt;
+            this.stored = stored;
+        }
+    }
+
+    private static class Outcome {
+        private final ResponseEntity<?> response;
+        private final StoredResponse stored;
+        private final boolean completed;
+
+        Outcome(ResponseEntity<?> response, StoredResponse stored, boolean completed) {
+            this.response = response;
+            this.stored = stored;
+            this.completed = completed;
+        }
+    }
+
+    /**
+     * A response as stored: status, JSON body, the body's type ({@code BILL},
+     * {@code ITEM}, or null for maps, lists and scalars) and the hash of the
+     * request it answers.
+     */
+    private static class StoredResponse {
+        private static final String TYPE_BILL = "BILL";
+        private static final String TYPE_ITEM = "ITEM";
+
+        private final int status;
+        private final String body;
+        private final String type;
+        private final String requestHash;
+        private final LocalDateTime expiresAt;
+
+        StoredResponse(int status, String body, String type, String requestHash, LocalDateTime expiresAt) {
+            this.status = status;
+            this.body = body;
+            this.type = type;
+            this.requestHash = requestHash;
+            this.expiresAt = expiresAt;
+        }
+
+        /**
+         * Whether a request hashing to {@code requestHash} may reuse a key stored
+         * with {@code storedHash}; rows from before hashing match any request.
+         */
+        static boolean matches(String storedHash, String requestHash) {
+            return storedHash == null || storedHash.equals(requestHash);
+        }
+
+        static StoredResponse of(ResponseEntity<?> response, String requestHash, ObjectMapper objectMapper) {
+            Object value = response.getBody();
+            String type = value instanceof Bill ? TYPE_BILL : value instanceof Item ? TYPE_ITEM : null;
+            try {
+                String body = value != null ? objectMapper.writeValueAsString(value) : null;
+                return new StoredResponse(response.getStatusCode().value(), body, type, requestHash, LocalDateTime.now());
+            } catch (JsonProcessingException e) {
+                throw new RuntimeException("Could not store idempotent response", e);
+            }
+        }
+
+        static StoredResponse conflict(String requestHash) {
+            return new StoredResponse(HttpStatus.CONFLICT.value(),
+                    "{\"error\":\"A request with this Idempotency-Key is still in progress\"}", null, requestHash,
+                    LocalDateTime.now());
+        }
+    }
+}
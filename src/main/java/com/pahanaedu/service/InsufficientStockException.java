@@ -0,0 +1,13 @@
+package com.pahanaedu.service;
+
+/**
+ * A branch, hot-stock counter or cached snapshot does not hold the units an order
+ * or adjustment asks for. Kept apart from other failures so callers can tell a
+ * stock conflict from a bad request.
+ */
+public class InsufficientStockException extends RuntimeException {
+
+    public InsufficientStockException(String itemName) {
+        super("Insufficient stock for: " + itemName);
+    }
+}
@@ -1,10 +1,19 @@
 package com.pahanaedu.service;
 
 import com.pahanaedu.entity.Item;
+import com.pahanaedu.entity.StockMovement;
 import com.pahanaedu.repository.ItemRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -13,6 +22,27 @@ public class ItemService {
     @Autowired
     private ItemRepository itemRepository;
 
+    @Autowired
+    private HotStockService hotStockService;
+
+    @Autowired
+    private CatalogCache catalogCache;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private StockLedgerService stockLedgerService;
+
+    @Autowired
+    private BranchService branchService;
+
+    @Autowired
+    private UniquenessFilter uniquenessFilter;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
     public List<Item> getAllItems() {
         return itemRepository.findAll();
     }
@@ -21,33 +51,108 @@ public class ItemService {
         return itemRepository.findById(id);
     }
 
+    /**
+     * Items with only the given fields, read by a projection query.
+     */
+    public List<Map<String, Object>> getAllItemFields(String fields) {
+        return itemRepository.findAllFields(fields);
+    }
+
+    public Optional<Map<String, Object>> getItemFieldsById(Long id, String fields) {
+        return itemRepository.findFieldsById(id, fields);
+    }
+
+    public List<Item> getItemsByIds(Collection<Long> ids) {
+        return itemRepository.findAllById(ids);
+    }
+
     public Optional<Item> getItemByCode(String itemCode) {
         return itemRepository.findByItemCode(itemCode);
     }
 
+    /**
+     * Items by id and by item code, with one query for each.
+     */
+    public BatchLookup.Result<Item> lookupItems(BatchLookup.Request request) {
+        request.validate();
+        Map<Long, Item> byId = new HashMap<>();
+        if (!request.getIds().isEmpty()) {
+            for (Item item : itemRepository.findAllById(request.getIds())) {
+                byId.put(item.getId(), item);
+            }
+        }
+        Map<String, Item> byCode = new HashMap<>();
+        if (!request.getKeys().isEmpty()) {
+            for (Item item : itemRepository.findByItemCodeIn(request.getKeys())) {
+                byCode.put(item.getItemCode(), item);
+            }
+        }
+        return BatchLookup.Result.of(request, byId, byCode);
+    }
+
+    @Transactional
     public Item createItem(Item item) {
-        if (itemRepository.existsByItemCode(item.getItemCode())) {
+        if (uniquenessFilter.isTaken(UniquenessFilter.Key.ITEM_CODE, item.getItemCode(),
+                () -> itemRepository.existsByItemCode(item.getItemCode()))) {
             throw new RuntimeException("Item code already exists");
         }
-        return itemRepository.save(item);
+        Item saved;
+        try {
+            saved = itemRepository.saveAndFlush(item);
+        } catch (DataIntegrityViolationException e) {
+            throw new RuntimeException("Item code already exists");
+        }
+        uniquenessFilter.add(UniquenessFilter.Key.ITEM_CODE, saved.getItemCode());
+        if (saved.getStockQuantity() != null) {
+            Long branchId = branchService.getDefaultBranchId();
+            branchService.openStock(saved.getId(), branchId, saved.getStockQuantity());
+            stockLedgerService.record(saved.getId(), branchId, saved.getStockQuantity(), StockMovement.Reason.OPENING, null);
+            catalogCache.openStock(saved.getId(), branchId, saved.getStockQuantity());
+        }
+        catalogCache.put(saved);
+        outboxService.record(OutboxService.ITEM, saved.getId(), "ITEM_CREATED", describe(saved));
+        return saved;
     }
 
+    /**
+     * Updates an item. The stock quantity is the new total over all branches; the
+     * other branches keep their stock and the default branch is adjusted by the
+     * difference, measured against the branch rows themselves (the maintained
+     * total can lag them until pending changes commit) less the hot-stock sales
+     * not yet flushed into them. Both are read in the same transaction snapshot,
+     * so a flush in between cannot count a sale twice.
+     */
+    @Transactional
     public Item updateItem(Long id, Item itemDetails) {
         Item item = itemRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Item not found"));
 
+        int stockDelta = 0;
+        if (itemDetails.getStockQuantity() != null) {
+            long current = branchService.getTotalQuantity(id) - hotStockService.getPendingQuantity(id);
+            stockDelta = (int) (itemDetails.getStockQuantity() - current);
+        }
+        changeStock(id, item.getName(), branchService.getDefaultBranchId(), stockDelta,
+                StockMovement.Reason.ADJUSTMENT, null);
+
         item.setItemCode(itemDetails.getItemCode());
         item.setName(itemDetails.getName());
         item.setDescription(itemDetails.getDescription());
         item.setPrice(itemDetails.getPrice());
-        item.setStockQuantity(itemDetails.getStockQuantity());
         item.setCategory(itemDetails.getCategory());
 
-        return itemRepository.save(item);
+        Item saved = withStockChange(itemRepository.save(item), stockDelta);
+        uniquenessFilter.add(UniquenessFilter.Key.ITEM_CODE, saved.getItemCode());
+        catalogCache.put(saved);
+        outboxService.record(OutboxService.ITEM, id, "ITEM_UPDATED", describe(saved));
+        return saved;
     }
 
+    @Transactional
     public void deleteItem(Long id) {
         itemRepository.deleteById(id);
+        catalogCache.remove(id);
+        outboxService.record(OutboxService.ITEM, id, "ITEM_DELETED", Map.of());
     }
 
     public List<Item> getItemsByCategory(String category) {
@@ -58,11 +163,84 @@ public class ItemService {
         return itemRepository.findByNameContainingIgnoreCase(name);
     }
 
+    @Transactional
     public Item updateStock(Long id, Integer quantity) {
+        return updateStock(id, null, quantity);
+    }
+
+    /**
+     * Receives ({@code quantity > 0}) or writes off stock at a branch, the default
+     * branch if none is given.
+     */
+    @Transactional
+    public Item updateStock(Long id, Long branchId, Integer quantity) {
+        Item item = itemRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Item not found"));
+        changeStock(id, item.getName(), branchService.resolveBranchId(branchId, null), quantity,
+                quantity > 0 ? StockMovement.Reason.RECEIPT : StockMovement.Reason.ADJUSTMENT, null);
+        return withStockChange(item, quantity);
+    }
+
+    @Transactional
+    public void transferStock(Long id, Long fromBranchId, Long toBranchId, int quantity) {
+        if (quantity <= 0) {
+            throw new RuntimeException("Transfer quantity must be positive");
+        }
         Item item = itemRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Item not found"));
-        
-        item.setStockQuantity(item.getStockQuantity() + quantity);
-        return itemRepository.save(item);
+        Long from = branchService.resolveBranchId(fromBranchId, null);
+        Long to = branchService.resolveBranchId(toBranchId, null);
+        if (from.equals(to)) {
+            throw new RuntimeException("Source and destination branch are the same");
+        }
+        changeStock(id, item.getName(), from, -quantity, StockMovement.Reason.TRANSFER, null);
+        changeStock(id, item.getName(), to, quantity, StockMovement.Reason.TRANSFER, null);
+    }
+
+    /**
+     * Changes an item's stock at a branch by {@code quantity} and records the
+     * movement in the stock ledger. The item total is updated at commit.
+     */
+    @Transactional
+    public void changeStock(Long id, String itemName, Long branchId, int quantity, StockMovement.Reason reason, Long billId) {
+        if (quantity == 0) {
+            return;
+        }
+        if (branchService.isDefault(branchId) && !hotStockService.adjust(id, quantity)) {
+            throw new InsufficientStockException(itemName);
+        }
+        branchService.changeStock(id, branchId, quantity, itemName);
+        stockLedgerService.record(id, branchId, quantity, reason, billId);
+        catalogCache.adjustStock(id, branchId, quantity);
+
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("branchId", branchId);
+        payload.put("delta", quantity);
+        payload.put("reason", reason);
+        outboxService.record(OutboxService.ITEM, id, "ITEM_STOCK_CHANGED", payload);
+    }
+
+    /**
+     * The item as it will read after commit. The stock total is only incremented
+     * when the transaction commits, so the returned copy is detached (after
+     * writing any other pending changes) and shows the new total.
+     */
+    private Item withStockChange(Item item, int delta) {
+        if (delta != 0) {
+            entityManager.flush();
+            entityManager.detach(item);
+            item.setStockQuantity((item.getStockQuantity() != null ? item.getStockQuantity() : 0) + delta);
+        }
+        return item;
+    }
+
+    private static Map<String, Object> describe(Item item) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("itemCode", item.getItemCode());
+        payload.put("name", item.getName());
+        payload.put("category", item.getCategory());
+        payload.put("price", item.getPrice());
+        payload.put("stockQuantity", item.getStockQuantity());
+        return payload;
     }
 }
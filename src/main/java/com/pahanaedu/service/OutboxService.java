@@ -0,0 +1,174 @@
+package com.pahanaedu.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import com.pahanaedu.entity.OutboxEvent;
+import com.pahanaedu.repository.OutboxEventRepository;
+import com.pahanaedu.util.SegmentedJournal;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Transactional outbox for domain events. Services call {@link #record} inside
+ * the transaction that makes the change, so an event exists exactly when the
+ * change committed. A relay moves committed events, in id order, into a
+ * segmented memory-mapped journal on local disk and then deletes them; consumers
+ * read the journal by offset and can replay from any retained position.
+ *
+ * Delivery is at least once: a crash between the journal flush and the delete
+ * relays the same events again. Every record carries its outbox id so consumers
+ * can drop duplicates.
+ */
+@Service
+public class OutboxService {
+
+    public static final String BILL = "BILL";
+    public static final String ITEM = "ITEM";
+    public static final String CUSTOMER = "CUSTOMER";
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxService.class);
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${bookshop.journal.dir:data/journal}")
+    private String journalDir;
+
+    @Value("${bookshop.journal.segment-bytes:67108864}")
+    private int segmentBytes;
+
+    @Value("${bookshop.journal.retain-segments:32}")
+    private int retainSegments;
+
+    @Value("${bookshop.outbox.relay-enabled:true}")
+    private boolean relayEnabled;
+
+    @Value("${bookshop.outbox.batch-size:500}")
+    private int batchSize;
+
+    private SegmentedJournal journal;
+
+    @PostConstruct
+    public void init() {
+        journal = new SegmentedJournal(Paths.get(journalDir), segmentBytes, retainSegments);
+    }
+
+    @PreDestroy
+    public void close() {
+        journal.close();
+    }
+
+    /**
+     * Adds an event to the outbox as part of the caller's transaction.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(String aggregateType, Long aggregateId, String eventType, Map<String, Object> payload) {
+        try {
+            outboxEventRepository.save(new OutboxEvent(aggregateType, aggregateId, eventType,
+                    objectMapper.writeValueAsString(payload)));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Could not serialize " + eventType + " event", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${bookshop.outbox.relay-ms:500}")
+    public void relay() {
+        if (!relayEnabled) {
+            return;
+        }
+        try {
+            int relayed;
+            do {
+                relayed = transactionTemplate.execute(status -> relayBatch());
+            } while (relayed == batchSize);
+        } catch (RuntimeException e) {
+            log.warn("Outbox relay failed, will retry: {}", e.getMessage());
+        }
+    }
+
+    private int relayBatch() {
+        List<OutboxEvent> events = outboxEventRepository.lockBatch(batchSize);
+        if (events.isEmpty()) {
+            return 0;
+        }
+        for (OutboxEvent event : events) {
+            journal.append(event.getId(), envelope(event));
+        }
+        journal.flush();
+        outboxEventRepository.deleteAllInBatch(events);
+        return events.size();
+    }
+
+    /**
+     * Reads journal records from {@code offset}; pass the returned
+     * {@code nextOffset} to continue.
+     */
+    public Map<String, Object> read(long offset, int limit) {
+        List<Map<String, Object>> records = new ArrayList<>();
+        long nextOffset = Math.max(offset, journal.getStartOffset());
+        for (SegmentedJournal.Record record : journal.read(offset, limit)) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("offset", record.getOffset());
+            entry.put("event", parse(record));
+            records.add(entry);
+            nextOffset = record.getNextOffset();
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("records", records);
+        result.put("nextOffset", nextOffset);
+        result.put("startOffset", journal.getStartOffset());
+        result.put("endOffset", journal.getEndOffset());
+        return result;
+    }
+
+    private byte[] envelope(OutboxEvent event) {
+        try {
+            ObjectNode node = objectMapper.createObjectNode();
+            node.put("id", event.getId());
+            node.put("type", event.getEventType());
+            node.put("aggregateType", event.getAggregateType());
+            if (event.getAggregateId() != null) {
+                node.put("aggregateId", event.getAggregateId());
+            }
+            node.put("createdAt", event.getCreatedAt().toString());
+            node.set("payload", objectMapper.readTree(event.getPayload()));
+            return objectMapper.writeValueAsBytes(node);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Could not encode outbox event " + event.getId(), e);
+        }
+    }
+
+    private JsonNode parse(SegmentedJournal.Record record) {
+        try {
+            return objectMapper.readTree(new ByteBufferBackedInputStream(record.getPayload()));
+        } catch (IOException e) {
+            throw new RuntimeException("Could not decode journal record at " + record.getOffset(), e);
+        }
+    }
+}
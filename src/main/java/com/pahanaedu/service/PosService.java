@@ -0,0 +1,503 @@
+package com.pahanaedu.service;
+
+import com.pahanaedu.entity.Bill;
+import com.pahanaedu.entity.User;
+import com.pahanaedu.util.SegmentedJournal;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Open bills for barcode-scan checkout at the till. A scan resolves the item code
+ * through the {@link CatalogCache} code index and adds to or increments a line of
+ * the session held in memory, keeping a running total of list prices; no query
+ * runs until the cashier finalizes, which hands every line to
+ * {@link BillService#createBill} as one batch (discounts and tax are applied there).
+ *
+ * Every change appends the session's full state (customer, branch, cashier and
+ * item/quantity pairs) to a small local journal, keyed by session id, so the
+ * latest record of a session is all that is needed to restore it after a
+ * restart. The journal is flushed on a short timer and on shutdown. Sessions
+ * whose last record is about to age out of the retained segments are written
+ * again by the sweep.
+ */
+@Service
+public class PosService {
+
+    private static final Logger log = LoggerFactory.getLogger(PosService.class);
+    private static final int CLOSED = -1;
+
+    @Autowired
+    private CatalogCache catalogCache;
+
+    @Autowired
+    private HotStockService hotStockService;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private BranchService branchService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private BillService billService;
+
+    @Value("${bookshop.pos.journal-dir:data/pos-journal}")
+    private String journalDir;
+
+    @Value("${bookshop.pos.journal-segment-bytes:4194304}")
+    private int segmentBytes;
+
+    @Value("${bookshop.pos.journal-retain-segments:4}")
+    private int retainSegments;
+
+    @Value("${bookshop.pos.max-sessions:1000}")
+    private int maxSessions;
+
+    @Value("${bookshop.pos.max-lines:200}")
+    private int maxLines;
+
+    @Value("${bookshop.pos.ttl-minutes:720}")
+    private long ttlMinutes;
+
+    private final Map<Long, Session> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong();
+    private SegmentedJournal journal;
+    private volatile boolean dirty;
+
+    @PostConstruct
+    public void init() {
+        journal = new SegmentedJournal(Paths.get(journalDir), segmentBytes, retainSegments);
+    }
+
+    @PreDestroy
+    public void close() {
+        journal.close();
+    }
+
+    /**
+     * Restores the sessions that were open when the node stopped. Runs once the
+     * catalog snapshot is available, since lines are priced from it.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void replay() {
+        Map<Long, SegmentedJournal.Record> latest = new HashMap<>();
+        long maxId = 0;
+        long offset = journal.getStartOffset();
+        while (true) {
+            List<SegmentedJournal.Record> records;
+            try {
+                records = journal.read(offset, 1000);
+            } catch (IllegalArgumentException e) {
+                log.warn("Stopped replaying the POS journal at a damaged record: {}", e.getMessage());
+                break;
+            }
+            if (records.isEmpty()) {
+                break;
+            }
+            for (SegmentedJournal.Record record : records) {
+                offset = record.getNextOffset();
+                maxId = Math.max(maxId, record.getKey());
+                if (record.getPayload().getInt(0) == CLOSED) {
+                    latest.remove(record.getKey());
+                } else {
+                    latest.put(record.getKey(), record);
+                }
+            }
+        }
+        nextId.set(Math.max(maxId + 1, System.currentTimeMillis()));
+
+        if (!latest.isEmpty() && catalogCache.size() == 0) {
+            catalogCache.refresh();
+        }
+        for (SegmentedJournal.Record record : latest.values()) {
+            Session session = decode(record.getKey(), record.getPayload());
+            session.journalOffset = record.getOffset();
+            sessions.put(session.id, session);
+        }
+        if (!latest.isEmpty()) {
+            log.info("Restored {} open POS sessions from the journal", latest.size());
+        }
+    }
+
+    /**
+     * Opens a bill for {@code customerId} at {@code branchId}, or at the cashier's
+     * branch if none is given. The cashier is required; the bill is attributed to them.
+     */
+    public Map<String, Object> openSession(Long customerId, Long branchId, Long userId) {
+        customerService.getCustomerById(customerId)
+                .orElseThrow(() -> new RuntimeException("Customer not found"));
+        User cashier = findCashier(userId);
+        Long sellingBranchId = branchService.resolveBranchId(branchId, cashier);
+
+        if (sessions.size() >= maxSessions) {
+            evictExpired();
+            if (sessions.size() >= maxSessions) {
+                throw new RuntimeException("Too many open POS sessions");
+            }
+        }
+
+        Session session = new Session(nextId.getAndIncrement(), customerId, sellingBranchId, cashier.getId());
+        synchronized (session) {
+            write(session);
+            sessions.put(session.id, session);
+            return session.describe();
+        }
+    }
+
+    public Map<String, Object> getSession(Long sessionId) {
+        Session session = findSession(sessionId);
+        synchronized (session) {
+            return session.describe();
+        }
+    }
+
+    /**
+     * Adds {@code quantity} units of the scanned item, starting a line if the bill
+     * does not have it yet, and returns the line and the running total.
+     */
+    public Map<String, Object> scan(Long sessionId, String itemCode, int quantity) {
+        if (quantity <= 0) {
+            throw new RuntimeException("Quantity must be positive");
+        }
+        CatalogCache.CatalogItem item = catalogCache.getByCode(itemCode)
+                .orElseThrow(() -> new RuntimeException("Unknown item code: " + itemCode));
+        Session session = findSession(sessionId);
+        synchronized (session) {
+            checkEditable(session);
+            PosLine line = session.lines.get(item.getId());
+            return update(session, item, line != null ? line.quantity + quantity : quantity);
+        }
+    }
+
+    /**
+     * Sets the quantity of one line; zero voids it.
+     */
+    public Map<String, Object> setQuantity(Long sessionId, Long itemId, int quantity) {
+        if (quantity < 0) {
+            throw new RuntimeException("Quantity cannot be negative");
+        }
+        Session session = findSession(sessionId);
+        synchronized (session) {
+            checkEditable(session);
+            if (quantity == 0) {
+                session.removeLine(itemId);
+                write(session);
+                return session.describe();
+            }
+            CatalogCache.CatalogItem item = catalogCache.get(itemId)
+                    .orElseThrow(() -> new RuntimeException("Item not found: " + itemId));
+            update(session, item, quantity);
+            return session.describe();
+        }
+    }
+
+    public void cancelSession(Long sessionId) {
+        Session session = sessions.remove(sessionId);
+        if (session != null) {
+            synchronized (session) {
+                writeClosed(session.id);
+            }
+        }
+    }
+
+    /**
+     * Persists the open bill in one transaction and closes the session. Stock is
+     * checked against the branch there; if it fails the session stays open so the
+     * cashier can fix the lines. When the call runs inside a caller's transaction
+     * (an idempotent retry wraps it in one), the session is only closed once that
+     * transaction commits and stays frozen until then, so a failed commit leaves
+     * the open bill as it was.
+     */
+    public Bill finalizeSession(Long sessionId) {
+        Session session = findSession(sessionId);
+        List<BillService.BillItemRequest> requests;
+        synchronized (session) {
+            if (session.lines.isEmpty()) {
+                throw new RuntimeException("No items scanned");
+            }
+            if (session.finalizing) {
+                throw new RuntimeException("Bill is already being finalized");
+            }
+            requests = session.lines.values().stream()
+                    .map(line -> new BillService.BillItemRequest(line.itemId, line.quantity))
+                    .toList();
+            session.finalizing = true;
+        }
+
+        Bill bill;
+        try {
+            bill = billService.createBill(session.customerId, requests, findCashier(session.userId),
+                    session.branchId);
+        } catch (RuntimeException e) {
+            unfreeze(session);
+            throw e;
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        closeFinalized(session);
+                    }
+                    unfreeze(session);
+                }
+            });
+        } else {
+            closeFinalized(session);
+            unfreeze(session);
+        }
+        return bill;
+    }
+
+    private void closeFinalized(Session session) {
+        if (sessions.remove(session.id, session)) {
+            writeClosed(session.id);
+        }
+    }
+
+    private static void unfreeze(Session session) {
+        synchronized (session) {
+            session.finalizing = false;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${bookshop.pos.journal-flush-ms:200}")
+    public void flush() {
+        if (dirty) {
+            dirty = false;
+            journal.flush();
+        }
+    }
+
+    /**
+     * Closes expired sessions and rewrites sessions whose last record is more
+     * than a segment behind, so rolling never drops an open bill.
+     */
+    @Scheduled(fixedDelayString = "${bookshop.pos.sweep-ms:60000}")
+    public void evictExpired() {
+        long cutoff = System.currentTimeMillis() - ttlMinutes * 60_000;
+        long rewriteBefore = journal.getEndOffset() - segmentBytes;
+        for (Session session : sessions.values()) {
+            synchronized (session) {
+                if (session.lastAccess < cutoff) {
+                    if (sessions.remove(session.id, session)) {
+                        writeClosed(session.id);
+                    }
+                } else if (session.journalOffset < rewriteBefore) {
+                    write(session);
+                }
+            }
+        }
+    }
+
+    private Map<String, Object> update(Session session, CatalogCache.CatalogItem item, int quantity) {
+        if (!session.lines.containsKey(item.getId()) && session.lines.size() >= maxLines) {
+            throw new RuntimeException("Bill cannot hold more than " + maxLines + " items");
+        }
+        if (available(item, session.branchId) < quantity) {
+            throw new InsufficientStockException(item.getName());
+        }
+        PosLine line = session.putLine(item, quantity);
+        write(session);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("sessionId", session.id);
+        result.put("line", line.describe());
+        result.put("itemCount", session.itemCount);
+        result.put("totalAmount", session.totalAmount);
+        return result;
+    }
+
+    /**
+     * Lines are frozen while the bill is being created from them; a change made
+     * then would not be on the bill but would stay on the session.
+     */
+    private static void checkEditable(Session session) {
+        if (session.finalizing) {
+            throw new RuntimeException("Bill is being finalized; wait for it to finish before changing lines");
+        }
+    }
+
+    private Session findSession(Long sessionId) {
+        Session session = sessions.get(sessionId);
+        if (session == null) {
+            throw new RuntimeException("POS session not found");
+        }
+        session.lastAccess = System.currentTimeMillis();
+        return session;
+    }
+
+    private User findCashier(Long userId) {
+        if (userId == null) {
+            throw new RuntimeException("Cashier (userId) is required");
+        }
+        return userService.getUserById(userId)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+    }
+
+    /**
+     * Units of the item at the session's branch: the hot-stock counter for hot
+     * items at the default branch, otherwise the catalog snapshot's branch stock.
+     */
+    private long available(CatalogCache.CatalogItem item, long branchId) {
+        if (branchService.isDefault(branchId)) {
+            Long hot = hotStockService.getAvailable(item.getId());
+            if (hot != null) {
+                return hot;
+            }
+        }
+        return catalogCache.getBranchStock(item.getId(), branchId);
+    }
+
+    /**
+     * Appends the session's state: {@code [int lines][long customer][long branch]
+     * [long user][long openedAt]} followed by {@code [long item][int quantity]} per
+     * line. Callers hold the session's lock.
+     */
+    private void write(Session session) {
+        ByteBuffer buffer = ByteBuffer.allocate(36 + session.lines.size() * 12);
+        buffer.putInt(session.lines.size());
+        buffer.putLong(session.customerId);
+        buffer.putLong(session.branchId);
+        buffer.putLong(session.userId);
+        buffer.putLong(session.openedAt);
+        for (PosLine line : session.lines.values()) {
+            buffer.putLong(line.itemId);
+            buffer.putInt(line.quantity);
+        }
+        session.journalOffset = journal.append(session.id, buffer.array());
+        dirty = true;
+    }
+
+    private void writeClosed(long sessionId) {
+        journal.append(sessionId, ByteBuffer.allocate(4).putInt(CLOSED).array());
+        dirty = true;
+    }
+
+    /**
+     * Rebuilds a session from its latest record, pricing lines from the current
+     * catalog. Items that left the catalog are dropped.
+     */
+    private Session decode(long sessionId, ByteBuffer payload) {
+        int lines = payload.getInt();
+        Session session = new Session(sessionId, payload.getLong(), payload.getLong(), payload.getLong());
+        session.openedAt = payload.getLong();
+        for (int i = 0; i < lines; i++) {
+            long itemId = payload.getLong();
+            int quantity = payload.getInt();
+            catalogCache.get(itemId).ifPresent(item -> session.putLine(item, quantity));
+        }
+        return session;
+    }
+
+    private static class Session {
+        private final long id;
+        private final long customerId;
+        private final long branchId;
+        private final long userId;
+        private final Map<Long, PosLine> lines = new LinkedHashMap<>();
+        private BigDecimal totalAmount = BigDecimal.ZERO;
+        private int itemCount;
+        private long openedAt = System.currentTimeMillis();
+        private long journalOffset;
+        private boolean finalizing;
+        private volatile long lastAccess = System.currentTimeMillis();
+
+        Session(long id, long customerId, long branchId, long userId) {
+            this.id = id;
+            this.customerId = customerId;
+            this.branchId = branchId;
+            this.userId = userId;
+        }
+
+        PosLine putLine(CatalogCache.CatalogItem item, int quantity) {
+            PosLine line = new PosLine(item, quantity);
+            PosLine previous = lines.put(line.itemId, line);
+            if (previous != null) {
+                totalAmount = totalAmount.subtract(previous.lineTotal);
+                itemCount -= previous.quantity;
+            }
+            totalAmount = totalAmount.add(line.lineTotal);
+            itemCount += quantity;
+            return line;
+        }
+
+        void removeLine(Long itemId) {
+            PosLine line = lines.remove(itemId);
+            if (line != null) {
+                totalAmount = totalAmount.subtract(line.lineTotal);
+                itemCount -= line.quantity;
+            }
+        }
+
+        Map<String, Object> describe() {
+            List<Map<String, Object>> described = new ArrayList<>();
+            for (PosLine line : lines.values()) {
+                described.add(line.describe());
+            }
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("sessionId", id);
+            result.put("customerId", customerId);
+            result.put("branchId", branchId);
+            result.put("cashierId", userId);
+            result.put("lines", described);
+            result.put("itemCount", itemCount);
+            result.put("totalAmount", totalAmount);
+            return result;
+        }
+    }
+
+    private static class PosLine {
+        private final long itemId;
+        private final String itemCode;
+        private final String name;
+        private final BigDecimal unitPrice;
+        private final int quantity;
+        private final BigDecimal lineTotal;
+
+        PosLine(CatalogCache.CatalogItem item, int quantity) {
+            this.itemId = item.getId();
+            this.itemCode = item.getItemCode();
+            this.name = item.getName();
+            this.unitPrice = item.getPrice();
+            this.quantity = quantity;
+            this.lineTotal = unitPrice.multiply(BigDecimal.valueOf(quantity));
+        }
+
+        Map<String, Object> describe() {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("itemId", itemId);
+            result.put("itemCode", itemCode);
+            result.put("name", name);
+            result.put("unitPrice", unitPrice);
+            result.put("quantity", quantity);
+            result.put("lineTotal", lineTotal);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package com.pahanaedu.service;
+
+import com.pahanaedu.entity.Bill;
+import com.pahanaedu.entity.BillItem;
+import com.pahanaedu.entity.DiscountRule;
+import com.pahanaedu.entity.Item;
+import com.pahanaedu.repository.DiscountRuleRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Prices bills in whole cents. Item prices and discount rules are converted to
+ * {@code long} cents and basis points once (rules when they are loaded, prices
+ * when a quote starts); all line, discount and tax arithmetic is exact integer
+ * arithmetic with half-up rounding, and {@link BigDecimal} is only created again
+ * when the quote is written to a bill.
+ *
+ * Each line gets the single best ITEM or CATEGORY discount; then the best BASKET
+ * discount whose threshold the discounted subtotal reaches; tax is charged on
+ * what remains. The basket discount is spread over the lines in proportion to
+ * their discounted totals, so the line totals always add up to the bill's
+ * discounted subtotal.
+ */
+@Service
+public class PricingEngine {
+
+    private static final long BPS = 10_000;
+
+    @Autowired
+    private DiscountRuleRepository discountRuleRepository;
+
+    @Value("${bookshop.pricing.tax-bps:0}")
+    private int taxBps;
+
+    private volatile RuleSet rules = new RuleSet(List.of());
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${bookshop.pricing.rules-refresh-ms:60000}", initialDelayString = "${bookshop.pricing.rules-refresh-ms:60000}")
+    public void reloadRules() {
+        rules = new RuleSet(discountRuleRepository.findByActiveTrue());
+    }
+
+    public List<DiscountRule> getRules() {
+        return discountRuleRepository.findAll();
+    }
+
+    public DiscountRule saveRule(DiscountRule rule) {
+        validate(rule);
+        DiscountRule saved = discountRuleRepository.save(rule);
+        reloadRules();
+        return saved;
+    }
+
+    public void deleteRule(Long id) {
+        discountRuleRepository.deleteById(id);
+        reloadRules();
+    }
+
+    /**
+     * Prices the given items; {@code quantities[i]} is the quantity of {@code items.get(i)}.
+     */
+    public Quote quote(List<Item> items, int[] quantities) {
+        int lines = items.size();
+        long[] itemIds = new long[lines];
+        String[] categories = new String[lines];
+        long[] unitCents = new long[lines];
+        for (int i = 0; i < lines; i++) {
+            Item item = items.get(i);
+            itemIds[i] = item.getId();
+            categories[i] = item.getCategory();
+            unitCents[i] = toCents(item.getPrice() != null ? item.getPrice() : BigDecimal.ZERO);
+        }
+        return quote(itemIds, categories, unitCents, quantities, System.currentTimeMillis());
+    }
+
+    Quote quote(long[] itemIds, String[] categories, long[] unitCents, int[] quantities, long nowMillis) {
+        RuleSet current = rules;
+        Quote quote = new Quote(unitCents, quantities);
+
+        long net = 0;
+        for (int i = 0; i < quote.lines; i++) {
+            long gross = Math.multiplyExact(unitCents[i], (long) quantities[i]);
+            long discount = Math.max(
+                    best(current.itemRules.get(itemIds[i]), gross, quantities[i], nowMillis),
+                    best(categories[i] != null ? current.categoryRules.get(categories[i]) : null, gross, quantities[i], nowMillis));
+            quote.grossCents[i] = gross;
+            quote.discountCents[i] = discount;
+            quote.subtotalCents += gross;
+            quote.lineDiscountCents += discount;
+            net += gross - discount;
+        }
+
+        long basketDiscount = 0;
+        for (CompiledRule rule : current.basketRules) {
+            if (rule.isLive(nowMillis) && net >= rule.minBasketCents) {
+                basketDiscount = Math.max(basketDiscount, rule.discount(net, 1));
+            }
+        }
+        quote.basketDiscountCents = basketDiscount;
+        spread(quote, basketDiscount, net);
+        net -= basketDiscount;
+
+        quote.taxCents = percentOf(net, taxBps);
+        quote.totalCents = net + quote.taxCents;
+        return quote;
+    }
+
+    /**
+     * Adds each line's share of the basket discount to its discount: the share is
+     * rounded down, and the cents left over go on the last lines that still have
+     * room (normally just the last line).
+     */
+    private static void spread(Quote quote, long basketDiscount, long net) {
+        if (basketDiscount == 0 || net == 0) {
+            return;
+        }
+        long remaining = basketDiscount;
+        for (int i = 0; i < quote.lines; i++) {
+            long share = Math.multiplyExact(quote.getLineTotalCents(i), basketDiscount) / net;
+            quote.discountCents[i] += share;
+            remaining -= share;
+        }
+        for (int i = quote.lines - 1; i >= 0 && remaining > 0; i--) {
+            long extra = Math.min(remaining, quote.getLineTotalCents(i));
+            quote.discountCents[i] += extra;
+            remaining -= extra;
+        }
+    }
+
+    private static long best(CompiledRule[] candidates, long gross, int quantity, long nowMillis) {
+        if (candidates == null) {
+            return 0;
+        }
+        long best = 0;
+        for (CompiledRule rule : candidates) {
+            if (rule.isLive(nowMillis)) {
+                best = Math.max(best, rule.discount(gross, quantity));
+            }
+        }
+        return best;
+    }
+
+    /**
+     * {@code cents * bps / 10000} rounded half up; both arguments are non-negative.
+     */
+    static long percentOf(long cents, long bps) {
+        return (Math.multiplyExact(cents, bps) + BPS / 2) / BPS;
+    }
+
+    public static long toCents(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal toAmount(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    private void validate(DiscountRule rule) {
+        if (rule.getScope() == null) {
+            throw new RuntimeException("Discount scope is required");
+        }
+        if ((rule.getPercentOff() == null) == (rule.getAmountOff() == null)) {
+            throw new RuntimeException("Exactly one of percentOff and amountOff must be set");
+        }
+        if (rule.getPercentOff() != null && (rule.getPercentOff().signum() < 0
+                || rule.getPercentOff().compareTo(BigDecimal.valueOf(100)) > 0
+                || rule.getPercentOff().stripTrailingZeros().scale() > 2)) {
+            throw new RuntimeException("percentOff must be between 0 and 100 with at most two decimals");
+        }
+        if (rule.getAmountOff() != null && rule.getAmountOff().signum() < 0) {
+            throw new RuntimeException("amountOff cannot be negative");
+        }
+        if (rule.getScope() == DiscountRule.Scope.ITEM && rule.getItemId() == null) {
+            throw new RuntimeException("ITEM discount needs an itemId");
+        }
+        if (rule.getScope() == DiscountRule.Scope.CATEGORY && (rule.getCategory() == null || rule.getCategory().isBlank())) {
+            throw new RuntimeException("CATEGORY discount needs a category");
+        }
+    }
+
+    /**
+     * Result of pricing one bill, in cents. Line arrays are indexed like the input.
+     */
+    public static class Quote {
+        private final int lines;
+        private final long[] unitCents;
+        private final int[] quantities;
+        private final long[] grossCents;
+        private final long[] discountCents;
+        private long subtotalCents;
+        private long lineDiscountCents;
+        private long basketDiscountCents;
+        private long taxCents;
+        private long totalCents;
+
+        Quote(long[] unitCents, int[] quantities) {
+            this.lines = unitCents.length;
+            this.unitCents = unitCents;
+            this.quantities = quantities;
+            this.grossCents = new long[lines];
+            this.discountCents = new long[lines];
+        }
+
+        public long getSubtotalCents() { return subtotalCents; }
+        public long getDiscountCents() { return lineDiscountCents + basketDiscountCents; }
+        public long getTaxCents() { return taxCents; }
+        public long getTotalCents() { return totalCents; }
+
+        public long getLineTotalCents(int line) {
+            return grossCents[line] - discountCents[line];
+        }
+
+        public void applyTo(Bill bill) {
+            bill.setSubtotalAmount(toAmount(subtotalCents));
+            bill.setDiscountAmount(toAmount(getDiscountCents()));
+            bill.setTaxAmount(toAmount(taxCents));
+            bill.setTotalAmount(toAmount(totalCents));
+        }
+
+        public void applyTo(BillItem billItem, int line) {
+            billItem.setQuantity(quantities[line]);
+            billItem.setUnitPrice(toAmount(unitCents[line]));
+            billItem.setDiscountAmount(toAmount(discountCents[line]));
+            billItem.setTotalPrice(toAmount(getLineTotalCents(line)));
+        }
+    }
+
+    /**
+     * A discount rule reduced to integers: either a percentage in basis points or
+     * an amount in cents, plus its validity window in epoch millis.
+     */
+    private static class CompiledRule {
+        private final long percentBps;
+        private final long amountCents;
+        private final long minBasketCents;
+        private final long startsAt;
+        private final long endsAt;
+
+        CompiledRule(DiscountRule rule) {
+            ZoneId zone = ZoneId.systemDefault();
+            // a percentage with two decimals, times 100, is basis points
+            this.percentBps = rule.getPercentOff() != null ? toCents(rule.getPercentOff()) : -1;
+            this.amountCents = rule.getAmountOff() != null ? toCents(rule.getAmountOff()) : 0;
+            this.minBasketCents = rule.getMinBasketAmount() != null ? toCents(rule.getMinBasketAmount()) : 0;
+            this.startsAt = rule.getStartsAt() != null ? rule.getStartsAt().atZone(zone).toInstant().toEpochMilli() : Long.MIN_VALUE;
+            this.endsAt = rule.getEndsAt() != null ? rule.getEndsAt().atZone(zone).toInstant().toEpochMilli() : Long.MAX_VALUE;
+        }
+
+        boolean isLive(long nowMillis) {
+            return nowMillis >= startsAt && nowMillis < endsAt;
+        }
+
+        /**
+         * Discount on {@code cents}; amount-off rules apply per unit and never
+         * exceed the amount being discounted.
+         */
+        long discount(long cents, int units) {
+            if (percentBps >= 0) {
+                return percentOf(cents, percentBps);
+            }
+            return Math.min(cents, Math.multiplyExact(amountCents, (long) units));
+        }
+    }
+
+    private static class RuleSet {
+        private final Map<Long, CompiledRule[]> itemRules = new HashMap<>();
+        private final Map<String, CompiledRule[]> categoryRules = new HashMap<>();
+        private final CompiledRule[] basketRules;
+
+        RuleSet(List<DiscountRule> rules) {
+            Map<Long, List<CompiledRule>> byItem = new HashMap<>();
+            Map<String, List<CompiledRule>> byCategory = new HashMap<>();
+            List<CompiledRule> basket = new ArrayList<>();
+            for (DiscountRule rule : rules) {
+                CompiledRule compiled = new CompiledRule(rule);
+                switch (rule.getScope()) {
+                    case ITEM -> byItem.computeIfAbsent(rule.getItemId(), k -> new ArrayList<>()).add(compiled);
+                    case CATEGORY -> byCategory.computeIfAbsent(rule.getCategory(), k -> new ArrayList<>()).add(compiled);
+                    case BASKET -> basket.add(compiled);
+                }
+            }
+            byItem.forEach((itemId, list) -> itemRules.put(itemId, list.toArray(new CompiledRule[0])));
+            byCategory.forEach((category, list) -> categoryRules.put(category, list.toArray(new CompiledRule[0])));
+            basketRules = basket.toArray(new CompiledRule[0]);
+        }
+    }
+}
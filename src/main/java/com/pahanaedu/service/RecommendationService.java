@@ -0,0 +1,362 @@
+package com.pahanaedu.service;
+
+import com.pahanaedu.event.BillCreatedEvent;
+import com.pahanaedu.repository.BillItemRepository;
+import com.pahanaedu.util.LongIntHashMap;
+import com.pahanaedu.util.LongObjectHashMap;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * "Frequently bought together" recommendations from an in-memory item-item
+ * co-occurrence matrix: for every item, how many bills also contained each other
+ * item. Rows are primitive long-to-int maps, so a catalog-sized matrix stays
+ * compact and a top-K query is a scan of one row.
+ *
+ * The matrix is built from all non-cancelled live and archived bills with a
+ * fork/join pass over bill id ranges, at startup and nightly, and kept current in
+ * between by adding each new bill after it commits. Bills created while a build
+ * runs are buffered and replayed onto the new matrix unless the chunk covering
+ * their id already read them: each chunk keeps the ids of the bills it saw, since
+ * a bill can commit after its chunk was read even though its id is below the
+ * build's upper bound. Cancellations only drop out at the next rebuild.
+ */
+@Service
+public class RecommendationService {
+
+    private static final Logger log = LoggerFactory.getLogger(RecommendationService.class);
+
+    @Autowired
+    private BillItemRepository billItemRepository;
+
+    @Autowired
+    private CatalogCache catalogCache;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${bookshop.recommendations.build-threads:4}")
+    private int buildThreads;
+
+    @Value("${bookshop.recommendations.build-chunk-bills:5000}")
+    private int chunkBills;
+
+    @Value("${bookshop.recommendations.max-basket-items:50}")
+    private int maxBasketItems;
+
+    @Value("${bookshop.recommendations.min-count:2}")
+    private int minCount;
+
+    private final ExecutorService startupExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "recommendation-builder");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private LongObjectHashMap<LongIntHashMap> matrix = new LongObjectHashMap<>();
+    private List<BillCreatedEvent> pending;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        startupExecutor.execute(() -> {
+            try {
+                rebuild();
+            } catch (RuntimeException e) {
+                log.warn("Initial recommendation build failed: {}", e.getMessage());
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        startupExecutor.shutdownNow();
+    }
+
+    @Scheduled(cron = "${bookshop.recommendations.rebuild-cron:0 45 3 * * *}")
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            pending = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        LongObjectHashMap<LongIntHashMap> built = new LongObjectHashMap<>();
+        List<SeenBills> seen = new ArrayList<>();
+        boolean completed = false;
+        try {
+            long[] bounds = billIdBounds();
+            if (bounds != null) {
+                TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+                readOnly.setReadOnly(true);
+                ForkJoinPool pool = new ForkJoinPool(Math.max(1, buildThreads));
+                try {
+                    built = pool.invoke(new BuildTask(readOnly, seen, bounds[0], bounds[1]));
+                } finally {
+                    pool.shutdown();
+                }
+            }
+            completed = true;
+        } finally {
+            lock.writeLock().lock();
+            try {
+                if (completed) {
+                    for (BillCreatedEvent event : pending) {
+                        if (!wasSeen(seen, event.getBillId())) {
+                            addBasket(built, event.getItemIds());
+                        }
+                    }
+                    matrix = built;
+                }
+                pending = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        log.info("Built co-purchase matrix for {} items in {} ms", built.size(), System.currentTimeMillis() - start);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBillCreated(BillCreatedEvent event) {
+        lock.writeLock().lock();
+        try {
+            addBasket(matrix, event.getItemIds());
+            if (pending != null) {
+                pending.add(event);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Items most often bought together with {@code itemId}, most frequent first.
+     * Items no longer in the catalog are left out.
+     */
+    public List<Map<String, Object>> recommend(Long itemId, int limit) {
+        TopK top = new TopK(limit);
+        lock.readLock().lock();
+        try {
+            LongIntHashMap row = matrix.get(itemId);
+            if (row == null) {
+                return List.of();
+            }
+            row.forEach(top::offer);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < top.size; i++) {
+            ids.add(top.keys[i]);
+        }
+        Map<Long, CatalogCache.CatalogItem> items = catalogCache.getAll(ids);
+
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (int i = 0; i < top.size; i++) {
+            CatalogCache.CatalogItem item = items.get(top.keys[i]);
+            if (item == null) {
+                continue;
+            }
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("itemId", item.getId());
+            result.put("itemCode", item.getItemCode());
+            result.put("name", item.getName());
+            result.put("price", item.getPrice());
+            result.put("stockQuantity", item.getStockQuantity());
+            result.put("boughtTogether", top.counts[i]);
+            results.add(result);
+        }
+        return results;
+    }
+
+    private long[] billIdBounds() {
+        Object[] row = billItemRepository.findBillIdBounds().get(0);
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < row.length; i += 2) {
+            if (row[i] != null) {
+                min = Math.min(min, ((Number) row[i]).longValue());
+                max = Math.max(max, ((Number) row[i + 1]).longValue());
+            }
+        }
+        return min <= max ? new long[] { min, max } : null;
+    }
+
+    /**
+     * Counts every ordered pair of distinct items in the basket. Very large
+     * baskets are bulk orders that say little about what goes together and cost
+     * quadratically, so they are skipped.
+     */
+    private void addBasket(LongObjectHashMap<LongIntHashMap> target, long[] itemIds) {
+        long[] distinct = Arrays.stream(itemIds).sorted().distinct().toArray();
+        if (distinct.length < 2 || distinct.length > maxBasketItems) {
+            return;
+        }
+        for (long item : distinct) {
+            LongIntHashMap row = target.computeIfAbsent(item, key -> new LongIntHashMap());
+            for (long other : distinct) {
+                if (other != item) {
+                    row.addTo(other, 1);
+                }
+            }
+        }
+    }
+
+    private static boolean wasSeen(List<SeenBills> seen, long billId) {
+        for (SeenBills chunk : seen) {
+            if (billId >= chunk.fromId && billId <= chunk.toId) {
+                return Arrays.binarySearch(chunk.billIds, billId) >= 0;
+            }
+        }
+        return false;
+    }
+
+    private static void merge(LongObjectHashMap<LongIntHashMap> into, LongObjectHashMap<LongIntHashMap> from) {
+        from.forEach((item, row) -> {
+            LongIntHashMap target = into.get(item);
+            if (target == null) {
+                into.computeIfAbsent(item, key -> row);
+            } else {
+                target.addAll(row);
+            }
+        });
+    }
+
+    /**
+     * Builds the matrix for bills {@code fromId..toId}: ranges larger than one
+     * chunk are split in half, each leaf reads its bill lines and counts them in
+     * a private matrix, and halves are merged on the way back up. Each leaf adds
+     * the ids of the bills it read to {@code seen}.
+     */
+    @SuppressWarnings("serial") // ForkJoinTask is Serializable, but these tasks never leave the pool
+    private class BuildTask extends RecursiveTask<LongObjectHashMap<LongIntHashMap>> {
+        private final TransactionTemplate readOnly;
+        private final List<SeenBills> seen;
+        private final long fromId;
+        private final long toId;
+
+        BuildTask(TransactionTemplate readOnly, List<SeenBills> seen, long fromId, long toId) {
+            this.readOnly = readOnly;
+            this.seen = seen;
+            this.fromId = fromId;
+            this.toId = toId;
+        }
+
+        @Override
+        protected LongObjectHashMap<LongIntHashMap> compute() {
+            if (toId - fromId < chunkBills) {
+                return countRange();
+            }
+            long middle = fromId + (toId - fromId) / 2;
+            BuildTask left = new BuildTask(readOnly, seen, fromId, middle);
+            BuildTask right = new BuildTask(readOnly, seen, middle + 1, toId);
+            left.fork();
+            LongObjectHashMap<LongIntHashMap> rightResult = right.compute();
+            LongObjectHashMap<LongIntHashMap> leftResult = left.join();
+            if (leftResult.size() >= rightResult.size()) {
+                merge(leftResult, rightResult);
+                return leftResult;
+            }
+            merge(rightResult, leftResult);
+            return rightResult;
+        }
+
+        private LongObjectHashMap<LongIntHashMap> countRange() {
+            List<Object[]> lines = readOnly.execute(status -> billItemRepository.findBasketLines(fromId, toId));
+            LongObjectHashMap<LongIntHashMap> local = new LongObjectHashMap<>();
+            long[] billIds = new long[64];
+            int bills = 0;
+            long[] basket = new long[16];
+            int size = 0;
+            long currentBill = 0;
+            for (Object[] line : lines) {
+                long billId = ((Number) line[0]).longValue();
+                if (billId != currentBill) {
+                    addBasket(local, Arrays.copyOf(basket, size));
+                    currentBill = billId;
+                    size = 0;
+                    if (bills == billIds.length) {
+                        billIds = Arrays.copyOf(billIds, bills * 2);
+                    }
+                    billIds[bills++] = billId;
+                }
+                if (size == basket.length) {
+                    basket = Arrays.copyOf(basket, size * 2);
+                }
+                basket[size++] = ((Number) line[1]).longValue();
+            }
+            addBasket(local, Arrays.copyOf(basket, size));
+            SeenBills chunk = new SeenBills(fromId, toId, Arrays.copyOf(billIds, bills));
+            synchronized (seen) {
+                seen.add(chunk);
+            }
+            return local;
+        }
+    }
+
+    /**
+     * The ids, ascending, of the bills one build chunk read from {@code fromId..toId}.
+     */
+    private static class SeenBills {
+        private final long fromId;
+        private final long toId;
+        private final long[] billIds;
+
+        SeenBills(long fromId, long toId, long[] billIds) {
+            this.fromId = fromId;
+            this.toId = toId;
+            this.billIds = billIds;
+        }
+    }
+
+    /**
+     * Keeps the {@code k} largest counts seen, sorted descending, in two arrays.
+     */
+    private class TopK {
+        private final long[] keys;
+        private final int[] counts;
+        private int size;
+
+        TopK(int k) {
+            keys = new long[k];
+            counts = new int[k];
+        }
+
+        void offer(long key, int count) {
+            if (count < minCount || (size == keys.length && count <= counts[size - 1])) {
+                return;
+            }
+            int position = size < keys.length ? size++ : size - 1;
+            while (position > 0 && counts[position - 1] < count) {
+                keys[position] = keys[position - 1];
+                counts[position] = counts[position - 1];
+                position--;
+            }
+            keys[position] = key;
+            counts[position] = count;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.pahanaedu.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Component
+public class ReservationExpiryJob {
+
+    private static final Logger log = LoggerFactory.getLogger(ReservationExpiryJob.class);
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private BillService billService;
+
+    @Value("${bookshop.reservation.batch-size:500}")
+    private int batchSize;
+
+    @Scheduled(fixedDelayString = "${bookshop.reservation.tick-ms:1000}")
+    public void releaseExpiredReservations() {
+        List<Long> expired = stockReservationService.pollExpired();
+        for (int from = 0; from < expired.size(); from += batchSize) {
+            List<Long> batch = expired.subList(from, Math.min(from + batchSize, expired.size()));
+            try {
+                billService.cancelExpiredBills(batch);
+            } catch (RuntimeException e) {
+                log.warn("Failed to release {} expired reservations, retrying in a minute", batch.size(), e);
+                LocalDateTime retryAt = LocalDateTime.now().plusMinutes(1);
+                batch.forEach(billId -> stockReservationService.reserve(billId, retryAt));
+            }
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package com.pahanaedu.service;
+
+import com.pahanaedu.entity.SalesVelocity;
+import com.pahanaedu.repository.BillItemRepository;
+import com.pahanaedu.repository.ItemRepository;
+import com.pahanaedu.repository.SalesVelocityRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Sales velocity and reorder suggestions. Each item's velocity is an
+ * exponentially weighted moving average of units sold per day; it is stored with
+ * the last day folded into it, so a run only reads the day buckets since then
+ * instead of all of history. Runs split the item id range into chunks folded in
+ * parallel, each chunk in its own transaction.
+ *
+ * The reorder point covers expected sales over the supplier lead time plus a
+ * safety margin; the suggested order brings stock up to the target cover.
+ */
+@Service
+public class SalesForecastService {
+
+    private static final Logger log = LoggerFactory.getLogger(SalesForecastService.class);
+
+    @Autowired
+    private BillItemRepository billItemRepository;
+
+    @Autowired
+    private SalesVelocityRepository salesVelocityRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private CatalogCache catalogCache;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${bookshop.forecast.alpha:0.1}")
+    private double alpha;
+
+    @Value("${bookshop.forecast.history-days:180}")
+    private int historyDays;
+
+    @Value("${bookshop.forecast.lead-time-days:7}")
+    private int leadTimeDays;
+
+    @Value("${bookshop.forecast.safety-days:3}")
+    private int safetyDays;
+
+    @Value("${bookshop.forecast.target-cover-days:30}")
+    private int targetCoverDays;
+
+    @Value("${bookshop.forecast.threads:4}")
+    private int threads;
+
+    @Value("${bookshop.forecast.chunk-size:500}")
+    private int chunkSize;
+
+    private final ExecutorService startupExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "forecast-refresher");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile Map<Long, Double> velocities = Map.of();
+    private volatile LocalDate throughDay;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void refreshOnStartup() {
+        startupExecutor.execute(() -> {
+            try {
+                refresh();
+            } catch (RuntimeException e) {
+                log.warn("Sales forecast refresh failed: {}", e.getMessage());
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        startupExecutor.shutdownNow();
+    }
+
+    /**
+     * Folds every complete day since the last run into the stored velocities. The
+     * first run starts {@code history-days} back.
+     */
+    @Scheduled(cron = "${bookshop.forecast.cron:0 20 0 * * *}")
+    public synchronized Map<String, Object> refresh() {
+        long start = System.currentTimeMillis();
+        LocalDate through = LocalDate.now().minusDays(1);
+        LocalDate watermark = salesVelocityRepository.findWatermark().orElse(through.minusDays(historyDays));
+        long updated = 0;
+
+        Object[] range = itemRepository.findIdRange().get(0);
+        if (watermark.isBefore(through) && range[0] != null) {
+            long minId = ((Number) range[0]).longValue();
+            long maxId = ((Number) range[1]).longValue();
+            ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+            try {
+                List<Future<Integer>> chunks = new ArrayList<>();
+                for (long from = minId; from <= maxId; from += chunkSize) {
+                    long chunkFrom = from;
+                    long chunkTo = Math.min(maxId, from + chunkSize - 1);
+                    chunks.add(executor.submit(() -> transactionTemplate.execute(
+                            status -> foldChunk(chunkFrom, chunkTo, watermark, through))));
+                }
+                for (Future<Integer> chunk : chunks) {
+                    updated += chunk.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Sales forecast interrupted");
+            } catch (ExecutionException e) {
+                throw new RuntimeException("Sales forecast failed: " + e.getCause().getMessage(), e.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        loadVelocities();
+        if (updated > 0) {
+            log.info("Updated sales velocity of {} items through {}", updated, through);
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("throughDay", throughDay);
+        result.put("itemsUpdated", updated);
+        result.put("durationMs", System.currentTimeMillis() - start);
+        return result;
+    }
+
+    /**
+     * Items at or below their reorder point, fewest days of cover first; with
+     * {@code all}, every item that has sold within the history window.
+     */
+    public Map<String, Object> reorderReport(boolean all) {
+        Map<Long, Double> current = velocities;
+        Map<Long, CatalogCache.CatalogItem> items = catalogCache.getAll(current.keySet());
+        List<Map<String, Object>> rows = new ArrayList<>();
+
+        for (CatalogCache.CatalogItem item : items.values()) {
+            double velocity = current.get(item.getId());
+            int stock = item.getStockQuantity();
+            long reorderPoint = (long) Math.ceil(velocity * (leadTimeDays + safetyDays));
+            boolean reorder = velocity > 0 && stock <= reorderPoint;
+            if (!all && !reorder) {
+                continue;
+            }
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("itemId", item.getId());
+            row.put("itemCode", item.getItemCode());
+            row.put("name", item.getName());
+            row.put("stockQuantity", stock);
+            row.put("dailyVelocity", round(velocity, 2));
+            row.put("daysOfCover", velocity > 0 ? round(stock / velocity, 1) : null);
+            row.put("reorderPoint", reorderPoint);
+            row.put("suggestedQuantity", Math.max(0, (long) Math.ceil(velocity * (leadTimeDays + targetCoverDays)) - stock));
+            row.put("reorder", reorder);
+            rows.add(row);
+        }
+        rows.sort(Comparator.comparing((Map<String, Object> row) -> (BigDecimal) row.get("daysOfCover"),
+                Comparator.nullsLast(Comparator.naturalOrder())));
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("throughDay", throughDay);
+        report.put("leadTimeDays", leadTimeDays);
+        report.put("safetyDays", safetyDays);
+        report.put("targetCoverDays", targetCoverDays);
+        report.put("items", rows);
+        return report;
+    }
+
+    /**
+     * Folds the days after {@code watermark} up to {@code through} into the
+     * velocities of items {@code fromId..toId}. Items already past the watermark
+     * (a chunk of an earlier run that committed) skip the days they have.
+     */
+    private int foldChunk(long fromId, long toId, LocalDate watermark, LocalDate through) {
+        Map<Long, SalesVelocity> state = new HashMap<>();
+        for (SalesVelocity velocity : salesVelocityRepository.findByItemIdBetween(fromId, toId)) {
+            state.put(velocity.getItemId(), velocity);
+        }
+
+        LocalDate firstDay = watermark.plusDays(1);
+        long itemId = 0;
+        long day = -1;
+        long units = 0;
+        // live and archived bills can both have a bucket for the same item and day
+        for (Object[] row : billItemRepository.findDailySales(fromId, toId, firstDay, through.plusDays(1))) {
+            long rowItem = ((Number) row[0]).longValue();
+            long rowDay = ((Number) row[1]).longValue();
+            if (rowItem != itemId || rowDay != day) {
+                if (units > 0) {
+                    fold(state, itemId, watermark, firstDay.plusDays(day), units);
+                }
+                itemId = rowItem;
+                day = rowDay;
+                units = 0;
+            }
+            units += ((Number) row[2]).longValue();
+        }
+        if (units > 0) {
+            fold(state, itemId, watermark, firstDay.plusDays(day), units);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        for (SalesVelocity velocity : state.values()) {
+            long quietDays = ChronoUnit.DAYS.between(velocity.getThroughDay(), through);
+            if (quietDays > 0) {
+                velocity.setDailyVelocity(velocity.getDailyVelocity() * Math.pow(1 - alpha, quietDays));
+                velocity.setThroughDay(through);
+            }
+            velocity.setUpdatedAt(now);
+        }
+        salesVelocityRepository.saveAll(state.values());
+        return state.size();
+    }
+
+    /**
+     * Decays the average over the days without sales since it was last updated,
+     * then adds the day's units.
+     */
+    private void fold(Map<Long, SalesVelocity> state, long itemId, LocalDate watermark, LocalDate day, long units) {
+        SalesVelocity velocity = state.computeIfAbsent(itemId, id -> new SalesVelocity(id, watermark));
+        long gap = ChronoUnit.DAYS.between(velocity.getThroughDay(), day);
+        if (gap <= 0) {
+            return;
+        }
+        double decayed = velocity.getDailyVelocity() * Math.pow(1 - alpha, gap - 1);
+        velocity.setDailyVelocity(alpha * units + (1 - alpha) * decayed);
+        velocity.setThroughDay(day);
+    }
+
+    private void loadVelocities() {
+        Map<Long, Double> loaded = new HashMap<>();
+        LocalDate oldest = null;
+        for (SalesVelocity velocity : salesVelocityRepository.findAll()) {
+            loaded.put(velocity.getItemId(), velocity.getDailyVelocity());
+            if (oldest == null || velocity.getThroughDay().isBefore(oldest)) {
+                oldest = velocity.getThroughDay();
+            }
+        }
+        velocities = loaded;
+        throughDay = oldest;
+    }
+
+    private static BigDecimal round(double value, int scale) {
+        return BigDecimal.valueOf(value).setScale(scale, RoundingMode.HALF_UP);
+    }
+}
@@ -0,0 +1,328 @@
+package com.pahanaedu.service;
+
+import com.pahanaedu.repository.BillRepository;
+import com.pahanaedu.repository.CustomerRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+/**
+ * Month-end customer statements. Customers are split into fixed id ranges; each
+ * range is rendered from two set-based queries (every bill line of the range's
+ * customers in the month, and their outstanding PENDING totals) and written to
+ * its own file in {@code <dir>/<yyyy-MM>/}. Ranges run in parallel on a fork/join
+ * pool.
+ *
+ * A range file is written under a temporary name and renamed into place, so a
+ * range is done exactly when its file exists. A restarted run skips those ranges
+ * and reuses the range size recorded in the month's manifest.
+ */
+@Service
+public class StatementService {
+
+    private static final Logger log = LoggerFactory.getLogger(StatementService.class);
+    private static final String MANIFEST = "manifest.properties";
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private BillRepository billRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${bookshop.statements.dir:data/statements}")
+    private String statementsDir;
+
+    @Value("${bookshop.statements.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${bookshop.statements.threads:4}")
+    private int threads;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "statement-runner");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicReference<YearMonth> running = new AtomicReference<>();
+
+    /**
+     * Hands the run off the scheduler thread, which the frequent jobs (reservation
+     * expiry, hot-stock and journal flushes, outbox relay) share.
+     */
+    @Scheduled(cron = "${bookshop.statements.cron:0 0 4 1 * *}")
+    public void generatePreviousMonth() {
+        start(YearMonth.now().minusMonths(1));
+    }
+
+    /**
+     * Starts generating {@code month} on the statement thread unless a run is
+     * already in progress, and returns the month's status.
+     */
+    public Map<String, Object> start(YearMonth month) {
+        if (running.get() == null) {
+            executor.execute(() -> {
+                try {
+                    generate(month);
+                } catch (RuntimeException e) {
+                    log.warn("Statement run for {} failed: {}", month, e.getMessage());
+                }
+            });
+        }
+        return status(month);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public void generate(YearMonth month) {
+        if (!running.compareAndSet(null, month)) {
+            throw new RuntimeException("Statement run for " + running.get() + " is already in progress");
+        }
+        try {
+            run(month);
+        } finally {
+            running.set(null);
+        }
+    }
+
+    public Map<String, Object> status(YearMonth month) {
+        Path directory = monthDirectory(month);
+        Properties manifest = readManifest(directory);
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("month", month.toString());
+        status.put("running", month.equals(running.get()));
+        status.put("startedAt", manifest.getProperty("startedAt"));
+        status.put("completedAt", manifest.getProperty("completedAt"));
+        status.put("ranges", manifest.getProperty("ranges"));
+        status.put("rangesDone", countRangeFiles(directory));
+        return status;
+    }
+
+    private void run(YearMonth month) {
+        long start = System.currentTimeMillis();
+        Object[] range = customerRepository.findIdRange().get(0);
+        if (range[0] == null) {
+            return;
+        }
+        long maxId = ((Number) range[1]).longValue();
+
+        Path directory = monthDirectory(month);
+        createDirectory(directory);
+        Properties manifest = readManifest(directory);
+        int rangeSize = Integer.parseInt(manifest.getProperty("chunkSize", String.valueOf(chunkSize)));
+        List<long[]> pending = new ArrayList<>();
+        int ranges = 0;
+        // ranges start at id 1 so they stay the same as customers are added
+        for (long from = 1; from <= maxId; from += rangeSize) {
+            ranges++;
+            long[] ids = { from, from + rangeSize - 1 };
+            if (!Files.exists(rangeFile(directory, ids[0], ids[1]))) {
+                pending.add(ids);
+            }
+        }
+        manifest.setProperty("chunkSize", String.valueOf(rangeSize));
+        manifest.setProperty("ranges", String.valueOf(ranges));
+        manifest.putIfAbsent("startedAt", LocalDateTime.now().toString());
+        manifest.remove("completedAt");
+        writeManifest(directory, manifest);
+        if (pending.size() < ranges) {
+            log.info("Resuming statements for {}: {} of {} ranges already written", month, ranges - pending.size(), ranges);
+        }
+
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        LocalDateTime periodStart = month.atDay(1).atStartOfDay();
+        LocalDateTime periodEnd = month.plusMonths(1).atDay(1).atStartOfDay();
+
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads));
+        try {
+            List<Future<Integer>> tasks = new ArrayList<>();
+            for (long[] ids : pending) {
+                tasks.add(pool.submit(() -> writeRange(readOnly, directory, month, ids[0], ids[1], periodStart, periodEnd)));
+            }
+            int statements = 0;
+            for (Future<Integer> task : tasks) {
+                statements += task.get();
+            }
+            manifest.setProperty("completedAt", LocalDateTime.now().toString());
+            writeManifest(directory, manifest);
+            log.info("Wrote {} statements for {} in {} ms", statements, month, System.currentTimeMillis() - start);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Statement run interrupted");
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Statement run failed: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private int writeRange(TransactionTemplate readOnly, Path directory, YearMonth month, long fromId, long toId,
+                           LocalDateTime periodStart, LocalDateTime periodEnd) throws IOException {
+        List<Object[]> customers = new ArrayList<>();
+        List<Object[]> lines = new ArrayList<>();
+        Map<Long, Object[]> outstanding = new HashMap<>();
+        readOnly.executeWithoutResult(status -> {
+            customers.addAll(customerRepository.findStatementRows(fromId, toId));
+            if (!customers.isEmpty()) {
+                lines.addAll(billRepository.findStatementLines(fromId, toId, periodStart, periodEnd));
+                for (Object[] row : billRepository.findOutstandingByCustomer(fromId, toId)) {
+                    outstanding.put(((Number) row[0]).longValue(), row);
+                }
+            }
+        });
+
+        Path target = rangeFile(directory, fromId, toId);
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            int line = 0;
+            for (Object[] customer : customers) {
+                long customerId = ((Number) customer[0]).longValue();
+                int first = line;
+                while (line < lines.size() && ((Number) lines.get(line)[0]).longValue() == customerId) {
+                    line++;
+                }
+                writer.write(render(month, customer, lines.subList(first, line), outstanding.get(customerId)));
+            }
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return customers.size();
+    }
+
+    private static String render(YearMonth month, Object[] customer, List<Object[]> lines, Object[] outstanding) {
+        StringBuilder out = new StringBuilder(512);
+        out.append("STATEMENT ").append(month).append('\n');
+        out.append("Account: ").append(customer[1]).append('\n');
+        out.append("Customer: ").append(customer[2]).append('\n');
+        if (customer[3] != null) {
+            out.append("Address: ").append(customer[3]).append('\n');
+        }
+        out.append('\n');
+
+        int bills = 0;
+        BigDecimal billed = BigDecimal.ZERO;
+        BigDecimal paid = BigDecimal.ZERO;
+        long currentBill = 0;
+        for (Object[] line : lines) {
+            long billId = ((Number) line[1]).longValue();
+            if (billId != currentBill) {
+                currentBill = billId;
+                String status = String.valueOf(line[4]);
+                BigDecimal total = (BigDecimal) line[5];
+                out.append(String.format("%-10s  %-20s  %-9s  %12s%n", line[3], line[2], status, total));
+                if (!"CANCELLED".equals(status)) {
+                    bills++;
+                    billed = billed.add(total);
+                    if ("PAID".equals(status)) {
+                        paid = paid.add(total);
+                    }
+                }
+            }
+            String itemName = line[6] != null ? (String) line[6] : "(deleted item)";
+            out.append(String.format("    %-40s %5s x %10s = %12s%n", itemName, line[7], line[8], line[9]));
+        }
+        if (lines.isEmpty()) {
+            out.append("No bills this month.\n");
+        }
+
+        out.append('\n');
+        out.append(String.format("Bills: %d   Billed: %s   Paid: %s%n", bills, billed, paid));
+        if (outstanding != null) {
+            out.append(String.format("Outstanding: %s on %s pending bill(s)%n", outstanding[2], outstanding[1]));
+        } else {
+            out.append("Outstanding: 0.00\n");
+        }
+        out.append("\f\n");
+        return out.toString();
+    }
+
+    private Path monthDirectory(YearMonth month) {
+        return Paths.get(statementsDir, month.toString());
+    }
+
+    private static void createDirectory(Path directory) {
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create statement directory " + directory, e);
+        }
+    }
+
+    private static Path rangeFile(Path directory, long fromId, long toId) {
+        return directory.resolve(String.format("customers-%010d-%010d.txt", fromId, toId));
+    }
+
+    private static long countRangeFiles(Path directory) {
+        if (!Files.isDirectory(directory)) {
+            return 0;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(f -> f.getFileName().toString().endsWith(".txt")).count();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not list " + directory, e);
+        }
+    }
+
+    private static Properties readManifest(Path directory) {
+        Properties manifest = new Properties();
+        Path file = directory.resolve(MANIFEST);
+        if (Files.exists(file)) {
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                manifest.load(reader);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read " + file, e);
+            }
+        }
+        return manifest;
+    }
+
+    private static void writeManifest(Path directory, Properties manifest) {
+        Path file = directory.resolve(MANIFEST);
+        Path temp = directory.resolve(MANIFEST + ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                manifest.store(writer, null);
+            }
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write " + file, e);
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.pahanaedu.service;
+
+import com.pahanaedu.entity.StockMovement;
+import com.pahanaedu.entity.StockSnapshot;
+import com.pahanaedu.repository.ItemRepository;
+import com.pahanaedu.repository.StockMovementRepository;
+import com.pahanaedu.repository.StockSnapshotRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Append-only ledger of stock movements. Every change to {@code items.stock_quantity}
+ * writes a movement in the same transaction, so the sum of an item's movements is
+ * its stock. Periodic per-item snapshots bound the work of computing a balance: the
+ * balance at any time is the latest snapshot before it plus the movements after
+ * the snapshot.
+ * <p>
+ * AUTO_INCREMENT ids are handed out at insert time but become visible at commit,
+ * so a snapshot must not pass an id whose transaction is still open: that
+ * movement would commit below the watermark and never be counted. Each run
+ * therefore records the current highest id and the database time as a candidate,
+ * and only snapshots up to a candidate once every transaction that was open when
+ * it was recorded has ended (checked in {@code information_schema.INNODB_TRX},
+ * which needs the PROCESS privilege; without it the run falls back to leaving the
+ * last {@code snapshot-lag-seconds} of movements for later).
+ */
+@Service
+public class StockLedgerService {
+
+    private static final Logger log = LoggerFactory.getLogger(StockLedgerService.class);
+
+    @Autowired
+    private StockMovementRepository stockMovementRepository;
+
+    @Autowired
+    private StockSnapshotRepository stockSnapshotRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${bookshop.stock-ledger.snapshot-lag-seconds:60}")
+    private long snapshotLagSeconds;
+
+    @Value("${bookshop.stock-ledger.reconcile-threads:4}")
+    private int reconcileThreads;
+
+    @Value("${bookshop.stock-ledger.reconcile-chunk-size:1000}")
+    private int reconcileChunkSize;
+
+    /** Highest id and database time from the previous run, not yet known to be safe. */
+    private Candidate pending;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(Long itemId, Long branchId, int delta, StockMovement.Reason reason, Long billId) {
+        if (delta != 0) {
+            stockMovementRepository.save(new StockMovement(itemId, branchId, delta, reason, billId));
+        }
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordAll(List<StockMovement> movements) {
+        stockMovementRepository.saveAll(movements);
+    }
+
+    public List<StockMovement> getMovements(Long itemId, LocalDateTime from, LocalDateTime to) {
+        return stockMovementRepository.findByItemIdAndCreatedAtBetweenOrderByIdAsc(itemId, from, to);
+    }
+
+    @Transactional(readOnly = true)
+    public long balanceAt(Long itemId, LocalDateTime at) {
+        StockSnapshot snapshot = stockSnapshotRepository
+                .findFirstByItemIdAndTakenAtLessThanEqualOrderByIdDesc(itemId, at).orElse(null);
+        long base = snapshot != null ? snapshot.getBalance() : 0;
+        long afterId = snapshot != null ? snapshot.getLastMovementId() : 0;
+        return base + stockMovementRepository.sumDeltas(itemId, afterId, at);
+    }
+
+    /**
+     * Snapshots every item that moved since the last run, up to the highest
+     * movement id no open transaction can still commit below.
+     */
+    @Scheduled(cron = "${bookshop.stock-ledger.snapshot-cron:0 0 * * * *}")
+    public synchronized int takeSnapshots() {
+        Candidate safe = safeWatermark();
+        if (safe == null) {
+            return 0;
+        }
+        Integer created = transactionTemplate.execute(status -> {
+            long after = stockSnapshotRepository.findWatermark();
+            return safe.movementId > after ? stockSnapshotRepository.snapshotRange(after, safe.movementId, safe.at) : 0;
+        });
+        if (created != null && created > 0) {
+            log.info("Took {} stock snapshots", created);
+        }
+        return created != null ? created : 0;
+    }
+
+    /**
+     * The newest candidate, this run's or the previous one, that no transaction
+     * open when it was taken is still running; null if neither is safe yet.
+     */
+    private Candidate safeWatermark() {
+        Candidate current = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(MAX(id), 0), NOW() FROM stock_movements",
+                (rs, rowNum) -> new Candidate(rs.getLong(1), rs.getObject(2, LocalDateTime.class)));
+        LocalDateTime oldestOpen;
+        try {
+            oldestOpen = jdbcTemplate.queryForObject("SELECT MIN(trx_started) FROM information_schema.INNODB_TRX " +
+                    "WHERE trx_mysql_thread_id <> CONNECTION_ID()", LocalDateTime.class);
+        } catch (DataAccessException e) {
+            log.warn("Cannot read open transactions ({}); snapshotting movements older than {}s instead",
+                    e.getMessage(), snapshotLagSeconds);
+            LocalDateTime cutoff = LocalDateTime.now().minusSeconds(snapshotLagSeconds);
+            return new Candidate(stockMovementRepository.findLastIdBefore(cutoff).orElse(0L), cutoff);
+        }
+
+        Candidate previous = pending;
+        if (oldestOpen == null || oldestOpen.isAfter(current.at)) {
+            pending = null;
+            return current;
+        }
+        pending = current;
+        if (previous != null && oldestOpen.isAfter(previous.at)) {
+            return previous;
+        }
+        if (previous != null) {
+            log.warn("A transaction open since {} is holding back stock snapshots", oldestOpen);
+        }
+        return null;
+    }
+
+    /**
+     * Compares the ledger balance and the branch stock total with
+     * {@code items.stock_quantity} for every item.
+     * The item id range is split into chunks checked in parallel, each chunk in its
+     * own read-only transaction.
+     */
+    @Scheduled(cron = "${bookshop.stock-ledger.reconcile-cron:0 15 3 * * *}")
+    public Map<String, Object> reconcile() {
+        long start = System.currentTimeMillis();
+        Object[] range = itemRepository.findIdRange().get(0);
+        List<Map<String, Object>> mismatches = new ArrayList<>();
+        long checked = 0;
+
+        if (range[0] != null) {
+            long minId = ((Number) range[0]).longValue();
+            long maxId = ((Number) range[1]).longValue();
+            TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+            readOnly.setReadOnly(true);
+
+            ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, reconcileThreads));
+            try {
+                List<Future<List<Object[]>>> chunks = new ArrayList<>();
+                for (long from = minId; from <= maxId; from += reconcileChunkSize) {
+                    long chunkFrom = from;
+                    long chunkTo = Math.min(maxId, from + reconcileChunkSize - 1);
+                    chunks.add(executor.submit(() -> readOnly.execute(
+                            status -> stockMovementRepository.compareBalances(chunkFrom, chunkTo))));
+                }
+                for (Future<List<Object[]>> chunk : chunks) {
+                    for (Object[] row : chunk.get()) {
+                        checked++;
+                        long stock = row[1] != null ? ((Number) row[1]).longValue() : 0;
+                        long ledger = ((Number) row[2]).longValue();
+                        long branches = ((Number) row[3]).longValue();
+                        if (stock != ledger || stock != branches) {
+                            Map<String, Object> mismatch = new LinkedHashMap<>();
+                            mismatch.put("itemId", ((Number) row[0]).longValue());
+                            mismatch.put("stockQuantity", stock);
+                            mismatch.put("ledgerBalance", ledger);
+                            mismatch.put("branchTotal", branches);
+                            mismatch.put("difference", stock - ledger);
+                            mismatches.add(mismatch);
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Stock reconciliation interrupted");
+            } catch (ExecutionException e) {
+                throw new RuntimeException("Stock reconciliation failed: " + e.getCause().getMessage(), e.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        if (!mismatches.isEmpty()) {
+            log.warn("Stock reconciliation found {} items whose stock differs from the ledger or branch stock", mismatches.size());
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("itemsChecked", checked);
+        result.put("mismatches", mismatches);
+        result.put("durationMs", System.currentTimeMillis() - start);
+        return result;
+    }
+
+    private static class Candidate {
+        private final long movementId;
+        private final LocalDateTime at;
+
+        Candidate(long movementId, LocalDateTime at) {
+            this.movementId = movementId;
+            this.at = at;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.pahanaedu.service;
+
+import com.pahanaedu.entity.Bill;
+import com.pahanaedu.repository.BillRepository;
+import com.pahanaedu.util.AfterCommit;
+import com.pahanaedu.util.HashedTimerWheel;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+/**
+ * Tracks the stock held by PENDING online orders. Each reservation is a timer on a
+ * hashed wheel keyed by bill id; the expiry job drains the wheel and cancels the
+ * bills in batches, so open reservations cost no queries until they expire.
+ */
+@Service
+public class StockReservationService {
+
+    @Autowired
+    private BillRepository billRepository;
+
+    @Value("${bookshop.reservation.ttl-minutes:30}")
+    private long ttlMinutes;
+
+    @Value("${bookshop.reservation.tick-ms:1000}")
+    private long tickMs;
+
+    @Value("${bookshop.reservation.wheel-size:4096}")
+    private int wheelSize;
+
+    private HashedTimerWheel<Long> wheel;
+
+    @PostConstruct
+    public void init() {
+        wheel = new HashedTimerWheel<>(tickMs, wheelSize, System.currentTimeMillis());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOpenReservations() {
+        for (Object[] row : billRepository.findReservations(Bill.Status.PENDING)) {
+            wheel.schedule((Long) row[0], toEpochMillis((LocalDateTime) row[1]));
+        }
+    }
+
+    public LocalDateTime newExpiry() {
+        return LocalDateTime.now().plusMinutes(ttlMinutes);
+    }
+
+    /**
+     * Starts the expiry timer for a bill. Inside a transaction the wheel is only
+     * touched after commit, so a rolled back order or status change leaves it as is.
+     */
+    public void reserve(Long billId, LocalDateTime expiresAt) {
+        long deadline = toEpochMillis(expiresAt);
+        AfterCommit.run(() -> wheel.schedule(billId, deadline));
+    }
+
+    public void release(Long billId) {
+        AfterCommit.run(() -> wheel.cancel(billId));
+    }
+
+    public List<Long> pollExpired() {
+        return wheel.advance(System.currentTimeMillis());
+    }
+
+    public int getOpenReservationCount() {
+        return wheel.size();
+    }
+
+    private long toEpochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
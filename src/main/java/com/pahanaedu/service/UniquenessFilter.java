@@ -0,0 +1,215 @@
+package com.pahanaedu.service;
+
+import com.pahanaedu.repository.CustomerRepository;
+import com.pahanaedu.repository.ItemRepository;
+import com.pahanaedu.repository.UserRepository;
+import com.pahanaedu.util.BloomFilter;
+import com.pahanaedu.util.Collation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Bloom filters over usernames, account numbers and item codes, so registration
+ * and creation can skip the "is it taken?" query for values that are definitely
+ * new. A filter only answers "definitely not taken" or "maybe"; on "maybe" the
+ * query runs as before, and the unique constraints stay the final authority.
+ * Values are added when they are saved, before commit, so a value is in the
+ * filter before it can commit; a rolled-back value only costs a false positive.
+ * The columns use utf8mb4_0900_ai_ci, which ignores case and accents, so values
+ * are decomposed, stripped of combining marks and lower-cased before hashing.
+ * That does not cover every equivalence of the collation (ß equals ss, for
+ * one), so a value that is not plain ASCII after folding is always queried, and
+ * a duplicate that still slips through is rejected by the unique constraint.
+ * Filters are built at startup and rebuilt from the table once they fill past
+ * twice the target false-positive rate. Until a filter is built every check
+ * queries.
+ */
+@Service
+public class UniquenessFilter {
+
+    public enum Key { USERNAME, ACCOUNT_NUMBER, ITEM_CODE }
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Value("${bookshop.uniqueness.enabled:true}")
+    private boolean enabled;
+
+    @Value("${bookshop.uniqueness.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    @Value("${bookshop.uniqueness.min-capacity:10000}")
+    private long minCapacity;
+
+    @Value("${bookshop.uniqueness.headroom:2}")
+    private double headroom;
+
+    private final Map<Key, State> states = new EnumMap<>(Key.class);
+
+    public UniquenessFilter() {
+        for (Key key : Key.values()) {
+            states.put(key, new State());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        if (enabled) {
+            for (Key key : Key.values()) {
+                rebuild(key);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${bookshop.uniqueness.check-ms:300000}", initialDelayString = "${bookshop.uniqueness.check-ms:300000}")
+    public void rebuildFullFilters() {
+        if (!enabled) {
+            return;
+        }
+        for (Key key : Key.values()) {
+            BloomFilter filter = states.get(key).filter;
+            if (filter != null && filter.expectedFalsePositiveRate() > 2 * falsePositiveRate) {
+                rebuild(key);
+            }
+        }
+    }
+
+    /**
+     * Whether {@code value} is taken. Answers false without calling
+     * {@code query} when the filter rules the value out.
+     */
+    public boolean isTaken(Key key, String value, BooleanSupplier query) {
+        State state = states.get(key);
+        BloomFilter filter = state.filter;
+        if (filter == null || value == null) {
+            return query.getAsBoolean();
+        }
+        String normalized = Collation.fold(value);
+        if (!isAscii(normalized)) {
+            return query.getAsBoolean();
+        }
+        if (!filter.mightContain(normalized)) {
+            state.skipped.increment();
+            return false;
+        }
+        boolean taken = query.getAsBoolean();
+        state.queried.increment();
+        if (!taken) {
+            state.falsePositives.increment();
+        }
+        return taken;
+    }
+
+    /**
+     * Records a saved value. Call it before the transaction commits.
+     */
+    public void add(Key key, String value) {
+        if (value == null) {
+            return;
+        }
+        State state = states.get(key);
+        String normalized = Collation.fold(value);
+        BloomFilter filter = state.filter;
+        if (filter != null) {
+            filter.put(normalized);
+        }
+        BloomFilter building = state.building;
+        if (building != null) {
+            building.put(normalized);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("targetFalsePositiveRate", falsePositiveRate);
+        for (Key key : Key.values()) {
+            State state = states.get(key);
+            BloomFilter filter = state.filter;
+            long skipped = state.skipped.sum();
+            long falsePositives = state.falsePositives.sum();
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("built", filter != null);
+            stats.put("builtAt", state.builtAt != null ? state.builtAt.toString() : null);
+            stats.put("values", filter != null ? filter.added() : 0);
+            stats.put("bits", filter != null ? filter.bitSize() : 0);
+            stats.put("hashes", filter != null ? filter.hashCount() : 0);
+            stats.put("expectedFalsePositiveRate", filter != null ? filter.expectedFalsePositiveRate() : null);
+            stats.put("skippedQueries", skipped);
+            stats.put("queries", state.queried.sum());
+            stats.put("falsePositives", falsePositives);
+            // Share of values that were in fact free but still had to be queried
+            stats.put("observedFalsePositiveRate", skipped + falsePositives > 0
+                    ? (double) falsePositives / (skipped + falsePositives) : null);
+            result.put(key.name().toLowerCase(Locale.ROOT), stats);
+        }
+        return result;
+    }
+
+    /**
+     * Loads every value of the key's column into a new filter and swaps it in.
+     * Values saved while it loads go into both filters. A value saved by a
+     * transaction that was already open and commits after the load is missed
+     * until the next rebuild; the unique constraint still rejects its duplicate.
+     */
+    private synchronized void rebuild(Key key) {
+        State state = states.get(key);
+        long count = switch (key) {
+            case USERNAME -> userRepository.count();
+            case ACCOUNT_NUMBER -> customerRepository.count();
+            case ITEM_CODE -> itemRepository.count();
+        };
+        BloomFilter building = new BloomFilter(Math.max(minCapacity, (long) (count * headroom)), falsePositiveRate);
+        state.building = building;
+        List<String> values = switch (key) {
+            case USERNAME -> userRepository.findAllUsernames();
+            case ACCOUNT_NUMBER -> customerRepository.findAllAccountNumbers();
+            case ITEM_CODE -> itemRepository.findAllItemCodes();
+        };
+        for (String value : values) {
+            if (value != null) {
+                building.put(Collation.fold(value));
+            }
+        }
+        state.filter = building;
+        state.building = null;
+        state.builtAt = LocalDateTime.now();
+    }
+
+    private static boolean isAscii(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > 0x7f) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static class State {
+        private volatile BloomFilter filter;
+        private volatile BloomFilter building;
+        private volatile LocalDateTime builtAt;
+        private final LongAdder skipped = new LongAdder();
+        private final LongAdder queried = new LongAdder();
+        private final LongAdder falsePositives = new LongAdder();
+    }
+}
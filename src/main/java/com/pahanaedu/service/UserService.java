@@ -3,6 +3,7 @@ package com.pahanaedu.service;
 import com.pahanaedu.entity.User;
 import com.pahanaedu.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import java.util.List;
 import java.util.Optional;
@@ -13,6 +14,9 @@ public class UserService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private UniquenessFilter uniquenessFilter;
+
     public List<User> getAllUsers() {
         return userRepository.findAll();
     }
@@ -26,10 +30,20 @@ public class UserService {
     }
 
     public User createUser(User user) {
-        if (userRepository.existsByUsername(user.getUsername())) {
+        if (uniquenessFilter.isTaken(UniquenessFilter.Key.USERNAME, user.getUsername(),
+                () -> userRepository.existsByUsername(user.getUsername()))) {
+            throw new RuntimeException("Username already exists");
+        }
+        User saved;
+        try {
+            saved = userRepository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException e) {
+            // the filter folds accents and case like the column collation, but not every
+            // equivalence (e.g. ß and ss); the unique constraint catches the rest
             throw new RuntimeException("Username already exists");
         }
-        return userRepository.save(user);
+        uniquenessFilter.add(UniquenessFilter.Key.USERNAME, saved.getUsername());
+        return saved;
     }
 
     public User updateUser(Long id, User userDetails) {
@@ -40,8 +54,11 @@ public class UserService {
         user.setPassword(userDetails.getPassword());
         user.setRole(userDetails.getRole());
         user.setEnabled(userDetails.getEnabled());
+        user.setBranch(userDetails.getBranch());
 
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        uniquenessFilter.add(UniquenessFilter.Key.USERNAME, saved.getUsername());
+        return saved;
     }
 
     public void deleteUser(Long id) {
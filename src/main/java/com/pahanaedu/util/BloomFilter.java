@@ -0,0 +1,104 @@
+package com.pahanaedu.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bloom filter over strings. {@link #mightContain} never answers false for a
+ * string that was added; it answers true for an absent one with a probability
+ * that grows as the filter fills ({@link #expectedFalsePositiveRate}). Sized for
+ * an expected number of strings and a target false-positive rate; bit positions
+ * come from two halves of one 64-bit hash (double hashing). Thread-safe: adds
+ * set bits with CAS, reads need no locking.
+ */
+public class BloomFilter {
+
+    /** 2^31 bits, the most a non-negative int position can address. */
+    private static final long MAX_WORDS = 1L << 25;
+
+    private final AtomicLongArray words;
+    private final long bits;
+    private final int hashes;
+    private final LongAdder added = new LongAdder();
+
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        long n = Math.max(1, expectedInsertions);
+        double p = Math.min(0.5, Math.max(1e-9, falsePositiveRate));
+        long m = (long) Math.ceil(-n * Math.log(p) / (Math.log(2) * Math.log(2)));
+        int wordCount = (int) Math.min(MAX_WORDS, Math.max(1, (m + 63) / 64));
+        this.words = new AtomicLongArray(wordCount);
+        this.bits = (long) wordCount * 64;
+        this.hashes = Math.max(1, (int) Math.round((double) bits / n * Math.log(2)));
+    }
+
+    public void put(String value) {
+        long hash = hash(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashes; i++) {
+            long bit = index(h1 + i * h2);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current = words.get(word);
+            while ((current & mask) == 0 && !words.compareAndSet(word, current, current | mask)) {
+                current = words.get(word);
+            }
+        }
+        added.increment();
+    }
+
+    public boolean mightContain(String value) {
+        long hash = hash(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashes; i++) {
+            long bit = index(h1 + i * h2);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * False-positive probability at the current fill, {@code (1 - e^(-kn/m))^k}.
+     * Counts every add, so re-adding a string overstates it slightly.
+     */
+    public double expectedFalsePositiveRate() {
+        return Math.pow(1 - Math.exp(-(double) hashes * added.sum() / bits), hashes);
+    }
+
+    public long bitSize() {
+        return bits;
+    }
+
+    public int hashCount() {
+        return hashes;
+    }
+
+    public long added() {
+        return added.sum();
+    }
+
+    private long index(int combined) {
+        return (combined & 0x7fffffffL) % bits;
+    }
+
+    /**
+     * 64-bit FNV-1a over the UTF-16 chars, finished with the MurmurHash3 mixer so
+     * both 32-bit halves are well spread.
+     */
+    private static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,246 @@
+package com.pahanaedu.util;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal CBOR (RFC 8949) decoder into plain Java values: integers become
+ * {@code Long} (or {@code BigInteger} past 64 bits), text {@code String}, byte
+ * strings {@code byte[]}, arrays {@code List}, maps {@code Map<String, Object>}
+ * with keys turned into strings, floats {@code Double}, tag 4 decimal fractions
+ * {@code BigDecimal}; other tags are dropped and their content kept. Definite and
+ * indefinite lengths are both accepted. Nesting depth and declared lengths are
+ * bounded by the input, so a malformed body fails fast with an
+ * {@link IllegalArgumentException}.
+ */
+public class CborReader {
+
+    private static final int MAX_DEPTH = 64;
+    private static final int BREAK = 0xff;
+
+    private final byte[] data;
+    private int position;
+
+    public CborReader(byte[] data) {
+        this.data = data;
+    }
+
+    /**
+     * Reads the one top-level value and checks nothing follows it.
+     */
+    public Object readDocument() {
+        Object value = read(0);
+        if (position != data.length) {
+            throw malformed("trailing bytes after the top-level value");
+        }
+        return value;
+    }
+
+    private Object read(int depth) {
+        if (depth > MAX_DEPTH) {
+            throw malformed("nesting deeper than " + MAX_DEPTH);
+        }
+        int initial = next();
+        int major = initial >>> 5;
+        int info = initial & 0x1f;
+        switch (major) {
+            case 0:
+                return unsigned(argument(info));
+            case 1: {
+                long argument = argument(info);
+                return argument >= 0 ? (Object) (-1 - argument)
+                        : BigInteger.valueOf(argument).add(BigInteger.ONE.shiftLeft(64)).add(BigInteger.ONE).negate();
+            }
+            case 2:
+                return info == 31 ? chunks(2) : take(length(info));
+            case 3: {
+                if (info == 31) {
+                    return new String(chunks(3), StandardCharsets.UTF_8);
+                }
+                int length = length(info);
+                String text = new String(data, position, length, StandardCharsets.UTF_8);
+                position += length;
+                return text;
+            }
+            case 4: {
+                List<Object> list = new ArrayList<>();
+                if (info == 31) {
+                    while (!breakNext()) {
+                        list.add(read(depth + 1));
+                    }
+                } else {
+                    int count = length(info);
+                    for (int i = 0; i < count; i++) {
+                        list.add(read(depth + 1));
+                    }
+                }
+                return list;
+            }
+            case 5: {
+                Map<String, Object> map = new LinkedHashMap<>();
+                if (info == 31) {
+                    while (!breakNext()) {
+                        map.put(String.valueOf(read(depth + 1)), read(depth + 1));
+                    }
+                } else {
+                    int count = length(info);
+                    for (int i = 0; i < count; i++) {
+                        map.put(String.valueOf(read(depth + 1)), read(depth + 1));
+                    }
+                }
+                return map;
+            }
+            case 6:
+                return tagged(argument(info), depth);
+            default:
+                return simple(info);
+        }
+    }
+
+    private Object tagged(long tag, int depth) {
+        Object content = read(depth + 1);
+        if (tag == 2 && content instanceof byte[] bytes) {
+            return new BigInteger(1, bytes);
+        }
+        if (tag == 3 && content instanceof byte[] bytes) {
+            return new BigInteger(1, bytes).add(BigInteger.ONE).negate();
+        }
+        if (tag == 4 && content instanceof List<?> parts && parts.size() == 2
+                && parts.get(0) instanceof Long exponent) {
+            BigInteger mantissa = parts.get(1) instanceof BigInteger big ? big
+                    : parts.get(1) instanceof Long small ? BigInteger.valueOf(small) : null;
+            if (mantissa == null) {
+                throw malformed("decimal fraction without an integer mantissa");
+            }
+            return new BigDecimal(mantissa, Math.toIntExact(-exponent));
+        }
+        return content;
+    }
+
+    private Object simple(int info) {
+        switch (info) {
+            case 20:
+                return Boolean.FALSE;
+            case 21:
+                return Boolean.TRUE;
+            case 22:
+            case 23:
+                return null;
+            case 25:
+                return halfToDouble((int) bigEndian(2));
+            case 26:
+                return (double) Float.intBitsToFloat((int) bigEndian(4));
+            case 27:
+                return Double.longBitsToDouble(bigEndian(8));
+            default:
+                throw malformed("unsupported simple value " + info);
+        }
+    }
+
+    private byte[] chunks(int major) {
+        byte[] result = new byte[0];
+        while (!breakNext()) {
+            int initial = next();
+            if (initial >>> 5 != major || (initial & 0x1f) == 31) {
+                throw malformed("bad chunk in indefinite-length string");
+            }
+            byte[] chunk = take(length(initial & 0x1f));
+            int offset = result.length;
+            result = Arrays.copyOf(result, offset + chunk.length);
+            System.arraycopy(chunk, 0, result, offset, chunk.length);
+        }
+        return result;
+    }
+
+    private boolean breakNext() {
+        if (position >= data.length) {
+            throw malformed("unexpected end of input");
+        }
+        if ((data[position] & 0xff) == BREAK) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * The argument of an initial byte. Values past 63 bits come back negative;
+     * {@link #unsigned} and the negative-integer case deal with them.
+     */
+    private long argument(int info) {
+        if (info < 24) {
+            return info;
+        }
+        return switch (info) {
+            case 24 -> bigEndian(1);
+            case 25 -> bigEndian(2);
+            case 26 -> bigEndian(4);
+            case 27 -> bigEndian(8);
+            default -> throw malformed("unexpected additional info " + info);
+        };
+    }
+
+    /**
+     * A length, which must fit in what is left of the input (each element takes
+     * at least one byte).
+     */
+    private int length(int info) {
+        long length = argument(info);
+        if (length < 0 || length > data.length - position) {
+            throw malformed("length " + Long.toUnsignedString(length) + " exceeds the input");
+        }
+        return (int) length;
+    }
+
+    private byte[] take(int length) {
+        byte[] bytes = Arrays.copyOfRange(data, position, position + length);
+        position += length;
+        return bytes;
+    }
+
+    private long bigEndian(int bytes) {
+        if (position + bytes > data.length) {
+            throw malformed("unexpected end of input");
+        }
+        long value = 0;
+        for (int i = 0; i < bytes; i++) {
+            value = (value << 8) | (data[position++] & 0xff);
+        }
+        return value;
+    }
+
+    private int next() {
+        if (position >= data.length) {
+            throw malformed("unexpected end of input");
+        }
+        return data[position++] & 0xff;
+    }
+
+    private static Object unsigned(long value) {
+        return value >= 0 ? (Object) value : new BigInteger(Long.toUnsignedString(value));
+    }
+
+    private static double halfToDouble(int half) {
+        int exponent = (half >>> 10) & 0x1f;
+        int mantissa = half & 0x3ff;
+        double value;
+        if (exponent == 0) {
+            value = Math.scalb((double) mantissa, -24);
+        } else if (exponent == 31) {
+            value = mantissa == 0 ? Double.POSITIVE_INFINITY : Double.NaN;
+        } else {
+            value = Math.scalb((double) (mantissa + 1024), exponent - 25);
+        }
+        return (half & 0x8000) != 0 ? -value : value;
+    }
+
+    private IllegalArgumentException malformed(String reason) {
+        return new IllegalArgumentException("Malformed CBOR at byte " + position + ": " + reason);
+    }
+}
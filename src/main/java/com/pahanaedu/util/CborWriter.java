@@ -0,0 +1,179 @@
+package com.pahanaedu.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Minimal CBOR (RFC 8949) encoder into a growable byte array. Only definite
+ * lengths are written, so every map and array states its size up front. Decimals
+ * use tag 4 (decimal fraction) and keep their exact scale. Not thread-safe.
+ */
+public class CborWriter {
+
+    private static final int MAJOR_UNSIGNED = 0;
+    private static final int MAJOR_NEGATIVE = 1;
+    private static final int MAJOR_BYTES = 2;
+    private static final int MAJOR_TEXT = 3;
+    private static final int MAJOR_ARRAY = 4;
+    private static final int MAJOR_MAP = 5;
+    private static final int MAJOR_TAG = 6;
+
+    private static final int TAG_POSITIVE_BIGNUM = 2;
+    private static final int TAG_NEGATIVE_BIGNUM = 3;
+    private static final int TAG_DECIMAL_FRACTION = 4;
+
+    private byte[] buffer;
+    private int size;
+
+    public CborWriter() {
+        this(256);
+    }
+
+    public CborWriter(int initialCapacity) {
+        this.buffer = new byte[Math.max(16, initialCapacity)];
+    }
+
+    public CborWriter startMap(int entries) {
+        head(MAJOR_MAP, entries);
+        return this;
+    }
+
+    public CborWriter startArray(int elements) {
+        head(MAJOR_ARRAY, elements);
+        return this;
+    }
+
+    public CborWriter writeLong(long value) {
+        if (value >= 0) {
+            head(MAJOR_UNSIGNED, value);
+        } else {
+            head(MAJOR_NEGATIVE, -1 - value);
+        }
+        return this;
+    }
+
+    public CborWriter writeString(String value) {
+        if (value == null) {
+            return writeNull();
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        head(MAJOR_TEXT, bytes.length);
+        append(bytes);
+        return this;
+    }
+
+    public CborWriter writeBytes(byte[] value) {
+        head(MAJOR_BYTES, value.length);
+        append(value);
+        return this;
+    }
+
+    public CborWriter writeBoolean(boolean value) {
+        ensure(1);
+        buffer[size++] = (byte) (value ? 0xf5 : 0xf4);
+        return this;
+    }
+
+    public CborWriter writeNull() {
+        ensure(1);
+        buffer[size++] = (byte) 0xf6;
+        return this;
+    }
+
+    public CborWriter writeDouble(double value) {
+        ensure(9);
+        buffer[size++] = (byte) 0xfb;
+        long bits = Double.doubleToLongBits(value);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            buffer[size++] = (byte) (bits >>> shift);
+        }
+        return this;
+    }
+
+    /**
+     * Writes {@code value} as tag 4 {@code [exponent, mantissa]}, so 12.50 is
+     * {@code [-2, 1250]}.
+     */
+    public CborWriter writeDecimal(BigDecimal value) {
+        if (value == null) {
+            return writeNull();
+        }
+        head(MAJOR_TAG, TAG_DECIMAL_FRACTION);
+        startArray(2);
+        writeLong(-value.scale());
+        return writeInteger(value.unscaledValue());
+    }
+
+    public CborWriter writeInteger(BigInteger value) {
+        if (value.bitLength() < 64) {
+            return writeLong(value.longValue());
+        }
+        if (value.signum() >= 0) {
+            head(MAJOR_TAG, TAG_POSITIVE_BIGNUM);
+            return writeBytes(magnitude(value));
+        }
+        head(MAJOR_TAG, TAG_NEGATIVE_BIGNUM);
+        return writeBytes(magnitude(value.negate().subtract(BigInteger.ONE)));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, size);
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(buffer, 0, size);
+    }
+
+    /**
+     * Initial byte with the major type and the shortest argument encoding.
+     */
+    private void head(int major, long argument) {
+        ensure(9);
+        int type = major << 5;
+        if (argument < 24) {
+            buffer[size++] = (byte) (type | argument);
+        } else if (argument <= 0xff) {
+            buffer[size++] = (byte) (type | 24);
+            buffer[size++] = (byte) argument;
+        } else if (argument <= 0xffff) {
+            buffer[size++] = (byte) (type | 25);
+            buffer[size++] = (byte) (argument >>> 8);
+            buffer[size++] = (byte) argument;
+        } else if (argument <= 0xffffffffL) {
+            buffer[size++] = (byte) (type | 26);
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                buffer[size++] = (byte) (argument >>> shift);
+            }
+        } else {
+            buffer[size++] = (byte) (type | 27);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buffer[size++] = (byte) (argument >>> shift);
+            }
+        }
+    }
+
+    private void append(byte[] bytes) {
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+        size += bytes.length;
+    }
+
+    private void ensure(int extra) {
+        if (size + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+        }
+    }
+
+    private static byte[] magnitude(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        return bytes.length > 1 && bytes[0] == 0 ? Arrays.copyOfRange(bytes, 1, bytes.length) : bytes;
+    }
+}
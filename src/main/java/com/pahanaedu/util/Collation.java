@@ -0,0 +1,28 @@
+package com.pahanaedu.util;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Java side of the columns' {@code utf8mb4_0900_ai_ci} collation, which ignores
+ * case and accents. Folding covers the common cases, not every equivalence of
+ * the collation (ß equals ss, for one), so callers that must not miss a match
+ * still ask the database.
+ */
+public final class Collation {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    private Collation() {
+    }
+
+    /**
+     * Folds a value the way the ai_ci collation compares it: compatibility
+     * decomposition, combining marks dropped, lower case.
+     */
+    public static String fold(String value) {
+        String decomposed = Normalizer.normalize(value, Normalizer.Form.NFKD);
+        return COMBINING_MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,85 @@
+package com.pahanaedu.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hashed timer wheel keyed by an arbitrary id. Scheduling and cancelling are O(1);
+ * advancing the wheel only visits the buckets whose ticks have elapsed, so the cost
+ * of a tick is proportional to the timers due in it rather than to the number of
+ * open timers. Timers further out than one wheel revolution share a bucket with
+ * nearer ones and are skipped until their own deadline tick comes round.
+ */
+public class HashedTimerWheel<K> {
+
+    private final long tickMs;
+    private final int mask;
+    private final List<Map<K, Long>> buckets;
+    private final Map<K, Long> deadlines = new HashMap<>();
+    private long currentTick;
+
+    public HashedTimerWheel(long tickMs, int wheelSize, long startMs) {
+        if (tickMs <= 0) {
+            throw new IllegalArgumentException("tickMs must be positive");
+        }
+        int size = Integer.highestOneBit(Math.max(wheelSize - 1, 1)) << 1;
+        this.tickMs = tickMs;
+        this.mask = size - 1;
+        this.buckets = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            buckets.add(new HashMap<>());
+        }
+        this.currentTick = startMs / tickMs;
+    }
+
+    public synchronized void schedule(K key, long deadlineMs) {
+        cancel(key);
+        long deadlineTick = Math.max((deadlineMs + tickMs - 1) / tickMs, currentTick);
+        buckets.get((int) (deadlineTick & mask)).put(key, deadlineTick);
+        deadlines.put(key, deadlineTick);
+    }
+
+    public synchronized boolean cancel(K key) {
+        Long deadlineTick = deadlines.remove(key);
+        if (deadlineTick == null) {
+            return false;
+        }
+        buckets.get((int) (deadlineTick & mask)).remove(key);
+        return true;
+    }
+
+    /**
+     * Moves the wheel forward to {@code nowMs} and returns the keys whose deadline
+     * has passed. Expired keys are removed from the wheel.
+     */
+    public synchronized List<K> advance(long nowMs) {
+        long targetTick = nowMs / tickMs;
+        List<K> expired = new ArrayList<>();
+        if (targetTick < currentTick) {
+            return expired;
+        }
+
+        long ticks = Math.min(targetTick - currentTick + 1, (long) mask + 1);
+        for (long i = 0; i < ticks; i++) {
+            Map<K, Long> bucket = buckets.get((int) ((currentTick + i) & mask));
+            Iterator<Map.Entry<K, Long>> it = bucket.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<K, Long> entry = it.next();
+                if (entry.getValue() <= targetTick) {
+                    expired.add(entry.getKey());
+                    deadlines.remove(entry.getKey());
+                    it.remove();
+                }
+            }
+        }
+        currentTick = targetTick + 1;
+        return expired;
+    }
+
+    public synchronized int size() {
+        return deadlines.size();
+    }
+}
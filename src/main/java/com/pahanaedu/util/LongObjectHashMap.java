@@ -0,0 +1,97 @@
+package com.pahanaedu.util;
+
+import java.util.function.LongFunction;
+
+/**
+ * Open-addressing hash map from {@code long} to objects without boxing the keys.
+ * Keys must be non-zero (zero marks an empty slot). Not thread-safe.
+ */
+public class LongObjectHashMap<V> {
+
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] keys;
+    private Object[] values;
+    private int size;
+    private int resizeAt;
+
+    public LongObjectHashMap() {
+        allocate(16);
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int mask = keys.length - 1;
+        for (int slot = LongIntHashMap.slot(key, mask); ; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return (V) values[slot];
+            }
+            if (keys[slot] == 0) {
+                return null;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public V computeIfAbsent(long key, LongFunction<V> factory) {
+        if (key == 0) {
+            throw new IllegalArgumentException("Key 0 is reserved");
+        }
+        int mask = keys.length - 1;
+        int slot = LongIntHashMap.slot(key, mask);
+        while (keys[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        if (keys[slot] == key) {
+            return (V) values[slot];
+        }
+        V value = factory.apply(key);
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > resizeAt) {
+            rehash(keys.length << 1);
+        }
+        return value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(LongObjectConsumer<V> consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                consumer.accept(keys[i], (V) values[i]);
+            }
+        }
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int slot = LongIntHashMap.slot(oldKeys[i], mask);
+                while (keys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    @FunctionalInterface
+    public interface LongObjectConsumer<V> {
+        void accept(long key, V value);
+    }
+}
@@ -0,0 +1,279 @@
+package com.pahanaedu.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only record log split into fixed-size memory-mapped segment files.
+ *
+ * Offsets are byte positions in one logical stream: a segment file is named after
+ * the offset of its first byte, so any offset maps to a segment with a floor
+ * lookup. A record is {@code [int length][int crc32][long key][payload]}; a zero
+ * length marks the unused tail of a segment. A new segment starts at the offset
+ * where the previous one's records end, so the records of a segment end at the
+ * next segment's base (or at the end offset for the active one). There is a
+ * single writer; readers get read-only slices of the mapped segments, so payloads
+ * are never copied.
+ */
+public class SegmentedJournal implements Closeable {
+
+    public static final int HEADER_BYTES = 16;
+    private static final String SUFFIX = ".log";
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final int retainSegments;
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+
+    private Segment active;
+    private volatile long endOffset;
+
+    public SegmentedJournal(Path directory, int segmentBytes, int retainSegments) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.retainSegments = Math.max(1, retainSegments);
+        try {
+            Files.createDirectories(directory);
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : files.filter(f -> f.getFileName().toString().endsWith(SUFFIX)).toList()) {
+                    String name = file.getFileName().toString();
+                    long base = Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+                    segments.put(base, Segment.open(file, base, segmentBytes));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open journal in " + directory, e);
+        }
+
+        if (segments.isEmpty()) {
+            active = createSegment(0);
+        } else {
+            active = segments.lastEntry().getValue();
+            active.recover();
+        }
+        endOffset = active.base + active.writePosition;
+    }
+
+    /**
+     * Appends one record and returns its offset. The record becomes visible to
+     * readers immediately; call {@link #flush()} to make it durable.
+     */
+    public synchronized long append(long key, byte[] payload) {
+        int size = HEADER_BYTES + payload.length;
+        if (size > segmentBytes) {
+            throw new IllegalArgumentException("Record of " + size + " bytes does not fit in a segment");
+        }
+        if (active.writePosition + size > segmentBytes) {
+            roll();
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer buffer = active.buffer;
+        int position = active.writePosition;
+        buffer.putInt(position + 4, (int) crc.getValue());
+        buffer.putLong(position + 8, key);
+        buffer.put(position + HEADER_BYTES, payload);
+        // length last: a record is only valid once its length is non-zero
+        buffer.putInt(position, payload.length);
+
+        long offset = active.base + position;
+        active.writePosition = position + size;
+        endOffset = active.base + active.writePosition;
+        return offset;
+    }
+
+    public synchronized void flush() {
+        active.buffer.force();
+    }
+
+    /**
+     * Offset the next append will get; reading at this offset returns nothing.
+     */
+    public long getEndOffset() {
+        return endOffset;
+    }
+
+    public long getStartOffset() {
+        return segments.firstKey();
+    }
+
+    /**
+     * Reads up to {@code maxRecords} records starting at {@code offset}, which must
+     * be an offset previously returned by {@link #append} or {@link Record#getNextOffset()}.
+     * Offsets older than the retained segments start at the oldest record.
+     * <p>
+     * Each record's length is checked against the end of its segment's records
+     * and its checksum against the payload before it is returned. If no valid
+     * record starts at {@code offset} this throws {@link IllegalArgumentException};
+     * if a later record is damaged, reading stops before it.
+     */
+    public List<Record> read(long offset, int maxRecords) {
+        List<Record> records = new ArrayList<>();
+        long end = endOffset;
+        long position = Math.max(offset, getStartOffset());
+
+        while (records.size() < maxRecords && position < end) {
+            Map.Entry<Long, Segment> entry = segments.floorEntry(position);
+            if (entry == null) {
+                break;
+            }
+            Segment segment = entry.getValue();
+            Long next = segments.higherKey(segment.base);
+            long limit = Math.min(next != null ? next : end, segment.base + segmentBytes);
+            int local = (int) (position - segment.base);
+            ByteBuffer buffer = segment.buffer.duplicate();
+
+            int length = position + HEADER_BYTES <= limit ? buffer.getInt(local) : 0;
+            boolean valid = length > 0 && position + HEADER_BYTES + length <= limit;
+            if (valid) {
+                CRC32 check = new CRC32();
+                check.update(buffer.slice(local + HEADER_BYTES, length));
+                valid = (int) check.getValue() == buffer.getInt(local + 4);
+            }
+            if (!valid) {
+                if (records.isEmpty()) {
+                    throw new IllegalArgumentException("No valid record starts at offset " + position);
+                }
+                break;
+            }
+
+            int crc = buffer.getInt(local + 4);
+            long key = buffer.getLong(local + 8);
+            ByteBuffer payload = buffer.slice(local + HEADER_BYTES, length).asReadOnlyBuffer();
+            long nextOffset = position + HEADER_BYTES + length;
+            records.add(new Record(position, nextOffset, key, crc, payload));
+            position = nextOffset;
+        }
+        return records;
+    }
+
+    @Override
+    public synchronized void close() {
+        active.buffer.force();
+        segments.values().forEach(Segment::close);
+    }
+
+    private void roll() {
+        active.buffer.force();
+        active = createSegment(active.base + active.writePosition);
+        while (segments.size() > retainSegments) {
+            Segment oldest = segments.pollFirstEntry().getValue();
+            oldest.close();
+            try {
+                Files.deleteIfExists(oldest.file);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not delete journal segment " + oldest.file, e);
+            }
+        }
+    }
+
+    private Segment createSegment(long base) {
+        Path file = directory.resolve(String.format("%020d%s", base, SUFFIX));
+        try {
+            Segment segment = Segment.open(file, base, segmentBytes);
+            segments.put(base, segment);
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create journal segment " + file, e);
+        }
+    }
+
+    public static class Record {
+        private final long offset;
+        private final long nextOffset;
+        private final long key;
+        private final int crc;
+        private final ByteBuffer payload;
+
+        Record(long offset, long nextOffset, long key, int crc, ByteBuffer payload) {
+            this.offset = offset;
+            this.nextOffset = nextOffset;
+            this.key = key;
+            this.crc = crc;
+            this.payload = payload;
+        }
+
+        public long getOffset() { return offset; }
+        public long getNextOffset() { return nextOffset; }
+        public long getKey() { return key; }
+
+        /**
+         * Read-only view of the payload in the mapped segment.
+         */
+        public ByteBuffer getPayload() { return payload.duplicate(); }
+
+        public boolean isValid() {
+            CRC32 check = new CRC32();
+            check.update(payload.duplicate());
+            return (int) check.getValue() == crc;
+        }
+    }
+
+    private static class Segment {
+        private final Path file;
+        private final long base;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private int writePosition;
+
+        private Segment(Path file, long base, FileChannel channel, MappedByteBuffer buffer) {
+            this.file = file;
+            this.base = base;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        static Segment open(Path file, long base, int size) throws IOException {
+            FileChannel channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            return new Segment(file, base, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        }
+
+        /**
+         * Finds the end of the last intact record after a restart. Everything after
+         * it is zeroed, so a torn write can never be mistaken for a record later.
+         */
+        void recover() {
+            int position = 0;
+            int capacity = buffer.capacity();
+            while (position + HEADER_BYTES <= capacity) {
+                int length = buffer.getInt(position);
+                if (length <= 0 || position + HEADER_BYTES + length > capacity) {
+                    break;
+                }
+                CRC32 crc = new CRC32();
+                crc.update(buffer.slice(position + HEADER_BYTES, length));
+                if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+                    break;
+                }
+                position += HEADER_BYTES + length;
+            }
+            for (int i = position; i < capacity; i++) {
+                buffer.put(i, (byte) 0);
+            }
+            writePosition = position;
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // the mapping stays valid until it is garbage collected
+            }
+        }
+    }
+}
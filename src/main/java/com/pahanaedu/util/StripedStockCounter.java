@@ -0,0 +1,84 @@
+package com.pahanaedu.util;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Non-negative quantity split over several independently updated stripes. Each
+ * thread starts at its own stripe and only moves on when that stripe cannot cover
+ * the request, so concurrent decrements rarely CAS on the same cache line. The
+ * stripes are padded apart to avoid false sharing.
+ */
+public class StripedStockCounter {
+
+    private static final int PADDING = 8;
+
+    private final AtomicLongArray cells;
+    private final int stripes;
+
+    public StripedStockCounter(int stripes, long initial) {
+        this.stripes = Math.max(1, stripes);
+        this.cells = new AtomicLongArray(this.stripes * PADDING);
+        spread(Math.max(0, initial));
+    }
+
+    /**
+     * Takes {@code quantity} units if they are available. Tries every stripe
+     * lock-free first; only when the units are scattered across stripes does it
+     * fall back to gathering them under the counter's monitor.
+     */
+    public boolean tryAcquire(long quantity) {
+        if (quantity <= 0) {
+            return true;
+        }
+        int start = ThreadLocalRandom.current().nextInt(stripes);
+        for (int i = 0; i < stripes; i++) {
+            int index = ((start + i) % stripes) * PADDING;
+            long current = cells.get(index);
+            while (current >= quantity) {
+                if (cells.compareAndSet(index, current, current - quantity)) {
+                    return true;
+                }
+                current = cells.get(index);
+            }
+        }
+        return acquireScattered(quantity);
+    }
+
+    public void release(long quantity) {
+        if (quantity <= 0) {
+            return;
+        }
+        int index = ThreadLocalRandom.current().nextInt(stripes) * PADDING;
+        cells.addAndGet(index, quantity);
+    }
+
+    public long available() {
+        long sum = 0;
+        for (int i = 0; i < stripes; i++) {
+            sum += cells.get(i * PADDING);
+        }
+        return sum;
+    }
+
+    private synchronized boolean acquireScattered(long quantity) {
+        long gathered = 0;
+        for (int i = 0; i < stripes && gathered < quantity; i++) {
+            gathered += cells.getAndSet(i * PADDING, 0);
+        }
+        if (gathered >= quantity) {
+            spread(gathered - quantity);
+            return true;
+        }
+        spread(gathered);
+        return false;
+    }
+
+    private void spread(long quantity) {
+        long share = quantity / stripes;
+        long remainder = quantity % stripes;
+        for (int i = 0; i < stripes; i++) {
+            cells.addAndGet(i * PADDING, share + (i < remainder ? 1 : 0));
+        }
+    }
+}
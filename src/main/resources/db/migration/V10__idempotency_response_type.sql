@@ -0,0 +1,3 @@
+-- Type of the stored response body, so a replay can rebuild the object and let
+-- content negotiation encode it (JSON or CBOR) like the first response.
+ALTER TABLE idempotency_keys ADD COLUMN response_type VARCHAR(20) NULL;
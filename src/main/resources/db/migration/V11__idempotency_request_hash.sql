@@ -0,0 +1,3 @@
+-- SHA-256 of the caller and the request a key was first used with, so a key
+-- reused for a different request is refused instead of replaying the wrong response.
+ALTER TABLE idempotency_keys ADD COLUMN request_hash CHAR(64) NULL;
@@ -0,0 +1,12 @@
+-- BillQueryService pages by (bill_date, id), which needs a bill_date on every
+-- row. Bills always get one on insert; older rows without one take the time in
+-- their generated number (BILL<epoch millis>), archived ones else their archive time.
+UPDATE bills SET bill_date = FROM_UNIXTIME(SUBSTRING(bill_number, 5) / 1000)
+WHERE bill_date IS NULL AND bill_number REGEXP '^BILL[0-9]{13}$';
+UPDATE bills SET bill_date = '1970-01-01 00:00:01' WHERE bill_date IS NULL;
+ALTER TABLE bills MODIFY bill_date TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP;
+
+UPDATE bills_archive SET bill_date = COALESCE(
+    IF(bill_number REGEXP '^BILL[0-9]{13}$', FROM_UNIXTIME(SUBSTRING(bill_number, 5) / 1000), NULL), archived_at)
+WHERE bill_date IS NULL;
+ALTER TABLE bills_archive MODIFY bill_date TIMESTAMP NOT NULL;
@@ -0,0 +1,33 @@
+-- Databases created by ddl-auto=update used VARCHAR(255) for these columns.
+ALTER TABLE customers MODIFY address TEXT;
+ALTER TABLE items MODIFY description TEXT;
+
+-- Secondary indexes, one per finder that would otherwise scan.
+
+-- BillRepository.findByCustomerId, customer order history (newest first)
+CREATE INDEX idx_bills_customer_date ON bills (customer_id, bill_date);
+
+-- BillRepository.findByStatus
+CREATE INDEX idx_bills_status_date ON bills (status, bill_date);
+
+-- BillRepository.findReservations (PENDING bills with an open stock reservation)
+CREATE INDEX idx_bills_status_reserved ON bills (status, reserved_until);
+
+-- Date-ordered listings and date ranges across all bills
+CREATE INDEX idx_bills_date ON bills (bill_date);
+
+-- BillItemRepository.lockPendingStock (hot stock flush)
+CREATE INDEX idx_bill_items_stock_pending ON bill_items (stock_pending, id);
+
+-- ItemRepository.findByCategory, ordered by name within a category
+CREATE INDEX idx_items_category_name ON items (category, name);
+
+-- ItemRepository name lookups and sorting. findByNameContainingIgnoreCase uses a
+-- leading wildcard and still scans; this index only serves prefix matches.
+CREATE INDEX idx_items_name ON items (name);
+
+-- UserRepository.findByRole (bill creation looks up the default admin)
+CREATE INDEX idx_users_role ON users (role);
+
+-- IdempotencyRecordRepository.deleteExpired
+CREATE INDEX idx_idempotency_keys_expires ON idempotency_keys (expires_at);
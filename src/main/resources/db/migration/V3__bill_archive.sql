@@ -0,0 +1,25 @@
+-- Closed bills older than bookshop.archive.age-days are moved here by
+-- BillArchiveService. Ids are kept, so a bill id is unique across both tables.
+
+CREATE TABLE bills_archive (
+    id BIGINT PRIMARY KEY,
+    bill_number VARCHAR(20) UNIQUE NOT NULL,
+    customer_id BIGINT NOT NULL,
+    total_amount DECIMAL(10, 2) NOT NULL,
+    bill_date TIMESTAMP NULL,
+    created_by BIGINT,
+    status ENUM('PENDING', 'PAID', 'CANCELLED') NOT NULL,
+    archived_at DATETIME NOT NULL,
+    INDEX idx_bills_archive_customer_date (customer_id, bill_date)
+);
+
+CREATE TABLE bill_items_archive (
+    id BIGINT PRIMARY KEY,
+    bill_id BIGINT NOT NULL,
+    item_id BIGINT NOT NULL,
+    quantity INT NOT NULL,
+    unit_price DECIMAL(10, 2) NOT NULL,
+    total_price DECIMAL(10, 2) NOT NULL,
+    INDEX idx_bill_items_archive_bill (bill_id),
+    INDEX idx_bill_items_archive_item (item_id)
+);
@@ -0,0 +1,5 @@
+-- BillQueryService filters by cashier within a date range
+CREATE INDEX idx_bills_created_by_date ON bills (created_by, bill_date);
+
+-- BillQueryService AMOUNT_ASC / AMOUNT_DESC keyset paging
+CREATE INDEX idx_bills_amount ON bills (total_amount, id);
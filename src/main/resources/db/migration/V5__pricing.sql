@@ -0,0 +1,36 @@
+-- Discount rules evaluated by PricingEngine. percent_off and amount_off are
+-- mutually exclusive; amount_off is per unit for ITEM and CATEGORY rules.
+CREATE TABLE discount_rules (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    name VARCHAR(100) NOT NULL,
+    scope ENUM('ITEM', 'CATEGORY', 'BASKET') NOT NULL,
+    item_id BIGINT NULL,
+    category VARCHAR(50) NULL,
+    percent_off DECIMAL(5, 2) NULL,
+    amount_off DECIMAL(10, 2) NULL,
+    min_basket_amount DECIMAL(10, 2) NULL,
+    active BOOLEAN NOT NULL DEFAULT TRUE,
+    starts_at DATETIME NULL,
+    ends_at DATETIME NULL,
+    FOREIGN KEY (item_id) REFERENCES items(id) ON DELETE CASCADE
+);
+
+-- Price breakdown on bills. Existing bills had no discounts or tax, so their
+-- subtotal is their total.
+ALTER TABLE bills
+    ADD COLUMN subtotal_amount DECIMAL(10, 2) NULL AFTER customer_id,
+    ADD COLUMN discount_amount DECIMAL(10, 2) NOT NULL DEFAULT 0 AFTER subtotal_amount,
+    ADD COLUMN tax_amount DECIMAL(10, 2) NOT NULL DEFAULT 0 AFTER discount_amount;
+UPDATE bills SET subtotal_amount = total_amount;
+
+ALTER TABLE bill_items
+    ADD COLUMN discount_amount DECIMAL(10, 2) NOT NULL DEFAULT 0 AFTER unit_price;
+
+ALTER TABLE bills_archive
+    ADD COLUMN subtotal_amount DECIMAL(10, 2) NULL AFTER customer_id,
+    ADD COLUMN discount_amount DECIMAL(10, 2) NOT NULL DEFAULT 0 AFTER subtotal_amount,
+    ADD COLUMN tax_amount DECIMAL(10, 2) NOT NULL DEFAULT 0 AFTER discount_amount;
+UPDATE bills_archive SET subtotal_amount = total_amount;
+
+ALTER TABLE bill_items_archive
+    ADD COLUMN discount_amount DECIMAL(10, 2) NOT NULL DEFAULT 0 AFTER unit_price;
@@ -0,0 +1,10 @@
+-- Domain events written in the same transaction as the change they describe.
+-- OutboxService relays them to the local event journal and deletes them.
+CREATE TABLE outbox_events (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    aggregate_type VARCHAR(30) NOT NULL,
+    aggregate_id BIGINT NULL,
+    event_type VARCHAR(50) NOT NULL,
+    payload TEXT NOT NULL,
+    created_at DATETIME NOT NULL
+);
@@ -0,0 +1,26 @@
+-- Append-only record of every stock change. item_id has no foreign key so the
+-- history of deleted items is kept.
+CREATE TABLE stock_movements (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    item_id BIGINT NOT NULL,
+    delta INT NOT NULL,
+    reason ENUM('OPENING', 'SALE', 'RECEIPT', 'ADJUSTMENT', 'CANCELLATION') NOT NULL,
+    bill_id BIGINT NULL,
+    created_at DATETIME(3) NOT NULL,
+    INDEX idx_stock_movements_item_created (item_id, created_at),
+    INDEX idx_stock_movements_created (created_at)
+);
+
+CREATE TABLE stock_snapshots (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    item_id BIGINT NOT NULL,
+    balance BIGINT NOT NULL,
+    last_movement_id BIGINT NOT NULL,
+    taken_at DATETIME(3) NOT NULL,
+    INDEX idx_stock_snapshots_item (item_id, id),
+    INDEX idx_stock_snapshots_last_movement (last_movement_id)
+);
+
+-- Open the ledger with the current stock so ledger and items agree from here on.
+INSERT INTO stock_movements (item_id, delta, reason, created_at)
+SELECT id, stock_quantity, 'OPENING', NOW(3) FROM items WHERE stock_quantity <> 0;
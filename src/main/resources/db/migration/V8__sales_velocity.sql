@@ -0,0 +1,8 @@
+-- Per-item sales velocity: an exponentially weighted moving average of units sold
+-- per day, folded forward one day bucket at a time up to through_day.
+CREATE TABLE sales_velocity (
+    item_id BIGINT PRIMARY KEY,
+    daily_velocity DOUBLE NOT NULL,
+    through_day DATE NOT NULL,
+    updated_at DATETIME(3) NOT NULL
+);
@@ -0,0 +1,36 @@
+-- Shops. Stock is kept per item and branch; items.stock_quantity remains the total
+-- over all branches and is updated in the same transaction as the branch rows.
+CREATE TABLE branches (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    code VARCHAR(20) NOT NULL UNIQUE,
+    name VARCHAR(100) NOT NULL,
+    active BOOLEAN NOT NULL DEFAULT TRUE,
+    created_at DATETIME(3) NOT NULL
+);
+
+INSERT INTO branches (code, name, active, created_at) VALUES ('MAIN', 'Main store', TRUE, NOW(3));
+
+CREATE TABLE branch_stock (
+    item_id BIGINT NOT NULL,
+    branch_id BIGINT NOT NULL,
+    quantity INT NOT NULL,
+    PRIMARY KEY (item_id, branch_id),
+    INDEX idx_branch_stock_branch (branch_id, item_id),
+    FOREIGN KEY (item_id) REFERENCES items(id) ON DELETE CASCADE,
+    FOREIGN KEY (branch_id) REFERENCES branches(id)
+);
+
+-- Until stock is transferred, all of it is in the main store.
+INSERT INTO branch_stock (item_id, branch_id, quantity)
+SELECT i.id, b.id, i.stock_quantity FROM items i JOIN branches b ON b.code = 'MAIN'
+WHERE i.stock_quantity IS NOT NULL;
+
+-- Selling branch of a bill and home branch of a user; NULL means the main store.
+ALTER TABLE bills ADD COLUMN branch_id BIGINT NULL,
+    ADD CONSTRAINT fk_bills_branch FOREIGN KEY (branch_id) REFERENCES branches(id);
+ALTER TABLE bills_archive ADD COLUMN branch_id BIGINT NULL;
+ALTER TABLE users ADD COLUMN branch_id BIGINT NULL,
+    ADD CONSTRAINT fk_users_branch FOREIGN KEY (branch_id) REFERENCES branches(id);
+
+ALTER TABLE stock_movements ADD COLUMN branch_id BIGINT NULL,
+    MODIFY reason ENUM('OPENING', 'SALE', 'RECEIPT', 'ADJUSTMENT', 'CANCELLATION', 'TRANSFER') NOT NULL;
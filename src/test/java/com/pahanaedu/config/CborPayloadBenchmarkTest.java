@@ -0,0 +1,200 @@
+package com.pahanaedu.config;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.pahanaedu.entity.Bill;
+import com.pahanaedu.entity.BillItem;
+import com.pahanaedu.entity.Item;
+import com.pahanaedu.util.CborReader;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Payload size and encode/decode time of CBOR against JSON for an item list and a
+ * page of bills, on fixed generated data. Both formats encode the same object
+ * graph: the maps and lists the CBOR endpoints put on the wire (bill lines carry
+ * {@code itemId}, not the nested item), built once from the entities. The JSON
+ * and the CBOR are each decoded back and must equal that graph, so the numbers
+ * compare the formats and not two schemas. Logs one row per case with the bytes
+ * and the median time; {@code -Dbookshop.test.iterations=N} sets the number of
+ * timed runs (default 200, after as many warm-up runs). JSON uses Jackson
+ * configured like Spring Boot's (java.time as ISO text).
+ */
+class CborPayloadBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(CborPayloadBenchmarkTest.class);
+    private static final LocalDateTime CREATED = LocalDateTime.of(2024, 3, 1, 9, 30);
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private final ObjectReader jsonReader = objectMapper.readerFor(Object.class)
+            .with(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS, DeserializationFeature.USE_LONG_FOR_INTS);
+
+    private final CborHttpMessageConverter converter = new CborHttpMessageConverter();
+
+    private final int iterations = Integer.getInteger("bookshop.test.iterations", 200);
+
+    @Test
+    void itemListIsSmallerInCbor() throws Exception {
+        List<Item> items = items(500);
+        List<?> graph = graph(items);
+
+        compare("items x500", graph);
+
+        Map<?, ?> first = (Map<?, ?>) graph.get(0);
+        assertThat(graph).hasSize(items.size());
+        assertThat(first.get("itemCode")).isEqualTo(items.get(0).getItemCode());
+        assertThat((BigDecimal) first.get("price")).isEqualByComparingTo(items.get(0).getPrice());
+    }
+
+    @Test
+    void billPageIsSmallerInCbor() throws Exception {
+        List<Item> items = items(50);
+        List<Bill> bills = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            bills.add(bill(i, items));
+        }
+        List<?> graph = graph(bills);
+
+        compare("bills x50 (3 lines each)", graph);
+
+        Map<?, ?> first = (Map<?, ?>) graph.get(0);
+        assertThat(graph).hasSize(bills.size());
+        assertThat(first.get("billNumber")).isEqualTo(bills.get(0).getBillNumber());
+        assertThat((List<?>) first.get("billItems")).hasSize(3);
+    }
+
+    /**
+     * Encodes {@code graph} in both formats, checks that each decodes back to it,
+     * logs the sizes and times and asserts CBOR is smaller.
+     */
+    private void compare(String name, Object graph) throws Exception {
+        byte[] json = objectMapper.writeValueAsBytes(graph);
+        byte[] cbor = cbor(graph);
+        assertThat((Object) jsonReader.readValue(json)).isEqualTo(graph);
+        assertThat(new CborReader(cbor).readDocument()).isEqualTo(graph);
+
+        double jsonEncode = medianMicros(() -> objectMapper.writeValueAsBytes(graph));
+        double cborEncode = medianMicros(() -> cbor(graph));
+        double jsonDecode = medianMicros(() -> jsonReader.readValue(json));
+        double cborDecode = medianMicros(() -> new CborReader(cbor).readDocument());
+        log.info(String.format("%-26s json %7d B  cbor %7d B (%.0f%%) | encode json %8.1f us cbor %8.1f us"
+                        + " | decode json %8.1f us cbor %8.1f us",
+                name, json.length, cbor.length, 100.0 * cbor.length / json.length,
+                jsonEncode, cborEncode, jsonDecode, cborDecode));
+        assertThat(cbor.length).isLessThan(json.length);
+    }
+
+    /**
+     * The maps and lists the CBOR endpoint sends for {@code value}.
+     */
+    private List<?> graph(Object value) throws Exception {
+        return (List<?>) new CborReader(cbor(value)).readDocument();
+    }
+
+    /**
+     * Median time of {@code task} in microseconds, after as many untimed runs.
+     */
+    private double medianMicros(Callable<?> task) throws Exception {
+        for (int i = 0; i < iterations; i++) {
+            task.call();
+        }
+        long[] nanos = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            task.call();
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        return nanos[iterations / 2] / 1e3;
+    }
+
+    private byte[] cbor(Object value) throws Exception {
+        Body body = new Body();
+        converter.write(value, CborHttpMessageConverter.APPLICATION_CBOR, body);
+        return body.bytes.toByteArray();
+    }
+
+    private static List<Item> items(int count) {
+        List<Item> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Item item = new Item();
+            item.setId((long) i + 1);
+            item.setItemCode("BK" + (10000 + i));
+            item.setName("Book title number " + i);
+            item.setDescription("A reasonably long description of the book number " + i);
+            item.setPrice(new BigDecimal("1250.00").add(BigDecimal.valueOf(i)));
+            item.setStockQuantity(i % 40);
+            item.setCategory(i % 3 == 0 ? "Fiction" : "Textbooks");
+            item.setHotStock(false);
+            item.setCreatedAt(CREATED);
+            item.setUpdatedAt(CREATED);
+            items.add(item);
+        }
+        return items;
+    }
+
+    private static Bill bill(int index, List<Item> items) {
+        Bill bill = new Bill();
+        bill.setId((long) index + 1);
+        bill.setBillNumber("BILL" + (1_000_000 + index));
+        bill.setBillDate(CREATED.plusMinutes(index));
+        bill.setStatus(Bill.Status.PAID);
+        List<BillItem> lines = new ArrayList<>();
+        BigDecimal total = BigDecimal.ZERO;
+        for (int line = 0; line < 3; line++) {
+            Item item = items.get((index * 3 + line) % items.size());
+            BillItem billItem = new BillItem();
+            billItem.setId((long) index * 3 + line + 1);
+            billItem.setBill(bill);
+            billItem.setItem(item);
+            billItem.setQuantity(line + 1);
+            billItem.setUnitPrice(item.getPrice());
+            billItem.setDiscountAmount(BigDecimal.ZERO.setScale(2));
+            billItem.setTotalPrice(item.getPrice().multiply(BigDecimal.valueOf(line + 1)));
+            total = total.add(billItem.getTotalPrice());
+            lines.add(billItem);
+        }
+        bill.setBillItems(lines);
+        bill.setSubtotalAmount(total);
+        bill.setDiscountAmount(BigDecimal.ZERO.setScale(2));
+        bill.setTaxAmount(BigDecimal.ZERO.setScale(2));
+        bill.setTotalAmount(total);
+        return bill;
+    }
+
+    private static class Body implements HttpOutputMessage {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final HttpHeaders headers = new HttpHeaders();
+
+        @Override
+        public OutputStream getBody() {
+            return bytes;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.pahanaedu.repository;
+
+import com.pahanaedu.monitoring.QueryPlanVerifier;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs every repository finder through {@link QueryPlanVerifier}, which explains
+ * the SQL Hibernate actually sends, and fails on any finder whose SQL could not
+ * be captured or that reads a table by a scan no index could serve. The check
+ * does not depend on how many rows the tables hold, so an empty migrated
+ * database is enough.
+ * <p>
+ * Only runs with {@code -Dbookshop.test.mysql=true}; point it at the database
+ * with {@code -Dspring.datasource.url=...}.
+ */
+@SpringBootTest
+@EnabledIfSystemProperty(named = "bookshop.test.mysql", matches = "true")
+class FinderQueryPlanTest {
+
+    @Autowired
+    private QueryPlanVerifier queryPlanVerifier;
+
+    @Test
+    void findersUseIndexes() {
+        List<Map<String, Object>> plans = queryPlanVerifier.verify();
+
+        assertThat(plans).filteredOn(plan -> plan.containsKey("error")).isEmpty();
+        assertThat(plans).filteredOn(plan -> Boolean.TRUE.equals(plan.get("fullScan"))).isEmpty();
+        assertThat(plans).extracting(plan -> plan.get("finder")).contains(
+                "BillRepository.findByBillNumber", "BillQueryService.search (date range)",
+                "IdempotencyRecordRepository.findByIdempotencyKey");
+    }
+}
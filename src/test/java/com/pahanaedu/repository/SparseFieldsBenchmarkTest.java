@@ -0,0 +1,182 @@
+package com.pahanaedu.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pahanaedu.entity.Bill;
+import com.pahanaedu.entity.BillItem;
+import com.pahanaedu.entity.Branch;
+import com.pahanaedu.entity.Customer;
+import com.pahanaedu.entity.Item;
+import com.pahanaedu.entity.User;
+import com.pahanaedu.service.BillService;
+import com.pahanaedu.service.BranchService;
+import com.pahanaedu.service.CustomerService;
+import com.pahanaedu.service.ItemService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Payload size and latency of the list endpoints with and without
+ * {@code ?fields=}. Seeds items, customers and three-line bills in one
+ * transaction that is rolled back at the end, then runs each case's service
+ * call and the JSON serialization the controller would do, with a fresh
+ * persistence context each time (as a new request has), and logs the JSON
+ * bytes and the median and p90 time. Each sparse payload must be well under
+ * half the full one.
+ * <p>
+ * Needs a migrated database, so it only runs with {@code -Dbookshop.test.mysql=true};
+ * {@code -Dbookshop.test.rows=N} sets the rows seeded per table (default 500) and
+ * {@code -Dbookshop.test.iterations=N} the number of timed runs per case
+ * (default 50, after 10 warm-up runs).
+ */
+@SpringBootTest
+@EnabledIfSystemProperty(named = "bookshop.test.mysql", matches = "true")
+class SparseFieldsBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(SparseFieldsBenchmarkTest.class);
+    private static final int WARMUP = 10;
+    private static final String[] CATEGORIES = { "Textbooks", "Workbooks", "Stationery" };
+
+    @Autowired
+    private ItemService itemService;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private BillService billService;
+
+    @Autowired
+    private BranchService branchService;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BillRepository billRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Test
+    void sparseFieldsShrinkPayloads() {
+        int rows = Integer.getInteger("bookshop.test.rows", 500);
+        int iterations = Integer.getInteger("bookshop.test.iterations", 50);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            status.setRollbackOnly();
+            seed(rows);
+
+            int fullItems = measure("GET /items", iterations, itemService::getAllItems);
+            int sparseItems = measure("GET /items?fields=name,price", iterations,
+                    () -> itemService.getAllItemFields("name,price"));
+            int fullCustomers = measure("GET /customer/all", iterations, customerService::getAllCustomers);
+            int sparseCustomers = measure("GET /customer/all?fields=name", iterations,
+                    () -> customerService.getAllCustomerFields("name"));
+            int fullBills = measure("GET /bills", iterations, billService::getAllBills);
+            int sparseBills = measure("GET /bills?fields=billNumber,status", iterations,
+                    () -> billService.getAllBillFields("billNumber,status"));
+
+            log.info("sparse / full payload: items {}%, customers {}%, bills {}% ({} seeded rows per table)",
+                    sparseItems * 100 / fullItems, sparseCustomers * 100 / fullCustomers,
+                    sparseBills * 100 / fullBills, rows);
+            assertThat(sparseItems).isLessThan(fullItems * 2 / 5);
+            assertThat(sparseCustomers).isLessThan(fullCustomers * 2 / 5);
+            assertThat(sparseBills).isLessThan(fullBills / 5);
+        });
+    }
+
+    /**
+     * Writes {@code rows} items, customers and bills of three lines each, all
+     * created by one new user at the default branch.
+     */
+    private void seed(int rows) {
+        String run = Long.toString(System.currentTimeMillis() % 100_000);
+        User cashier = userRepository.save(new User("sparse-bench-" + run, "not-a-password", User.Role.CASHIER));
+        Branch branch = branchService.getReference(branchService.getDefaultBranchId());
+
+        List<Item> items = new ArrayList<>(rows);
+        List<Customer> customers = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            items.add(new Item("SF" + run + "-" + i, "Benchmark item " + i, "Seeded by the sparse fields benchmark",
+                    new BigDecimal(100 + i % 900 + ".00"), 100, CATEGORIES[i % CATEGORIES.length]));
+            customers.add(new Customer("SF" + run + "-" + i, "Benchmark customer " + i, i + " Main St, Colombo",
+                    String.format("077%07d", i), "customer" + i + "@example.com"));
+        }
+        items = itemRepository.saveAll(items);
+        customers = customerRepository.saveAll(customers);
+
+        List<Bill> bills = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            Bill bill = new Bill(customers.get(i), BigDecimal.ZERO, cashier);
+            bill.setBillNumber("SF" + run + "-" + i);
+            bill.setBranch(branch);
+            bill.setStatus(Bill.Status.PAID);
+            BigDecimal total = BigDecimal.ZERO;
+            for (int line = 0; line < 3; line++) {
+                Item item = items.get((i + line) % rows);
+                BillItem billItem = new BillItem(bill, item, line + 1, item.getPrice());
+                bill.getBillItems().add(billItem);
+                total = total.add(billItem.getTotalPrice());
+            }
+            bill.setSubtotalAmount(total);
+            bill.setTotalAmount(total);
+            bills.add(bill);
+        }
+        billRepository.saveAll(bills);
+        entityManager.flush();
+    }
+
+    /**
+     * Logs one line for the case and returns its payload size in bytes.
+     */
+    private int measure(String name, int iterations, Supplier<Object> call) {
+        int bytes = 0;
+        long[] nanos = new long[iterations];
+        for (int i = -WARMUP; i < iterations; i++) {
+            entityManager.clear();
+            long start = System.nanoTime();
+            byte[] body;
+            try {
+                body = objectMapper.writeValueAsBytes(call.get());
+            } catch (Exception e) {
+                throw new IllegalStateException(name + " failed", e);
+            }
+            long elapsed = System.nanoTime() - start;
+            bytes = body.length;
+            if (i >= 0) {
+                nanos[i] = elapsed;
+            }
+        }
+        Arrays.sort(nanos);
+        log.info("{}: {} JSON bytes, p50 {} ms, p90 {} ms", name, bytes,
+                String.format("%.2f", nanos[iterations / 2] / 1e6), String.format("%.2f", nanos[iterations * 9 / 10] / 1e6));
+        return bytes;
+    }
+}
@@ -0,0 +1,139 @@
+package com.pahanaedu.service;
+
+import com.pahanaedu.entity.Customer;
+import com.pahanaedu.entity.Item;
+import com.pahanaedu.entity.User;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Orders per second for one contended item with the stock taken the normal way
+ * (branch stock row and item total updated in the order's transaction) against
+ * hot-stock mode (striped counter, lines flushed later). Concurrent cashiers
+ * create one-line bills at the default branch for a fixed time in each mode, and
+ * each mode logs orders/sec and the p50/p99 order latency.
+ * <p>
+ * Creates an item and commits real bills, so it only runs against a scratch
+ * database with {@code -Dbookshop.test.mysql=true}. {@code -Dbookshop.test.threads=N}
+ * sets the number of cashiers (default 16) and {@code -Dbookshop.test.seconds=N}
+ * the time per mode (default 10, after a 2 second warm-up).
+ */
+@SpringBootTest
+@EnabledIfSystemProperty(named = "bookshop.test.mysql", matches = "true")
+class HotStockBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(HotStockBenchmarkTest.class);
+    private static final long WARMUP_MS = 2_000;
+
+    @Autowired
+    private BillService billService;
+
+    @Autowired
+    private ItemService itemService;
+
+    @Autowired
+    private HotStockService hotStockService;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private BranchService branchService;
+
+    @Test
+    void hotCounterBeatsRowLocks() throws Exception {
+        int threads = Integer.getInteger("bookshop.test.threads", 16);
+        long millis = Integer.getInteger("bookshop.test.seconds", 10) * 1000L;
+
+        Customer customer = customerService.getAllCustomers().stream().findFirst()
+                .orElseThrow(() -> new IllegalStateException("The benchmark needs a customer"));
+        User cashier = userService.getUsersByRole(User.Role.ADMIN).stream().findFirst()
+                .orElseThrow(() -> new IllegalStateException("The benchmark needs an ADMIN user"));
+        Item item = itemService.createItem(new Item("BENCH-HOT-" + System.currentTimeMillis(), "Hot stock benchmark",
+                null, new BigDecimal("100.00"), 10_000_000, "Benchmark"));
+        List<BillService.BillItemRequest> line = List.of(new BillService.BillItemRequest(item.getId(), 1));
+        Runnable order = () -> billService.createBill(customer.getId(), line, cashier, branchService.getDefaultBranchId());
+
+        double rowLocks = run("row locks", threads, millis, order);
+        hotStockService.enable(item.getId());
+        double hot;
+        try {
+            hot = run("hot counter", threads, millis, order);
+        } finally {
+            hotStockService.disable(item.getId());
+        }
+
+        log.info("hot counter / row locks: {}x at {} cashiers", String.format("%.2f", hot / rowLocks), threads);
+        assertThat(hot).isGreaterThan(rowLocks);
+    }
+
+    /**
+     * Runs {@code order} from {@code threads} threads for a warm-up and then for
+     * {@code millis}, logs the mode's row and returns its orders per second.
+     */
+    private double run(String mode, int threads, long millis, Runnable order) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        AtomicInteger failures = new AtomicInteger();
+        long measureFrom = System.currentTimeMillis() + WARMUP_MS;
+        long end = measureFrom + millis;
+        List<Future<long[]>> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            workers.add(pool.submit(() -> {
+                long[] latencies = new long[1024];
+                int count = 0;
+                while (System.currentTimeMillis() < end) {
+                    long start = System.nanoTime();
+                    try {
+                        order.run();
+                    } catch (RuntimeException e) {
+                        failures.incrementAndGet();
+                        continue;
+                    }
+                    long elapsed = System.nanoTime() - start;
+                    if (System.currentTimeMillis() >= measureFrom) {
+                        if (count == latencies.length) {
+                            latencies = Arrays.copyOf(latencies, count * 2);
+                        }
+                        latencies[count++] = elapsed;
+                    }
+                }
+                return Arrays.copyOf(latencies, count);
+            }));
+        }
+
+        List<Long> all = new ArrayList<>();
+        for (Future<long[]> worker : workers) {
+            for (long latency : worker.get()) {
+                all.add(latency);
+            }
+        }
+        pool.shutdown();
+        all.sort(null);
+
+        double ordersPerSecond = all.size() * 1000.0 / millis;
+        log.info("{}: {} orders/s, p50 {} ms, p99 {} ms, {} failed ({} cashiers, {} s)", mode,
+                String.format("%.1f", ordersPerSecond),
+                String.format("%.2f", all.get(all.size() / 2) / 1e6),
+                String.format("%.2f", all.get(all.size() * 99 / 100) / 1e6),
+                failures.get(), threads, millis / 1000);
+        return ordersPerSecond;
+    }
+}
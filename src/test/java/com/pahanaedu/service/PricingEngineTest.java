@@ -0,0 +1,290 @@
+package com.pahanaedu.service;
+
+import com.pahanaedu.entity.DiscountRule;
+import com.pahanaedu.repository.DiscountRuleRepository;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.LongSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks the integer-cent pricing against the same rules worked out with
+ * {@link BigDecimal} and half-up rounding, on random prices, baskets and rules,
+ * and compares the throughput of the two. {@code -Dbookshop.test.iterations=N}
+ * sets the number of timed passes of the throughput comparison (default 50,
+ * after as many warm-up passes).
+ */
+class PricingEngineTest {
+
+    private static final Logger log = LoggerFactory.getLogger(PricingEngineTest.class);
+    private static final String[] CATEGORIES = {"Fiction", "Science", "Children", null};
+    private static final int TAX_BPS = 825;
+
+    private final Random random = new Random(20240601L);
+
+    @Test
+    void percentOfMatchesBigDecimal() {
+        for (int i = 0; i < 100_000; i++) {
+            long cents = random.nextLong(1_000_000_000_000L);
+            long bps = random.nextInt(10_001);
+            long expected = BigDecimal.valueOf(cents).multiply(BigDecimal.valueOf(bps))
+                    .divide(BigDecimal.valueOf(10_000), 0, RoundingMode.HALF_UP).longValueExact();
+            assertThat(PricingEngine.percentOf(cents, bps)).as("%d cents at %d bps", cents, bps).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void toCentsMatchesBigDecimal() {
+        for (int i = 0; i < 100_000; i++) {
+            BigDecimal amount = BigDecimal.valueOf(random.nextLong(10_000_000_000L), random.nextInt(7));
+            long expected = amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+            assertThat(PricingEngine.toCents(amount)).as("%s", amount).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void quoteMatchesBigDecimal() {
+        for (int round = 0; round < 200; round++) {
+            List<DiscountRule> rules = randomRules();
+            PricingEngine engine = engine(rules);
+            for (int basket = 0; basket < 50; basket++) {
+                int lines = 1 + random.nextInt(8);
+                long[] itemIds = new long[lines];
+                String[] categories = new String[lines];
+                long[] unitCents = new long[lines];
+                int[] quantities = new int[lines];
+                for (int i = 0; i < lines; i++) {
+                    itemIds[i] = 1 + random.nextInt(10);
+                    categories[i] = CATEGORIES[random.nextInt(CATEGORIES.length)];
+                    unitCents[i] = random.nextInt(20_000);
+                    quantities[i] = 1 + random.nextInt(12);
+                }
+
+                PricingEngine.Quote quote = engine.quote(itemIds, categories, unitCents, quantities, System.currentTimeMillis());
+                Expected expected = expected(rules, itemIds, categories, unitCents, quantities);
+
+                assertThat(PricingEngine.toAmount(quote.getSubtotalCents())).isEqualByComparingTo(expected.subtotal);
+                assertThat(PricingEngine.toAmount(quote.getDiscountCents())).isEqualByComparingTo(expected.discount);
+                assertThat(PricingEngine.toAmount(quote.getTaxCents())).isEqualByComparingTo(expected.tax);
+                assertThat(PricingEngine.toAmount(quote.getTotalCents())).isEqualByComparingTo(expected.total);
+
+                long lineTotals = 0;
+                for (int i = 0; i < lines; i++) {
+                    assertThat(quote.getLineTotalCents(i)).isNotNegative();
+                    lineTotals += quote.getLineTotalCents(i);
+                }
+                assertThat(lineTotals).isEqualTo(quote.getSubtotalCents() - quote.getDiscountCents());
+            }
+        }
+    }
+
+    @Test
+    void basketDiscountRemainderGoesOnTheLastLine() {
+        DiscountRule basket = rule(DiscountRule.Scope.BASKET);
+        basket.setAmountOff(new BigDecimal("1.00"));
+        PricingEngine engine = engine(List.of(basket));
+
+        PricingEngine.Quote quote = engine.quote(new long[] {1, 2, 3}, new String[3],
+                new long[] {100, 100, 100}, new int[] {1, 1, 1}, System.currentTimeMillis());
+
+        assertThat(quote.getLineTotalCents(0)).isEqualTo(67);
+        assertThat(quote.getLineTotalCents(1)).isEqualTo(67);
+        assertThat(quote.getLineTotalCents(2)).isEqualTo(66);
+        assertThat(quote.getDiscountCents()).isEqualTo(100);
+    }
+
+    @Test
+    void centsQuoteIsFasterThanBigDecimal() {
+        List<DiscountRule> rules = benchmarkRules();
+        PricingEngine engine = engine(rules);
+        Random baskets = new Random(42L);
+        int count = 10_000;
+        long[][] itemIds = new long[count][];
+        String[][] categories = new String[count][];
+        long[][] unitCents = new long[count][];
+        int[][] quantities = new int[count][];
+        for (int b = 0; b < count; b++) {
+            int lines = 1 + baskets.nextInt(8);
+            itemIds[b] = new long[lines];
+            categories[b] = new String[lines];
+            unitCents[b] = new long[lines];
+            quantities[b] = new int[lines];
+            for (int i = 0; i < lines; i++) {
+                itemIds[b][i] = 1 + baskets.nextInt(10);
+                categories[b][i] = CATEGORIES[baskets.nextInt(CATEGORIES.length)];
+                unitCents[b][i] = baskets.nextInt(20_000);
+                quantities[b][i] = 1 + baskets.nextInt(12);
+            }
+        }
+        long now = System.currentTimeMillis();
+
+        double[] nanos = nanosPerBasket(count, () -> {
+            long sum = 0;
+            for (int b = 0; b < count; b++) {
+                sum += engine.quote(itemIds[b], categories[b], unitCents[b], quantities[b], now).getTotalCents();
+            }
+            return sum;
+        }, () -> {
+            long sum = 0;
+            for (int b = 0; b < count; b++) {
+                sum += expected(rules, itemIds[b], categories[b], unitCents[b], quantities[b]).total.unscaledValue().longValue();
+            }
+            return sum;
+        });
+
+        log.info("quote of {} baskets with {} rules: cents {} ns/basket, BigDecimal {} ns/basket ({}x)", count,
+                rules.size(), String.format("%.0f", nanos[0]), String.format("%.0f", nanos[1]),
+                String.format("%.1f", nanos[1] / nanos[0]));
+        assertThat(nanos[0]).isLessThan(nanos[1]);
+    }
+
+    /**
+     * Median time per basket of one pass over {@code baskets} baskets for each of
+     * the two implementations. The passes alternate, so JIT and GC effects fall on
+     * both alike, and untimed passes come first. Each pass returns a checksum so it
+     * cannot be optimized away.
+     */
+    private static double[] nanosPerBasket(int baskets, LongSupplier cents, LongSupplier bigDecimal) {
+        int iterations = Integer.getInteger("bookshop.test.iterations", 50);
+        long sink = 0;
+        for (int i = 0; i < iterations; i++) {
+            sink += cents.getAsLong() + bigDecimal.getAsLong();
+        }
+        long[] centsNanos = new long[iterations];
+        long[] bigDecimalNanos = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            sink += cents.getAsLong();
+            centsNanos[i] = System.nanoTime() - start;
+            start = System.nanoTime();
+            sink += bigDecimal.getAsLong();
+            bigDecimalNanos[i] = System.nanoTime() - start;
+        }
+        assertThat(sink).isNotZero();
+        Arrays.sort(centsNanos);
+        Arrays.sort(bigDecimalNanos);
+        return new double[] {(double) centsNanos[iterations / 2] / baskets, (double) bigDecimalNanos[iterations / 2] / baskets};
+    }
+
+    /**
+     * A fixed mix: two item rules, two category rules and two basket rules, half
+     * percentage and half amount off.
+     */
+    private static List<DiscountRule> benchmarkRules() {
+        DiscountRule item1 = rule(DiscountRule.Scope.ITEM);
+        item1.setItemId(1L);
+        item1.setPercentOff(new BigDecimal("12.50"));
+        DiscountRule item2 = rule(DiscountRule.Scope.ITEM);
+        item2.setItemId(2L);
+        item2.setAmountOff(new BigDecimal("3.00"));
+        DiscountRule fiction = rule(DiscountRule.Scope.CATEGORY);
+        fiction.setCategory("Fiction");
+        fiction.setPercentOff(new BigDecimal("5"));
+        DiscountRule science = rule(DiscountRule.Scope.CATEGORY);
+        science.setCategory("Science");
+        science.setAmountOff(new BigDecimal("1.25"));
+        DiscountRule basket = rule(DiscountRule.Scope.BASKET);
+        basket.setMinBasketAmount(new BigDecimal("200.00"));
+        basket.setPercentOff(new BigDecimal("7.5"));
+        DiscountRule flat = rule(DiscountRule.Scope.BASKET);
+        flat.setMinBasketAmount(new BigDecimal("500.00"));
+        flat.setAmountOff(new BigDecimal("40.00"));
+        return List.of(item1, item2, fiction, science, basket, flat);
+    }
+
+    private PricingEngine engine(List<DiscountRule> rules) {
+        DiscountRuleRepository repository = mock(DiscountRuleRepository.class);
+        when(repository.findByActiveTrue()).thenReturn(rules);
+        PricingEngine engine = new PricingEngine();
+        ReflectionTestUtils.setField(engine, "discountRuleRepository", repository);
+        ReflectionTestUtils.setField(engine, "taxBps", TAX_BPS);
+        engine.reloadRules();
+        return engine;
+    }
+
+    private List<DiscountRule> randomRules() {
+        List<DiscountRule> rules = new ArrayList<>();
+        int count = random.nextInt(6);
+        for (int i = 0; i < count; i++) {
+            DiscountRule.Scope scope = DiscountRule.Scope.values()[random.nextInt(DiscountRule.Scope.values().length)];
+            DiscountRule rule = rule(scope);
+            if (scope == DiscountRule.Scope.ITEM) {
+                rule.setItemId(1L + random.nextInt(10));
+            } else if (scope == DiscountRule.Scope.CATEGORY) {
+                rule.setCategory(CATEGORIES[random.nextInt(CATEGORIES.length - 1)]);
+            } else if (random.nextBoolean()) {
+                rule.setMinBasketAmount(BigDecimal.valueOf(random.nextInt(50_000), 2));
+            }
+            if (random.nextBoolean()) {
+                rule.setPercentOff(BigDecimal.valueOf(random.nextInt(10_001), 2));
+            } else {
+                rule.setAmountOff(BigDecimal.valueOf(random.nextInt(5_000), 2));
+            }
+            rules.add(rule);
+        }
+        return rules;
+    }
+
+    private static DiscountRule rule(DiscountRule.Scope scope) {
+        DiscountRule rule = new DiscountRule();
+        rule.setScope(scope);
+        rule.setActive(true);
+        return rule;
+    }
+
+    /**
+     * The pricing rules of {@link PricingEngine} in {@link BigDecimal}.
+     */
+    private static Expected expected(List<DiscountRule> rules, long[] itemIds, String[] categories,
+                                     long[] unitCents, int[] quantities) {
+        BigDecimal subtotal = BigDecimal.ZERO;
+        BigDecimal lineDiscounts = BigDecimal.ZERO;
+        for (int i = 0; i < itemIds.length; i++) {
+            BigDecimal gross = BigDecimal.valueOf(unitCents[i], 2).multiply(BigDecimal.valueOf(quantities[i]));
+            BigDecimal best = BigDecimal.ZERO;
+            for (DiscountRule rule : rules) {
+                boolean applies = rule.getScope() == DiscountRule.Scope.ITEM && rule.getItemId() == itemIds[i]
+                        || rule.getScope() == DiscountRule.Scope.CATEGORY && rule.getCategory().equals(categories[i]);
+                if (applies) {
+                    best = best.max(discount(rule, gross, quantities[i]));
+                }
+            }
+            subtotal = subtotal.add(gross);
+            lineDiscounts = lineDiscounts.add(best);
+        }
+
+        BigDecimal net = subtotal.subtract(lineDiscounts);
+        BigDecimal basket = BigDecimal.ZERO;
+        for (DiscountRule rule : rules) {
+            BigDecimal minimum = rule.getMinBasketAmount() != null ? rule.getMinBasketAmount() : BigDecimal.ZERO;
+            if (rule.getScope() == DiscountRule.Scope.BASKET && net.compareTo(minimum) >= 0) {
+                basket = basket.max(discount(rule, net, 1));
+            }
+        }
+        net = net.subtract(basket);
+
+        BigDecimal tax = net.multiply(BigDecimal.valueOf(TAX_BPS)).divide(BigDecimal.valueOf(10_000), 2, RoundingMode.HALF_UP);
+        return new Expected(subtotal, lineDiscounts.add(basket), tax, net.add(tax));
+    }
+
+    private static BigDecimal discount(DiscountRule rule, BigDecimal amount, int units) {
+        if (rule.getPercentOff() != null) {
+            return amount.multiply(rule.getPercentOff()).divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP);
+        }
+        return amount.min(rule.getAmountOff().multiply(BigDecimal.valueOf(units)));
+    }
+
+    private record Expected(BigDecimal subtotal, BigDecimal discount, BigDecimal tax, BigDecimal total) {}
+}